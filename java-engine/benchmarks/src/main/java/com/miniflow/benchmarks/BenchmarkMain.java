@@ -0,0 +1,72 @@
+package com.miniflow.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Punto de entrada del jar de benchmarks. Acepta las mismas opciones que
+ * org.openjdk.jmh.Main y añade por defecto:
+ * <ul>
+ * <li>el perfilador de GC (-prof gc): asignación por operación</li>
+ * <li>resultados en JSON en target/jmh/&lt;commit&gt;-&lt;fecha&gt;.json</li>
+ * </ul>
+ * Si se pasan -prof, -rf o -rff explícitos, mandan esos.
+ *
+ * Dos ficheros de resultados se comparan con {@link CompareResults}.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        if (cli.shouldHelp() || cli.shouldList() || cli.shouldListProfilers() || cli.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cli);
+        if (cli.getProfilers().isEmpty())
+            options.addProfiler(GCProfiler.class);
+        if (!cli.getResultFormat().hasValue())
+            options.resultFormat(ResultFormatType.JSON);
+        if (!cli.getResult().hasValue()) {
+            Path dir = Path.of("target", "jmh");
+            Files.createDirectories(dir);
+            String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            Path file = dir.resolve(commit() + "-" + stamp + ".json");
+            options.result(file.toString());
+            System.out.println("# Results: " + file.toAbsolutePath());
+        }
+        new Runner(options.build()).run();
+    }
+
+    /**
+     * Commit actual (GIT_COMMIT o git rev-parse) para nombrar los resultados.
+     */
+    private static String commit() {
+        String env = System.getenv("GIT_COMMIT");
+        if (env != null && !env.isBlank())
+            return env.length() > 12 ? env.substring(0, 12) : env;
+        try {
+            Process git = new ProcessBuilder("git", "rev-parse", "--short=12", "HEAD")
+                    .redirectErrorStream(true).start();
+            String out = new String(git.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+            if (git.waitFor() == 0 && !out.isEmpty() && !out.contains(" "))
+                return out;
+        } catch (IOException e) {
+            // Sin git: se usa el nombre genérico
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "local";
+    }
+}
@@ -0,0 +1,71 @@
+package com.miniflow.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compara dos ficheros de resultados JSON de JMH (antes / después):
+ *
+ * <pre>
+ * java -cp benchmarks.jar com.miniflow.benchmarks.CompareResults base.json new.json
+ * </pre>
+ *
+ * Imprime por benchmark y parámetros la puntuación, el cambio porcentual y
+ * la asignación por operación (gc.alloc.rate.norm) si se midió.
+ */
+public class CompareResults {
+
+    private record Row(double score, String unit, Double allocBytes) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: CompareResults <base.json> <new.json>");
+            System.exit(2);
+        }
+        Map<String, Row> base = load(new File(args[0]));
+        Map<String, Row> current = load(new File(args[1]));
+
+        System.out.printf("%-70s %14s %14s %9s %12s %12s%n", "Benchmark", "base", "new", "change", "base B/op",
+                "new B/op");
+        List<String> keys = new ArrayList<>(current.keySet());
+        base.keySet().stream().filter(k -> !current.containsKey(k)).forEach(keys::add);
+        for (String key : keys) {
+            Row a = base.get(key), b = current.get(key);
+            String change = a != null && b != null && a.score() != 0
+                    ? String.format("%+.1f%%", (b.score() - a.score()) * 100 / a.score())
+                    : "-";
+            System.out.printf("%-70s %14s %14s %9s %12s %12s%n", key, score(a), score(b), change, alloc(a), alloc(b));
+        }
+    }
+
+    private static String score(Row row) {
+        return row == null ? "-" : String.format("%.3f %s", row.score(), row.unit());
+    }
+
+    private static String alloc(Row row) {
+        return row == null || row.allocBytes() == null ? "-" : String.format("%.1f", row.allocBytes());
+    }
+
+    private static Map<String, Row> load(File file) throws Exception {
+        Map<String, Row> rows = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText().replace("com.miniflow.benchmarks.", ""));
+            for (Iterator<Map.Entry<String, JsonNode>> it = run.path("params").fields(); it.hasNext();) {
+                Map.Entry<String, JsonNode> p = it.next();
+                key.append(' ').append(p.getKey()).append('=').append(p.getValue().asText());
+            }
+            JsonNode primary = run.path("primaryMetric");
+            JsonNode alloc = run.path("secondaryMetrics").path("gc.alloc.rate.norm");
+            rows.put(key.toString(), new Row(primary.path("score").asDouble(), primary.path("scoreUnit").asText(),
+                    alloc.isMissingNode() ? null : alloc.path("score").asDouble()));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,69 @@
+package com.miniflow.benchmarks;
+
+import com.miniflow.context.ExecutionContext;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Costo de bifurcar un ExecutionContext (lo que hace PARALLEL por cada rama)
+ * en función del tamaño del contexto.
+ *
+ * "legacyCopy" reproduce la copia completa a ConcurrentHashMap que hacía
+ * cloneContext() antes de los mapas persistentes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextForkBenchmark {
+
+    @Param({ "10", "1000", "100000" })
+    public int size;
+
+    private ExecutionContext context;
+    private Map<String, Object> legacyVariables;
+
+    @Setup
+    public void setup() {
+        context = new ExecutionContext();
+        legacyVariables = new ConcurrentHashMap<>();
+        for (int i = 0; i < size; i++) {
+            Object value = Map.of("id", i, "body", "payload-" + i);
+            context.setVariable("var" + i, value);
+            legacyVariables.put("var" + i, value);
+        }
+    }
+
+    @Benchmark
+    public ExecutionContext fork() {
+        return context.cloneContext();
+    }
+
+    @Benchmark
+    public ExecutionContext forkAndWrite() {
+        ExecutionContext branch = context.cloneContext();
+        branch.setVariable("branchResult", 1);
+        return branch;
+    }
+
+    @Benchmark
+    public Map<String, Object> legacyCopy() {
+        Map<String, Object> copy = new ConcurrentHashMap<>();
+        copy.putAll(legacyVariables);
+        return copy;
+    }
+}
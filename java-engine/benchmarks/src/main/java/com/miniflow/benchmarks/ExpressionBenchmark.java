@@ -0,0 +1,99 @@
+package com.miniflow.benchmarks;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.utils.ExpressionEvaluator;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Condiciones de un CONDITIONAL. "legacySimple" es el evaluador anterior
+ * (contains/split en cada llamada), que solo entendía == y !=.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionBenchmark {
+
+    private static final String SIMPLE = "context.status == 200";
+    private static final String COMPOUND = "status >= 200 && status < 300 && 'admin' in user.roles && env != dev";
+    private static final String FUNCTIONS = "startsWith(lower(user.name), 'an') && len(user.roles) == 2";
+
+    @Param({ "10", "1000", "100000" })
+    public int variables;
+
+    private ExecutionContext context;
+    private ExpressionEvaluator.Expression precompiled;
+
+    @Setup
+    public void setup() {
+        context = Synthetic.context(variables);
+        precompiled = ExpressionEvaluator.compile(COMPOUND);
+    }
+
+    @Benchmark
+    public boolean simple() {
+        return ExpressionEvaluator.evaluate(SIMPLE, context);
+    }
+
+    @Benchmark
+    public boolean compound() {
+        return ExpressionEvaluator.evaluate(COMPOUND, context);
+    }
+
+    @Benchmark
+    public boolean compoundPrecompiled() {
+        return precompiled.test(context);
+    }
+
+    @Benchmark
+    public boolean functions() {
+        return ExpressionEvaluator.evaluate(FUNCTIONS, context);
+    }
+
+    @Benchmark
+    public boolean legacySimple() {
+        return legacyEvaluate(SIMPLE, context);
+    }
+
+    private static boolean legacyEvaluate(String expression, ExecutionContext context) {
+        String s = expression.trim();
+        String op = s.contains("==") ? "==" : s.contains("!=") ? "!=" : null;
+        if (op == null)
+            return false;
+        String[] parts = s.split(op, 2);
+        String key = parts[0].trim();
+        String cleanKey = key.startsWith("context.") ? key.substring(8) : key;
+        Object left = context.getVariable(cleanKey);
+        Object right = legacyNormalize(parts[1].trim().replace("\"", "").replace("'", ""));
+        boolean equals;
+        if (left == null || right == null)
+            equals = Objects.equals(left, right);
+        else if (left instanceof Number a && right instanceof Number b)
+            equals = Double.compare(a.doubleValue(), b.doubleValue()) == 0;
+        else
+            equals = String.valueOf(left).equals(String.valueOf(right));
+        return "==".equals(op) ? equals : !equals;
+    }
+
+    static Object legacyNormalize(String t) {
+        if (t.matches("^-?\\d+$"))
+            return Integer.parseInt(t);
+        if (t.matches("^-?\\d+\\.\\d+$"))
+            return Double.parseDouble(t);
+        return t;
+    }
+}
@@ -0,0 +1,102 @@
+package com.miniflow.benchmarks;
+
+import com.miniflow.utils.JsonPath;
+import com.miniflow.utils.JsonUtils;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Extracción de una ruta sobre una respuesta ya parseada.
+ *
+ * "legacy" reproduce el extractByPath anterior (split con regex en cada
+ * llamada); "extractByPath" es el actual (caché de rutas compiladas) y
+ * "precompiled" usa directamente una JsonPath guardada. "filter" recorre
+ * la lista de items completa, así que crece con su tamaño.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonPathBenchmark {
+
+    @Param({ "$.status", "$.data.user.profile.name" })
+    public String path;
+
+    @Param({ "10", "1000", "100000" })
+    public int items;
+
+    private Object response;
+    private JsonPath compiled;
+    private JsonPath indexed;
+    private JsonPath filter;
+
+    @Setup
+    public void setup() {
+        StringBuilder list = new StringBuilder();
+        for (int i = 0; i < items; i++)
+            list.append(i > 0 ? "," : "").append("{\"id\":").append(i).append(",\"tipo\":\"t").append(i % 3)
+                    .append("\"}");
+        response = JsonUtils.tryParse("{\"status\":200,\"data\":{\"user\":{\"profile\":{\"name\":\"Ana\"}}},"
+                + "\"items\":[" + list + "]}");
+        compiled = JsonPath.compile(path);
+        indexed = JsonPath.compile("$.items[3].id");
+        filter = JsonPath.compile("$.items[?(@.tipo == 't1')].id");
+    }
+
+    @Benchmark
+    public Object legacy() {
+        return legacyExtract(response, path);
+    }
+
+    @Benchmark
+    public Object extractByPath() {
+        return JsonUtils.extractByPath(response, path);
+    }
+
+    @Benchmark
+    public Object precompiled() {
+        return compiled.read(response);
+    }
+
+    @Benchmark
+    public Object precompiledIndex() {
+        return indexed.read(response);
+    }
+
+    @Benchmark
+    public Object filter() {
+        return filter.read(response);
+    }
+
+    private static Object legacyExtract(Object parsed, String path) {
+        if (parsed == null || path == null || path.isBlank())
+            return null;
+        if (path.startsWith("$."))
+            path = path.substring(2);
+
+        String[] parts = path.split("\\.");
+        Object current = parsed;
+
+        for (String part : parts) {
+            if (current instanceof Map<?, ?> m) {
+                current = m.get(part);
+            } else {
+                return null;
+            }
+        }
+        return current;
+    }
+}
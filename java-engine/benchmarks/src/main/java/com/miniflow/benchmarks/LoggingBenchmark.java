@@ -0,0 +1,81 @@
+package com.miniflow.benchmarks;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.model.Node;
+import com.miniflow.strategies.LoggingNodeDecorator;
+import com.miniflow.strategies.NodeExecutor;
+import com.miniflow.utils.EngineOutput;
+import com.miniflow.utils.LogUtils;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Costo del log por nodo: LogUtils.formatMapForLog sobre N variables y un
+ * nodo trivial ejecutado con y sin LoggingNodeDecorator (que serializa el
+ * contexto antes y después). La salida del EventSink va a un stream nulo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggingBenchmark {
+
+    @Param({ "10", "1000", "100000" })
+    public int variables;
+
+    private Map<String, Object> map;
+    private ExecutionContext context;
+    private Node node;
+    private NodeExecutor plain;
+    private NodeExecutor decorated;
+    private PrintStream originalOut;
+
+    @Setup
+    public void setup() {
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        map = Synthetic.variables(variables);
+        context = Synthetic.context(variables);
+        node = Synthetic.node("bench", "COMMAND", Map.of("command", "echo"));
+        plain = (n, ctx) -> ctx.setNodeOutput(n.id, Map.of("success", true));
+        decorated = new LoggingNodeDecorator(plain);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        EngineOutput.flush();
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public String formatMapForLog() {
+        return LogUtils.formatMapForLog(map);
+    }
+
+    @Benchmark
+    public void undecoratedNode() throws Exception {
+        plain.execute(node, context);
+    }
+
+    @Benchmark
+    public void decoratedNode() throws Exception {
+        decorated.execute(node, context);
+    }
+}
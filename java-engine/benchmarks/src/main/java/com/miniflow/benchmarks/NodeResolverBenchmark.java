@@ -0,0 +1,60 @@
+package com.miniflow.benchmarks;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.core.NodeResolver;
+import com.miniflow.model.Node;
+import com.miniflow.model.Workflow;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * NodeResolver.resolveNext sobre una cadena de N nodos (uno de cada diez es
+ * CONDITIONAL). Cada llamada avanza un paso y vuelve al inicio al llegar al
+ * END, así que se recorren todos los nodos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeResolverBenchmark {
+
+    @Param({ "10", "1000", "100000" })
+    public int nodes;
+
+    private Workflow workflow;
+    private ExecutionContext context;
+    private Node start;
+    private Node cursor;
+
+    @Setup
+    public void setup() {
+        workflow = Synthetic.chain(nodes);
+        workflow.compiled();
+        context = new ExecutionContext();
+        for (Node node : workflow.nodes)
+            if ("CONDITIONAL".equals(node.type))
+                context.setNodeOutput(node.id, Map.of("selectedBranch", "TRUE", "result", true));
+        start = NodeResolver.findStartNode(workflow);
+        cursor = start;
+    }
+
+    @Benchmark
+    public Node resolveNext() {
+        Node next = NodeResolver.resolveNext(workflow, cursor, context);
+        cursor = next == null ? start : next;
+        return next;
+    }
+}
@@ -0,0 +1,86 @@
+package com.miniflow.benchmarks;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.model.Connection;
+import com.miniflow.model.Node;
+import com.miniflow.model.Workflow;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Datos sintéticos compartidos por los benchmarks: contextos con N variables
+ * y workflows en cadena con N nodos.
+ */
+final class Synthetic {
+
+    private Synthetic() {
+    }
+
+    /**
+     * Contexto con {@code size} variables "varN" más las que usan las
+     * plantillas y expresiones de los benchmarks (status, env, user).
+     */
+    static ExecutionContext context(int size) {
+        ExecutionContext context = new ExecutionContext();
+        for (int i = 0; i < size; i++)
+            context.setVariable("var" + i, Map.of("id", i, "body", "payload-" + i));
+        context.setVariable("status", 200);
+        context.setVariable("env", "prod");
+        context.setVariable("user", Map.of("name", "Ana", "roles", List.of("admin", "dev"), "age", 31));
+        return context;
+    }
+
+    static Map<String, Object> variables(int size) {
+        Map<String, Object> map = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++)
+            map.put("var" + i, i % 2 == 0 ? "payload-" + i : Map.of("id", i));
+        return map;
+    }
+
+    static Node node(String id, String type, Map<String, Object> config) {
+        Node node = new Node();
+        node.id = id;
+        node.type = type;
+        node.data = new HashMap<>();
+        node.data.put("config", config);
+        return node;
+    }
+
+    static Connection edge(String source, String target, String handle) {
+        Connection edge = new Connection();
+        edge.source = source;
+        edge.target = target;
+        edge.sourceHandle = handle;
+        return edge;
+    }
+
+    /**
+     * START -> n1 -> ... -> END. Uno de cada diez nodos es un CONDITIONAL con
+     * las dos ramas hacia el siguiente nodo.
+     */
+    static Workflow chain(int size) {
+        Workflow workflow = new Workflow();
+        workflow.name = "chain-" + size;
+        workflow.nodes.add(node("start", "START", Map.of()));
+        String previous = "start";
+        boolean previousConditional = false;
+        for (int i = 0; i < size; i++) {
+            String id = "n" + i;
+            boolean conditional = i % 10 == 9;
+            workflow.nodes.add(node(id, conditional ? "CONDITIONAL" : "COMMAND",
+                    conditional ? Map.of("condition", "status == 200") : Map.of("command", "echo", "args", id)));
+            if (previousConditional) {
+                workflow.edges.add(edge(previous, id, "true"));
+                workflow.edges.add(edge(previous, id, "false"));
+            } else {
+                workflow.edges.add(edge(previous, id, null));
+            }
+            previous = id;
+            previousConditional = conditional;
+        }
+        workflow.nodes.add(node("end", "END", Map.of()));
+        workflow.edges.add(edge(previous, "end", previousConditional ? "true" : null));
+        return workflow;
+    }
+}
@@ -0,0 +1,73 @@
+package com.miniflow.benchmarks;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.utils.TemplateEngine;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * TemplateEngine.render sobre una URL típica de HTTP_REQUEST, con contextos
+ * de distinto tamaño. "legacyRegex" es el render anterior (regex en cada
+ * llamada, sin rutas anidadas).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateBenchmark {
+
+    private static final Pattern LEGACY = Pattern.compile("\\{\\{\\s*(?:context\\.)?([a-zA-Z0-9_]+)\\s*\\}\\}");
+    private static final String TEMPLATE = "https://api.example.com/{{ env }}/items/{{var7}}?status={{context.status}}";
+    private static final String NESTED = "Hola {{ user.name }}, rol {{ user.roles[0] }}";
+
+    @Param({ "10", "1000", "100000" })
+    public int variables;
+
+    private ExecutionContext context;
+
+    @Setup
+    public void setup() {
+        context = Synthetic.context(variables);
+    }
+
+    @Benchmark
+    public String render() {
+        return TemplateEngine.render(TEMPLATE, context);
+    }
+
+    @Benchmark
+    public String renderNested() {
+        return TemplateEngine.render(NESTED, context);
+    }
+
+    @Benchmark
+    public String literal() {
+        return TemplateEngine.render("https://api.example.com/health", context);
+    }
+
+    @Benchmark
+    public String legacyRegex() {
+        Matcher matcher = LEGACY.matcher(TEMPLATE);
+        StringBuilder sb = new StringBuilder();
+        while (matcher.find()) {
+            Object value = context.getVariable(matcher.group(1));
+            matcher.appendReplacement(sb, Matcher.quoteReplacement(value == null ? "" : String.valueOf(value)));
+        }
+        matcher.appendTail(sb);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,58 @@
+package com.miniflow.benchmarks;
+
+import com.miniflow.utils.TypeConverter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * TypeConverter.normalize sobre un lote de N textos (enteros, decimales y
+ * palabras a partes iguales), como los valores de un map de HTTP_REQUEST.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TypeConverterBenchmark {
+
+    @Param({ "10", "1000", "100000" })
+    public int values;
+
+    private String[] inputs;
+
+    @Setup
+    public void setup() {
+        inputs = new String[values];
+        for (int i = 0; i < values; i++) {
+            inputs[i] = switch (i % 3) {
+                case 0 -> String.valueOf(i);
+                case 1 -> "-" + i + ".25";
+                default -> "value-" + i;
+            };
+        }
+    }
+
+    @Benchmark
+    public void normalize(Blackhole bh) {
+        for (String input : inputs)
+            bh.consume(TypeConverter.normalize(input));
+    }
+
+    @Benchmark
+    public void legacyRegex(Blackhole bh) {
+        for (String input : inputs)
+            bh.consume(ExpressionBenchmark.legacyNormalize(input));
+    }
+}
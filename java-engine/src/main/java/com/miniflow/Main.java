@@ -1,35 +1,94 @@
 package com.miniflow;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.miniflow.bench.BenchRunner;
+import com.miniflow.bench.WorkflowGenerator;
 import com.miniflow.model.Workflow;
-import com.miniflow.core.WorkflowRunner;
-import java.util.Scanner;
+import com.miniflow.model.WorkflowReader;
+import com.miniflow.core.HistoryStore;
+import com.miniflow.core.WorkflowEngines;
+import com.miniflow.utils.EngineOutput;
+import com.miniflow.utils.JsonUtils;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * REFACTOR: Se implementa try-with-resources para evitar fugas de memoria (Resource Leaks).
+ * Punto de entrada del motor. Lee el workflow desde stdin (modo normal) o
+ * peticiones NDJSON (modo --daemon). Herramientas de carga: --generate=forma
+ * escribe un workflow sintético y --bench lo mide de extremo a extremo.
+ * --resume runId reanuda una ejecución fallida desde su journal (el
+ * workflow se vuelve a leer de stdin). --history consulta el histórico
+ * local de ejecuciones.
  */
 public class Main {
     public static void main(String[] args) {
         ObjectMapper mapper = new ObjectMapper();
-        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-
-        // Al declarar el scanner aquí, Java lo cierra automáticamente al salir del try
-        try (Scanner scanner = new Scanner(System.in)) {
-            StringBuilder sb = new StringBuilder();
-            
-            // Leemos el JSON enviado por el proceso padre (Electron)
-            while (scanner.hasNextLine()) {
-                sb.append(scanner.nextLine());
+
+        // --engine=dataflow equivale a -Dminiflow.engine=dataflow
+        for (String arg : args) {
+            if (arg.startsWith("--engine="))
+                System.setProperty("miniflow.engine", arg.substring("--engine=".length()));
+        }
+
+        if (Arrays.stream(args).anyMatch(a -> a.startsWith("--generate="))) {
+            try {
+                System.out.println(WorkflowGenerator.toJson(WorkflowGenerator.Options.fromArgs(args)));
+            } catch (Exception e) {
+                handleCriticalError(e, mapper);
+                System.exit(1);
+            }
+            return;
+        }
+
+        if (Arrays.stream(args).anyMatch(a -> a.equals("--bench") || a.startsWith("--bench="))) {
+            try {
+                System.out.println(BenchRunner.format(BenchRunner.run(args, System.in)));
+            } catch (Exception e) {
+                handleCriticalError(e, mapper);
+                System.exit(1);
             }
-            
-            String jsonInput = sb.toString();
-            if (jsonInput.isBlank()) return;
+            return;
+        }
+
+        if (Arrays.stream(args).anyMatch(a -> a.equals("--history") || a.startsWith("--history="))) {
+            try {
+                System.out.println(JsonUtils.toJson(history(args)));
+            } catch (Exception e) {
+                handleCriticalError(e, mapper);
+                System.exit(1);
+            }
+            return;
+        }
+
+        if (Arrays.asList(args).contains("--daemon")) {
+            runDaemon(mapper);
+            return;
+        }
 
-            // Procesamiento del Workflow
-            Workflow workflow = mapper.readValue(jsonInput, Workflow.class);
-            new WorkflowRunner().run(workflow);
+        // REFACTOR: Parseo en streaming directamente desde stdin (sin Scanner ni
+        // StringBuilder intermedio). Los campos de la UI se descartan al vuelo.
+        try {
+            String resumeId = resumeArgument(args);
+            Workflow workflow = WorkflowReader.read(System.in);
+            if (workflow == null) return;
+
+            workflow.compiled(); // Indexamos el grafo una sola vez, antes de ejecutar
+            if (resumeId != null)
+                WorkflowEngines.forWorkflow(workflow).resume(workflow, resumeId);
+            else
+                WorkflowEngines.forWorkflow(workflow).run(workflow, null);
 
         } catch (Exception e) {
             handleCriticalError(e, mapper);
@@ -37,10 +96,138 @@ public class Main {
         }
     }
 
+    /**
+     * runId de "--resume runId" o "--resume=runId" (null si no se pide).
+     */
+    static String resumeArgument(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].startsWith("--resume="))
+                return args[i].substring("--resume=".length());
+            if (args[i].equals("--resume")) {
+                if (i + 1 >= args.length || args[i + 1].startsWith("--"))
+                    throw new IllegalArgumentException("--resume requires a runId");
+                return args[i + 1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * --history lista resúmenes paginados del histórico local (filtros en
+     * {@link HistoryStore.Query}); --history=runId devuelve un run con la
+     * duración de cada nodo.
+     */
+    static Map<String, Object> history(String[] args) throws IOException {
+        for (String arg : args) {
+            if (arg.startsWith("--history=") && arg.length() > "--history=".length())
+                return HistoryStore.shared().run(arg.substring("--history=".length()));
+        }
+        return HistoryStore.shared().list(HistoryStore.Query.fromArgs(args));
+    }
+
+    /**
+     * Modo daemon: una sola JVM "caliente" atiende muchas ejecuciones.
+     *
+     * Protocolo de entrada (NDJSON, una petición por línea):
+     *   {"runId": "abc", "workflow": { ...mismo JSON que el modo normal... }}
+     * Con "resume": true se reanuda el run "abc" desde su journal.
+     *
+     * Cada ejecución corre en su propio hilo y toda su salida se emite como
+     * frames NDJSON que incluyen su runId. Al cerrarse stdin se esperan las
+     * ejecuciones en curso y el proceso termina.
+     */
+    static void runDaemon(ObjectMapper mapper) {
+        EngineOutput.setFramed(true);
+
+        AtomicInteger seq = new AtomicInteger();
+        ExecutorService runs = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "miniflow-run-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        EngineOutput.event(null, Map.of("event", "DAEMON_READY"));
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank())
+                    continue;
+                submitRun(line, runs);
+            }
+        } catch (Exception e) {
+            handleCriticalError(e, mapper);
+        }
+
+        runs.shutdown();
+        try {
+            runs.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        EngineOutput.flush();
+    }
+
+    private static void submitRun(String line, ExecutorService runs) {
+        String runId = null;
+        try (JsonParser p = WorkflowReader.createParser(line)) {
+            Workflow parsed = null;
+            boolean resume = false;
+            if (p.nextToken() != JsonToken.START_OBJECT)
+                throw new IllegalArgumentException("Run request must be a JSON object");
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken value = p.nextToken();
+                if ("runId".equals(field) && value != JsonToken.VALUE_NULL) {
+                    runId = p.getValueAsString();
+                } else if ("workflow".equals(field) && value == JsonToken.START_OBJECT) {
+                    parsed = WorkflowReader.read(p);
+                } else if ("resume".equals(field)) {
+                    resume = value == JsonToken.VALUE_TRUE;
+                } else {
+                    p.skipChildren();
+                }
+            }
+            if (runId == null && resume)
+                throw new IllegalArgumentException("Resume request without 'runId'");
+            if (runId == null)
+                runId = UUID.randomUUID().toString();
+            if (parsed == null)
+                throw new IllegalArgumentException("Run request without 'workflow'");
+
+            Workflow workflow = parsed;
+            workflow.compiled();
+
+            final String id = runId;
+            final boolean resumeRun = resume;
+            runs.submit(() -> {
+                try {
+                    if (resumeRun)
+                        WorkflowEngines.forWorkflow(workflow).resume(workflow, id);
+                    else
+                        WorkflowEngines.forWorkflow(workflow).run(workflow, id);
+                } catch (Exception e) {
+                    reportRunError(id, e);
+                }
+            });
+        } catch (Exception e) {
+            reportRunError(runId, e);
+        }
+    }
+
+    private static void reportRunError(String runId, Exception e) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("status", "CRITICAL_ERROR");
+        fields.put("message", e.getMessage() != null ? e.getMessage() : "Unknown error");
+        EngineOutput.event(runId, fields);
+    }
+
     /**
      * Centraliza el reporte de errores hacia el Frontend en formato JSON.
      */
     private static void handleCriticalError(Exception e, ObjectMapper mapper) {
+        // Lo que ya estaba en el buffer de eventos debe salir antes que el error
+        EngineOutput.flush();
         try {
             String errorJson = mapper.writeValueAsString(Map.of(
                 "status", "CRITICAL_ERROR",
@@ -52,4 +239,4 @@ public class Main {
             System.err.println("FATAL_ERROR: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,190 @@
+package com.miniflow.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.core.WorkflowEngine;
+import com.miniflow.core.WorkflowEngines;
+import com.miniflow.model.NodeType;
+import com.miniflow.model.Workflow;
+import com.miniflow.model.WorkflowReader;
+import com.miniflow.strategies.LoggingNodeDecorator;
+import com.miniflow.utils.EngineOutput;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Modo --bench: ejecuta un workflow completo N veces (tras un calentamiento)
+ * contra un servidor HTTP local y reporta, en JSON:
+ *   - throughput (ejecuciones por segundo)
+ *   - p50 / p99 / p999 por ejecución y por tipo de nodo
+ *   - pico de hilos de plataforma y tasa de asignación de memoria
+ *
+ * El workflow sale de --workflow=fichero, de --shape=... (ver
+ * {@link WorkflowGenerator}) o, si no se indica ninguno, de stdin. Las URLs
+ * {@link WorkflowGenerator#STUB_URL} se redirigen al servidor local.
+ *
+ * La salida normal del motor se descarta durante la medición; el coste de
+ * generarla (LoggingNodeDecorator, EventSink) sí forma parte de lo medido.
+ */
+public final class BenchRunner {
+
+    private static final PrintStream DISCARD = new PrintStream(OutputStream.nullOutputStream());
+
+    private BenchRunner() {
+    }
+
+    public static Map<String, Object> run(String[] args, InputStream in) throws Exception {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (arg.startsWith("--") && eq > 2)
+                values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        int runs = Math.max(1, Integer.parseInt(values.getOrDefault("runs", values.getOrDefault("bench", "50"))));
+        int warmup = Math.max(0, Integer.parseInt(values.getOrDefault("warmup", "10")));
+
+        String json;
+        if (values.containsKey("workflow"))
+            json = Files.readString(Path.of(values.get("workflow")));
+        else if (values.containsKey("shape"))
+            json = WorkflowGenerator.toJson(WorkflowGenerator.Options.fromArgs(args));
+        else
+            json = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+
+        try (StubHttpServer stub = StubHttpServer.start()) {
+            Workflow workflow = WorkflowReader.read(json.replace(WorkflowGenerator.STUB_URL, stub.baseUrl()));
+            if (workflow == null)
+                throw new IllegalArgumentException("No workflow to benchmark");
+            workflow.compiled();
+            return measure(workflow, runs, warmup, stub);
+        }
+    }
+
+    private static Map<String, Object> measure(Workflow workflow, int runs, int warmup, StubHttpServer stub) {
+        WorkflowEngine engine = WorkflowEngines.forWorkflow(workflow);
+        Map<NodeType, LatencySamples> byType = new ConcurrentHashMap<>();
+        LatencySamples perRun = new LatencySamples();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        PrintStream stdout = System.out;
+        System.setOut(DISCARD);
+        // Las ejecuciones de bench no van al histórico del usuario ni miden E/S del journal
+        String history = System.setProperty("miniflow.history.enabled", "false");
+        String journal = System.setProperty("miniflow.journal.enabled", "false");
+        int failed = 0;
+        long elapsed;
+        long allocated;
+        int peakThreads;
+        long requests;
+        try {
+            for (int i = 0; i < warmup; i++)
+                engine.run(workflow, "warmup-" + i);
+            EngineOutput.flush();
+
+            LoggingNodeDecorator.setTimingListener((node, nanos, error) -> byType
+                    .computeIfAbsent(node.getNodeType(), t -> new LatencySamples()).add(nanos));
+            threads.resetPeakThreadCount();
+            long requestsBefore = stub.requests();
+            long allocatedBefore = allocatedBytes(threads);
+            long begin = System.nanoTime();
+            for (int i = 0; i < runs; i++) {
+                long start = System.nanoTime();
+                ExecutionContext context = engine.run(workflow, "bench-" + i);
+                perRun.add(System.nanoTime() - start);
+                if (context.getVariable("__lastError") != null)
+                    failed++;
+            }
+            elapsed = System.nanoTime() - begin;
+            allocated = allocatedBytes(threads) - allocatedBefore;
+            peakThreads = threads.getPeakThreadCount();
+            requests = stub.requests() - requestsBefore;
+        } finally {
+            LoggingNodeDecorator.setTimingListener(null);
+            EngineOutput.flush();
+            System.setOut(stdout);
+            restore("miniflow.history.enabled", history);
+            restore("miniflow.journal.enabled", journal);
+        }
+
+        double seconds = elapsed / 1e9;
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("event", "BENCH_RESULT");
+        report.put("workflow", workflow.name);
+        report.put("engine", engine.name());
+        report.put("nodes", workflow.nodes.size());
+        report.put("warmup", warmup);
+        report.put("runs", runs);
+        report.put("failedRuns", failed);
+        report.put("throughputPerSec", round(runs / seconds));
+        report.put("run", latency(perRun.summary()));
+
+        Map<String, Object> nodes = new LinkedHashMap<>();
+        new EnumMap<>(byType).forEach((type, samples) -> nodes.put(type.name(), latency(samples.summary())));
+        report.put("nodeTypes", nodes);
+
+        report.put("peakPlatformThreads", peakThreads);
+        report.put("httpRequests", requests);
+        if (allocated >= 0) {
+            report.put("allocatedBytesPerRun", allocated / runs);
+            report.put("allocationRateMBPerSec", round(allocated / seconds / (1024 * 1024)));
+        }
+        return report;
+    }
+
+    private static void restore(String key, String previous) {
+        if (previous == null)
+            System.clearProperty(key);
+        else
+            System.setProperty(key, previous);
+    }
+
+    /**
+     * Bytes asignados en el heap por todos los hilos desde que arrancó la JVM
+     * (aproximado, JDK 21+), o -1 si la JVM no lo soporta.
+     */
+    private static long allocatedBytes(ThreadMXBean threads) {
+        if (threads instanceof com.sun.management.ThreadMXBean sun && sun.isThreadAllocatedMemorySupported()) {
+            if (!sun.isThreadAllocatedMemoryEnabled())
+                sun.setThreadAllocatedMemoryEnabled(true);
+            return sun.getTotalThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    private static Map<String, Object> latency(LatencySamples.Summary s) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("count", s.count());
+        m.put("meanMs", millis(Math.round(s.mean())));
+        m.put("p50Ms", millis(s.percentile(0.50)));
+        m.put("p99Ms", millis(s.percentile(0.99)));
+        m.put("p999Ms", millis(s.percentile(0.999)));
+        m.put("maxMs", millis(s.max()));
+        return m;
+    }
+
+    private static double millis(long nanos) {
+        return round(nanos / 1e6);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    /**
+     * Reporte indentado para leerlo en la terminal.
+     */
+    public static String format(Map<String, Object> report) throws Exception {
+        return new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValueAsString(report);
+    }
+}
@@ -0,0 +1,60 @@
+package com.miniflow.bench;
+
+import java.util.Arrays;
+
+/**
+ * Muestras de latencia en ns. Se guardan todas (un long por muestra) y los
+ * percentiles se calculan ordenando una copia al final de la medición.
+ */
+final class LatencySamples {
+
+    private long[] values = new long[1024];
+    private int count;
+
+    synchronized void add(long nanos) {
+        if (count == values.length)
+            values = Arrays.copyOf(values, count * 2);
+        values[count++] = nanos;
+    }
+
+    synchronized Summary summary() {
+        long[] sorted = Arrays.copyOf(values, count);
+        Arrays.sort(sorted);
+        return new Summary(sorted);
+    }
+
+    /**
+     * Percentiles por rango más cercano sobre las muestras ordenadas.
+     */
+    static final class Summary {
+        private final long[] sorted;
+
+        private Summary(long[] sorted) {
+            this.sorted = sorted;
+        }
+
+        int count() {
+            return sorted.length;
+        }
+
+        long percentile(double q) {
+            if (sorted.length == 0)
+                return 0;
+            int rank = (int) Math.ceil(q * sorted.length);
+            return sorted[Math.min(sorted.length - 1, Math.max(0, rank - 1))];
+        }
+
+        long max() {
+            return sorted.length == 0 ? 0 : sorted[sorted.length - 1];
+        }
+
+        double mean() {
+            if (sorted.length == 0)
+                return 0;
+            double sum = 0;
+            for (long v : sorted)
+                sum += v;
+            return sum / sorted.length;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.miniflow.bench;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Servidor HTTP local para --bench: responde a GET /items/{n}?delayMs=d con
+ * {"id": n, "status": "ok", "items": [...]} tras esperar d ms. Cada petición
+ * se atiende en un hilo virtual, así la espera no limita la concurrencia.
+ */
+final class StubHttpServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong requests = new AtomicLong();
+
+    private StubHttpServer(HttpServer server) {
+        this.server = server;
+    }
+
+    static StubHttpServer start() throws IOException {
+        // Sin TCP_NODELAY cada respuesta pequeña paga ~40 ms de ACK retrasado
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        HttpServer http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        StubHttpServer stub = new StubHttpServer(http);
+        http.createContext("/", stub::handle);
+        http.setExecutor(stub.executor);
+        http.start();
+        return stub;
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    long requests() {
+        return requests.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (exchange) {
+            long delay = queryLong(exchange.getRequestURI().getRawQuery(), "delayMs");
+            if (delay > 0)
+                Thread.sleep(delay);
+
+            String path = exchange.getRequestURI().getPath();
+            String id = path.substring(path.lastIndexOf('/') + 1);
+            if (id.isEmpty() || !id.chars().allMatch(Character::isDigit))
+                id = "0";
+            byte[] body = ("{\"id\":" + id + ",\"status\":\"ok\",\"items\":[{\"id\":1},{\"id\":2},{\"id\":3}]}")
+                    .getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long queryLong(String query, String name) {
+        if (query == null)
+            return 0;
+        for (String pair : query.split("&")) {
+            if (pair.startsWith(name + "=")) {
+                try {
+                    return Long.parseLong(pair.substring(name.length() + 1));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
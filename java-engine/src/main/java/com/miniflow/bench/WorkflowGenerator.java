@@ -0,0 +1,278 @@
+package com.miniflow.bench;
+
+import com.fasterxml.jackson.core.util.DefaultIndenter;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.core.util.Separators;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Generador de workflows sintéticos con el mismo JSON que produce la UI
+ * (ver workflows_a_probar): nodos con id, type, position y data.config, y
+ * aristas con sourceHandle en los CONDITIONAL.
+ *
+ * Formas disponibles:
+ *   chain   START -> size nodos en cadena -> END
+ *   fanout  un PARALLEL de width ramas de size nodos y un único JOIN
+ *   nested  PARALLEL dentro de PARALLEL (depth niveles) con sus JOIN
+ *   mixed   fan-out donde las ramas alternan HTTP y TIMER con espera real
+ *
+ * Las URLs de los nodos HTTP apuntan a {@link #STUB_URL}; el modo --bench la
+ * sustituye por la dirección del servidor HTTP local.
+ */
+public final class WorkflowGenerator {
+
+    public static final String STUB_URL = "http://miniflow.stub";
+
+    public enum Shape {
+        CHAIN, FANOUT, NESTED, MIXED;
+
+        static Shape parse(String raw) {
+            try {
+                return valueOf(raw.trim().toUpperCase(Locale.ROOT));
+            } catch (Exception e) {
+                throw new IllegalArgumentException("Unknown workflow shape: " + raw);
+            }
+        }
+    }
+
+    /**
+     * size: nodos por cadena o rama, width: ramas por PARALLEL, depth: niveles
+     * de PARALLEL anidados, timerMs / httpDelayMs: espera de cada TIMER y de
+     * cada respuesta del stub.
+     */
+    public record Options(Shape shape, int size, int width, int depth, int timerMs, int httpDelayMs) {
+
+        public static Options defaults(Shape shape) {
+            return switch (shape) {
+                case CHAIN -> new Options(shape, 200, 1, 1, 0, 0);
+                case FANOUT -> new Options(shape, 3, 50, 1, 0, 0);
+                case NESTED -> new Options(shape, 2, 4, 3, 0, 0);
+                case MIXED -> new Options(shape, 6, 20, 1, 10, 10);
+            };
+        }
+
+        /**
+         * Lee --shape=, --size=, --width=, --depth=, --timerMs= y
+         * --httpDelayMs=. Lo que no se indica toma el valor por defecto de la
+         * forma elegida (chain si no hay --shape).
+         */
+        public static Options fromArgs(String[] args) {
+            Map<String, String> values = new LinkedHashMap<>();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (arg.startsWith("--") && eq > 2)
+                    values.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+            String shapeName = values.getOrDefault("shape", values.getOrDefault("generate", "chain"));
+            Options d = defaults(Shape.parse(shapeName));
+            return new Options(d.shape(),
+                    positive(values.get("size"), d.size()),
+                    positive(values.get("width"), d.width()),
+                    positive(values.get("depth"), d.depth()),
+                    nonNegative(values.get("timerMs"), d.timerMs()),
+                    nonNegative(values.get("httpDelayMs"), d.httpDelayMs()));
+        }
+
+        private static int positive(String raw, int defaultValue) {
+            int value = raw == null ? defaultValue : Integer.parseInt(raw.trim());
+            if (value < 1)
+                throw new IllegalArgumentException("Expected a positive value, got " + raw);
+            return value;
+        }
+
+        private static int nonNegative(String raw, int defaultValue) {
+            int value = raw == null ? defaultValue : Integer.parseInt(raw.trim());
+            if (value < 0)
+                throw new IllegalArgumentException("Expected a non-negative value, got " + raw);
+            return value;
+        }
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private WorkflowGenerator() {
+    }
+
+    /**
+     * Workflow como árbol Map/List listo para serializar.
+     */
+    public static Map<String, Object> generate(Options options) {
+        Builder b = new Builder(options);
+        String start = b.node("start", "Start", null, 0, 0);
+        String last = switch (options.shape()) {
+            case CHAIN -> b.sequence(start, options.size(), 0, 1, false);
+            case FANOUT -> b.fanOut(start, 1, 1, 0, false);
+            case NESTED -> b.fanOut(start, options.depth(), 1, 0, false);
+            case MIXED -> b.fanOut(start, 1, 1, 0, true);
+        };
+        String end = b.node("end", "End", null, 0, b.maxRow + 1);
+        b.edge(last, end, null);
+
+        Map<String, Object> workflow = new LinkedHashMap<>();
+        workflow.put("name", "Synthetic " + options.shape().name().toLowerCase(Locale.ROOT) + " (size="
+                + options.size() + ", width=" + options.width() + ", depth=" + options.depth() + ")");
+        workflow.put("nodes", b.nodes);
+        workflow.put("edges", b.edges);
+        return workflow;
+    }
+
+    /**
+     * JSON indentado como los ficheros de workflows_a_probar.
+     */
+    public static String toJson(Options options) {
+        DefaultPrettyPrinter printer = new DefaultPrettyPrinter(Separators.createDefaultInstance()
+                .withObjectFieldValueSpacing(Separators.Spacing.AFTER))
+                .withObjectIndenter(new DefaultIndenter("    ", "\n"))
+                .withArrayIndenter(new DefaultIndenter("    ", "\n"));
+        try {
+            return MAPPER.writer(printer).writeValueAsString(generate(options));
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot serialize generated workflow", e);
+        }
+    }
+
+    private static final class Builder {
+        private final Options options;
+        private final List<Map<String, Object>> nodes = new ArrayList<>();
+        private final List<Map<String, Object>> edges = new ArrayList<>();
+        private final Map<String, Integer> counters = new LinkedHashMap<>();
+        private int work;
+        private int maxRow;
+        private int columns = 1;
+
+        Builder(Options options) {
+            this.options = options;
+        }
+
+        /**
+         * PARALLEL con width ramas que se reúnen en un JOIN. Con levels > 1
+         * cada rama es a su vez otro fan-out. Devuelve el id del JOIN.
+         */
+        String fanOut(String from, int levels, int row, int column, boolean mixed) {
+            String parallel = node("parallel", "Parallel", null, column, row);
+            edge(from, parallel, null);
+
+            List<String> tails = new ArrayList<>(options.width());
+            int branchRow = row + 1;
+            int lastRow = branchRow;
+            for (int i = 0; i < options.width(); i++) {
+                int branchColumn = columns++;
+                String tail;
+                if (levels > 1) {
+                    tail = fanOut(parallel, levels - 1, branchRow, branchColumn, mixed);
+                } else {
+                    tail = sequence(parallel, options.size(), branchColumn, branchRow, mixed);
+                }
+                tails.add(tail);
+                lastRow = Math.max(lastRow, maxRow);
+            }
+
+            String join = node("parallel_join", "Join", null, column, lastRow + 1);
+            for (String tail : tails)
+                edge(tail, join, null);
+            return join;
+        }
+
+        /**
+         * Cadena de nodos de trabajo. Un CONDITIONAL nunca es el último nodo,
+         * así sus dos salidas van siempre a un único siguiente nodo.
+         */
+        String sequence(String from, int count, int column, int row, boolean mixed) {
+            String previous = from;
+            boolean previousConditional = false;
+            for (int i = 0; i < count; i++) {
+                int k = work++;
+                String type;
+                if (mixed)
+                    type = i % 2 == 0 ? "http_request" : "timer";
+                else if (k % 5 == 0)
+                    type = "http_request";
+                else if (k % 5 == 2 && i < count - 1)
+                    type = "conditional";
+                else
+                    type = "timer";
+
+                String id = node(type, label(type), config(type, k), column, row + i);
+                if (previousConditional) {
+                    edge(previous, id, "true");
+                    edge(previous, id, "false");
+                } else {
+                    edge(previous, id, null);
+                }
+                previous = id;
+                previousConditional = "conditional".equals(type);
+            }
+            return previous;
+        }
+
+        private Map<String, Object> config(String type, int k) {
+            Map<String, Object> config = new LinkedHashMap<>();
+            switch (type) {
+                case "http_request" -> {
+                    config.put("method", "GET");
+                    config.put("url", STUB_URL + "/items/" + k + "?delayMs=" + options.httpDelayMs());
+                    config.put("map", Map.of("item_" + k, "$.id"));
+                }
+                case "conditional" -> config.put("condition", "status != 'down'");
+                case "timer" -> {
+                    config.put("delay", options.timerMs());
+                    config.put("unit", "ms");
+                }
+                default -> {
+                }
+            }
+            return config;
+        }
+
+        private static String label(String type) {
+            return switch (type) {
+                case "http_request" -> "Request";
+                case "conditional" -> "Check";
+                default -> "Wait";
+            };
+        }
+
+        String node(String type, String label, Map<String, Object> config, int column, int row) {
+            int n = counters.merge(type, 1, Integer::sum);
+            String prefix = switch (type) {
+                case "http_request" -> "http";
+                case "conditional" -> "cond";
+                case "parallel_join" -> "join";
+                default -> type;
+            };
+            String id = prefix + "-" + n;
+
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("label", label + " " + n);
+            if (config != null)
+                data.put("config", config);
+
+            Map<String, Object> node = new LinkedHashMap<>();
+            node.put("id", id);
+            node.put("type", type);
+            Map<String, Object> position = new LinkedHashMap<>();
+            position.put("x", 350 + column * 220);
+            position.put("y", 50 + row * 100);
+            node.put("position", position);
+            node.put("data", data);
+            nodes.add(node);
+            maxRow = Math.max(maxRow, row);
+            return id;
+        }
+
+        void edge(String source, String target, String handle) {
+            Map<String, Object> edge = new LinkedHashMap<>();
+            edge.put("id", "e" + (edges.size() + 1));
+            edge.put("source", source);
+            edge.put("target", target);
+            if (handle != null)
+                edge.put("sourceHandle", handle);
+            edges.add(edge);
+        }
+    }
+}
@@ -1,66 +1,128 @@
 package com.miniflow.context;
 
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class ExecutionContext {
-    private final Map<String, Object> variables = new ConcurrentHashMap<>();
+    // REFACTOR: Variables y outputs viven en mapas persistentes (HAMT). Clonar el
+    // contexto solo copia la referencia a la raíz; cada rama paga memoria
+    // únicamente por los caminos que modifica (su "overlay" de escrituras).
+    private final AtomicReference<PersistentMap<String, Object>> variables;
 
     // REFACTOR: Aquí guardamos el "Panel Derecho" indexado por el ID del nodo
     // Esto permite que el modal de n8n diga: "Dame el output del nodo con ID
     // 'http-1'"
-    private final Map<String, Object> nodeOutputs = new ConcurrentHashMap<>();
+    private final AtomicReference<PersistentMap<String, Object>> nodeOutputs;
 
-    // Contadores atómicos compartidos entre hilos para sincronizar PARALLEL_JOIN
-    private final Map<String, java.util.concurrent.atomic.AtomicInteger> joinCounters;
+    // Estado de la ejecución (runId, contadores de PARALLEL_JOIN, servicios).
+    // Lo comparten todas las ramas clonadas; en modo daemon el runId permite
+    // asociar cada línea de salida a su run.
+    private final RunState run;
+
+    // Identificador de la rama ("0", "0.1", "0.1.2"...). Cada cloneContext()
+    // abre una rama hija; se usa para mantener juntas las líneas de cada rama.
+    private volatile String branchId;
+    private final AtomicInteger childBranches = new AtomicInteger();
 
     public ExecutionContext() {
-        this.joinCounters = new ConcurrentHashMap<>();
+        this(null);
+    }
+
+    public ExecutionContext(String runId) {
+        this(new RunState(runId), "0", PersistentMap.empty(), PersistentMap.empty());
+    }
+
+    private ExecutionContext(RunState run, String branchId,
+            PersistentMap<String, Object> variables, PersistentMap<String, Object> nodeOutputs) {
+        this.run = run;
+        this.branchId = branchId;
+        this.variables = new AtomicReference<>(variables);
+        this.nodeOutputs = new AtomicReference<>(nodeOutputs);
+    }
+
+    public String getRunId() {
+        return run.getRunId();
     }
 
-    private ExecutionContext(Map<String, java.util.concurrent.atomic.AtomicInteger> sharedJoinCounters) {
-        this.joinCounters = sharedJoinCounters;
+    public RunState getRunState() {
+        return run;
+    }
+
+    public String getBranchId() {
+        return branchId;
+    }
+
+    /**
+     * La rama que sigue tras un PARALLEL_JOIN es la última en llegar, y eso
+     * cambia entre ejecuciones. La barrera le asigna un id fijo para que el
+     * journal y la salida no dependan del orden de llegada.
+     */
+    public void continueAs(String branchId) {
+        this.branchId = branchId;
+        childBranches.set(0);
     }
 
     public int incrementAndGetJoinArrival(String targetJoinNodeId) {
-        return joinCounters.computeIfAbsent(targetJoinNodeId, k -> new java.util.concurrent.atomic.AtomicInteger(0))
-                .incrementAndGet();
+        return run.incrementAndGetJoinArrival(targetJoinNodeId);
     }
 
+    /**
+     * Un valor null equivale a eliminar la variable.
+     */
     public void setVariable(String key, Object value) {
+        if (key == null)
+            return;
+        if (value == null) {
+            removeVariable(key);
+            return;
+        }
+        variables.updateAndGet(m -> m.put(key, value));
+    }
+
+    public void removeVariable(String key) {
         if (key != null)
-            variables.put(key, value);
+            variables.updateAndGet(m -> m.remove(key));
     }
 
     public Object getVariable(String key) {
-        return variables.get(key);
+        return variables.get().get(key);
     }
 
+    /**
+     * Instantánea de solo lectura de las variables en este momento.
+     * Para modificar usar setVariable/removeVariable.
+     */
     public Map<String, Object> getVariables() {
-        return this.variables;
+        return variables.get().asMap();
     }
 
     public void setNodeOutput(String nodeId, Object output) {
-        nodeOutputs.put(nodeId, output);
+        if (nodeId == null)
+            return;
+        if (output == null) {
+            nodeOutputs.updateAndGet(m -> m.remove(nodeId));
+            return;
+        }
+        nodeOutputs.updateAndGet(m -> m.put(nodeId, output));
     }
 
     public Object getNodeOutput(String nodeId) {
-        return nodeOutputs.get(nodeId);
+        return nodeOutputs.get().get(nodeId);
     }
 
     public void clear() {
-        variables.clear();
-        nodeOutputs.clear();
-        joinCounters.clear();
+        variables.set(PersistentMap.empty());
+        nodeOutputs.set(PersistentMap.empty());
+        run.clear();
     }
 
     public ExecutionContext cloneContext() {
-        // Al clonar para hilos hijos, compartimos LA MISMA REFERENCIA de joinCounters
-        // para que todos sumen al mismo número. Las variables normales se clonan por
-        // valor superficial.
-        ExecutionContext clone = new ExecutionContext(this.joinCounters);
-        clone.variables.putAll(this.variables);
-        clone.nodeOutputs.putAll(this.nodeOutputs);
-        return clone;
-    }
-}
\ No newline at end of file
+        // Al clonar para hilos hijos, compartimos LA MISMA REFERENCIA del RunState
+        // para que todos sumen al mismo contador. Las variables se comparten por
+        // estructura: O(1) sin importar el tamaño del contexto.
+        return new ExecutionContext(this.run,
+                this.branchId + "." + childBranches.incrementAndGet(),
+                this.variables.get(), this.nodeOutputs.get());
+    }
+}
@@ -0,0 +1,342 @@
+package com.miniflow.context;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Mapa inmutable y persistente (Hash Array Mapped Trie, 32 hijos por nivel).
+ *
+ * put/remove devuelven un mapa nuevo que comparte toda la estructura con el
+ * anterior salvo el camino modificado (O(log32 n) nodos copiados). Gracias a
+ * esto un {@link ExecutionContext} puede bifurcarse en O(1) y cada rama solo
+ * paga memoria por lo que escribe.
+ *
+ * No admite claves ni valores null.
+ */
+public final class PersistentMap<K, V> {
+
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(BitmapNode.EMPTY, 0);
+
+    private final TrieNode root;
+    private final int size;
+
+    private PersistentMap(TrieNode root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (key == null)
+            return null;
+        return (V) root.find(0, hash(key), key);
+    }
+
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    public PersistentMap<K, V> put(K key, V value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+        Box added = new Box();
+        TrieNode newRoot = root.assoc(0, hash(key), key, value, added);
+        if (newRoot == root)
+            return this;
+        return new PersistentMap<>(newRoot, added.value ? size + 1 : size);
+    }
+
+    public PersistentMap<K, V> remove(Object key) {
+        if (key == null)
+            return this;
+        TrieNode newRoot = root.without(0, hash(key), key);
+        if (newRoot == root)
+            return this;
+        return new PersistentMap<>(newRoot == null ? BitmapNode.EMPTY : newRoot, size - 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        root.forEach((BiConsumer<Object, Object>) action);
+    }
+
+    /**
+     * Vista de solo lectura compatible con java.util.Map.
+     */
+    public Map<K, V> asMap() {
+        return new MapView<>(this);
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int bitpos(int hash, int shift) {
+        return 1 << ((hash >>> shift) & 0x1f);
+    }
+
+    private static final class Box {
+        boolean value;
+    }
+
+    private interface TrieNode {
+        Object find(int shift, int hash, Object key);
+
+        TrieNode assoc(int shift, int hash, Object key, Object value, Box added);
+
+        TrieNode without(int shift, int hash, Object key);
+
+        void forEach(BiConsumer<Object, Object> action);
+    }
+
+    /**
+     * Nodo con bitmap: array de pares [clave, valor]. Si la clave es null el
+     * valor es un subnodo del siguiente nivel.
+     */
+    private static final class BitmapNode implements TrieNode {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        final int bitmap;
+        final Object[] array;
+
+        BitmapNode(int bitmap, Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        public Object find(int shift, int hash, Object key) {
+            int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0)
+                return null;
+            int idx = index(bit);
+            Object k = array[2 * idx];
+            Object v = array[2 * idx + 1];
+            if (k == null)
+                return ((TrieNode) v).find(shift + 5, hash, key);
+            return key.equals(k) ? v : null;
+        }
+
+        @Override
+        public TrieNode assoc(int shift, int hash, Object key, Object value, Box added) {
+            int bit = bitpos(hash, shift);
+            int idx = index(bit);
+            if ((bitmap & bit) != 0) {
+                Object k = array[2 * idx];
+                Object v = array[2 * idx + 1];
+                if (k == null) {
+                    TrieNode n = ((TrieNode) v).assoc(shift + 5, hash, key, value, added);
+                    return n == v ? this : new BitmapNode(bitmap, cloneAndSet(array, 2 * idx + 1, n));
+                }
+                if (key.equals(k)) {
+                    return v == value ? this : new BitmapNode(bitmap, cloneAndSet(array, 2 * idx + 1, value));
+                }
+                added.value = true;
+                Object[] copy = array.clone();
+                copy[2 * idx] = null;
+                copy[2 * idx + 1] = createNode(shift + 5, k, v, hash, key, value);
+                return new BitmapNode(bitmap, copy);
+            }
+            int n = Integer.bitCount(bitmap);
+            Object[] copy = new Object[2 * (n + 1)];
+            System.arraycopy(array, 0, copy, 0, 2 * idx);
+            copy[2 * idx] = key;
+            copy[2 * idx + 1] = value;
+            System.arraycopy(array, 2 * idx, copy, 2 * (idx + 1), 2 * (n - idx));
+            added.value = true;
+            return new BitmapNode(bitmap | bit, copy);
+        }
+
+        @Override
+        public TrieNode without(int shift, int hash, Object key) {
+            int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0)
+                return this;
+            int idx = index(bit);
+            Object k = array[2 * idx];
+            Object v = array[2 * idx + 1];
+            if (k == null) {
+                TrieNode n = ((TrieNode) v).without(shift + 5, hash, key);
+                if (n == v)
+                    return this;
+                if (n != null)
+                    return new BitmapNode(bitmap, cloneAndSet(array, 2 * idx + 1, n));
+            } else if (!key.equals(k)) {
+                return this;
+            }
+            if (bitmap == bit)
+                return null;
+            return new BitmapNode(bitmap ^ bit, removePair(array, idx));
+        }
+
+        @Override
+        public void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i] == null) {
+                    ((TrieNode) array[i + 1]).forEach(action);
+                } else {
+                    action.accept(array[i], array[i + 1]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Claves distintas con el mismo hash completo.
+     */
+    private static final class CollisionNode implements TrieNode {
+        final int hash;
+        final Object[] array;
+
+        CollisionNode(int hash, Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i]))
+                    return i;
+            }
+            return -1;
+        }
+
+        @Override
+        public Object find(int shift, int hash, Object key) {
+            int i = indexOf(key);
+            return i < 0 ? null : array[i + 1];
+        }
+
+        @Override
+        public TrieNode assoc(int shift, int hash, Object key, Object value, Box added) {
+            if (hash == this.hash) {
+                int i = indexOf(key);
+                if (i >= 0) {
+                    return array[i + 1] == value ? this : new CollisionNode(hash, cloneAndSet(array, i + 1, value));
+                }
+                Object[] copy = new Object[array.length + 2];
+                System.arraycopy(array, 0, copy, 0, array.length);
+                copy[array.length] = key;
+                copy[array.length + 1] = value;
+                added.value = true;
+                return new CollisionNode(hash, copy);
+            }
+            // Hash distinto: anidamos este nodo dentro de un BitmapNode
+            return new BitmapNode(bitpos(this.hash, shift), new Object[] { null, this })
+                    .assoc(shift, hash, key, value, added);
+        }
+
+        @Override
+        public TrieNode without(int shift, int hash, Object key) {
+            int i = indexOf(key);
+            if (i < 0)
+                return this;
+            if (array.length == 2)
+                return null;
+            return new CollisionNode(hash, removePair(array, i / 2));
+        }
+
+        @Override
+        public void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0; i < array.length; i += 2) {
+                action.accept(array[i], array[i + 1]);
+            }
+        }
+    }
+
+    private static TrieNode createNode(int shift, Object k1, Object v1, int h2, Object k2, Object v2) {
+        int h1 = hash(k1);
+        if (h1 == h2)
+            return new CollisionNode(h1, new Object[] { k1, v1, k2, v2 });
+        Box box = new Box();
+        return BitmapNode.EMPTY.assoc(shift, h1, k1, v1, box).assoc(shift, h2, k2, v2, box);
+    }
+
+    private static Object[] cloneAndSet(Object[] array, int i, Object value) {
+        Object[] copy = array.clone();
+        copy[i] = value;
+        return copy;
+    }
+
+    private static Object[] removePair(Object[] array, int pairIndex) {
+        Object[] copy = new Object[array.length - 2];
+        System.arraycopy(array, 0, copy, 0, 2 * pairIndex);
+        System.arraycopy(array, 2 * (pairIndex + 1), copy, 2 * pairIndex, copy.length - 2 * pairIndex);
+        return copy;
+    }
+
+    private static final class MapView<K, V> extends AbstractMap<K, V> {
+        private final PersistentMap<K, V> map;
+
+        MapView(PersistentMap<K, V> map) {
+            this.map = map;
+        }
+
+        @Override
+        public V get(Object key) {
+            return map.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return map.isEmpty();
+        }
+
+        @Override
+        public void forEach(BiConsumer<? super K, ? super V> action) {
+            map.forEach(action);
+        }
+
+        @Override
+        public Set<Entry<K, V>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    List<Entry<K, V>> entries = new ArrayList<>(map.size());
+                    map.forEach((k, v) -> entries.add(new SimpleImmutableEntry<>(k, v)));
+                    return entries.iterator();
+                }
+
+                @Override
+                public int size() {
+                    return map.size();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.miniflow.context;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Estado compartido por TODAS las ramas de una misma ejecución.
+ * Cada cloneContext() crea variables propias, pero apunta al mismo RunState.
+ */
+public final class RunState {
+
+    private final String runId;
+
+    // Contadores atómicos compartidos entre hilos para sincronizar PARALLEL_JOIN
+    private final Map<String, AtomicInteger> joinCounters = new ConcurrentHashMap<>();
+
+    // Rama común de las llegadas a cada PARALLEL_JOIN ("0.1" y "0.2.1" -> "0")
+    private final Map<String, String> joinBranches = new ConcurrentHashMap<>();
+
+    // Servicios con alcance de ejecución (limitador de ramas, métricas...)
+    private final Map<String, Object> services = new ConcurrentHashMap<>();
+
+    public RunState(String runId) {
+        this.runId = runId;
+    }
+
+    public String getRunId() {
+        return runId;
+    }
+
+    public int incrementAndGetJoinArrival(String joinNodeId) {
+        return joinCounters.computeIfAbsent(joinNodeId, k -> new AtomicInteger(0)).incrementAndGet();
+    }
+
+    /**
+     * Anota la rama que llega al join. Llamar antes de contar la llegada: así
+     * el último en llegar ve todas las ramas al leer {@link #joinBranch}.
+     */
+    public void recordJoinBranch(String joinNodeId, String branchId) {
+        joinBranches.merge(joinNodeId, branchId, RunState::commonBranch);
+    }
+
+    public String joinBranch(String joinNodeId) {
+        return joinBranches.get(joinNodeId);
+    }
+
+    private static String commonBranch(String a, String b) {
+        String[] left = a.split("\\.");
+        String[] right = b.split("\\.");
+        int same = 0;
+        while (same < left.length && same < right.length && left[same].equals(right[same]))
+            same++;
+        return same == 0 ? "0" : String.join(".", Arrays.copyOf(left, same));
+    }
+
+    /**
+     * Devuelve el servicio registrado con esa clave, creándolo la primera vez.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T service(String key, Supplier<T> factory) {
+        return (T) services.computeIfAbsent(key, k -> factory.get());
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T findService(String key) {
+        return (T) services.get(key);
+    }
+
+    void clear() {
+        joinCounters.clear();
+        joinBranches.clear();
+        services.clear();
+    }
+}
@@ -0,0 +1,25 @@
+package com.miniflow.core;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Estrategia de ejecución de las ramas de un nodo PARALLEL.
+ * Las implementaciones se eligen por workflow (ver {@link BranchExecutors}).
+ */
+public interface BranchExecutor {
+
+    /**
+     * Executor donde se lanzan las ramas.
+     */
+    Executor executor();
+
+    /**
+     * Nombre del modo ("virtual", "forkjoin") para logs y outputs.
+     */
+    String name();
+
+    /**
+     * Ramas en ejecución en este momento (para métricas).
+     */
+    int activeBranches();
+}
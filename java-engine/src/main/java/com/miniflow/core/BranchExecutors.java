@@ -0,0 +1,115 @@
+package com.miniflow.core;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.model.Workflow;
+import com.miniflow.utils.EngineConfig;
+import com.miniflow.utils.TypeConverter;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Fábrica de {@link BranchExecutor} y utilidades de espera bloqueante.
+ *
+ * El modo se elige por workflow con settings.branchExecutor ("virtual" o
+ * "forkjoin") y, si no viene, con la configuración parallel.executor del
+ * motor. settings.maxConcurrency (o parallel.maxConcurrency) limita las
+ * ramas simultáneas de una ejecución; 0 significa sin límite.
+ */
+public final class BranchExecutors {
+
+    public static final String VIRTUAL = "virtual";
+    public static final String FORK_JOIN = "forkjoin";
+
+    private static final String LIMITER_KEY = "branchLimiter";
+
+    private BranchExecutors() {
+    }
+
+    // Inicialización perezosa: solo se crea el pool del modo que se usa
+    private static final class VirtualHolder {
+        static final VirtualThreadBranchExecutor INSTANCE = new VirtualThreadBranchExecutor();
+    }
+
+    private static final class ForkJoinHolder {
+        static final ForkJoinBranchExecutor INSTANCE = new ForkJoinBranchExecutor(
+                EngineConfig.getInt("parallel.forkJoinParallelism", Runtime.getRuntime().availableProcessors()),
+                EngineConfig.getInt("parallel.forkJoinMaxThreads", 256));
+    }
+
+    public static BranchExecutor forWorkflow(Workflow workflow) {
+        Object setting = workflow != null ? workflow.getSetting("branchExecutor") : null;
+        String mode = setting != null ? String.valueOf(setting) : EngineConfig.getString("parallel.executor", VIRTUAL);
+        return byName(mode);
+    }
+
+    public static BranchExecutor byName(String mode) {
+        String m = mode == null ? VIRTUAL : mode.trim().toLowerCase(Locale.ROOT).replace("_", "").replace("-", "");
+        return FORK_JOIN.equals(m) ? ForkJoinHolder.INSTANCE : VirtualHolder.INSTANCE;
+    }
+
+    public static int maxConcurrency(Workflow workflow) {
+        Object setting = workflow != null ? workflow.getSetting("maxConcurrency") : null;
+        if (setting != null)
+            return TypeConverter.asInt(setting, 0);
+        return EngineConfig.getInt("parallel.maxConcurrency", 0);
+    }
+
+    /**
+     * Limitador compartido por todas las ramas de la ejecución del contexto.
+     */
+    public static BranchLimiter limiterFor(ExecutionContext context, Workflow workflow) {
+        return context.getRunState().service(LIMITER_KEY, () -> new BranchLimiter(maxConcurrency(workflow)));
+    }
+
+    /**
+     * Limitador de la ejecución si alguna rama ya lo creó (null si no).
+     */
+    static BranchLimiter findLimiter(ExecutionContext context) {
+        return context.getRunState().findService(LIMITER_KEY);
+    }
+
+    @FunctionalInterface
+    public interface BlockingCall<T> {
+        T call() throws Exception;
+    }
+
+    /**
+     * Ejecuta una llamada bloqueante (sleep, join, waitFor, I/O).
+     * Dentro de un ForkJoinPool se usa managedBlock para que el pool pueda
+     * compensar el hilo bloqueado; en hilos virtuales o normales se llama
+     * directamente.
+     */
+    public static <T> T block(BlockingCall<T> call) throws Exception {
+        if (!(Thread.currentThread() instanceof ForkJoinWorkerThread))
+            return call.call();
+
+        final class Blocker implements ForkJoinPool.ManagedBlocker {
+            T result;
+            Exception error;
+            boolean done;
+
+            @Override
+            public boolean block() {
+                try {
+                    result = call.call();
+                } catch (Exception e) {
+                    error = e;
+                }
+                done = true;
+                return true;
+            }
+
+            @Override
+            public boolean isReleasable() {
+                return done;
+            }
+        }
+
+        Blocker blocker = new Blocker();
+        ForkJoinPool.managedBlock(blocker);
+        if (blocker.error != null)
+            throw blocker.error;
+        return blocker.result;
+    }
+}
@@ -0,0 +1,91 @@
+package com.miniflow.core;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Límite de ramas concurrentes para UNA ejecución (maxConcurrency).
+ *
+ * Una rama que a su vez contiene un PARALLEL libera su permiso mientras
+ * espera a sus hijas (ver {@link #whileWaiting}); sin eso, un PARALLEL
+ * anidado con el límite agotado se quedaría esperando para siempre.
+ */
+public final class BranchLimiter {
+
+    private static final ThreadLocal<BranchLimiter> HELD = new ThreadLocal<>();
+
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger peakQueued = new AtomicInteger();
+
+    public BranchLimiter(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+        this.permits = maxConcurrency > 0 ? new Semaphore(maxConcurrency, true) : null;
+    }
+
+    public int maxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * true si hay límite: los permisos se ligan al hilo que los toma.
+     */
+    public boolean bounded() {
+        return permits != null;
+    }
+
+    /**
+     * Ramas esperando un permiso.
+     */
+    public int queuedBranches() {
+        return queued.get();
+    }
+
+    /**
+     * Máximo de ramas esperando a la vez desde que se creó el limitador.
+     */
+    public int peakQueuedBranches() {
+        return peakQueued.get();
+    }
+
+    public void acquire() throws Exception {
+        if (permits == null)
+            return;
+        peakQueued.accumulateAndGet(queued.incrementAndGet(), Math::max);
+        try {
+            BranchExecutors.block(() -> {
+                permits.acquire();
+                return null;
+            });
+        } finally {
+            queued.decrementAndGet();
+        }
+        HELD.set(this);
+    }
+
+    public void release() {
+        if (permits == null)
+            return;
+        if (HELD.get() == this) {
+            HELD.remove();
+            permits.release();
+        }
+    }
+
+    /**
+     * Ejecuta una espera bloqueante soltando temporalmente el permiso del
+     * hilo actual (si lo tiene) y recuperándolo al terminar.
+     */
+    public <T> T whileWaiting(BranchExecutors.BlockingCall<T> call) throws Exception {
+        boolean held = permits != null && HELD.get() == this;
+        if (held)
+            release();
+        try {
+            return BranchExecutors.block(call);
+        } finally {
+            if (held)
+                acquire();
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.miniflow.core;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.factory.ExecutorFactory;
+import com.miniflow.model.CompiledWorkflow;
+import com.miniflow.model.Connection;
+import com.miniflow.model.Node;
+import com.miniflow.model.NodeType;
+import com.miniflow.model.Workflow;
+import com.miniflow.strategies.LoggingNodeDecorator;
+import com.miniflow.strategies.NodeExecutor;
+import com.miniflow.utils.EngineOutput;
+import com.miniflow.utils.Futures;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Motor dataflow: en lugar de un cursor que sigue la primera arista, cada
+ * nodo lleva la cuenta de las aristas de entrada que le faltan por resolver.
+ *
+ * Cuando un nodo termina, cada arista saliente se marca "viva" (se tomó) o
+ * "muerta" (rama no elegida del CONDITIONAL, nodo detenido por error, END).
+ * Un nodo con todas sus entradas resueltas pasa a la cola de listos si al
+ * menos una llegó viva; si todas llegaron muertas, no se ejecuta y propaga
+ * la muerte a sus sucesores (eliminación de caminos muertos). Así las ramas
+ * independientes se solapan solas y los PARALLEL_JOIN no necesitan matar
+ * hilos: simplemente se ejecutan cuando llega la última entrada.
+ *
+ * Todos los nodos comparten un único ExecutionContext. Los grafos con
+ * ciclos se delegan en {@link WorkflowRunner}.
+ */
+public class DataflowRunner implements WorkflowEngine {
+
+    public ExecutionContext run(Workflow workflow) {
+        return run(workflow, null);
+    }
+
+    @Override
+    public ExecutionContext run(Workflow workflow, String runId) {
+        return execute(workflow, runId, false);
+    }
+
+    @Override
+    public ExecutionContext resume(Workflow workflow, String runId) {
+        return execute(workflow, runId, true);
+    }
+
+    private ExecutionContext execute(Workflow workflow, String runId, boolean resume) {
+        CompiledWorkflow graph = workflow.compiled();
+        if (!graph.isAcyclic()) {
+            EngineOutput.println(new ExecutionContext(runId),
+                    "[JAVA-STDOUT]: El workflow tiene ciclos, se ejecuta con el runner secuencial");
+            WorkflowRunner runner = new WorkflowRunner();
+            return resume ? runner.resume(workflow, runId) : runner.run(workflow, runId);
+        }
+
+        long startTime = System.currentTimeMillis();
+        ExecutionContext context = RunReport.begin(workflow, runId, startTime, resume);
+
+        Node startNode = NodeResolver.findStartNode(workflow);
+        boolean hasErrors = new Scheduler(workflow, graph, context).runFrom(startNode);
+
+        RunReport.finish(context, startTime, hasErrors);
+        return context;
+    }
+
+    @Override
+    public String name() {
+        return WorkflowEngines.DATAFLOW;
+    }
+
+    /**
+     * Estado de un nodo durante la ejecución: entradas pendientes y cuántas
+     * llegaron vivas.
+     */
+    private static final class Slot {
+        final Node node;
+        final AtomicInteger pending;
+        final AtomicInteger liveArrivals = new AtomicInteger();
+
+        Slot(Node node, int inDegree) {
+            this.node = node;
+            this.pending = new AtomicInteger(inDegree);
+        }
+    }
+
+    /**
+     * Una ejecución concreta. Se descarta al terminar.
+     */
+    private static final class Scheduler {
+        private final CompiledWorkflow graph;
+        private final ExecutionContext context;
+        private final BranchExecutor executor;
+        private final BranchLimiter limiter;
+        private final Map<String, Slot> slots;
+        private final NodeExecutor parallelExecutor;
+        private final NodeExecutor joinExecutor;
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private volatile boolean stopped;
+        private volatile boolean hasErrors;
+        private Node startNode;
+
+        Scheduler(Workflow workflow, CompiledWorkflow graph, ExecutionContext context) {
+            this.graph = graph;
+            this.context = context;
+            this.executor = BranchExecutors.forWorkflow(workflow);
+            this.limiter = BranchExecutors.limiterFor(context, workflow);
+
+            // Solo cuentan las aristas cuyo origen existe: las que salen de un
+            // id inexistente nunca se resolverían
+            Map<String, Integer> inDegrees = new HashMap<>();
+            for (Node n : graph.nodes())
+                for (Node target : graph.outgoingTargets(n.id))
+                    if (target != null)
+                        inDegrees.merge(target.id, 1, Integer::sum);
+
+            this.slots = new HashMap<>(graph.size() * 2);
+            for (Node n : graph.nodes())
+                slots.put(n.id, new Slot(n, inDegrees.getOrDefault(n.id, 0)));
+
+            // PARALLEL y PARALLEL_JOIN se resuelven aquí mismo: el reparto de ramas
+            // y la barrera los hace el propio planificador
+            this.parallelExecutor = new LoggingNodeDecorator((node, ctx) -> {
+                int branches = graph.outgoing(node.id).size();
+                ctx.setNodeOutput(node.id, branches == 0
+                        ? Map.of("success", true, "message", "No hay ramas")
+                        : Map.of("success", true, "branches_dispatched", branches, "executor", executor.name()));
+            });
+            this.joinExecutor = new LoggingNodeDecorator((node, ctx) -> {
+                int arrivals = slots.get(node.id).liveArrivals.get();
+                EngineOutput.println(ctx, String.format("[PARALLEL-JOIN] Todas las entradas de '%s' resueltas (%d vivas)",
+                        node.id, arrivals));
+                ctx.setNodeOutput(node.id, Map.of(
+                        "status", "COMPLETED",
+                        "message", "Barrera superada.",
+                        "arrivals", arrivals));
+            });
+        }
+
+        boolean runFrom(Node startNode) {
+            this.startNode = startNode;
+
+            // Los nodos sin entradas que no son el START nunca se ejecutan:
+            // sus aristas salientes se resuelven como muertas desde el inicio
+            Deque<Node> dead = new ArrayDeque<>();
+            for (Node n : graph.nodes())
+                if (n != startNode && slots.get(n.id).pending.get() == 0)
+                    dead.push(n);
+            drainDead(dead);
+
+            schedule(startNode);
+            done.join();
+            return hasErrors;
+        }
+
+        private void schedule(Node node) {
+            inFlight.incrementAndGet();
+            try {
+                executor.executor().execute(() -> runNode(node));
+            } catch (RuntimeException e) {
+                System.err.println("[DATAFLOW-ERROR]: " + e.getMessage());
+                finishTask();
+            }
+        }
+
+        private void runNode(Node node) {
+            if (stopped) {
+                complete(node, false);
+                return;
+            }
+            // Con límite de concurrencia el permiso es del hilo: se espera en línea
+            boolean inline = limiter.bounded();
+            try {
+                limiter.acquire();
+            } catch (Exception e) {
+                System.err.println("[DATAFLOW-ERROR]: " + e.getMessage());
+                complete(node, false);
+                return;
+            }
+
+            CompletableFuture<Void> step;
+            try {
+                CompletableFuture<Void> pending = executorFor(node).executeAsync(node, context);
+                if (inline)
+                    BranchExecutors.block(() -> pending.handle((ignored, error) -> null).join());
+                step = pending;
+            } catch (Exception e) {
+                step = CompletableFuture.failedFuture(e);
+            } finally {
+                if (inline)
+                    limiter.release();
+            }
+
+            // Un nodo HTTP en vuelo no retiene el hilo: la propagación ocurre
+            // en el hilo que completa la respuesta
+            step.whenComplete((ignored, error) -> complete(node, afterExecute(node, error)));
+        }
+
+        private void complete(Node node, boolean ok) {
+            try {
+                signalOutgoing(node, ok);
+            } finally {
+                finishTask();
+            }
+        }
+
+        private void finishTask() {
+            if (inFlight.decrementAndGet() == 0)
+                done.complete(null);
+        }
+
+        private boolean afterExecute(Node node, Throwable error) {
+            if (error == null)
+                return true;
+            hasErrors = true;
+            RunReport.recordFailure(node, context, Futures.unwrap(error));
+
+            if (RunReport.isStopPolicyActive(node)) {
+                stopped = true;
+                return false;
+            }
+            return true;
+        }
+
+        private NodeExecutor executorFor(Node node) {
+            return switch (node.getNodeType()) {
+                case PARALLEL -> parallelExecutor;
+                case PARALLEL_JOIN -> joinExecutor;
+                default -> ExecutorFactory.getExecutor(node);
+            };
+        }
+
+        /**
+         * Decide qué aristas salientes quedan vivas: ninguna tras un END o un
+         * error con STOP, solo la rama elegida en un CONDITIONAL (la misma que
+         * tomaría el runner) y todas en el resto de nodos.
+         */
+        private void signalOutgoing(Node node, boolean ok) {
+            List<Connection> out = graph.outgoing(node.id);
+            int only = -1;
+            if (ok && node.getNodeType() == NodeType.CONDITIONAL)
+                only = graph.branchIndex(node.id, selectedBranch(node));
+            boolean propagate = ok && !stopped && node.getNodeType() != NodeType.END;
+
+            Deque<Node> dead = new ArrayDeque<>();
+            for (int i = 0; i < out.size(); i++) {
+                boolean live = propagate && (node.getNodeType() != NodeType.CONDITIONAL || i == only);
+                arrive(out.get(i).target, live, dead);
+            }
+            drainDead(dead);
+        }
+
+        private String selectedBranch(Node node) {
+            Object nodeOutput = context.getNodeOutput(node.id);
+            if (nodeOutput instanceof Map<?, ?> details) {
+                Object selected = details.get("selectedBranch");
+                if (selected != null)
+                    return String.valueOf(selected);
+            }
+            return null;
+        }
+
+        /**
+         * Resuelve una arista de entrada del destino. Si era la última y llegó
+         * alguna viva, el nodo pasa a la cola de listos; si no, se anota como
+         * muerto para propagarlo sin recursión.
+         */
+        private void arrive(String targetId, boolean live, Deque<Node> dead) {
+            Slot slot = targetId == null ? null : slots.get(targetId);
+            if (slot == null || slot.node == startNode)
+                return;
+            if (live)
+                slot.liveArrivals.incrementAndGet();
+            if (slot.pending.decrementAndGet() != 0)
+                return;
+
+            if (slot.liveArrivals.get() > 0 && !stopped)
+                schedule(slot.node);
+            else
+                dead.push(slot.node);
+        }
+
+        private void drainDead(Deque<Node> dead) {
+            while (!dead.isEmpty()) {
+                Node node = dead.pop();
+                for (Connection edge : graph.outgoing(node.id))
+                    arrive(edge.target, false, dead);
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.miniflow.core;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.model.Node;
+import com.miniflow.model.Workflow;
+import com.miniflow.utils.EngineConfig;
+import com.miniflow.utils.LatencyHistogram;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas del motor: histogramas de duración (nanoTime) por tipo de nodo y
+ * por nodo, contadores (errores, reintentos y coberturas HTTP, barreras
+ * detenidas, aciertos de caché, nodos reaplicados del journal) y gauges del
+ * BranchExecutor y del limitador de ramas.
+ *
+ * Hay un registro por ejecución (servicio del RunState) que se emite como
+ * evento METRICS al terminar, y uno global del proceso que acumula todas las
+ * ejecuciones (solo por tipo, para no crecer con los ids de cada workflow).
+ * Los histogramas por nodo (~150 B por nodo en la línea METRICS) solo se
+ * recogen con metrics.byNode=true.
+ * Con metrics.prometheusFile el global se vuelca en formato de texto de
+ * Prometheus al final de cada ejecución.
+ */
+public final class EngineMetrics {
+
+    private static final String SERVICE_KEY = "metrics";
+    private static final EngineMetrics GLOBAL = new EngineMetrics(false, false);
+
+    private final boolean perRun;
+    private final boolean perNode;
+    private final Map<String, LatencyHistogram> byType = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> byNode = new ConcurrentHashMap<>();
+    private final Map<String, BranchExecutor> executors = new ConcurrentHashMap<>();
+    private final AtomicInteger peakActiveBranches = new AtomicInteger();
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder barrierHalts = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder httpCacheHits = new LongAdder();
+    private final LongAdder replays = new LongAdder();
+
+    private EngineMetrics(boolean perRun, boolean perNode) {
+        this.perRun = perRun;
+        this.perNode = perNode;
+    }
+
+    /**
+     * Registra las métricas de una ejecución raíz. null si están desactivadas
+     * (metrics.enabled=false).
+     */
+    static EngineMetrics begin(ExecutionContext context) {
+        if (!EngineConfig.getBoolean("metrics.enabled", true))
+            return null;
+        boolean perNode = EngineConfig.getBoolean("metrics.byNode", false);
+        return context.getRunState().service(SERVICE_KEY, () -> new EngineMetrics(true, perNode));
+    }
+
+    public static EngineMetrics of(ExecutionContext context) {
+        return context.getRunState().findService(SERVICE_KEY);
+    }
+
+    public static EngineMetrics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Anota un nodo terminado en las métricas de su ejecución y en las
+     * globales. status: OK, ERROR, HALTED, REPLAYED o CACHED (como el
+     * histórico).
+     */
+    public static void recordNode(Node node, ExecutionContext context, long nanos, String status) {
+        EngineMetrics run = of(context);
+        if (run == null)
+            return;
+        BranchExecutor executor = context.getVariable("__workflowScope") instanceof Workflow workflow
+                ? BranchExecutors.forWorkflow(workflow)
+                : null;
+        Object output = context.getNodeOutput(node.getId());
+        run.record(node, nanos, status, output, executor);
+        GLOBAL.record(node, nanos, status, output, executor);
+    }
+
+    private void record(Node node, long nanos, String status, Object output, BranchExecutor executor) {
+        byType.computeIfAbsent(node.getNodeType().name(), k -> new LatencyHistogram()).record(nanos);
+        if (perNode)
+            byNode.computeIfAbsent(node.getId(), k -> new LatencyHistogram()).record(nanos);
+        nodes.increment();
+        switch (status) {
+            case "ERROR" -> errors.increment();
+            case "HALTED" -> barrierHalts.increment();
+            case "CACHED" -> cacheHits.increment();
+            case "REPLAYED" -> replays.increment();
+            default -> {
+            }
+        }
+        if (output instanceof Map<?, ?> details) {
+            if (details.get("attempts") instanceof List<?> attempts) {
+                for (Object attempt : attempts) {
+                    if (attempt instanceof Map<?, ?> a && Boolean.TRUE.equals(a.get("hedged")))
+                        hedges.increment();
+                    else if (attempt instanceof Map<?, ?> a && a.get("attempt") instanceof Number n && n.intValue() > 1)
+                        retries.increment();
+                }
+            }
+            if (details.get("cache") instanceof Map<?, ?> cache && "HIT".equals(cache.get("status")))
+                httpCacheHits.increment();
+        }
+        if (executor != null) {
+            executors.putIfAbsent(executor.name(), executor);
+            peakActiveBranches.accumulateAndGet(executor.activeBranches(), Math::max);
+        }
+    }
+
+    /**
+     * Cierra la ejecución: devuelve su instantánea y, si se pidió, vuelca las
+     * métricas globales a metrics.prometheusFile.
+     */
+    Map<String, Object> finish(ExecutionContext context) {
+        GLOBAL.runs.increment();
+        Map<String, Object> snapshot = snapshot(BranchExecutors.findLimiter(context));
+        String file = EngineConfig.getString("metrics.prometheusFile", "");
+        if (!file.isBlank()) {
+            try {
+                GLOBAL.writePrometheus(Path.of(file));
+            } catch (IOException e) {
+                System.err.println("[METRICS] " + e.getMessage());
+            }
+        }
+        return snapshot;
+    }
+
+    public Map<String, Object> snapshot(BranchLimiter limiter) {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        Map<String, Object> counters = new LinkedHashMap<>();
+        if (!perRun)
+            counters.put("runs", runs.sum());
+        counters.put("nodes", nodes.sum());
+        counters.put("errors", errors.sum());
+        counters.put("retries", retries.sum());
+        counters.put("hedges", hedges.sum());
+        counters.put("barrierHalts", barrierHalts.sum());
+        counters.put("cacheHits", cacheHits.sum());
+        counters.put("httpCacheHits", httpCacheHits.sum());
+        counters.put("replays", replays.sum());
+        snapshot.put("counters", counters);
+
+        Map<String, Object> gauges = new LinkedHashMap<>();
+        new TreeMap<>(executors).forEach((name, executor) -> {
+            Map<String, Object> pool = new LinkedHashMap<>();
+            pool.put("activeBranches", executor.activeBranches());
+            if (executor instanceof ForkJoinBranchExecutor fj) {
+                pool.put("poolThreads", fj.pool().getPoolSize());
+                pool.put("queuedTasks", fj.pool().getQueuedSubmissionCount() + fj.pool().getQueuedTaskCount());
+            }
+            gauges.put(name, pool);
+        });
+        gauges.put("peakActiveBranches", peakActiveBranches.get());
+        if (limiter != null) {
+            gauges.put("maxConcurrency", limiter.maxConcurrency());
+            gauges.put("queuedBranches", limiter.queuedBranches());
+            gauges.put("peakQueuedBranches", limiter.peakQueuedBranches());
+        }
+        snapshot.put("gauges", gauges);
+
+        snapshot.put("byType", histograms(byType));
+        if (perNode)
+            snapshot.put("byNode", histograms(byNode));
+        return snapshot;
+    }
+
+    private static Map<String, Object> histograms(Map<String, LatencyHistogram> source) {
+        Map<String, Object> out = new TreeMap<>();
+        source.forEach((key, histogram) -> out.put(key, histogram.snapshot()));
+        return out;
+    }
+
+    /**
+     * Formato de texto de Prometheus (summary por tipo de nodo, contadores y
+     * gauges). Se escribe en un temporal y se mueve para que el scraper nunca
+     * lea un fichero a medias.
+     */
+    void writePrometheus(Path file) throws IOException {
+        StringBuilder out = new StringBuilder();
+        out.append("# HELP miniflow_node_duration_seconds Node execution time by node type\n");
+        out.append("# TYPE miniflow_node_duration_seconds summary\n");
+        new TreeMap<>(byType).forEach((type, h) -> {
+            for (double q : new double[] { 0.5, 0.9, 0.99, 0.999 })
+                out.append("miniflow_node_duration_seconds{type=\"").append(type).append("\",quantile=\"")
+                        .append(q).append("\"} ").append(seconds(h.percentile(q))).append('\n');
+            out.append("miniflow_node_duration_seconds_sum{type=\"").append(type).append("\"} ")
+                    .append(seconds(h.sum())).append('\n');
+            out.append("miniflow_node_duration_seconds_count{type=\"").append(type).append("\"} ")
+                    .append(h.count()).append('\n');
+        });
+
+        counter(out, "runs", "Finished workflow runs", runs);
+        counter(out, "nodes", "Finished node executions", nodes);
+        counter(out, "node_errors", "Failed node executions", errors);
+        counter(out, "http_retries", "HTTP retry attempts", retries);
+        counter(out, "http_hedges", "HTTP hedged requests", hedges);
+        counter(out, "barrier_halts", "Branches halted at a PARALLEL_JOIN barrier", barrierHalts);
+        counter(out, "node_cache_hits", "Node results restored from the node cache", cacheHits);
+        counter(out, "http_cache_hits", "HTTP responses served from the response cache", httpCacheHits);
+        counter(out, "node_replays", "Node results replayed from a run journal", replays);
+
+        out.append("# HELP miniflow_active_branches Branches running on the branch executor\n");
+        out.append("# TYPE miniflow_active_branches gauge\n");
+        new TreeMap<>(executors).forEach((name, executor) -> out.append("miniflow_active_branches{executor=\"")
+                .append(name).append("\"} ").append(executor.activeBranches()).append('\n'));
+        gauge(out, "peak_active_branches", "Highest active branch count seen at a node completion",
+                peakActiveBranches.get());
+        Map<String, Object> cache = NodeResultCache.shared().stats();
+        gauge(out, "node_cache_entries", "Entries in the node result cache", (Number) cache.get("entries"));
+        gauge(out, "node_cache_bytes", "Size of the node result cache", (Number) cache.get("bytes"));
+
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        Files.writeString(tmp, out, StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void counter(StringBuilder out, String name, String help, LongAdder value) {
+        out.append("# HELP miniflow_").append(name).append("_total ").append(help).append('\n');
+        out.append("# TYPE miniflow_").append(name).append("_total counter\n");
+        out.append("miniflow_").append(name).append("_total ").append(value.sum()).append('\n');
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, Number value) {
+        out.append("# HELP miniflow_").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE miniflow_").append(name).append(" gauge\n");
+        out.append("miniflow_").append(name).append(' ').append(value).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+}
@@ -0,0 +1,56 @@
+package com.miniflow.core;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ForkJoinPool acotado (work-stealing). Las esperas bloqueantes dentro de
+ * una rama deben pasar por {@link BranchExecutors#block}, que usa
+ * ForkJoinPool.managedBlock para que el pool compense con otro hilo sin
+ * superar maxThreads.
+ */
+public class ForkJoinBranchExecutor implements BranchExecutor {
+
+    private final ForkJoinPool pool;
+
+    public ForkJoinBranchExecutor(int parallelism, int maxThreads) {
+        int p = Math.max(1, parallelism);
+        this.pool = new ForkJoinPool(
+                p,
+                pool -> {
+                    ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    t.setName("miniflow-fj-" + t.getPoolIndex());
+                    t.setDaemon(true);
+                    return t;
+                },
+                null,
+                true,
+                0,
+                Math.max(p, maxThreads),
+                1,
+                null,
+                60,
+                TimeUnit.SECONDS);
+    }
+
+    @Override
+    public Executor executor() {
+        return pool;
+    }
+
+    @Override
+    public String name() {
+        return "forkjoin";
+    }
+
+    @Override
+    public int activeBranches() {
+        return pool.getActiveThreadCount();
+    }
+
+    public ForkJoinPool pool() {
+        return pool;
+    }
+}
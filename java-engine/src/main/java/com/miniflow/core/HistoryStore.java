@@ -0,0 +1,392 @@
+package com.miniflow.core;
+
+import com.miniflow.utils.EngineConfig;
+import com.miniflow.utils.JsonUtils;
+import com.miniflow.utils.TypeConverter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Histórico local de ejecuciones escrito por el motor (history.dir).
+ *
+ * Segmentos append-only segment-NNNNNN.ndjson con un evento JSON por línea:
+ * los NODE de una ejecución seguidos de su RUN. Cuando el segmento activo
+ * supera history.segmentBytes se sella: se comprime a .ndjson.gz y se abre
+ * el siguiente.
+ *
+ * index.ndjson tiene una línea por ejecución (runId, workflow, status,
+ * startedAt, durationMs...) con el segmento, offset y longitud de su bloque.
+ * Listar y filtrar solo lee el índice; el detalle de un run lee su bloque
+ * (en un .gz se descomprime hasta el offset, sin cargar el resto).
+ *
+ * Retención por segmentos enteros: al sellar se borran los más antiguos
+ * mientras haya más de history.maxRuns ejecuciones o los segmentos ocupen
+ * más de history.maxBytes. El segmento activo nunca se borra.
+ *
+ * Cada proceso del motor escribe en el mismo directorio, así que toda
+ * escritura se hace con el lock de fichero .lock.
+ */
+public final class HistoryStore {
+
+    private static final String INDEX = "index.ndjson";
+    private static final String LOCK = ".lock";
+    private static final String EXTENSION = ".ndjson";
+    private static final String COMPRESSED = ".ndjson.gz";
+    private static final Pattern SEGMENT = Pattern.compile("segment-(\\d+)\\.ndjson(\\.gz)?");
+
+    private static volatile HistoryStore shared;
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final int maxRuns;
+    private final long maxBytes;
+
+    HistoryStore(Path dir, long segmentBytes, int maxRuns, long maxBytes) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.maxRuns = maxRuns;
+        this.maxBytes = maxBytes;
+    }
+
+    public static HistoryStore shared() {
+        HistoryStore store = shared;
+        if (store == null) {
+            synchronized (HistoryStore.class) {
+                if (shared == null) {
+                    String dir = EngineConfig.getString("history.dir",
+                            Path.of(System.getProperty("user.home"), ".miniflow", "history").toString());
+                    shared = new HistoryStore(Path.of(dir),
+                            EngineConfig.getLong("history.segmentBytes", 4L * 1024 * 1024),
+                            EngineConfig.getInt("history.maxRuns", 1000),
+                            EngineConfig.getLong("history.maxBytes", 64L * 1024 * 1024));
+                }
+                store = shared;
+            }
+        }
+        return store;
+    }
+
+    Path dir() {
+        return dir;
+    }
+
+    /**
+     * Añade el bloque de eventos de una ejecución y su línea de índice.
+     */
+    synchronized void append(Map<String, Object> summary, List<Map<String, Object>> events) throws IOException {
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        for (Map<String, Object> event : events)
+            line(block, event);
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("event", "RUN");
+        run.putAll(summary);
+        line(block, run);
+
+        Files.createDirectories(dir);
+        try (FileChannel lockChannel = FileChannel.open(dir.resolve(LOCK), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            FileLock lock = lockChannel.lock();
+            try {
+                int number = activeSegment();
+                Path active = segmentFile(number);
+                boolean sealed = false;
+                if (Files.exists(active) && Files.size(active) > 0
+                        && Files.size(active) + block.size() > segmentBytes) {
+                    seal(number);
+                    sealed = true;
+                    active = segmentFile(++number);
+                }
+
+                long offset = Files.exists(active) ? Files.size(active) : 0;
+                Files.write(active, block.toByteArray(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+                Map<String, Object> entry = new LinkedHashMap<>(summary);
+                entry.put("segment", segmentName(number));
+                entry.put("offset", offset);
+                entry.put("length", block.size());
+                ByteArrayOutputStream indexLine = new ByteArrayOutputStream();
+                line(indexLine, entry);
+                Files.write(dir.resolve(INDEX), indexLine.toByteArray(), StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND);
+
+                if (sealed)
+                    enforceRetention(number);
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Filtros y página de una consulta --history.
+     */
+    public record Query(String workflow, String status, Long since, Long until, int page, int pageSize) {
+
+        /**
+         * --workflow=nombre --status=FAILED --since=... --until=... --page=1
+         * --pageSize=20. since/until admiten epoch en ms, ISO-8601 o una fecha
+         * (yyyy-MM-dd) en la zona del sistema.
+         */
+        public static Query fromArgs(String[] args) {
+            Map<String, String> values = new LinkedHashMap<>();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (arg.startsWith("--") && eq > 2)
+                    values.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+            int page = Integer.parseInt(values.getOrDefault("page", "1").trim());
+            int pageSize = Integer.parseInt(values.getOrDefault("pageSize", "20").trim());
+            if (page < 1 || pageSize < 1)
+                throw new IllegalArgumentException("--page and --pageSize must be positive");
+            return new Query(values.get("workflow"), values.get("status"),
+                    instant(values.get("since")), instant(values.get("until")), page, pageSize);
+        }
+
+        private static Long instant(String text) {
+            if (text == null || text.isBlank())
+                return null;
+            String value = text.trim();
+            if (value.chars().allMatch(Character::isDigit))
+                return Long.parseLong(value);
+            try {
+                return ZonedDateTime.parse(value).toInstant().toEpochMilli();
+            } catch (DateTimeParseException e) {
+                // Sin zona: se prueba como hora local
+            }
+            try {
+                return LocalDateTime.parse(value).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            } catch (DateTimeParseException e) {
+                // Solo fecha
+            }
+            try {
+                return LocalDate.parse(value).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Not a valid instant: " + text);
+            }
+        }
+
+        boolean matches(Map<String, Object> entry) {
+            long startedAt = TypeConverter.asLong(entry.get("startedAt"), 0L);
+            return (workflow == null || workflow.equals(entry.get("workflow")))
+                    && (status == null || status.equalsIgnoreCase(String.valueOf(entry.get("status"))))
+                    && (since == null || startedAt >= since)
+                    && (until == null || startedAt < until);
+        }
+    }
+
+    /**
+     * Resúmenes que cumplen la consulta, los más recientes primero. Solo lee
+     * el índice.
+     */
+    public Map<String, Object> list(Query query) throws IOException {
+        List<Map<String, Object>> matching = new ArrayList<>();
+        for (Map<String, Object> entry : readIndex())
+            if (query.matches(entry))
+                matching.add(entry);
+        matching.sort(Comparator.comparingLong(
+                (Map<String, Object> e) -> TypeConverter.asLong(e.get("startedAt"), 0L)).reversed());
+
+        int from = Math.min(matching.size(), (query.page() - 1) * query.pageSize());
+        int to = Math.min(matching.size(), from + query.pageSize());
+        List<Map<String, Object>> runs = new ArrayList<>(to - from);
+        for (Map<String, Object> entry : matching.subList(from, to))
+            runs.add(summary(entry));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("event", "HISTORY");
+        result.put("total", matching.size());
+        result.put("page", query.page());
+        result.put("pageSize", query.pageSize());
+        result.put("runs", runs);
+        return result;
+    }
+
+    /**
+     * Resumen y duración de cada nodo de la última ejecución con ese runId
+     * (una reanudación reutiliza el runId). Solo lee el bloque de ese run.
+     */
+    public Map<String, Object> run(String runId) throws IOException {
+        Map<String, Object> found = null;
+        for (Map<String, Object> entry : readIndex())
+            if (runId.equals(entry.get("runId")))
+                found = entry;
+        if (found == null)
+            throw new IllegalArgumentException("No history for run '" + runId + "' in " + dir);
+
+        byte[] block = readBlock(String.valueOf(found.get("segment")),
+                TypeConverter.asLong(found.get("offset"), 0L), TypeConverter.asLong(found.get("length"), 0L).intValue());
+        List<Map<String, Object>> nodes = new ArrayList<>();
+        for (String line : new String(block, StandardCharsets.UTF_8).split("\n")) {
+            if (JsonUtils.tryParse(line) instanceof Map<?, ?> map && "NODE".equals(map.get("event"))) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> node = new LinkedHashMap<>((Map<String, Object>) map);
+                node.remove("event");
+                nodes.add(node);
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("event", "HISTORY_RUN");
+        result.putAll(summary(found));
+        result.put("nodes", nodes);
+        return result;
+    }
+
+    private static Map<String, Object> summary(Map<String, Object> entry) {
+        Map<String, Object> summary = new LinkedHashMap<>(entry);
+        summary.remove("segment");
+        summary.remove("offset");
+        summary.remove("length");
+        return summary;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> readIndex() throws IOException {
+        Path index = dir.resolve(INDEX);
+        List<Map<String, Object>> entries = new ArrayList<>();
+        if (!Files.exists(index))
+            return entries;
+        try (Stream<String> lines = Files.lines(index, StandardCharsets.UTF_8)) {
+            // Una línea a medias (otro proceso escribiendo) no se parsea y se ignora
+            lines.filter(line -> !line.isBlank())
+                    .map(JsonUtils::tryParse)
+                    .filter(Map.class::isInstance)
+                    .forEach(parsed -> entries.add((Map<String, Object>) parsed));
+        }
+        return entries;
+    }
+
+    private byte[] readBlock(String segment, long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        try (SeekableByteChannel channel = Files.newByteChannel(dir.resolve(segment + EXTENSION))) {
+            channel.position(offset);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Lectura completa del bloque
+            }
+            return buffer.array();
+        } catch (NoSuchFileException e) {
+            // Segmento ya sellado
+        }
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(dir.resolve(segment + COMPRESSED)))) {
+            in.skipNBytes(offset);
+            return in.readNBytes(length);
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("History segment " + segment + " was removed by retention");
+        }
+    }
+
+    /**
+     * Número del segmento activo: el último sin comprimir, o el siguiente al
+     * último sellado.
+     */
+    private int activeSegment() throws IOException {
+        TreeMap<Integer, Boolean> segments = segments();
+        if (segments.isEmpty())
+            return 1;
+        int last = segments.lastKey();
+        return segments.get(last) ? last + 1 : last;
+    }
+
+    /**
+     * Número de segmento -> comprimido, en orden.
+     */
+    private TreeMap<Integer, Boolean> segments() throws IOException {
+        TreeMap<Integer, Boolean> segments = new TreeMap<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(file -> {
+                Matcher m = SEGMENT.matcher(file.getFileName().toString());
+                if (m.matches())
+                    segments.merge(Integer.parseInt(m.group(1)), m.group(2) != null, Boolean::logicalOr);
+            });
+        }
+        return segments;
+    }
+
+    private static String segmentName(int number) {
+        return String.format("segment-%06d", number);
+    }
+
+    private Path segmentFile(int number) {
+        return dir.resolve(segmentName(number) + EXTENSION);
+    }
+
+    private void seal(int number) throws IOException {
+        Path plain = segmentFile(number);
+        Path compressed = dir.resolve(segmentName(number) + COMPRESSED);
+        Path tmp = Files.createTempFile(dir, segmentName(number), ".tmp");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp))) {
+            Files.copy(plain, out);
+        }
+        Files.move(tmp, compressed, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.delete(plain);
+    }
+
+    private void enforceRetention(int active) throws IOException {
+        List<Map<String, Object>> entries = readIndex();
+        Map<String, Integer> runsPerSegment = new HashMap<>();
+        for (Map<String, Object> entry : entries)
+            runsPerSegment.merge(String.valueOf(entry.get("segment")), 1, Integer::sum);
+
+        Map<Integer, Boolean> segments = segments();
+        long bytes = 0;
+        for (Map.Entry<Integer, Boolean> segment : segments.entrySet())
+            bytes += Files.size(dir.resolve(segmentName(segment.getKey()) + (segment.getValue() ? COMPRESSED : EXTENSION)));
+        int runs = entries.size();
+
+        List<String> removed = new ArrayList<>();
+        for (Map.Entry<Integer, Boolean> segment : segments.entrySet()) {
+            if (segment.getKey() == active || (runs <= maxRuns && bytes <= maxBytes))
+                break;
+            String name = segmentName(segment.getKey());
+            Path file = dir.resolve(name + (segment.getValue() ? COMPRESSED : EXTENSION));
+            bytes -= Files.size(file);
+            runs -= runsPerSegment.getOrDefault(name, 0);
+            Files.delete(file);
+            removed.add(name);
+        }
+        if (removed.isEmpty())
+            return;
+
+        ByteArrayOutputStream kept = new ByteArrayOutputStream();
+        for (Map<String, Object> entry : entries)
+            if (!removed.contains(String.valueOf(entry.get("segment"))))
+                line(kept, entry);
+        Path tmp = Files.createTempFile(dir, "index", ".tmp");
+        Files.write(tmp, kept.toByteArray());
+        Files.move(tmp, dir.resolve(INDEX), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void line(ByteArrayOutputStream out, Map<String, Object> value) {
+        out.writeBytes(JsonUtils.toJson(value).getBytes(StandardCharsets.UTF_8));
+        out.write('\n');
+    }
+}
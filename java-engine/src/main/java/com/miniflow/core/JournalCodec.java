@@ -0,0 +1,186 @@
+package com.miniflow.core;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codificación binaria compacta de los valores del journal (ver
+ * {@link RunJournal}): un byte de tipo seguido del valor. Enteros en varint
+ * zigzag, textos en UTF-8 con longitud varint, listas y mapas anidados.
+ *
+ * Cubre lo que guardan las variables y outputs (JSON normalizado). Cualquier
+ * otro objeto se guarda como su toString().
+ */
+final class JournalCodec {
+
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte STRING = 6;
+    private static final byte LIST = 7;
+    private static final byte MAP = 8;
+    private static final byte DECIMAL = 9;
+
+    private JournalCodec() {
+    }
+
+    /**
+     * Buffer de escritura que crece según hace falta.
+     */
+    static final class Writer {
+        private byte[] buf = new byte[256];
+        private int size;
+
+        byte[] array() {
+            return buf;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buf.length)
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            buf[size++] = (byte) b;
+        }
+
+        void writeVarLong(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[size++] = (byte) v;
+        }
+
+        void writeString(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, size, bytes.length);
+            size += bytes.length;
+        }
+
+        void writeValue(Object value) {
+            if (value == null) {
+                writeByte(NULL);
+            } else if (value instanceof Boolean b) {
+                writeByte(b ? TRUE : FALSE);
+            } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                writeByte(INT);
+                writeVarLong(zigzag(((Number) value).longValue()));
+            } else if (value instanceof Long l) {
+                writeByte(LONG);
+                writeVarLong(zigzag(l));
+            } else if (value instanceof Double || value instanceof Float) {
+                writeByte(DOUBLE);
+                long bits = Double.doubleToRawLongBits(((Number) value).doubleValue());
+                ensure(8);
+                for (int i = 7; i >= 0; i--)
+                    buf[size++] = (byte) (bits >>> (i * 8));
+            } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+                writeByte(DECIMAL);
+                writeString(value.toString());
+            } else if (value instanceof Map<?, ?> map) {
+                writeByte(MAP);
+                writeVarLong(map.size());
+                map.forEach((k, v) -> {
+                    writeString(String.valueOf(k));
+                    writeValue(v);
+                });
+            } else if (value instanceof Iterable<?> list) {
+                List<Object> items = new ArrayList<>();
+                list.forEach(items::add);
+                writeByte(LIST);
+                writeVarLong(items.size());
+                items.forEach(this::writeValue);
+            } else if (value instanceof Object[] array) {
+                writeValue(Arrays.asList(array));
+            } else {
+                writeByte(STRING);
+                writeString(value.toString());
+            }
+        }
+    }
+
+    static long readVarLong(ByteBuffer in) {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return v;
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = (int) readVarLong(in);
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static Object readValue(ByteBuffer in) {
+        byte tag = in.get();
+        switch (tag) {
+            case NULL:
+                return null;
+            case FALSE:
+                return false;
+            case TRUE:
+                return true;
+            case INT:
+                return (int) unzigzag(readVarLong(in));
+            case LONG:
+                return unzigzag(readVarLong(in));
+            case DOUBLE:
+                return Double.longBitsToDouble(in.getLong());
+            case STRING:
+                return readString(in);
+            case DECIMAL:
+                return new BigDecimal(readString(in));
+            case LIST: {
+                int n = (int) readVarLong(in);
+                List<Object> list = new ArrayList<>(n);
+                for (int i = 0; i < n; i++)
+                    list.add(readValue(in));
+                return list;
+            }
+            case MAP: {
+                int n = (int) readVarLong(in);
+                Map<String, Object> map = new LinkedHashMap<>(Math.max(4, n * 2));
+                for (int i = 0; i < n; i++) {
+                    String key = readString(in);
+                    map.put(key, readValue(in));
+                }
+                return map;
+            }
+            default:
+                throw new IllegalStateException("Unknown journal value tag " + tag);
+        }
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
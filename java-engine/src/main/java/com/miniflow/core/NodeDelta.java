@@ -0,0 +1,59 @@
+package com.miniflow.core;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.model.Node;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Efecto de un nodo sobre el contexto: variables escritas, variables
+ * borradas y su output. Lo guardan el journal ({@link RunJournal}) y la caché
+ * de resultados ({@link NodeResultCache}) para reaplicarlo sin ejecutar.
+ */
+record NodeDelta(Map<String, Object> set, List<String> removed, Object output) {
+
+    /**
+     * Delta entre la instantánea before (tomada al empezar el nodo) y el
+     * contexto actual. Se compara por identidad: el mapa persistente conserva
+     * los valores que nadie tocó. Las variables internas (__) no se guardan.
+     */
+    @SuppressWarnings("unchecked")
+    static NodeDelta capture(Node node, ExecutionContext context, Map<String, Object> before) {
+        Map<String, Object> after = context.getVariables();
+        Map<String, Object> set = new LinkedHashMap<>();
+        after.forEach((key, value) -> {
+            if (!key.startsWith("__") && before.get(key) != value)
+                set.put(key, value);
+        });
+        List<String> removed = new ArrayList<>();
+        before.forEach((key, value) -> {
+            if (!key.startsWith("__") && !after.containsKey(key))
+                removed.add(key);
+        });
+        return new NodeDelta(set, removed, context.getNodeOutput(node.id));
+    }
+
+    void apply(Node node, ExecutionContext context) {
+        removed.forEach(context::removeVariable);
+        set.forEach(context::setVariable);
+        if (output != null)
+            context.setNodeOutput(node.id, output);
+    }
+
+    void write(JournalCodec.Writer w) {
+        w.writeValue(set);
+        w.writeValue(removed);
+        w.writeValue(output);
+    }
+
+    @SuppressWarnings("unchecked")
+    static NodeDelta read(ByteBuffer in) {
+        Map<String, Object> set = (Map<String, Object>) JournalCodec.readValue(in);
+        List<String> removed = (List<String>) JournalCodec.readValue(in);
+        Object output = JournalCodec.readValue(in);
+        return new NodeDelta(set, removed, output);
+    }
+}
@@ -1,19 +1,18 @@
 package com.miniflow.core;
 
 import com.miniflow.context.ExecutionContext;
-import com.miniflow.model.Connection;
 import com.miniflow.model.Node;
+import com.miniflow.model.NodeType;
 import com.miniflow.model.Workflow;
 import java.util.Map;
-import java.util.Optional;
 
 public class NodeResolver {
 
     public static Node findStartNode(Workflow workflow) {
-        return workflow.nodes.stream()
-                .filter(n -> n.type != null && n.type.equalsIgnoreCase("START"))
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("No START node found"));
+        Node start = workflow.compiled().startNode();
+        if (start == null)
+            throw new RuntimeException("No START node found");
+        return start;
     }
 
     public static Node resolveNext(Workflow workflow, Node current, ExecutionContext context) {
@@ -24,7 +23,7 @@ public class NodeResolver {
         // El nodo PARALLEL se encarga de crear hilos para sus ramas.
         // El hilo padre no debe continuar navegando las ramas para evitar doble
         // ejecución.
-        if ("PARALLEL".equalsIgnoreCase(current.type)) {
+        if (current.getNodeType() == NodeType.PARALLEL) {
             return null; // Forzamos el FIN del hilo principal aquí
         }
 
@@ -34,27 +33,14 @@ public class NodeResolver {
         // este join
         // para continuar el flujo, comportándose ahora como el Main Thread.
 
+        // REFACTOR: El grafo compilado ya tiene las aristas agrupadas por origen y
+        // por rama, así que avanzar al siguiente nodo es O(1).
         String branch = getBranchFlag(current, context);
-
-        Optional<Connection> edge = workflow.edges.stream()
-                .filter(e -> e.source != null && e.source.equals(current.id))
-                .filter(e -> branch == null ||
-                        (e.label != null && e.label.equalsIgnoreCase(branch)) ||
-                        (e.sourceHandle != null && e.sourceHandle.equalsIgnoreCase(branch)))
-                .findFirst();
-
-        if (edge.isPresent()) {
-            String targetId = edge.get().target;
-            return workflow.nodes.stream()
-                    .filter(n -> n.id.equals(targetId))
-                    .findFirst()
-                    .orElse(null);
-        }
-        return null;
+        return workflow.compiled().next(current.id, branch);
     }
 
     private static String getBranchFlag(Node current, ExecutionContext context) {
-        if (!"CONDITIONAL".equalsIgnoreCase(current.type)) {
+        if (current.getNodeType() != NodeType.CONDITIONAL) {
             return null;
         }
         Object nodeOutput = context.getNodeOutput(current.id);
@@ -66,4 +52,4 @@ public class NodeResolver {
         }
         return null;
     }
-}
\ No newline at end of file
+}
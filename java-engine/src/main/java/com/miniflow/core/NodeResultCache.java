@@ -0,0 +1,431 @@
+package com.miniflow.core;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.model.Node;
+import com.miniflow.model.NodeType;
+import com.miniflow.strategies.CommandStrategy;
+import com.miniflow.utils.EngineConfig;
+import com.miniflow.utils.JsonUtils;
+import com.miniflow.utils.TemplateEngine;
+import com.miniflow.utils.TypeConverter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Memoización de resultados de nodo entre ejecuciones (opt-in por nodo con
+ * "cache": true o "cache": {"ttlMs": N}).
+ *
+ * La clave es el SHA-256 de: tipo de nodo, config renderizada con el
+ * contexto actual (claves ordenadas, sin "cache") y el valor de cada
+ * variable que la config nombra, aunque no sea en una plantilla (inputKey,
+ * expresiones de CONDITIONAL...). También las entradas implícitas de un
+ * COMMAND: la variable payload (que los comandos python reciben sin
+ * nombrarla) y el tamaño y la fecha de modificación de los ficheros que lee
+ * (inputFile, scriptPath o un Path en la variable de inputKey). Nombrar de
+ * más solo provoca fallos de caché, nunca aciertos falsos.
+ *
+ * Cada entrada es un fichero en cache.dir con su caducidad y el
+ * {@link NodeDelta} del nodo. El índice LRU vive en memoria y se reconstruye
+ * al arrancar por fecha de modificación (un acierto la actualiza), así que el
+ * orden se mantiene entre procesos. Al superar cache.maxBytes se borran las
+ * entradas menos usadas.
+ */
+public final class NodeResultCache {
+
+    private static final int MAGIC = 0x4D464331; // "MFC1"
+    private static final String EXTENSION = ".mfc";
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    private static volatile NodeResultCache shared;
+
+    private final Path dir;
+    private final long maxBytes;
+    private final long defaultTtlMs;
+    // clave -> bytes del fichero, en orden de acceso (el primero es el menos usado)
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private boolean loaded;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    NodeResultCache(Path dir, long maxBytes, long defaultTtlMs) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.defaultTtlMs = defaultTtlMs;
+    }
+
+    public static NodeResultCache shared() {
+        NodeResultCache cache = shared;
+        if (cache == null) {
+            synchronized (NodeResultCache.class) {
+                if (shared == null) {
+                    String dir = EngineConfig.getString("cache.dir",
+                            Path.of(System.getProperty("java.io.tmpdir"), "miniflow-cache").toString());
+                    shared = new NodeResultCache(Path.of(dir),
+                            EngineConfig.getLong("cache.maxBytes", 64L * 1024 * 1024),
+                            EngineConfig.getLong("cache.ttlMs", 3_600_000L));
+                }
+                cache = shared;
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Búsqueda para un nodo que pidió caché, con la clave ya calculada sobre
+     * el contexto actual. null si el nodo no usa caché.
+     */
+    public static Lookup lookup(Node node, ExecutionContext context) {
+        Map<String, Object> cfg = node.getConfig();
+        Object setting = cfg == null ? null : cfg.get("cache");
+        if (setting == null || Boolean.FALSE.equals(setting) || "false".equals(String.valueOf(setting)))
+            return null;
+        NodeResultCache cache = shared();
+        long ttlMs = setting instanceof Map<?, ?> m
+                ? TypeConverter.asLong(m.get("ttlMs"), cache.defaultTtlMs)
+                : cache.defaultTtlMs;
+        return cache.entry(key(node, context, cfg), ttlMs);
+    }
+
+    Lookup entry(String key, long ttlMs) {
+        return new Lookup(key, ttlMs);
+    }
+
+    public final class Lookup {
+        private final String key;
+        private final long ttlMs;
+
+        private Lookup(String key, long ttlMs) {
+            this.key = key;
+            this.ttlMs = ttlMs;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        /**
+         * Si hay una entrada vigente, reaplica el resultado guardado en el
+         * contexto (el output se marca con "memoized": true) y devuelve true.
+         */
+        public boolean apply(Node node, ExecutionContext context) {
+            NodeDelta delta = read(key);
+            if (delta == null) {
+                misses.incrementAndGet();
+                return false;
+            }
+            hits.incrementAndGet();
+            Object output = delta.output();
+            if (output instanceof Map<?, ?> map) {
+                Map<Object, Object> marked = new LinkedHashMap<>(map);
+                marked.put("memoized", true);
+                output = marked;
+            }
+            new NodeDelta(delta.set(), delta.removed(), output).apply(node, context);
+            return true;
+        }
+
+        /**
+         * Guarda el resultado de una ejecución correcta. before es la
+         * instantánea de variables tomada al empezar el nodo.
+         */
+        public void store(Node node, ExecutionContext context, Map<String, Object> before) {
+            write(key, System.currentTimeMillis() + ttlMs, NodeDelta.capture(node, context, before));
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        synchronized (this) {
+            stats.put("entries", index.size());
+            stats.put("bytes", totalBytes);
+        }
+        return stats;
+    }
+
+    /**
+     * Borra todas las entradas.
+     */
+    synchronized void clear() {
+        load();
+        for (String key : new ArrayList<>(index.keySet()))
+            delete(key);
+    }
+
+    static String key(Node node, ExecutionContext context, Map<String, Object> cfg) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        Map<String, Object> config = new TreeMap<>(cfg);
+        config.remove("cache");
+
+        update(digest, node.getNodeType().name());
+        update(digest, JsonUtils.toJson(render(config, context)));
+
+        Set<String> names = new TreeSet<>();
+        collectNames(config, names);
+        for (String name : names) {
+            Object value = name.startsWith("__") ? null : context.getVariable(name);
+            if (value != null) {
+                update(digest, name);
+                update(digest, JsonUtils.toJson(value));
+            }
+        }
+        if (node.getNodeType() == NodeType.COMMAND)
+            implicitCommandInputs(digest, context, config);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Lo que CommandStrategy lee sin que la config lo nombre como variable:
+     * payload (python), inputFile, scriptPath, un Path en inputKey y los
+     * tokens de command / args que son ficheros existentes (relativos al cwd
+     * del nodo), como el script de "python3 process.py". Los destinos de una
+     * redirección (> f, >> f) no cuentan: son salidas, no entradas.
+     */
+    private static void implicitCommandInputs(MessageDigest digest, ExecutionContext context,
+            Map<String, Object> config) {
+        String command = TemplateEngine.render(TypeConverter.asString(config.get("command")), context);
+        Object payload = context.getVariable("payload");
+        if (payload != null && command != null && command.toLowerCase().contains("python")) {
+            update(digest, "payload");
+            update(digest, JsonUtils.toJson(payload));
+        }
+
+        List<Path> files = new ArrayList<>();
+        for (String key : new String[] { "inputFile", "scriptPath" }) {
+            String path = TemplateEngine.render(TypeConverter.asString(config.get(key)), context);
+            if (path == null || path.isBlank())
+                continue;
+            try {
+                files.add(Path.of(path.replace("\"", "").trim()));
+            } catch (InvalidPathException e) {
+                // El nodo fallará al ejecutarse; la config ya está en la clave
+            }
+        }
+        String cwd = TemplateEngine.render(TypeConverter.asString(config.get("cwd")), context);
+        Path base = Path.of("");
+        try {
+            if (cwd != null && !cwd.isBlank() && Files.isDirectory(Path.of(cwd)))
+                base = Path.of(cwd);
+        } catch (InvalidPathException e) {
+            // Sin cwd válido el proceso corre en el directorio actual
+        }
+        String args = TemplateEngine.render(TypeConverter.asString(config.get("args")), context);
+        boolean redirect = false;
+        for (String token : CommandStrategy.splitArgs((command == null ? "" : command) + " "
+                + (args == null ? "" : args))) {
+            boolean target = redirect;
+            redirect = token.matches("\\d?>>?");
+            if (target || token.matches("\\d?>.*"))
+                continue;
+            try {
+                Path file = base.resolve(token);
+                if (Files.isRegularFile(file))
+                    files.add(file);
+            } catch (InvalidPathException e) {
+                // No es una ruta
+            }
+        }
+
+        String inputKey = TypeConverter.asString(config.get("inputKey"));
+        Object input = inputKey == null || inputKey.isBlank() ? null : context.getVariable(inputKey);
+        if (input instanceof Path path)
+            files.add(path);
+        else if (input instanceof java.io.File file)
+            files.add(file.toPath());
+
+        for (Path file : files) {
+            update(digest, file.toString());
+            try {
+                update(digest, Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis());
+            } catch (IOException e) {
+                update(digest, "missing");
+            }
+        }
+    }
+
+    private static void update(MessageDigest digest, String text) {
+        digest.update(text.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Copia de la config con las plantillas resueltas y los mapas ordenados.
+     */
+    private static Object render(Object value, ExecutionContext context) {
+        if (value instanceof String text)
+            return TemplateEngine.render(text, context);
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            map.forEach((k, v) -> sorted.put(String.valueOf(k), render(v, context)));
+            return sorted;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> rendered = new ArrayList<>(list.size());
+            list.forEach(item -> rendered.add(render(item, context)));
+            return rendered;
+        }
+        return value;
+    }
+
+    private static void collectNames(Object value, Set<String> names) {
+        if (value instanceof String text) {
+            Matcher m = IDENTIFIER.matcher(text);
+            while (m.find())
+                names.add(m.group());
+        } else if (value instanceof Map<?, ?> map) {
+            map.values().forEach(v -> collectNames(v, names));
+        } else if (value instanceof List<?> list) {
+            list.forEach(item -> collectNames(item, names));
+        }
+    }
+
+    private NodeDelta read(String key) {
+        Path file = dir.resolve(key + EXTENSION);
+        synchronized (this) {
+            load();
+            if (index.get(key) == null)
+                return null;
+        }
+        try {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (in.getInt() != MAGIC || in.getLong() < System.currentTimeMillis()) {
+                remove(key);
+                return null;
+            }
+            NodeDelta delta = NodeDelta.read(in);
+            // La fecha de modificación es el orden LRU para el próximo proceso
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return delta;
+        } catch (IOException | RuntimeException e) {
+            remove(key);
+            return null;
+        }
+    }
+
+    private void write(String key, long expiresAt, NodeDelta delta) {
+        JournalCodec.Writer w = new JournalCodec.Writer();
+        w.writeByte(MAGIC >>> 24);
+        w.writeByte(MAGIC >>> 16);
+        w.writeByte(MAGIC >>> 8);
+        w.writeByte(MAGIC);
+        for (int i = 7; i >= 0; i--)
+            w.writeByte((int) (expiresAt >>> (i * 8)));
+        delta.write(w);
+        if (w.size() > maxBytes)
+            return;
+
+        try {
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, key, ".tmp");
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                out.write(w.array(), 0, w.size());
+            }
+            Files.move(tmp, dir.resolve(key + EXTENSION), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("[NODE-CACHE] " + e.getMessage());
+            return;
+        }
+
+        synchronized (this) {
+            load();
+            Long previous = index.put(key, (long) w.size());
+            totalBytes += w.size() - (previous == null ? 0 : previous);
+            Iterator<Map.Entry<String, Long>> eldest = index.entrySet().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Long> entry = eldest.next();
+                if (entry.getKey().equals(key))
+                    continue;
+                eldest.remove();
+                totalBytes -= entry.getValue();
+                evictions.incrementAndGet();
+                deleteFile(entry.getKey());
+            }
+        }
+    }
+
+    private synchronized void remove(String key) {
+        delete(key);
+    }
+
+    private void delete(String key) {
+        Long size = index.remove(key);
+        if (size != null)
+            totalBytes -= size;
+        deleteFile(key);
+    }
+
+    private void deleteFile(String key) {
+        try {
+            Files.deleteIfExists(dir.resolve(key + EXTENSION));
+        } catch (IOException e) {
+            // Se reintenta en la próxima expulsión
+        }
+    }
+
+    /**
+     * Reconstruye el índice desde disco la primera vez (más antiguo primero).
+     */
+    private void load() {
+        if (loaded)
+            return;
+        loaded = true;
+        if (!Files.isDirectory(dir))
+            return;
+        record Entry(String key, long size, long modified) {
+        }
+        List<Entry> entries = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                try {
+                    if (name.endsWith(EXTENSION))
+                        entries.add(new Entry(name.substring(0, name.length() - EXTENSION.length()),
+                                Files.size(file), Files.getLastModifiedTime(file).toMillis()));
+                } catch (IOException e) {
+                    // Entrada ilegible: se ignora
+                }
+            });
+        } catch (IOException e) {
+            return;
+        }
+        entries.sort(Comparator.comparingLong(Entry::modified));
+        for (Entry entry : entries) {
+            index.put(entry.key(), entry.size());
+            totalBytes += entry.size();
+        }
+    }
+}
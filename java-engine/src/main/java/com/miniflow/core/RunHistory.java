@@ -0,0 +1,103 @@
+package com.miniflow.core;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.model.Node;
+import com.miniflow.utils.EngineConfig;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registro de una ejecución para el histórico local ({@link HistoryStore}).
+ *
+ * Cada nodo terminado deja un evento (rama, estado, inicio relativo y
+ * duración) en memoria. Al cerrar la ejecución se escribe todo el bloque de
+ * una vez, así los eventos de un run quedan contiguos en el segmento aunque
+ * haya varias ejecuciones en paralelo (daemon) y el índice puede apuntar a
+ * ellos con offset + longitud.
+ *
+ * Como el journal, el histórico nunca hace fallar la ejecución.
+ */
+public final class RunHistory {
+
+    private static final String SERVICE_KEY = "history";
+
+    private final String runId;
+    private final String workflow;
+    private final long startTime;
+    private final boolean resumed;
+    private final List<Map<String, Object>> events = new ArrayList<>();
+    private int errors;
+
+    private RunHistory(String runId, String workflow, long startTime, boolean resumed) {
+        this.runId = runId;
+        this.workflow = workflow;
+        this.startTime = startTime;
+        this.resumed = resumed;
+    }
+
+    /**
+     * Registra el histórico en el RunState de una ejecución raíz. null si está
+     * desactivado (history.enabled=false).
+     */
+    static RunHistory begin(ExecutionContext context, String runId, String workflowName, long startTime,
+            boolean resumed) {
+        if (!EngineConfig.getBoolean("history.enabled", true))
+            return null;
+        String id = runId != null ? runId : RunIds.next();
+        RunHistory history = new RunHistory(id, workflowName, startTime, resumed);
+        return context.getRunState().service(SERVICE_KEY, () -> history);
+    }
+
+    public static RunHistory of(ExecutionContext context) {
+        return context.getRunState().findService(SERVICE_KEY);
+    }
+
+    /**
+     * status: OK, ERROR, HALTED, REPLAYED o CACHED.
+     */
+    public void recordNode(Node node, ExecutionContext context, long nodeStartMillis, long nanos, String status,
+            Throwable error) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("event", "NODE");
+        event.put("nodeId", node.getId());
+        event.put("type", node.getType());
+        event.put("branch", context.getBranchId());
+        event.put("status", status);
+        event.put("startOffsetMs", nodeStartMillis - startTime);
+        event.put("durationMs", Math.round(nanos / 1_000.0) / 1_000.0);
+        if (error != null)
+            event.put("error", error.getMessage() != null ? error.getMessage() : error.toString());
+        synchronized (events) {
+            events.add(event);
+            if ("ERROR".equals(status))
+                errors++;
+        }
+    }
+
+    /**
+     * Cierra el registro y lo añade al histórico.
+     */
+    void finish(String status, long durationMs) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("runId", runId);
+        summary.put("workflow", workflow);
+        summary.put("status", status);
+        summary.put("startedAt", startTime);
+        summary.put("durationMs", durationMs);
+        List<Map<String, Object>> snapshot;
+        synchronized (events) {
+            summary.put("nodeCount", events.size());
+            summary.put("errors", errors);
+            snapshot = new ArrayList<>(events);
+        }
+        if (resumed)
+            summary.put("resumed", true);
+        try {
+            HistoryStore.shared().append(summary, snapshot);
+        } catch (Exception e) {
+            System.err.println("[HISTORY] " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.miniflow.core;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Ids de ejecución para los runs que no traen uno (CLI). UUID.randomUUID
+ * inicializa SecureRandom, que en una JVM recién arrancada cuesta decenas de
+ * ms en cada ejecución: aquí basta con la hora y un aleatorio barato.
+ */
+final class RunIds {
+
+    private RunIds() {
+    }
+
+    static String next() {
+        return Long.toString(System.currentTimeMillis(), 36) + "-"
+                + Long.toHexString(ThreadLocalRandom.current().nextLong());
+    }
+}
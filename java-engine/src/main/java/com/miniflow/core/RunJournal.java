@@ -0,0 +1,484 @@
+package com.miniflow.core;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.model.Node;
+import com.miniflow.utils.EngineConfig;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Journal de una ejecución: fichero append-only mapeado en memoria donde
+ * cada nodo terminado deja el delta que produjo ({@link NodeDelta}),
+ * codificado en binario ({@link JournalCodec}).
+ *
+ * Formato: cabecera "MFJ1" + versión y registros
+ * [longitud int][tipo byte][payload][crc32 int]. Una longitud 0 marca el
+ * final; un registro con CRC incorrecto (escritura a medias) también.
+ *
+ * Mientras ningún nodo falla los registros se acumulan en memoria: una
+ * ejecución correcta (la mayoría) no crea fichero, ni mapeo, ni hilo de
+ * volcado. El fichero se crea con el primer NODE_FAILED (o al cerrar una
+ * ejecución con errores o con journal.keepSuccessful, o si lo acumulado
+ * llega a journal.chunkBytes) y recibe de golpe lo acumulado. Con journal.deferred=false se escribe desde el inicio, a costa
+ * de ese arranque, para poder reanudar también tras una caída del proceso.
+ *
+ * Escribir un registro es copiar bytes en el mapeo. El msync se agrupa: un
+ * hilo compartido vuelca cada journal.syncIntervalMs todo lo escrito desde la
+ * última vez (journal.sync=group). Los fallos y el cierre se vuelcan en el
+ * acto para que el punto de reanudación sea durable. journal.sync=always
+ * vuelca cada registro y none lo deja en manos del sistema operativo.
+ *
+ * Reanudar (--resume runId) vuelve a recorrer el grafo desde START con el
+ * mismo motor: cada nodo con un registro de finalización en la misma rama
+ * no se ejecuta, se reaplica su delta. PARALLEL y PARALLEL_JOIN sí se
+ * ejecutan (reparten las ramas y llevan la barrera), así que los contextos
+ * de cada rama se reconstruyen igual que en la ejecución original. Los ids
+ * de rama son deterministas: las ramas se numeran en orden de aristas y la
+ * que sigue tras un join toma un id fijo (ver
+ * {@link ExecutionContext#continueAs}), llegue quien llegue último. El
+ * primer nodo que se ejecuta de verdad es el que falló.
+ */
+public final class RunJournal {
+
+    private static final String SERVICE_KEY = "journal";
+    private static final String EXTENSION = ".mfj";
+    private static final int MAGIC = 0x4D464A31; // "MFJ1"
+    private static final int VERSION = 1;
+    private static final int HEADER = 8;
+
+    private static final byte RUN_START = 1;
+    private static final byte NODE_DONE = 2;
+    private static final byte NODE_FAILED = 3;
+    private static final byte RUN_END = 4;
+    private static final byte RESUME = 5;
+
+    private enum Sync {
+        GROUP, ALWAYS, NONE
+    }
+
+    private static final ScheduledExecutorService SYNC = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "miniflow-journal-sync");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final String id;
+    private final Path file;
+    private final int chunkBytes;
+    private final Sync sync;
+    private final Replay replay;
+    private final Object syncLock = new Object();
+    private final AtomicInteger failures = new AtomicInteger();
+
+    /** Registros completos aún sin fichero (null una vez abierto). */
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private FileChannel channel;
+    private ScheduledFuture<?> flusher;
+    private MappedByteBuffer map;
+    private long mapStart;
+    private long position;
+    private long synced;
+    private boolean closed;
+
+    private RunJournal(String id, Path file, Replay replay) {
+        this.id = id;
+        this.file = file;
+        this.replay = replay;
+        this.chunkBytes = Math.max(4096, EngineConfig.getInt("journal.chunkBytes", 1 << 20));
+        this.sync = switch (EngineConfig.getString("journal.sync", "group").toLowerCase(Locale.ROOT)) {
+            case "always" -> Sync.ALWAYS;
+            case "none" -> Sync.NONE;
+            default -> Sync.GROUP;
+        };
+    }
+
+    /**
+     * Abre el fichero y sigue escribiendo en start (0 = fichero nuevo, con
+     * cabecera); lo acumulado en memoria se copia a continuación. Llamar con
+     * el monitor tomado.
+     */
+    private void attach(long start) throws IOException {
+        byte[] buffered = pending.toByteArray();
+        pending = null;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        remap(start, Math.max(chunkBytes, HEADER + buffered.length));
+        if (start == 0) {
+            map.putInt(MAGIC).putInt(VERSION);
+            position = HEADER;
+        }
+        map.put(buffered);
+        position += buffered.length;
+        long interval = EngineConfig.getLong("journal.syncIntervalMs", 10);
+        if (sync == Sync.GROUP && interval > 0)
+            flusher = SYNC.scheduleWithFixedDelay(this::sync, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Pasa el journal a disco si aún está en memoria. Si no se puede crear el
+     * fichero el journal se desactiva (nunca hace fallar la ejecución).
+     */
+    private synchronized void materialize() {
+        if (pending == null || closed)
+            return;
+        try {
+            Files.createDirectories(file.getParent());
+            prune(file.getParent());
+            Files.deleteIfExists(file);
+            attach(0);
+        } catch (IOException e) {
+            System.err.println("[JOURNAL] No se pudo abrir " + file + ": " + e.getMessage());
+            pending = null;
+            closed = true;
+        }
+    }
+
+    /**
+     * Abre el journal de una ejecución raíz y lo registra en su RunState.
+     * Devuelve null si está desactivado (journal.enabled=false) o no se pudo
+     * crear: el journal nunca hace fallar la ejecución. Al reanudar, el
+     * journal previo del runId es obligatorio.
+     */
+    static RunJournal open(ExecutionContext context, String workflowName, boolean resume) {
+        if (!resume && !EngineConfig.getBoolean("journal.enabled", true))
+            return null;
+        String id = context.getRunId() != null ? context.getRunId() : RunIds.next();
+        Path file = fileFor(id);
+        RunJournal journal;
+        if (resume) {
+            if (!Files.exists(file))
+                throw new IllegalArgumentException("No journal for run '" + id + "' in " + file.getParent());
+            try {
+                Scan scan = scan(file);
+                journal = new RunJournal(id, file, scan.replay);
+                synchronized (journal) {
+                    journal.attach(scan.end);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot read journal " + file + ": " + e.getMessage(), e);
+            }
+            journal.append(RESUME, writer(w -> w.writeVarLong(System.currentTimeMillis())));
+        } else {
+            journal = new RunJournal(id, file, null);
+            journal.append(RUN_START, writer(w -> {
+                w.writeString(workflowName == null ? "" : workflowName);
+                w.writeVarLong(System.currentTimeMillis());
+            }));
+            if (!EngineConfig.getBoolean("journal.deferred", true)) {
+                journal.materialize();
+                if (journal.closed)
+                    return null;
+            }
+        }
+        context.getRunState().service(SERVICE_KEY, () -> journal);
+        return journal;
+    }
+
+    public static RunJournal of(ExecutionContext context) {
+        return context.getRunState().findService(SERVICE_KEY);
+    }
+
+    static Path fileFor(String runId) {
+        String dir = EngineConfig.getString("journal.dir",
+                Path.of(System.getProperty("java.io.tmpdir"), "miniflow-journal").toString());
+        return Path.of(dir).resolve(runId.replaceAll("[^A-Za-z0-9._-]", "_") + EXTENSION);
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * Al reanudar: nodos con un registro de finalización pendiente de
+     * reaplicar y el último nodo que falló (null si no hay).
+     */
+    int replayable() {
+        return replay == null ? 0 : replay.remaining.get();
+    }
+
+    String failedNode() {
+        return replay == null ? null : replay.failedNode;
+    }
+
+    /**
+     * Si el nodo ya terminó en la ejecución original (misma rama, misma
+     * ocurrencia), reaplica su delta en el contexto y devuelve true.
+     */
+    public boolean replay(Node node, ExecutionContext context) {
+        if (replay == null)
+            return false;
+        Queue<NodeDelta> pending = replay.deltas.get(key(context.getBranchId(), node.id));
+        NodeDelta delta = pending == null ? null : pending.poll();
+        if (delta == null)
+            return false;
+        replay.remaining.decrementAndGet();
+        delta.apply(node, context);
+        return true;
+    }
+
+    /**
+     * Registra el final correcto del nodo. before es la instantánea de las
+     * variables tomada al empezar (ver {@link NodeDelta#capture}).
+     */
+    public void recordDone(Node node, ExecutionContext context, Map<String, Object> before) {
+        NodeDelta delta = NodeDelta.capture(node, context, before);
+        append(NODE_DONE, writer(w -> {
+            w.writeString(node.id);
+            w.writeString(context.getBranchId());
+            delta.write(w);
+        }));
+    }
+
+    public void recordFailed(Node node, ExecutionContext context, Throwable error) {
+        failures.incrementAndGet();
+        String message = error.getMessage() == null ? error.getClass().getSimpleName() : error.getMessage();
+        append(NODE_FAILED, writer(w -> {
+            w.writeString(node.id);
+            w.writeString(context.getBranchId());
+            w.writeString(message);
+        }));
+        materialize();
+        // El punto de reanudación tiene que sobrevivir a una caída
+        if (sync != Sync.NONE)
+            sync();
+    }
+
+    /**
+     * Cierra el journal y devuelve si se conserva. Una ejecución sin errores
+     * no tiene nada que reanudar: su fichero se borra salvo con
+     * journal.keepSuccessful=true. Cuentan también los fallos dentro de las
+     * ramas, que en el runner no llegan al contexto raíz.
+     */
+    boolean finish(boolean hasErrors, long durationMs) {
+        boolean success = !hasErrors && failures.get() == 0;
+        boolean keep = !success || EngineConfig.getBoolean("journal.keepSuccessful", false);
+        if (keep)
+            materialize();
+        append(RUN_END, writer(w -> {
+            w.writeString(success ? "SUCCESS" : "FAILED");
+            w.writeVarLong(durationMs);
+        }));
+        boolean written;
+        synchronized (this) {
+            written = channel != null;
+        }
+        close();
+        if (keep)
+            return written;
+        if (!written)
+            return false;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // En Windows un fichero mapeado no se puede borrar: lo limpia prune()
+        }
+        return false;
+    }
+
+    void close() {
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+            pending = null;
+            if (channel == null)
+                return;
+        }
+        if (flusher != null)
+            flusher.cancel(false);
+        if (sync != Sync.NONE)
+            sync();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("[JOURNAL] " + e.getMessage());
+        }
+    }
+
+    private void append(byte type, JournalCodec.Writer payload) {
+        int length = 1 + payload.size();
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload.array(), 0, payload.size());
+
+        synchronized (this) {
+            if (closed)
+                return;
+            int total = 4 + length + 4;
+            if (pending != null) {
+                ByteBuffer record = ByteBuffer.allocate(total);
+                record.putInt(length).put(type).put(payload.array(), 0, payload.size()).putInt((int) crc.getValue());
+                pending.write(record.array(), 0, total);
+                // Una ejecución muy larga no acumula sin límite: pasa a disco
+                if (pending.size() < chunkBytes)
+                    return;
+                materialize();
+                return;
+            }
+            try {
+                if (map.remaining() < total)
+                    remap(position, Math.max(chunkBytes, total));
+            } catch (IOException e) {
+                System.err.println("[JOURNAL] " + e.getMessage());
+                return;
+            }
+            map.putInt(length).put(type).put(payload.array(), 0, payload.size()).putInt((int) crc.getValue());
+            position += total;
+        }
+        if (sync == Sync.ALWAYS)
+            sync();
+    }
+
+    /**
+     * Vuelca al disco todo lo escrito desde el último volcado (group commit:
+     * un único msync para todos los registros acumulados).
+     */
+    private void sync() {
+        synchronized (syncLock) {
+            MappedByteBuffer target;
+            int from;
+            int to;
+            synchronized (this) {
+                if (position <= synced)
+                    return;
+                target = map;
+                from = (int) Math.max(0, synced - mapStart);
+                to = (int) (position - mapStart);
+                synced = position;
+            }
+            target.force(from, to - from);
+        }
+    }
+
+    /**
+     * Mapea la siguiente región a partir de start (extiende el fichero). Lo
+     * pendiente de la región anterior se vuelca antes de soltarla.
+     */
+    private void remap(long start, int size) throws IOException {
+        if (map != null) {
+            int from = (int) Math.max(0, synced - mapStart);
+            int to = (int) (position - mapStart);
+            if (sync != Sync.NONE && to > from)
+                map.force(from, to - from);
+            synced = position;
+        }
+        map = channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+        mapStart = start;
+        position = start;
+    }
+
+    /**
+     * Borra los journals más antiguos por encima de journal.maxFiles.
+     */
+    private static void prune(Path dir) {
+        int keep = EngineConfig.getInt("journal.maxFiles", 50);
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> journals = files.filter(p -> p.getFileName().toString().endsWith(EXTENSION))
+                    .sorted(Comparator.comparingLong(RunJournal::modified).reversed())
+                    .toList();
+            for (int i = Math.max(0, keep - 1); i < journals.size(); i++)
+                Files.deleteIfExists(journals.get(i));
+        } catch (IOException e) {
+            // Limpieza oportunista
+        }
+    }
+
+    private static long modified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private interface PayloadWriter {
+        void write(JournalCodec.Writer w);
+    }
+
+    private static JournalCodec.Writer writer(PayloadWriter body) {
+        JournalCodec.Writer w = new JournalCodec.Writer();
+        body.write(w);
+        return w;
+    }
+
+    private static String key(String branchId, String nodeId) {
+        return branchId + '\n' + nodeId;
+    }
+
+    /**
+     * Finalizaciones de la ejecución original, en orden, por rama y nodo.
+     */
+    private static final class Replay {
+        final Map<String, Queue<NodeDelta>> deltas = new ConcurrentHashMap<>();
+        final AtomicInteger remaining = new AtomicInteger();
+        String failedNode;
+    }
+
+    private record Scan(Replay replay, long end) {
+    }
+
+    /**
+     * Lee los registros válidos del fichero y devuelve dónde seguir escribiendo.
+     */
+    private static Scan scan(Path file) throws IOException {
+        Replay replay = new Replay();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.remaining() < HEADER || in.getInt() != MAGIC || in.getInt() != VERSION)
+                throw new IOException("Not a MiniFlow journal: " + file);
+
+            while (in.remaining() >= 9) {
+                int start = in.position();
+                int length = in.getInt();
+                if (length <= 0 || length + 4 > in.remaining()) {
+                    in.position(start);
+                    break;
+                }
+                ByteBuffer record = in.slice(in.position(), length);
+                in.position(in.position() + length);
+                CRC32 crc = new CRC32();
+                crc.update(record.duplicate());
+                if ((int) crc.getValue() != in.getInt()) {
+                    in.position(start);
+                    break;
+                }
+
+                byte type = record.get();
+                if (type == NODE_DONE) {
+                    String nodeId = JournalCodec.readString(record);
+                    String branchId = JournalCodec.readString(record);
+                    replay.deltas.computeIfAbsent(key(branchId, nodeId), k -> new ConcurrentLinkedQueue<>())
+                            .add(NodeDelta.read(record));
+                    replay.remaining.incrementAndGet();
+                } else if (type == NODE_FAILED) {
+                    replay.failedNode = JournalCodec.readString(record);
+                }
+            }
+            return new Scan(replay, in.position());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.miniflow.core;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.model.Node;
+import com.miniflow.model.Workflow;
+import com.miniflow.utils.EngineOutput;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Inicio y cierre de una ejecución raíz, comunes a todos los motores:
+ * variables de sistema, banner de inicio, resumen final, registro en el
+ * histórico local ({@link RunHistory}), traza ({@link RunTrace}), evento
+ * METRICS ({@link EngineMetrics}) y evento WORKFLOW_FINISHED para Electron.
+ */
+final class RunReport {
+
+    private RunReport() {
+    }
+
+    /**
+     * Con resume se reabre el journal del runId para reaplicar lo que ya
+     * terminó (ver {@link RunJournal}).
+     */
+    static ExecutionContext begin(Workflow workflow, String runId, long startTime, boolean resume) {
+        ExecutionContext context = new ExecutionContext(runId);
+
+        // Marcar inicio GLOBAL (Invisible para el OUTPUT DATA del log)
+        context.setVariable("__workflowStartTime", startTime);
+        context.setVariable("__workflowScope", workflow);
+
+        String name = (workflow != null && workflow.name != null) ? workflow.name : "Workflow";
+        RunJournal journal = RunJournal.open(context, name, resume);
+        String id = journal != null ? journal.id() : runId != null ? runId : RunIds.next();
+        RunHistory.begin(context, id, name, startTime, resume);
+        EngineMetrics.begin(context);
+        RunTrace.begin(context, workflow, id, name, startTime);
+        EngineOutput.println(context, "[JAVA-STDOUT]: Iniciando: " + name);
+        if (resume)
+            EngineOutput.println(context, "[JAVA-STDOUT]: Reanudando " + journal.id() + ": "
+                    + journal.replayable() + " nodos terminados en el journal"
+                    + (journal.failedNode() != null ? ", falló en '" + journal.failedNode() + "'" : ""));
+        return context;
+    }
+
+    static void finish(ExecutionContext context, long startTime, boolean hasErrors) {
+        // 1. Cálculo final centralizado
+        long duration = System.currentTimeMillis() - startTime;
+
+        // 2. Reporte final para humanos
+        EngineOutput.println(context, "[JAVA-STDOUT]: ============= ");
+        EngineOutput.println(context, "[JAVA-STDOUT]: Finalizado en: " + duration + " ms");
+        EngineOutput.println(context, "[JAVA-STDOUT]: Estado final: " + (hasErrors ? "CON ERRORES" : "EXITOSO"));
+        RunJournal journal = RunJournal.of(context);
+        if (journal != null && journal.finish(hasErrors, duration)) {
+            EngineOutput.println(context, "[JAVA-STDOUT]: Journal: " + journal.file()
+                    + " (reanudar con --resume " + journal.id() + ")");
+        }
+
+        RunTrace trace = RunTrace.of(context);
+        Path traceFile = trace != null ? trace.finish(hasErrors) : null;
+        if (traceFile != null)
+            EngineOutput.println(context, "[JAVA-STDOUT]: Trace: " + traceFile);
+
+        // 3. Histórico local (--history)
+        String status = hasErrors ? "FAILED" : "SUCCESS";
+        RunHistory history = RunHistory.of(context);
+        if (history != null)
+            history.finish(status, duration);
+
+        // 4. Métricas de la ejecución (histogramas, contadores y gauges)
+        EngineMetrics metrics = EngineMetrics.of(context);
+        if (metrics != null) {
+            Map<String, Object> event = new LinkedHashMap<>();
+            event.put("event", "METRICS");
+            event.putAll(metrics.finish(context));
+            EngineOutput.event(context.getRunId(), event);
+        }
+
+        // 5. Reporte final estructurado para Electron (JSON puro)
+        if (EngineOutput.isFramed()) {
+            EngineOutput.event(context.getRunId(), Map.of(
+                    "event", "WORKFLOW_FINISHED", "status", status, "duration", duration));
+        } else {
+            EngineOutput.raw(context.getRunId(), String.format(
+                    "{\"event\": \"WORKFLOW_FINISHED\", \"status\": \"%s\", \"duration\": %d}",
+                    status, duration));
+        }
+
+        // 6. Esperamos a que el escritor asíncrono vuelque todo a stdout
+        EngineOutput.flush();
+    }
+
+    /**
+     * Registra el fallo de un nodo en el contexto, igual en ambos motores.
+     * Si el nodo dejó sus intentos (HTTP) se conservan junto al error.
+     */
+    static void recordFailure(Node node, ExecutionContext context, Throwable e) {
+        String errorMsg = (e.getMessage() == null) ? e.getClass().getSimpleName() : e.getMessage();
+        context.setVariable("__lastError", errorMsg);
+
+        Object attempts = context.getNodeOutput(node.id) instanceof Map<?, ?> previous ? previous.get("attempts") : null;
+        context.setNodeOutput(node.id, attempts == null
+                ? Map.of("error", errorMsg, "success", false)
+                : Map.of("error", errorMsg, "success", false, "attempts", attempts));
+    }
+
+    static boolean isStopPolicyActive(Node node) {
+        try {
+            Map<String, Object> cfg = node.getConfig();
+            if (cfg == null || cfg.isEmpty())
+                return true;
+
+            // Buscamos la política en config.errorPolicy o config.onError
+            String p = String.valueOf(cfg.getOrDefault("errorPolicy", cfg.getOrDefault("onError", "STOP")));
+            return p.toUpperCase().contains("STOP");
+        } catch (Exception e) {
+            return true;
+        }
+    }
+}
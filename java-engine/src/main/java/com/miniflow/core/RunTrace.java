@@ -0,0 +1,377 @@
+package com.miniflow.core;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.model.Node;
+import com.miniflow.model.NodeType;
+import com.miniflow.model.Workflow;
+import com.miniflow.utils.EngineConfig;
+import com.miniflow.utils.HttpAttempts;
+import com.miniflow.utils.JsonUtils;
+import com.miniflow.utils.TypeConverter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Traza de una ejecución en spans, exportada como JSON de Chrome Trace Event
+ * (se abre en Perfetto o chrome://tracing).
+ *
+ * Hay spans para la ejecución, cada rama, cada nodo, cada intento HTTP, cada
+ * proceso lanzado por COMMAND y cada espera en la barrera de un
+ * PARALLEL_JOIN. Los enlaces padre/hijo siguen las ramas de cloneContext:
+ * ejecución -> nodos de la rama 0 -> PARALLEL -> rama 0.1 -> sus nodos ->
+ * intentos / procesos; la rama que sigue tras un PARALLEL_JOIN cuelga del
+ * join. Cada span lleva spanId y parentId en args, y cada rama una flecha
+ * de flujo desde el nodo que la creó.
+ *
+ * Se activa con trace.enabled o con "trace": true en los settings del
+ * workflow. Los spans se acumulan en memoria y al terminar se escribe
+ * trace.dir/runId.trace.json. Cada rama es un hilo del visor; si en una
+ * rama se solapan spans que no se anidan (motor dataflow, peticiones de
+ * cobertura) se reparten en hilos extra de la misma rama.
+ */
+public final class RunTrace {
+
+    private static final String SERVICE_KEY = "trace";
+    private static final String ROOT_BRANCH = "0";
+
+    private record Span(long id, long parent, String branch, String name, String cat, long start, long end,
+            Map<String, Object> args) {
+    }
+
+    private record Arrival(String branch, long spanId, long at) {
+    }
+
+    private final String id;
+    private final String workflow;
+    private final long startMillis;
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong ids = new AtomicLong();
+    private final Queue<Span> spans = new ConcurrentLinkedQueue<>();
+    // rama + nodo -> span abierto (padre de intentos HTTP, procesos...)
+    private final Map<String, Long> openNodes = new ConcurrentHashMap<>();
+    // rama -> último PARALLEL que empezó en ella; rama hija -> ese PARALLEL
+    private final Map<String, Long> lastFork = new ConcurrentHashMap<>();
+    private final Map<String, Long> forkOf = new ConcurrentHashMap<>();
+    // PARALLEL_JOIN -> ramas detenidas en la barrera esperando a la última
+    private final Map<String, List<Arrival>> arrivals = new ConcurrentHashMap<>();
+    private final long rootSpan = ids.incrementAndGet();
+
+    private RunTrace(String id, String workflow, long startMillis) {
+        this.id = id;
+        this.workflow = workflow;
+        this.startMillis = startMillis;
+    }
+
+    /**
+     * Registra la traza en el RunState de una ejecución raíz. null si no se
+     * pidió.
+     */
+    static RunTrace begin(ExecutionContext context, Workflow workflow, String runId, String workflowName,
+            long startMillis) {
+        Object setting = workflow != null ? workflow.getSetting("trace") : null;
+        boolean enabled = setting != null
+                ? TypeConverter.asBoolean(setting, false)
+                : EngineConfig.getBoolean("trace.enabled", false);
+        if (!enabled)
+            return null;
+        RunTrace trace = new RunTrace(runId, workflowName, startMillis);
+        return context.getRunState().service(SERVICE_KEY, () -> trace);
+    }
+
+    public static RunTrace of(ExecutionContext context) {
+        return context.getRunState().findService(SERVICE_KEY);
+    }
+
+    static Path fileFor(String runId) {
+        String dir = EngineConfig.getString("trace.dir",
+                Path.of(System.getProperty("java.io.tmpdir"), "miniflow-trace").toString());
+        return Path.of(dir).resolve(runId.replaceAll("[^A-Za-z0-9._-]", "_") + ".trace.json");
+    }
+
+    /**
+     * Span de un nodo en curso. Se cierra con {@link #end}.
+     */
+    public final class NodeSpan {
+        private final long spanId;
+        private final Node node;
+        private final String branch;
+        private final long start;
+        private final ExecutionContext context;
+
+        private NodeSpan(long spanId, Node node, String branch, long start, ExecutionContext context) {
+            this.spanId = spanId;
+            this.node = node;
+            this.branch = branch;
+            this.start = start;
+            this.context = context;
+        }
+
+        /**
+         * status: OK, ERROR, HALTED, REPLAYED o CACHED (como el histórico).
+         */
+        public void end(String status, Throwable error) {
+            long end = System.nanoTime();
+            openNodes.remove(key(branch, node.getId()), spanId);
+            Map<String, Object> args = new LinkedHashMap<>();
+            args.put("nodeId", node.getId());
+            args.put("type", node.getType());
+            args.put("branch", branch);
+            args.put("status", status);
+            if (error != null)
+                args.put("error", error.getMessage() != null ? error.getMessage() : error.toString());
+            spans.add(new Span(spanId, -1, branch, node.getId(), "node", start, end, args));
+
+            if (node.getNodeType() == NodeType.PARALLEL_JOIN)
+                barrier(status, end);
+        }
+
+        /**
+         * Las ramas que llegan antes a la barrera se detienen; cuando pasa la
+         * última, cada una recibe un span con lo que estuvo esperando.
+         */
+        private void barrier(String status, long end) {
+            List<Arrival> waiting = arrivals.computeIfAbsent(node.getId(), k -> new ArrayList<>());
+            synchronized (waiting) {
+                if ("HALTED".equals(status)) {
+                    waiting.add(new Arrival(branch, spanId, end));
+                    return;
+                }
+                for (Arrival arrival : waiting) {
+                    Map<String, Object> args = new LinkedHashMap<>();
+                    args.put("join", node.getId());
+                    args.put("releasedBy", branch);
+                    spans.add(new Span(ids.incrementAndGet(), arrival.spanId(), arrival.branch(), "barrier wait",
+                            "barrier", arrival.at(), start, args));
+                }
+                waiting.clear();
+                // La rama que sigue tras la barrera (ver continueAs) cuelga del join
+                String next = context.getBranchId();
+                if (!next.equals(branch))
+                    forkOf.putIfAbsent(next, spanId);
+            }
+        }
+    }
+
+    public NodeSpan startNode(Node node, ExecutionContext context, long startNanos) {
+        String branch = context.getBranchId();
+        long spanId = ids.incrementAndGet();
+        if (!ROOT_BRANCH.equals(branch) && !forkOf.containsKey(branch)) {
+            Long fork = lastFork.get(parentBranch(branch));
+            if (fork != null)
+                forkOf.putIfAbsent(branch, fork);
+        }
+        if (node.getNodeType() == NodeType.PARALLEL)
+            lastFork.put(branch, spanId);
+        openNodes.put(key(branch, node.getId()), spanId);
+        return new NodeSpan(spanId, node, branch, startNanos, context);
+    }
+
+    /**
+     * Span hijo del nodo en curso (proceso, espera...), con tiempos nanoTime.
+     */
+    public void span(ExecutionContext context, String nodeId, String name, String cat, long startNanos,
+            long endNanos, Map<String, Object> args) {
+        String branch = context.getBranchId();
+        Long parent = openNodes.get(key(branch, nodeId));
+        spans.add(new Span(ids.incrementAndGet(), parent != null ? parent : -1, branch, name, cat, startNanos,
+                endNanos, args == null ? Map.of() : args));
+    }
+
+    /**
+     * Listener para {@link HttpAttempts}: cada intento es un span del nodo.
+     */
+    public HttpAttempts.Listener httpListener(ExecutionContext context, String nodeId) {
+        return (url, attempt, hedged, startNanos, endNanos, outcome) -> {
+            Map<String, Object> args = new LinkedHashMap<>();
+            args.put("url", url);
+            args.put("attempt", attempt);
+            args.put("hedged", hedged);
+            args.put(outcome instanceof Integer ? "status" : "error", outcome);
+            span(context, nodeId, (hedged ? "hedge " : "attempt ") + attempt, "http", startNanos, endNanos, args);
+        };
+    }
+
+    private static String key(String branch, String nodeId) {
+        return branch + "\n" + nodeId;
+    }
+
+    private static String parentBranch(String branch) {
+        int dot = branch.lastIndexOf('.');
+        return dot < 0 ? ROOT_BRANCH : branch.substring(0, dot);
+    }
+
+    /**
+     * Escribe la traza. Devuelve el fichero, o null si no se pudo escribir
+     * (la traza nunca hace fallar la ejecución).
+     */
+    Path finish(boolean hasErrors) {
+        long end = System.nanoTime();
+        List<Span> all = new ArrayList<>(spans);
+
+        // Un span por rama (de su primer a su último span), hijo del PARALLEL que la creó
+        Map<String, long[]> extent = new LinkedHashMap<>();
+        for (Span span : all)
+            extent.merge(span.branch(), new long[] { span.start(), span.end() },
+                    (a, b) -> new long[] { Math.min(a[0], b[0]), Math.max(a[1], b[1]) });
+        Map<String, Long> branchSpans = new HashMap<>();
+        branchSpans.put(ROOT_BRANCH, rootSpan);
+        extent.forEach((branch, range) -> {
+            if (ROOT_BRANCH.equals(branch))
+                return;
+            long spanId = ids.incrementAndGet();
+            branchSpans.put(branch, spanId);
+            all.add(new Span(spanId, forkOf.getOrDefault(branch, -1L), branch, "branch " + branch, "branch",
+                    range[0], range[1], Map.of("branch", branch)));
+        });
+        Map<String, Object> runArgs = new LinkedHashMap<>();
+        runArgs.put("runId", id);
+        runArgs.put("status", hasErrors ? "FAILED" : "SUCCESS");
+        all.add(new Span(rootSpan, -1, ROOT_BRANCH, "run " + workflow, "run", startNanos, end, runArgs));
+
+        // Los nodos cuelgan de su rama
+        for (int i = 0; i < all.size(); i++) {
+            Span span = all.get(i);
+            if (span.parent() == -1 && span.id() != rootSpan && !"branch".equals(span.cat()))
+                all.set(i, new Span(span.id(), branchSpans.getOrDefault(span.branch(), rootSpan), span.branch(),
+                        span.name(), span.cat(), span.start(), span.end(), span.args()));
+        }
+
+        Path file = fileFor(id);
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), id, ".tmp");
+            try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                writeChromeTrace(out, all);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return file;
+        } catch (IOException e) {
+            System.err.println("[TRACE] " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Formato Chrome Trace Event: eventos "X" (completos) con ts/dur en µs,
+     * metadatos "M" con el nombre de cada hilo y pares "s"/"f" de flujo
+     * PARALLEL -> rama. En un mismo hilo los spans deben anidarse: se colocan
+     * contenedores primero y cada span va al primer hilo de su rama donde
+     * quepa dentro de un span abierto que sea su ancestro.
+     */
+    private void writeChromeTrace(Writer out, List<Span> all) throws IOException {
+        all.sort(Comparator.comparingLong(Span::start)
+                .thenComparing(Comparator.comparingLong(Span::end).reversed())
+                .thenComparingInt(span -> switch (span.cat()) {
+                    case "run" -> 0;
+                    case "branch" -> 1;
+                    default -> 2;
+                }));
+
+        Map<Long, Span> byId = new HashMap<>();
+        for (Span span : all)
+            byId.put(span.id(), span);
+        Map<String, List<Deque<Span>>> lanes = new HashMap<>();
+        Map<String, Integer> tids = new LinkedHashMap<>();
+        Map<Long, Integer> tidOf = new HashMap<>();
+        for (Span span : all) {
+            List<Deque<Span>> branchLanes = lanes.computeIfAbsent(span.branch(), k -> new ArrayList<>());
+            int lane = -1;
+            for (int i = 0; i < branchLanes.size() && lane < 0; i++) {
+                Deque<Span> open = branchLanes.get(i);
+                while (!open.isEmpty() && open.peek().end() <= span.start())
+                    open.pop();
+                // Solo se anida bajo un ancestro: un nodo concurrente no es su padre
+                if (open.isEmpty() || (open.peek().end() >= span.end() && isAncestor(open.peek(), span, byId))) {
+                    open.push(span);
+                    lane = i;
+                }
+            }
+            if (lane < 0) {
+                Deque<Span> open = new ArrayDeque<>();
+                open.push(span);
+                branchLanes.add(open);
+                lane = branchLanes.size() - 1;
+            }
+            String laneName = "branch " + span.branch() + (lane == 0 ? "" : " (" + (lane + 1) + ")");
+            tidOf.put(span.id(), tids.computeIfAbsent(laneName, k -> tids.size() + 1));
+        }
+
+        out.write("{\"displayTimeUnit\":\"ms\",\"otherData\":");
+        Map<String, Object> other = new LinkedHashMap<>();
+        other.put("runId", id);
+        other.put("workflow", workflow);
+        other.put("startedAt", startMillis);
+        out.write(JsonUtils.toJson(other));
+        out.write(",\"traceEvents\":[\n");
+        out.write(JsonUtils.toJson(Map.of("ph", "M", "pid", 1, "name", "process_name",
+                "args", Map.of("name", "miniflow " + workflow + " " + id))));
+        for (Map.Entry<String, Integer> tid : tids.entrySet()) {
+            event(out, Map.of("ph", "M", "pid", 1, "tid", tid.getValue(), "name", "thread_name",
+                    "args", Map.of("name", tid.getKey())));
+            event(out, Map.of("ph", "M", "pid", 1, "tid", tid.getValue(), "name", "thread_sort_index",
+                    "args", Map.of("sort_index", tid.getValue())));
+        }
+
+        long flow = 0;
+        for (Span span : all) {
+            Map<String, Object> args = new LinkedHashMap<>();
+            args.put("spanId", span.id());
+            if (span.parent() != -1)
+                args.put("parentId", span.parent());
+            args.putAll(span.args());
+            Map<String, Object> event = new LinkedHashMap<>();
+            event.put("name", span.name());
+            event.put("cat", span.cat());
+            event.put("ph", "X");
+            event.put("ts", micros(span.start()));
+            event.put("dur", Math.max(0, (span.end() - span.start()) / 1_000.0));
+            event.put("pid", 1);
+            event.put("tid", tidOf.get(span.id()));
+            event.put("args", args);
+            event(out, event);
+
+            Span fork = "branch".equals(span.cat()) ? byId.get(span.parent()) : null;
+            if (fork != null) {
+                flow++;
+                event(out, Map.of("ph", "s", "id", flow, "name", "fork", "cat", "fork", "pid", 1,
+                        "tid", tidOf.get(fork.id()), "ts", micros(fork.start())));
+                event(out, Map.of("ph", "f", "bp", "e", "id", flow, "name", "fork", "cat", "fork", "pid", 1,
+                        "tid", tidOf.get(span.id()), "ts", micros(span.start())));
+            }
+        }
+        out.write("\n]}\n");
+    }
+
+    private static boolean isAncestor(Span candidate, Span span, Map<Long, Span> byId) {
+        for (Span p = byId.get(span.parent()); p != null; p = byId.get(p.parent())) {
+            if (p.id() == candidate.id())
+                return true;
+        }
+        return false;
+    }
+
+    private double micros(long nanos) {
+        return (nanos - startNanos) / 1_000.0;
+    }
+
+    private static void event(Writer out, Map<String, Object> event) throws IOException {
+        out.write(",\n");
+        out.write(JsonUtils.toJson(event));
+    }
+}
@@ -0,0 +1,42 @@
+package com.miniflow.core;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Un hilo virtual por rama. Esperar un TIMER, una respuesta HTTP o un
+ * proceso hijo solo "aparca" el hilo virtual; los hilos del sistema
+ * operativo (carriers) quedan libres para otras ramas.
+ */
+public class VirtualThreadBranchExecutor implements BranchExecutor {
+
+    private final ExecutorService pool = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("miniflow-branch-", 0).factory());
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final Executor tracked = task -> pool.execute(() -> {
+        active.incrementAndGet();
+        try {
+            task.run();
+        } finally {
+            active.decrementAndGet();
+        }
+    });
+
+    @Override
+    public Executor executor() {
+        return tracked;
+    }
+
+    @Override
+    public String name() {
+        return "virtual";
+    }
+
+    @Override
+    public int activeBranches() {
+        return active.get();
+    }
+}
@@ -0,0 +1,31 @@
+package com.miniflow.core;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.model.Workflow;
+
+/**
+ * Motor capaz de ejecutar un workflow completo desde su nodo START.
+ *
+ * Implementaciones: {@link WorkflowRunner} (cursor único + PARALLEL/JOIN por
+ * hilos) y {@link DataflowRunner} (cola de nodos listos por dependencias).
+ */
+public interface WorkflowEngine {
+
+    /**
+     * Ejecuta el workflow asociando su salida al runId (null en modo normal)
+     * y devuelve el contexto raíz con los outputs de los nodos.
+     */
+    ExecutionContext run(Workflow workflow, String runId);
+
+    /**
+     * Reanuda la ejecución runId a partir de su journal ({@link RunJournal}):
+     * lo que ya terminó se reaplica sin ejecutarse y se continúa desde el
+     * nodo que falló.
+     */
+    ExecutionContext resume(Workflow workflow, String runId);
+
+    /**
+     * Nombre corto del motor, el mismo que acepta settings.engine.
+     */
+    String name();
+}
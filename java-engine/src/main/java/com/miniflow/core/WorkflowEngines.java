@@ -0,0 +1,32 @@
+package com.miniflow.core;
+
+import com.miniflow.model.Workflow;
+import com.miniflow.utils.EngineConfig;
+import java.util.Locale;
+
+/**
+ * Selección del {@link WorkflowEngine}.
+ *
+ * Se usa settings.engine del workflow ("runner" o "dataflow") y, si no
+ * viene, la configuración engine del motor (-Dminiflow.engine,
+ * MINIFLOW_ENGINE o --engine=... en la línea de comandos).
+ */
+public final class WorkflowEngines {
+
+    public static final String RUNNER = "runner";
+    public static final String DATAFLOW = "dataflow";
+
+    private WorkflowEngines() {
+    }
+
+    public static WorkflowEngine forWorkflow(Workflow workflow) {
+        Object setting = workflow != null ? workflow.getSetting("engine") : null;
+        String name = setting != null ? String.valueOf(setting) : EngineConfig.getString("engine", RUNNER);
+        return byName(name);
+    }
+
+    public static WorkflowEngine byName(String name) {
+        String n = name == null ? RUNNER : name.trim().toLowerCase(Locale.ROOT);
+        return DATAFLOW.equals(n) ? new DataflowRunner() : new WorkflowRunner();
+    }
+}
@@ -3,94 +3,186 @@ package com.miniflow.core;
 import com.miniflow.context.ExecutionContext;
 import com.miniflow.factory.ExecutorFactory;
 import com.miniflow.model.Node;
+import com.miniflow.model.NodeType;
 import com.miniflow.model.Workflow;
 import com.miniflow.strategies.NodeExecutor;
-import java.util.Map;
+import com.miniflow.utils.Futures;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Motor principal encargado de navegar el grafo del workflow
  * y ejecutar las estrategias correspondientes.
+ *
+ * REFACTOR: Los nodos se lanzan con executeAsync; un nodo HTTP en vuelo no
+ * retiene ningún hilo y el recorrido continúa cuando llega la respuesta.
  */
-public class WorkflowRunner {
+public class WorkflowRunner implements WorkflowEngine {
 
-    public void run(Workflow workflow) {
-        ExecutionContext context = new ExecutionContext();
+    public ExecutionContext run(Workflow workflow) {
+        return run(workflow, null);
+    }
 
-        // 1. Marcar inicio GLOBAL (Invisible para el OUTPUT DATA del log)
-        long startTime = System.currentTimeMillis();
-        context.setVariable("__workflowStartTime", startTime);
-        context.setVariable("__workflowScope", workflow);
+    /**
+     * Ejecuta el workflow asociando toda su salida al runId indicado
+     * (usado por el modo daemon, donde varias ejecuciones comparten stdout).
+     */
+    @Override
+    public ExecutionContext run(Workflow workflow, String runId) {
+        return execute(workflow, runId, false);
+    }
 
-        boolean hasErrors = false;
-        String name = (workflow != null && workflow.name != null) ? workflow.name : "Workflow";
-        System.out.println("[JAVA-STDOUT]: Iniciando: " + name);
+    @Override
+    public ExecutionContext resume(Workflow workflow, String runId) {
+        return execute(workflow, runId, true);
+    }
+
+    private ExecutionContext execute(Workflow workflow, String runId, boolean resume) {
+        long startTime = System.currentTimeMillis();
+        ExecutionContext context = RunReport.begin(workflow, runId, startTime, resume);
 
         Node startNode = NodeResolver.findStartNode(workflow);
-        runInternal(workflow, startNode, context, true, startTime, hasErrors);
+        boolean hasErrors = awaitRun(runAsync(workflow, startNode, context));
+
+        RunReport.finish(context, startTime, hasErrors);
+        return context;
     }
 
+    @Override
+    public String name() {
+        return WorkflowEngines.RUNNER;
+    }
+
+    /**
+     * Recorre el camino desde startNode en el hilo actual: si un nodo responde
+     * de forma asíncrona (HTTP) se espera aquí mismo. Es lo que usan las ramas
+     * con maxConcurrency, cuyo permiso pertenece al hilo que lo tomó.
+     */
     public void runFromNode(Workflow workflow, Node startNode, ExecutionContext context) {
         context.setVariable("__workflowScope", workflow);
-        runInternal(workflow, startNode, context, false, System.currentTimeMillis(), false);
+        new Cursor(workflow, startNode, context, null).advance();
     }
 
-    private void runInternal(Workflow workflow, Node startNode, ExecutionContext context, boolean isRoot,
-            long startTime, boolean hasErrors) {
-        Node currentNode = startNode;
+    /**
+     * Variante dirigida por completitud: cuando un nodo devuelve un futuro
+     * pendiente el hilo queda libre y el recorrido continúa en el executor de
+     * ramas del workflow al completarse. El futuro indica si hubo errores.
+     */
+    public CompletableFuture<Boolean> runFromNodeAsync(Workflow workflow, Node startNode, ExecutionContext context) {
+        context.setVariable("__workflowScope", workflow);
+        return runAsync(workflow, startNode, context);
+    }
 
-        while (currentNode != null) {
-            String nodeId = currentNode.id;
-            try {
-                NodeExecutor executor = ExecutorFactory.getExecutor(currentNode.type);
-                executor.execute(currentNode, context);
+    private CompletableFuture<Boolean> runAsync(Workflow workflow, Node startNode, ExecutionContext context) {
+        // Con maxConcurrency los permisos van ligados al hilo: se espera en línea
+        Executor resumeOn = BranchExecutors.limiterFor(context, workflow).bounded()
+                ? null
+                : BranchExecutors.forWorkflow(workflow).executor();
+        Cursor cursor = new Cursor(workflow, startNode, context, resumeOn);
+        cursor.advance();
+        return cursor.result;
+    }
 
-            } catch (com.miniflow.strategies.ParallelJoinStrategy.BarrierHaltException e) {
-                // El hilo actual llegó a la barrera pero NO es el último.
-                // Debe morir silenciosamente sin reportar error general.
-                break;
-            } catch (Exception e) {
-                hasErrors = true;
-                String errorMsg = (e.getMessage() == null) ? e.getClass().getSimpleName() : e.getMessage();
+    private static boolean awaitRun(CompletableFuture<Boolean> run) {
+        try {
+            return BranchExecutors.block(() -> Futures.join(run));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
 
-                context.setVariable("__lastError", errorMsg);
-                context.setNodeOutput(nodeId, Map.of("error", errorMsg, "success", false));
+    /**
+     * Cursor único sobre el grafo, en forma de trampolín: los nodos que
+     * terminan en el acto se encadenan con un bucle (sin recursión) y solo los
+     * que quedan pendientes reanudan el bucle desde su callback.
+     */
+    private static final class Cursor {
+        private final Workflow workflow;
+        private final ExecutionContext context;
+        private final Executor resumeOn;
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        private Node currentNode;
+        private boolean hasErrors;
+
+        Cursor(Workflow workflow, Node startNode, ExecutionContext context, Executor resumeOn) {
+            this.workflow = workflow;
+            this.context = context;
+            this.resumeOn = resumeOn;
+            this.currentNode = startNode;
+        }
 
-                if (isStopPolicyActive(currentNode))
-                    break;
+        void advance() {
+            try {
+                while (currentNode != null) {
+                    CompletableFuture<Void> step = start(currentNode);
+
+                    if (!step.isDone()) {
+                        if (resumeOn != null) {
+                            step.whenCompleteAsync((ignored, error) -> {
+                                afterStep(error);
+                                advance();
+                            }, resumeOn);
+                            return;
+                        }
+                        // Modo en línea: esperamos sin soltar el hilo
+                        BranchExecutors.block(() -> step.handle((ignored, error) -> null).join());
+                    }
+                    afterStep(step.isCompletedExceptionally() ? failureOf(step) : null);
+                }
+                result.complete(hasErrors);
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
             }
+        }
 
-            if ("END".equalsIgnoreCase(currentNode.type))
-                break;
-            currentNode = NodeResolver.resolveNext(workflow, currentNode, context);
+        private CompletableFuture<Void> start(Node node) {
+            try {
+                NodeExecutor executor = ExecutorFactory.getExecutor(node);
+                return executor.executeAsync(node, context);
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
         }
 
-        if (isRoot) {
-            // 2. Cálculo final centralizado
-            long duration = System.currentTimeMillis() - startTime;
+        private static Throwable failureOf(CompletableFuture<Void> step) {
+            try {
+                step.join();
+                return null;
+            } catch (Throwable t) {
+                return t;
+            }
+        }
 
-            // 3. Reporte final para humanos
-            System.out.println("[JAVA-STDOUT]: ============= ");
-            System.out.println("[JAVA-STDOUT]: Finalizado en: " + duration + " ms");
-            System.out.println("[JAVA-STDOUT]: Estado final: " + (hasErrors ? "CON ERRORES" : "EXITOSO"));
+        /**
+         * Aplica el resultado del nodo actual y mueve el cursor (null = fin).
+         */
+        private void afterStep(Throwable error) {
+            Node node = currentNode;
+            Throwable cause = error == null ? null : Futures.unwrap(error);
 
-            // 4. Reporte final estructurado para Electron (JSON puro)
-            String status = hasErrors ? "FAILED" : "SUCCESS";
-            System.out.println(String.format("{\"event\": \"WORKFLOW_FINISHED\", \"status\": \"%s\", \"duration\": %d}",
-                    status, duration));
-        }
-    }
+            if (cause instanceof com.miniflow.strategies.ParallelJoinStrategy.BarrierHaltException) {
+                // El hilo actual llegó a la barrera pero NO es el último.
+                // Debe morir silenciosamente sin reportar error general.
+                currentNode = null;
+                return;
+            }
+            if (cause != null) {
+                hasErrors = true;
+                RunReport.recordFailure(node, context, cause);
 
-    private boolean isStopPolicyActive(Node node) {
-        try {
-            Map<String, Object> cfg = node.getConfig();
-            if (cfg == null || cfg.isEmpty())
-                return true;
+                if (RunReport.isStopPolicyActive(node)) {
+                    currentNode = null;
+                    return;
+                }
+            }
 
-            // Buscamos la política en config.errorPolicy o config.onError
-            String p = String.valueOf(cfg.getOrDefault("errorPolicy", cfg.getOrDefault("onError", "STOP")));
-            return p.toUpperCase().contains("STOP");
-        } catch (Exception e) {
-            return true;
+            if (node.getNodeType() == NodeType.END) {
+                currentNode = null;
+                return;
+            }
+            currentNode = NodeResolver.resolveNext(workflow, node, context);
         }
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,7 @@
 package com.miniflow.factory;
 
+import com.miniflow.model.Node;
+import com.miniflow.model.NodeType;
 import com.miniflow.strategies.*;
 import com.miniflow.strategies.TimerStrategy;
 import java.util.Map;
@@ -12,23 +14,42 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class ExecutorFactory {
 
-    private static final Map<String, NodeExecutor> STRATEGIES = new ConcurrentHashMap<>();
+    private static final Map<NodeType, NodeExecutor> STRATEGIES = new ConcurrentHashMap<>();
 
     public static NodeExecutor getExecutor(String type) {
-        String t = (type == null) ? "" : type.toUpperCase().trim();
+        NodeType nodeType = NodeType.from(type);
+        if (nodeType == NodeType.UNKNOWN) {
+            String t = (type == null) ? "" : type.toUpperCase().trim();
+            throw new IllegalArgumentException("Unknown node type: " + t);
+        }
+        return getExecutor(nodeType);
+    }
+
+    /**
+     * Variante usada por el runner: el tipo ya viene normalizado en el nodo,
+     * por lo que no hay toUpperCase ni hashing de strings por paso.
+     */
+    public static NodeExecutor getExecutor(Node node) {
+        NodeType nodeType = node.getNodeType();
+        if (nodeType == NodeType.UNKNOWN) {
+            return getExecutor(node.type); // lanza con el nombre original
+        }
+        return getExecutor(nodeType);
+    }
 
-        return STRATEGIES.computeIfAbsent(t, key -> {
+    public static NodeExecutor getExecutor(NodeType nodeType) {
+        return STRATEGIES.computeIfAbsent(nodeType, key -> {
             // 1. Creamos la estrategia concreta
             NodeExecutor rawStrategy = switch (key) {
-                case "START" -> new StartStrategy();
-                case "CREATE_FOLDER" -> new CreateFolderStrategy();
-                case "HTTP_REQUEST" -> new HttpRequestStrategy();
-                case "COMMAND" -> new CommandStrategy();
-                case "CONDITIONAL" -> new ConditionalStrategy();
-                case "PARALLEL" -> new ParallelStrategy();
-                case "PARALLEL_JOIN" -> new ParallelJoinStrategy();
-                case "END" -> new EndStrategy();
-                case "TIMER" -> new TimerStrategy();
+                case START -> new StartStrategy();
+                case CREATE_FOLDER -> new CreateFolderStrategy();
+                case HTTP_REQUEST -> new HttpRequestStrategy();
+                case COMMAND -> new CommandStrategy();
+                case CONDITIONAL -> new ConditionalStrategy();
+                case PARALLEL -> new ParallelStrategy();
+                case PARALLEL_JOIN -> new ParallelJoinStrategy();
+                case END -> new EndStrategy();
+                case TIMER -> new TimerStrategy();
                 default -> throw new IllegalArgumentException("Unknown node type: " + key);
             };
 
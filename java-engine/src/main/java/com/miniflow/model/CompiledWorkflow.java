@@ -0,0 +1,210 @@
+package com.miniflow.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Vista indexada e inmutable de un {@link Workflow}, construida una sola vez
+ * al cargar el grafo.
+ *
+ * Reemplaza los recorridos con streams sobre nodes/edges que se hacían en
+ * cada paso: buscar un nodo por id, obtener su siguiente nodo (por rama) o
+ * contar las aristas que llegan a un PARALLEL_JOIN pasan a costar O(1).
+ */
+public final class CompiledWorkflow {
+
+    private static final Connection[] NO_EDGES = new Connection[0];
+    private static final Node[] NO_TARGETS = new Node[0];
+
+    private final List<Node> nodes;
+    private final Map<String, Node> nodesById;
+    private final Map<String, Links> linksBySource;
+    private final Map<String, Integer> inDegrees;
+    private final Node startNode;
+    private final boolean acyclic;
+
+    /**
+     * Aristas salientes de un nodo, ya resueltas a sus nodos destino.
+     * El orden respeta el orden original de "edges" para que el primer match
+     * sea el mismo que elegía la versión con streams.
+     */
+    private static final class Links {
+        final Connection[] edges;
+        final Node[] targets;
+        final Map<String, Integer> byBranch;
+
+        Links(Connection[] edges, Node[] targets, Map<String, Integer> byBranch) {
+            this.edges = edges;
+            this.targets = targets;
+            this.byBranch = byBranch;
+        }
+    }
+
+    private CompiledWorkflow(List<Node> nodes, Map<String, Node> nodesById, Map<String, Links> linksBySource,
+            Map<String, Integer> inDegrees, Node startNode) {
+        this.nodes = nodes;
+        this.nodesById = nodesById;
+        this.linksBySource = linksBySource;
+        this.inDegrees = inDegrees;
+        this.startNode = startNode;
+        this.acyclic = detectAcyclic();
+    }
+
+    public static CompiledWorkflow of(Workflow workflow) {
+        List<Node> nodes = workflow.nodes != null ? workflow.nodes : List.of();
+        List<Connection> edges = workflow.edges != null ? workflow.edges : List.of();
+
+        // 1. Tabla id -> nodo (el primero gana, igual que findFirst)
+        Map<String, Node> byId = new HashMap<>(nodes.size() * 2);
+        List<Node> ordered = new ArrayList<>(nodes.size());
+        Node start = null;
+        for (Node n : nodes) {
+            if (n == null)
+                continue;
+            if (n.id != null && byId.putIfAbsent(n.id, n) == null)
+                ordered.add(n);
+            if (start == null && n.getNodeType() == NodeType.START)
+                start = n;
+        }
+
+        // 2. Aristas agrupadas por origen y grados de entrada para las barreras
+        Map<String, List<Connection>> grouped = new HashMap<>();
+        Map<String, Integer> inDegrees = new HashMap<>();
+        for (Connection e : edges) {
+            if (e == null)
+                continue;
+            if (e.source != null)
+                grouped.computeIfAbsent(e.source, k -> new ArrayList<>(2)).add(e);
+            if (e.target != null)
+                inDegrees.merge(e.target, 1, Integer::sum);
+        }
+
+        // 3. Por cada origen: arrays de aristas/destinos y cubetas por rama
+        Map<String, Links> links = new HashMap<>(grouped.size() * 2);
+        grouped.forEach((source, list) -> {
+            Connection[] out = list.toArray(NO_EDGES);
+            Node[] targets = new Node[out.length];
+            Map<String, Integer> byBranch = new HashMap<>();
+            for (int i = 0; i < out.length; i++) {
+                targets[i] = out[i].target != null ? byId.get(out[i].target) : null;
+                putBranch(byBranch, out[i].label, i);
+                putBranch(byBranch, out[i].sourceHandle, i);
+            }
+            links.put(source, new Links(out, targets, byBranch));
+        });
+
+        return new CompiledWorkflow(Collections.unmodifiableList(ordered), byId, links, inDegrees, start);
+    }
+
+    private static void putBranch(Map<String, Integer> byBranch, String key, int index) {
+        if (key == null)
+            return;
+        byBranch.putIfAbsent(key.toUpperCase(Locale.ROOT), index);
+    }
+
+    /**
+     * Algoritmo de Kahn sobre las aristas que apuntan a nodos existentes.
+     * Si no se pueden "consumir" todos los nodos es que hay algún ciclo.
+     */
+    private boolean detectAcyclic() {
+        Map<String, Integer> pending = new HashMap<>(nodesById.size() * 2);
+        for (Node n : nodes)
+            pending.put(n.id, 0);
+        linksBySource.forEach((source, l) -> {
+            if (!nodesById.containsKey(source))
+                return;
+            for (Node target : l.targets)
+                if (target != null)
+                    pending.merge(target.id, 1, Integer::sum);
+        });
+
+        Deque<String> ready = new ArrayDeque<>();
+        pending.forEach((id, count) -> {
+            if (count == 0)
+                ready.add(id);
+        });
+
+        int visited = 0;
+        while (!ready.isEmpty()) {
+            String id = ready.poll();
+            visited++;
+            for (Node target : outgoingTargets(id))
+                if (target != null && pending.merge(target.id, -1, Integer::sum) == 0)
+                    ready.add(target.id);
+        }
+        return visited == nodes.size();
+    }
+
+    public Node node(String id) {
+        return id == null ? null : nodesById.get(id);
+    }
+
+    public Node startNode() {
+        return startNode;
+    }
+
+    /**
+     * Siguiente nodo desde "sourceId". Si branch es null se toma la primera
+     * arista saliente; si no, la primera cuyo label o sourceHandle coincida.
+     */
+    public Node next(String sourceId, String branch) {
+        Links l = sourceId == null ? null : linksBySource.get(sourceId);
+        if (l == null)
+            return null;
+        if (branch == null)
+            return l.targets[0];
+        Integer index = l.byBranch.get(branch.toUpperCase(Locale.ROOT));
+        return index == null ? null : l.targets[index];
+    }
+
+    /**
+     * Posición (dentro de {@link #outgoing}) de la arista que tomaría
+     * {@link #next}: 0 si branch es null, -1 si ninguna coincide.
+     */
+    public int branchIndex(String sourceId, String branch) {
+        Links l = sourceId == null ? null : linksBySource.get(sourceId);
+        if (l == null)
+            return -1;
+        if (branch == null)
+            return 0;
+        return l.byBranch.getOrDefault(branch.toUpperCase(Locale.ROOT), -1);
+    }
+
+    public List<Connection> outgoing(String sourceId) {
+        Links l = sourceId == null ? null : linksBySource.get(sourceId);
+        return l == null ? List.of() : List.of(l.edges);
+    }
+
+    public Node[] outgoingTargets(String sourceId) {
+        Links l = sourceId == null ? null : linksBySource.get(sourceId);
+        return l == null ? NO_TARGETS : l.targets;
+    }
+
+    public int inDegree(String nodeId) {
+        return nodeId == null ? 0 : inDegrees.getOrDefault(nodeId, 0);
+    }
+
+    public int size() {
+        return nodesById.size();
+    }
+
+    /**
+     * Nodos en el orden original del JSON (sin duplicados por id).
+     */
+    public List<Node> nodes() {
+        return nodes;
+    }
+
+    /**
+     * true si el grafo no tiene ciclos, requisito del motor dataflow.
+     */
+    public boolean isAcyclic() {
+        return acyclic;
+    }
+}
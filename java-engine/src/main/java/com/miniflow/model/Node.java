@@ -1,16 +1,17 @@
 package com.miniflow.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.util.Collections;
 import java.util.Map;
 
 public class Node {
     public String id;
     public String type;
-    public Map<String, Object> data; 
-    
-    public Map<String, Object> position;
-    public Integer width;
-    public Integer height;
+    // REFACTOR: Modelo compacto. position/width/height solo le interesan a la
+    // UI y ya no se cargan en el motor (ver WorkflowReader).
+    public Map<String, Object> data;
+
+    private transient NodeType nodeType;
 
     // --- Getters Básicos ---
     
@@ -22,6 +23,19 @@ public class Node {
         return type != null ? type : "unknown";
     }
 
+    /**
+     * Tipo normalizado al enum. Se calcula una vez y se reutiliza en cada paso.
+     */
+    @JsonIgnore
+    public NodeType getNodeType() {
+        NodeType t = nodeType;
+        if (t == null) {
+            t = NodeType.from(type);
+            nodeType = t;
+        }
+        return t;
+    }
+
     /**
      * REFACTOR: Encapsulamiento de la configuración.
      */
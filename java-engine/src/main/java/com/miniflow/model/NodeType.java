@@ -0,0 +1,42 @@
+package com.miniflow.model;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Tipos de nodo soportados por el motor, normalizados una sola vez.
+ * Evita comparar strings con equalsIgnoreCase en cada paso del runner.
+ */
+public enum NodeType {
+    START,
+    CREATE_FOLDER,
+    HTTP_REQUEST,
+    COMMAND,
+    CONDITIONAL,
+    PARALLEL,
+    PARALLEL_JOIN,
+    END,
+    TIMER,
+    UNKNOWN;
+
+    private static final Map<String, NodeType> BY_NAME = new HashMap<>();
+
+    static {
+        for (NodeType t : values()) {
+            if (t != UNKNOWN) {
+                BY_NAME.put(t.name(), t);
+            }
+        }
+    }
+
+    /**
+     * Convierte el "type" que envía React Flow (ej: "http_request", " START ")
+     * al enum. Cualquier valor desconocido o nulo devuelve UNKNOWN.
+     */
+    public static NodeType from(String raw) {
+        if (raw == null)
+            return UNKNOWN;
+        return BY_NAME.getOrDefault(raw.trim().toUpperCase(Locale.ROOT), UNKNOWN);
+    }
+}
@@ -1,17 +1,42 @@
 package com.miniflow.model;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class Workflow {
     public String name;
     public List<Node> nodes = new ArrayList<>();
     public List<Connection> edges = new ArrayList<>();
 
+    // Ajustes de ejecución por workflow (ej: branchExecutor, maxConcurrency).
+    // Tienen prioridad sobre la configuración global del motor.
+    public Map<String, Object> settings = new HashMap<>();
+
+    // REFACTOR: Grafo indexado, se construye una sola vez por instancia.
+    // Si se modifican nodes/edges después de compilar, llamar a recompile().
+    private transient volatile CompiledWorkflow compiled;
+
+    public CompiledWorkflow compiled() {
+        CompiledWorkflow c = compiled;
+        if (c == null) {
+            c = CompiledWorkflow.of(this);
+            compiled = c;
+        }
+        return c;
+    }
+
+    public CompiledWorkflow recompile() {
+        compiled = null;
+        return compiled();
+    }
+
+    public Object getSetting(String key) {
+        return settings != null ? settings.get(key) : null;
+    }
+
     public Node findNodeById(String id) {
-        return nodes.stream()
-                .filter(n -> n.id.equals(id))
-                .findFirst()
-                .orElse(null);
+        return compiled().node(id);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,196 @@
+package com.miniflow.model;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lector de workflows en streaming (Jackson JsonParser).
+ *
+ * A diferencia de mapper.readValue sobre un String completo, no mantiene en
+ * memoria el texto crudo ni los campos exclusivos de la UI (position, width,
+ * height, selected, style...). Cada nodo se carga en forma compacta: solo id,
+ * type, label y config, por lo que el pico de memoria durante la carga queda
+ * cerca del tamaño del modelo final.
+ */
+public class WorkflowReader {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    /**
+     * Lee un workflow desde un stream. Devuelve null si la entrada está vacía.
+     */
+    public static Workflow read(InputStream in) throws IOException {
+        try (JsonParser p = FACTORY.createParser(in)) {
+            return read(p);
+        }
+    }
+
+    public static Workflow read(String json) throws IOException {
+        try (JsonParser p = FACTORY.createParser(json)) {
+            return read(p);
+        }
+    }
+
+    public static JsonParser createParser(String json) throws IOException {
+        return FACTORY.createParser(json);
+    }
+
+    /**
+     * Lee el objeto workflow en la posición actual del parser (o el siguiente
+     * token si todavía no se ha avanzado). Deja el parser en el END_OBJECT.
+     */
+    public static Workflow read(JsonParser p) throws IOException {
+        JsonToken t = p.currentToken() != null ? p.currentToken() : p.nextToken();
+        if (t == null)
+            return null;
+        expect(p, t, JsonToken.START_OBJECT);
+
+        Workflow workflow = new Workflow();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken value = p.nextToken();
+            switch (field) {
+                case "name" -> workflow.name = value == JsonToken.VALUE_NULL ? null : p.getValueAsString();
+                case "nodes" -> workflow.nodes = readArray(p, value, WorkflowReader::readNode);
+                case "edges" -> workflow.edges = readArray(p, value, WorkflowReader::readEdge);
+                case "settings" -> {
+                    if (value == JsonToken.START_OBJECT)
+                        workflow.settings = readObject(p);
+                    else
+                        p.skipChildren();
+                }
+                default -> p.skipChildren();
+            }
+        }
+        return workflow;
+    }
+
+    @FunctionalInterface
+    private interface ElementReader<T> {
+        T read(JsonParser p) throws IOException;
+    }
+
+    private static <T> List<T> readArray(JsonParser p, JsonToken t, ElementReader<T> reader) throws IOException {
+        ArrayList<T> out = new ArrayList<>();
+        if (t == JsonToken.VALUE_NULL)
+            return out;
+        expect(p, t, JsonToken.START_ARRAY);
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            if (p.currentToken() == JsonToken.VALUE_NULL)
+                continue;
+            out.add(reader.read(p));
+        }
+        out.trimToSize();
+        return out;
+    }
+
+    private static Node readNode(JsonParser p) throws IOException {
+        expect(p, p.currentToken(), JsonToken.START_OBJECT);
+        Node node = new Node();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken value = p.nextToken();
+            switch (field) {
+                case "id" -> node.id = value == JsonToken.VALUE_NULL ? null : p.getValueAsString();
+                case "type" -> node.type = value == JsonToken.VALUE_NULL ? null : p.getValueAsString();
+                case "data" -> node.data = compactData(value == JsonToken.START_OBJECT ? readObject(p) : skip(p));
+                // position, width, height, selected, style... solo interesan a la UI
+                default -> p.skipChildren();
+            }
+        }
+        return node;
+    }
+
+    private static Connection readEdge(JsonParser p) throws IOException {
+        expect(p, p.currentToken(), JsonToken.START_OBJECT);
+        Connection edge = new Connection();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken value = p.nextToken();
+            String text = value == JsonToken.VALUE_NULL || value.isStructStart() ? null : p.getValueAsString();
+            switch (field) {
+                case "source" -> edge.source = text;
+                case "target" -> edge.target = text;
+                case "label" -> edge.label = text;
+                case "sourceHandle" -> edge.sourceHandle = text;
+                default -> { }
+            }
+            p.skipChildren();
+        }
+        return edge;
+    }
+
+    /**
+     * Si el nodo trae "config" (formato actual de la UI) solo conservamos label
+     * y config. En el formato antiguo la configuración vive directamente en
+     * data, así que se mantiene entera.
+     */
+    private static Map<String, Object> compactData(Map<String, Object> data) {
+        if (data == null || !(data.get("config") instanceof Map))
+            return data;
+        Map<String, Object> compact = new HashMap<>(4);
+        compact.put("config", data.get("config"));
+        if (data.containsKey("label"))
+            compact.put("label", data.get("label"));
+        return compact;
+    }
+
+    private static Map<String, Object> skip(JsonParser p) throws IOException {
+        p.skipChildren();
+        return null;
+    }
+
+    /**
+     * Lee un valor JSON arbitrario con la misma forma que produce Jackson para
+     * Object.class (LinkedHashMap, ArrayList, Integer/Long/Double, String...).
+     */
+    public static Object readValue(JsonParser p) throws IOException {
+        JsonToken t = p.currentToken();
+        if (t == null)
+            return null;
+        return switch (t) {
+            case START_OBJECT -> readObject(p);
+            case START_ARRAY -> readList(p);
+            case VALUE_STRING -> p.getText();
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> p.getNumberValue();
+            case VALUE_TRUE -> Boolean.TRUE;
+            case VALUE_FALSE -> Boolean.FALSE;
+            case VALUE_EMBEDDED_OBJECT -> p.getEmbeddedObject();
+            default -> null;
+        };
+    }
+
+    private static Map<String, Object> readObject(JsonParser p) throws IOException {
+        Map<String, Object> map = new LinkedHashMap<>();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String key = p.currentName();
+            p.nextToken();
+            map.put(key, readValue(p));
+        }
+        return map;
+    }
+
+    private static List<Object> readList(JsonParser p) throws IOException {
+        ArrayList<Object> list = new ArrayList<>();
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            list.add(readValue(p));
+        }
+        list.trimToSize();
+        return list;
+    }
+
+    private static void expect(JsonParser p, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Invalid workflow JSON: expected " + expected + " but found " + actual
+                    + " at " + p.currentLocation());
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package com.miniflow.strategies;
 
 import com.miniflow.context.ExecutionContext;
+import com.miniflow.core.BranchExecutors;
+import com.miniflow.core.RunTrace;
 import com.miniflow.model.Node;
 import com.miniflow.utils.*;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 public class CommandStrategy implements NodeExecutor {
 
@@ -25,16 +29,29 @@ public class CommandStrategy implements NodeExecutor {
             command = "\"C:\\Program Files\\Git\\bin\\bash.exe\"";
         }
 
-        // 2. Preparar el comando final
-        String finalArgs = prepareArguments(command, scriptPath, args, context);
-        String fullCommand = finalArgs.isBlank() ? command : command + " " + finalArgs;
+        // 2. Modo worker (opt-in): el script corre en un intérprete Python ya caliente
+        PythonWorkerPool.Job job = workerJob(command, scriptPath, args, cfg, context);
+        if (job != null) {
+            executeInWorker(command.trim(), job, cfg, context, node.getId());
+            return;
+        }
+
+        // 3. Preparar el comando final
+        Input input = Input.resolve(command, args, cfg, context, false);
+        try {
+            String finalArgs = prepareArguments(command, scriptPath, args, input.payloadArg());
+            String fullCommand = finalArgs.isBlank() ? command : command + " " + finalArgs;
 
-        // 3. Ejecutar
-        executeProcess(fullCommand, cfg, context, node.getId());
+            // 4. Ejecutar
+            executeProcess(fullCommand, cfg, context, node.getId(), input);
+        } finally {
+            if (input.payloadFile() != null)
+                Files.deleteIfExists(input.payloadFile());
+        }
     }
 
-    private void executeProcess(String fullCmd, Map<String, Object> cfg, ExecutionContext ctx, String nodeId)
-            throws Exception {
+    private void executeProcess(String fullCmd, Map<String, Object> cfg, ExecutionContext ctx, String nodeId,
+            Input input) throws Exception {
         List<String> wrapper = OSUtils.isWindows() ? List.of("cmd", "/c", fullCmd) : List.of("bash", "-lc", fullCmd);
 
         ProcessBuilder pb = new ProcessBuilder(wrapper);
@@ -48,49 +65,105 @@ public class CommandStrategy implements NodeExecutor {
             }
         }
 
+        // Un fichero como entrada se conecta directamente como stdin del hijo:
+        // el kernel lo lee sin que los bytes pasen por la JVM
+        if (input.file() != null)
+            pb.redirectInput(input.file().toFile());
+        if (input.payloadFile() != null)
+            pb.environment().put("MINIFLOW_PAYLOAD_FILE", input.payloadFile().toAbsolutePath().toString());
+
+        RunTrace trace = RunTrace.of(ctx);
+        long spawnStart = System.nanoTime();
         Process process = pb.start();
+        long spawned = System.nanoTime();
+        if (trace != null)
+            trace.span(ctx, nodeId, "spawn", "process", spawnStart, spawned, Map.of("pid", process.pid()));
 
-        // 0. Si hay inputKey, inyectarlo por STDIN (tubería) para evitar límites de arg
-        // length en Windows
-        String inputKey = TypeConverter.asString(cfg.get("inputKey"));
-        if (inputKey != null && !inputKey.isBlank()) {
-            Object inputData = ctx.getVariable(inputKey);
-            if (inputData != null) {
-                try (java.io.OutputStream os = process.getOutputStream()) {
-                    os.write(String.valueOf(inputData).getBytes(java.nio.charset.StandardCharsets.UTF_8));
-                }
-            }
-        }
+        // Evitar deadlock por buffer OS lleno: cada stream tiene su propio hilo lector
+        // (nunca el ForkJoinPool común) y la captura en memoria está acotada.
+        Capture capture = Capture.from(cfg);
+        String prefix = "[JAVA-STDOUT]: [" + nodeId + "]    ";
+        CompletableFuture<OutputCapture> outFuture = ProcessPump.start("out", process.getInputStream(),
+                capture.newBuffer(), capture.stream() ? line -> streamLine(ctx, prefix + "[stdout] ", line) : null,
+                capture.maxLineBytes());
+        CompletableFuture<OutputCapture> errFuture = ProcessPump.start("err", process.getErrorStream(),
+                capture.newBuffer(), capture.stream() ? line -> streamLine(ctx, prefix + "[stderr] ", line) : null,
+                capture.maxLineBytes());
 
-        // Evitar deadlock por buffer OS lleno consumiendo la salida asincrónicamente
-        java.util.concurrent.CompletableFuture<String> outFuture = java.util.concurrent.CompletableFuture
-                .supplyAsync(() -> {
-                    try {
-                        return OSUtils.readStream(process.getInputStream());
-                    } catch (Exception e) {
-                        return "";
-                    }
-                });
-        java.util.concurrent.CompletableFuture<String> errFuture = java.util.concurrent.CompletableFuture
-                .supplyAsync(() -> {
-                    try {
-                        return OSUtils.readStream(process.getErrorStream());
-                    } catch (Exception e) {
-                        return "";
-                    }
-                });
+        // El texto de entrada se escribe desde su propio hilo, a la vez que se lee la
+        // salida: un hijo que escribe mientras lee ya no se bloquea contra nosotros.
+        // Sin entrada se cierra stdin en el acto para que el hijo vea EOF.
+        CompletableFuture<Long> feeder;
+        if (input.text() != null) {
+            feeder = ProcessPump.feed(process.getOutputStream(), input.text());
+        } else {
+            process.getOutputStream().close();
+            feeder = CompletableFuture.completedFuture(0L);
+        }
 
         long timeoutMs = TypeConverter.asInt(cfg.get("timeoutMs"), 30000);
-        boolean finished = process.waitFor(timeoutMs, java.util.concurrent.TimeUnit.MILLISECONDS);
+        boolean finished = BranchExecutors.block(
+                () -> process.waitFor(timeoutMs, TimeUnit.MILLISECONDS));
 
         if (!finished) {
             process.destroyForcibly();
             throw new Exception("Command Execution Time Out Exceeded (" + timeoutMs + "ms)");
         }
 
-        String stdout = outFuture.get();
-        String stderr = errFuture.get();
+        OutputCapture out = BranchExecutors.block(() -> Futures.join(outFuture));
+        OutputCapture err = BranchExecutors.block(() -> Futures.join(errFuture));
+        long stdinBytes = BranchExecutors.block(() -> Futures.join(feeder));
         int exitCode = process.exitValue();
+        if (trace != null)
+            trace.span(ctx, nodeId, "process " + process.pid(), "process", spawned, System.nanoTime(),
+                    Map.of("pid", process.pid(), "exitCode", exitCode));
+
+        finish(fullCmd, cfg, ctx, nodeId, out, err, exitCode,
+                input.file() != null ? Map.of("stdinFile", input.file().toString())
+                        : input.text() != null ? Map.of("stdinBytes", stdinBytes) : null);
+    }
+
+    /**
+     * Ejecuta el script en el pool de workers Python. La salida llega en
+     * bloques mientras el script corre y pasa por la misma captura acotada (y
+     * el mismo streaming de líneas) que la de un proceso normal.
+     */
+    private void executeInWorker(String interpreter, PythonWorkerPool.Job job, Map<String, Object> cfg,
+            ExecutionContext ctx, String nodeId) throws Exception {
+        long timeoutMs = TypeConverter.asInt(cfg.get("timeoutMs"), 30000);
+        Capture capture = Capture.from(cfg);
+        String prefix = "[JAVA-STDOUT]: [" + nodeId + "]    ";
+        ProcessPump.Feed out = new ProcessPump.Feed(capture.newBuffer(),
+                capture.stream() ? line -> streamLine(ctx, prefix + "[stdout] ", line) : null, capture.maxLineBytes());
+        ProcessPump.Feed err = new ProcessPump.Feed(capture.newBuffer(),
+                capture.stream() ? line -> streamLine(ctx, prefix + "[stderr] ", line) : null, capture.maxLineBytes());
+
+        long jobStart = System.nanoTime();
+        PythonWorkerPool.Result result;
+        try {
+            result = BranchExecutors.block(() -> PythonWorkerPool.forInterpreter(interpreter).run(job, timeoutMs,
+                    (stderr, chunk) -> (stderr ? err : out).write(chunk)));
+        } catch (Exception e) {
+            out.finish();
+            err.finish();
+            throw e;
+        }
+        RunTrace trace = RunTrace.of(ctx);
+        if (trace != null)
+            trace.span(ctx, nodeId, "worker " + result.pid(), "process", jobStart, System.nanoTime(),
+                    Map.of("pid", result.pid(), "jobs", result.jobs(), "exitCode", result.exitCode()));
+
+        StringBuilder cmd = new StringBuilder(interpreter).append(' ').append(OSUtils.quote(job.script()));
+        for (String arg : job.args())
+            cmd.append(' ').append(OSUtils.quote(arg));
+        finish(cmd.toString(), cfg, ctx, nodeId, out.finish(), err.finish(), result.exitCode(),
+                Map.of("worker", Map.of("pid", result.pid(), "jobs", result.jobs())));
+    }
+
+    private void finish(String fullCmd, Map<String, Object> cfg, ExecutionContext ctx, String nodeId,
+            OutputCapture out, OutputCapture err, int exitCode, Map<String, Object> extra) throws Exception {
+        String stdout = out.text();
+        String stderr = err.text();
 
         // 1. Guardamos la salida técnica en NodeOutput (específico para el modal de la
         // UI y el Log)
@@ -98,8 +171,12 @@ public class CommandStrategy implements NodeExecutor {
         Map<String, Object> nodeResults = new HashMap<>();
         nodeResults.put("stdout", stdout);
         nodeResults.put("stderr", stderr);
+        nodeResults.put("stdoutInfo", out.describe());
+        nodeResults.put("stderrInfo", err.describe());
         nodeResults.put("exitCode", exitCode);
         nodeResults.put("fullCommandExecuted", fullCmd);
+        if (extra != null)
+            nodeResults.putAll(extra);
 
         ctx.setNodeOutput(nodeId, nodeResults);
 
@@ -115,7 +192,108 @@ public class CommandStrategy implements NodeExecutor {
         }
     }
 
-    private String prepareArguments(String cmd, String path, String args, ExecutionContext ctx) throws Exception {
+    /**
+     * Trabajo para el pool si el nodo lo pide (pythonWorker o
+     * python.pool.enabled), el comando es un intérprete Python y hay script:
+     * scriptPath o el primer argumento terminado en .py. Mismas reglas que
+     * prepareArguments: sin args se pasa el payload como único argumento, y el
+     * inputKey / inputFile llega por stdin.
+     */
+    private PythonWorkerPool.Job workerJob(String cmd, String path, String args, Map<String, Object> cfg,
+            ExecutionContext ctx) throws Exception {
+        if (!TypeConverter.asBoolean(cfg.get("pythonWorker"), EngineConfig.getBoolean("python.pool.enabled", false)))
+            return null;
+        if (!cmd.toLowerCase().contains("python") || cmd.trim().contains(" "))
+            return null;
+
+        List<String> argv = splitArgs(args);
+        String script;
+        if (path != null && !path.isBlank()) {
+            script = path.replace("\"", "");
+        } else if (!argv.isEmpty() && argv.get(0).toLowerCase().endsWith(".py")) {
+            script = argv.remove(0);
+        } else {
+            return null;
+        }
+
+        String cwd = null;
+        String cwdPath = TypeConverter.asString(cfg.get("cwd"));
+        if (cwdPath != null && !cwdPath.isBlank()) {
+            Path p = Paths.get(TemplateEngine.render(cwdPath, ctx));
+            if (Files.exists(p))
+                cwd = p.toAbsolutePath().toString();
+        }
+        Path scriptFile = cwd != null ? Paths.get(cwd).resolve(script) : Paths.get(script);
+        if (!Files.exists(scriptFile))
+            throw new Exception("Script not found: " + script);
+
+        // Por el frame no hay límite de argv: el payload va siempre como argumento
+        Input input = Input.resolve(cmd, args, cfg, ctx, true);
+        if (input.payloadArg() != null)
+            argv.add(input.payloadArg());
+        String stdinFile = input.file() != null ? input.file().toAbsolutePath().toString() : null;
+        return new PythonWorkerPool.Job(script, argv, cwd, input.text(), stdinFile);
+    }
+
+    /**
+     * Separa argumentos por espacios respetando comillas dobles, como haría
+     * el shell con una línea sencilla.
+     */
+    public static List<String> splitArgs(String args) {
+        List<String> out = new ArrayList<>();
+        if (args == null)
+            return out;
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        boolean any = false;
+        for (int i = 0; i < args.length(); i++) {
+            char c = args.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+                any = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (any)
+                    out.add(current.toString());
+                current.setLength(0);
+                any = false;
+            } else {
+                current.append(c);
+                any = true;
+            }
+        }
+        if (any)
+            out.add(current.toString());
+        return out;
+    }
+
+    /**
+     * Cada línea sale hacia la UI en cuanto llega. Se marca como "verbose":
+     * con el buffer lleno puede descartarse, pero la captura la conserva.
+     */
+    private static void streamLine(ExecutionContext ctx, String prefix, String line) {
+        EngineOutput.block(ctx, true, List.of(prefix + line));
+    }
+
+    /**
+     * Límites de captura del nodo; por defecto los de {@link EngineConfig}.
+     */
+    private record Capture(int headBytes, int tailBytes, boolean spill, boolean stream, int maxLineBytes) {
+
+        static Capture from(Map<String, Object> cfg) {
+            return new Capture(
+                    TypeConverter.asInt(cfg.get("captureHeadBytes"), EngineConfig.getInt("command.capture.headBytes", 65536)),
+                    TypeConverter.asInt(cfg.get("captureTailBytes"), EngineConfig.getInt("command.capture.tailBytes", 65536)),
+                    TypeConverter.asBoolean(cfg.get("spillOutput"), EngineConfig.getBoolean("command.spill", false)),
+                    TypeConverter.asBoolean(cfg.get("streamOutput"), EngineConfig.getBoolean("command.stream", true)),
+                    EngineConfig.getInt("command.maxLineBytes", 4096));
+        }
+
+        OutputCapture newBuffer() throws java.io.IOException {
+            return new OutputCapture(headBytes, tailBytes, spill);
+        }
+    }
+
+    private String prepareArguments(String cmd, String path, String args, String payloadArg) throws Exception {
         boolean isPy = cmd.toLowerCase().contains("python");
         StringBuilder sb = new StringBuilder();
 
@@ -130,11 +308,63 @@ public class CommandStrategy implements NodeExecutor {
             sb.append(args.trim()).append(" ");
         }
 
-        Object payload = ctx.getVariable("payload");
-        if (isPy && payload != null && (args == null || args.isBlank())) {
-            sb.append(OSUtils.quote(String.valueOf(payload)));
+        if (payloadArg != null) {
+            sb.append(OSUtils.quote(payloadArg));
         }
 
         return sb.toString().trim();
     }
+
+    /**
+     * Entrada del proceso. text o file es lo que llega por stdin (inputKey o
+     * inputFile); payloadArg es el payload cuando viaja por argv y
+     * payloadFile el fichero temporal (MINIFLOW_PAYLOAD_FILE) cuando es
+     * demasiado grande para argv y stdin ya está ocupado.
+     */
+    private record Input(String text, Path file, String payloadArg, Path payloadFile) {
+
+        /**
+         * payloadMode (o command.payload.mode): "auto" usa argv hasta
+         * command.payload.maxArgChars caracteres y si no stdin o, si está
+         * ocupado, un fichero; "argv", "stdin" y "file" fuerzan la vía.
+         */
+        static Input resolve(String cmd, String args, Map<String, Object> cfg, ExecutionContext ctx,
+                boolean unlimitedArgv) throws Exception {
+            String text = null;
+            Path file = null;
+            String inputFile = TemplateEngine.render(TypeConverter.asString(cfg.get("inputFile")), ctx);
+            String inputKey = TypeConverter.asString(cfg.get("inputKey"));
+            if (inputFile != null && !inputFile.isBlank()) {
+                file = Paths.get(inputFile.trim());
+            } else if (inputKey != null && !inputKey.isBlank()) {
+                Object inputData = ctx.getVariable(inputKey);
+                if (inputData instanceof Path p)
+                    file = p;
+                else if (inputData instanceof java.io.File f)
+                    file = f.toPath();
+                else if (inputData != null)
+                    text = String.valueOf(inputData);
+            }
+            if (file != null && !Files.isRegularFile(file))
+                throw new Exception("Input file not found: " + file);
+
+            Object payload = ctx.getVariable("payload");
+            if (payload == null || !cmd.toLowerCase().contains("python") || (args != null && !args.isBlank()))
+                return new Input(text, file, null, null);
+
+            String value = String.valueOf(payload);
+            String mode = TypeConverter.asString(cfg.getOrDefault("payloadMode",
+                    EngineConfig.getString("command.payload.mode", "auto"))).trim().toLowerCase();
+            boolean stdinFree = text == null && file == null;
+            if (unlimitedArgv || "argv".equals(mode)
+                    || ("auto".equals(mode) && value.length() <= EngineConfig.getInt("command.payload.maxArgChars", 8192)))
+                return new Input(text, file, value, null);
+            if (stdinFree && !"file".equals(mode))
+                return new Input(value, null, null, null);
+
+            Path payloadFile = Files.createTempFile("miniflow-payload-", ".txt");
+            Files.writeString(payloadFile, value);
+            return new Input(text, file, null, payloadFile);
+        }
+    }
 }
\ No newline at end of file
@@ -1,46 +1,172 @@
 package com.miniflow.strategies;
 
 import com.miniflow.context.ExecutionContext;
+import com.miniflow.core.BranchExecutors;
+import com.miniflow.core.RunTrace;
 import com.miniflow.model.Node;
 import com.miniflow.utils.*;
+import java.io.InputStream;
 import java.net.http.HttpResponse;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
+/**
+ * REFACTOR: El nodo corre sobre sendAsync. La respuesta se procesa en el hilo
+ * que la completa y el motor continúa el workflow desde ahí, sin aparcar un
+ * hilo por petición en vuelo.
+ *
+ * Con "streamBody": true el cuerpo no se convierte en String ni en árbol: se
+ * lee como InputStream y las rutas del map se extraen token a token
+ * ({@link JsonStreamExtractor}). El árbol completo solo se guarda con
+ * "keepBody": true; si no, el output lleva una vista previa acotada.
+ */
 public class HttpRequestStrategy implements NodeExecutor {
 
     @Override
     public void execute(Node node, ExecutionContext context) throws Exception {
-        Map<String, Object> cfg = node.getConfig();
+        Futures.join(executeAsync(node, context));
+    }
 
-        // 1. Resolver parámetros con Template Engine
-        String method = TypeConverter.asString(cfg.getOrDefault("method", "GET"));
-        List<String> urls = resolveUrls(cfg, context);
-        String body = TemplateEngine.render(TypeConverter.asString(cfg.get("body")), context);
-        Map<String, String> headers = renderHeaders(cfg, context);
+    @Override
+    public CompletableFuture<Void> executeAsync(Node node, ExecutionContext context) {
+        Map<String, Object> cfg = node.getConfig();
+        RunTrace trace = RunTrace.of(context);
+        HttpAttempts attempts = new HttpAttempts(trace != null ? trace.httpListener(context, node.getId()) : null);
+        HttpResponseCache.Lookup cacheLookup = null;
+        CompletableFuture<HttpResponse<String>> response;
+        try {
+            // 1. Resolver parámetros con Template Engine
+            String method = TypeConverter.asString(cfg.getOrDefault("method", "GET"));
+            List<String> urls = resolveUrls(cfg, context);
+            String body = TemplateEngine.render(TypeConverter.asString(cfg.get("body")), context);
+            Map<String, String> headers = renderHeaders(cfg, context);
 
-        // 2. Ejecutar vía Helper
-        HttpResponse<String> resp = HttpHelper.executeWithRetries(
-                urls, method, body, headers,
-                TypeConverter.asInt(cfg.get("timeoutMs"), 5000),
-                TypeConverter.asInt(cfg.get("retries"), 0));
+            // 2. Ejecutar vía Helper (no bloqueante, con backoff y cobertura opcional)
+            int timeoutMs = TypeConverter.asInt(cfg.get("timeoutMs"), 5000);
+            RetryPolicy policy = RetryPolicy.from(cfg);
+            long hedgeAfterMs = TypeConverter.asLong(cfg.get("hedgeAfterMs"), 0L);
+            Object cacheCfg = cfg.get("httpCache");
+            if (isStreaming(cfg)) {
+                // La caché necesita el cuerpo entero: en streaming no se usa
+                return streamAsync(node, context, cfg, HttpHelper.executeAsync(urls, method, body, headers,
+                        timeoutMs, policy, hedgeAfterMs, attempts, HttpResponse.BodyHandlers.ofInputStream()),
+                        attempts);
+            } else if (isCacheEnabled(cacheCfg)) {
+                // "httpCache": true o {"maxAgeMs": N} (frescura si el servidor no manda max-age)
+                long maxAgeMs = cacheCfg instanceof Map<?, ?> c ? TypeConverter.asLong(c.get("maxAgeMs"), 0L) : 0L;
+                HttpResponseCache cache = HttpResponseCache.shared();
+                cacheLookup = cache.newLookup();
+                response = HttpHelper.executeCachedAsync(cache, cacheLookup, maxAgeMs,
+                        urls, method, body, headers, timeoutMs, policy, hedgeAfterMs, attempts);
+            } else {
+                response = HttpHelper.executeAsync(
+                        urls, method, body, headers, timeoutMs, policy, hedgeAfterMs, attempts);
+            }
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
 
         // 3. Procesar y guardar (Limpieza de contexto)
-        processOutput(node.getId(), resp, cfg, context);
+        HttpResponseCache.Lookup lookup = cacheLookup;
+        return response.handle((resp, error) -> {
+            try {
+                if (error != null) {
+                    // Sin respuesta: al menos dejamos los intentos para el panel
+                    context.setNodeOutput(node.getId(), Map.of("attempts", attempts.toList()));
+                    throw Futures.unwrap(error);
+                }
+                processOutput(node.getId(), resp, cfg, context, attempts, lookup);
+                return null;
+            } catch (Throwable e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * La lectura del cuerpo bloquea mientras llegan los bytes, así que se hace
+     * en un hilo virtual y nunca en los hilos del cliente HTTP.
+     */
+    private CompletableFuture<Void> streamAsync(Node node, ExecutionContext context, Map<String, Object> cfg,
+            CompletableFuture<HttpResponse<InputStream>> response, HttpAttempts attempts) {
+        Executor reader = BranchExecutors.byName(BranchExecutors.VIRTUAL).executor();
+        return response.handleAsync((resp, error) -> {
+            try {
+                if (error != null) {
+                    context.setNodeOutput(node.getId(), Map.of("attempts", attempts.toList()));
+                    throw Futures.unwrap(error);
+                }
+                processStreamedOutput(node.getId(), resp, cfg, context, attempts);
+                return null;
+            } catch (Throwable e) {
+                throw new CompletionException(e);
+            }
+        }, reader);
     }
 
-    private void processOutput(String nodeId, HttpResponse<String> resp, Map<String, Object> cfg, ExecutionContext ctx)
-            throws Exception {
+    private void processStreamedOutput(String nodeId, HttpResponse<InputStream> resp, Map<String, Object> cfg,
+            ExecutionContext ctx, HttpAttempts attempts) throws Exception {
+        int status = resp.statusCode();
+        Object mapObj = cfg.getOrDefault("map", cfg.get("outputMapping"));
+        Map<?, ?> mapping = mapObj instanceof Map<?, ?> m ? m : Map.of();
+        boolean keepBody = TypeConverter.asBoolean(cfg.get("keepBody"), false);
+        int previewBytes = TypeConverter.asInt(cfg.get("previewBytes"),
+                EngineConfig.getInt("http.stream.previewBytes", 4096));
+
+        List<String> paths = mapping.values().stream().map(String::valueOf).toList();
+        JsonStreamExtractor.Result result = JsonStreamExtractor.extract(resp.body(), paths, keepBody, previewBytes);
+
+        Map<String, Object> details = new HashMap<>();
+        details.put("status_code", status);
+        details.put("streamed", true);
+        details.put("bytes", result.bytes());
+        details.put("preview", result.preview());
+        details.put("truncated", result.truncated());
+        details.put("attempts", attempts.toList());
+        if (keepBody)
+            details.put("response", result.tree());
+        ctx.setNodeOutput(nodeId, details);
+
+        if (mapObj instanceof Map<?, ?>) {
+            mapping.keySet().forEach(k -> ctx.removeVariable(String.valueOf(k)));
+            mapping.forEach((k, v) -> {
+                Object extracted = result.values().get(String.valueOf(v));
+                if (extracted != null) {
+                    ctx.setVariable(String.valueOf(k), TypeConverter.normalize(extracted));
+                }
+            });
+        } else {
+            // Sin árbol guardado, lastResponse lleva la vista previa en texto
+            ctx.setVariable("lastResponse", Map.of("status_code", status,
+                    "response", keepBody && result.tree() != null ? result.tree() : result.preview()));
+        }
+
+        if (HttpHelper.isError(status)) {
+            throw new Exception("HTTP Error " + status);
+        }
+    }
+
+    private void processOutput(String nodeId, HttpResponse<String> resp, Map<String, Object> cfg, ExecutionContext ctx,
+            HttpAttempts attempts, HttpResponseCache.Lookup cacheLookup) throws Exception {
         int status = resp.statusCode();
         Object parsedBody = JsonUtils.tryParse(resp.body());
 
         // Snapshot técnico aislado
-        ctx.setNodeOutput(nodeId, Map.of("status_code", status, "response", parsedBody));
+        Map<String, Object> details = new HashMap<>();
+        details.put("status_code", status);
+        details.put("response", parsedBody);
+        details.put("attempts", attempts.toList());
+        if (cacheLookup != null)
+            details.put("cache", cacheLookup.toMap());
+        ctx.setNodeOutput(nodeId, details);
 
         Object mapObj = cfg.getOrDefault("map", cfg.get("outputMapping"));
         if (mapObj instanceof Map<?, ?> mapping) {
             // Limpieza previa de las variables configuradas en el map para evitar arrastrar
             // basura
-            mapping.keySet().forEach(k -> ctx.getVariables().remove(String.valueOf(k)));
+            mapping.keySet().forEach(k -> ctx.removeVariable(String.valueOf(k)));
 
             mapping.forEach((k, v) -> {
                 Object extracted = JsonUtils.extractByPath(parsedBody, String.valueOf(v));
@@ -57,6 +183,17 @@ public class HttpRequestStrategy implements NodeExecutor {
         }
     }
 
+    private static boolean isStreaming(Map<String, Object> cfg) {
+        return TypeConverter.asBoolean(cfg.get("streamBody"), false)
+                || "stream".equalsIgnoreCase(TypeConverter.asString(cfg.get("bodyMode")));
+    }
+
+    private static boolean isCacheEnabled(Object cacheCfg) {
+        if (cacheCfg instanceof Map<?, ?> m)
+            return !Boolean.FALSE.equals(m.get("enabled"));
+        return cacheCfg != null && Boolean.parseBoolean(String.valueOf(cacheCfg));
+    }
+
     private List<String> resolveUrls(Map<String, Object> cfg, ExecutionContext ctx) {
         List<String> raw = new ArrayList<>();
         Optional.ofNullable(cfg.get("url")).map(String::valueOf).ifPresent(raw::add);
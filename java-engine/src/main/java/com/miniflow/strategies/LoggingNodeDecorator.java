@@ -1,79 +1,178 @@
 package com.miniflow.strategies;
 
 import com.miniflow.model.Node;
+import com.miniflow.model.NodeType;
+import com.miniflow.utils.EngineOutput;
 import com.miniflow.context.ExecutionContext;
+import com.miniflow.core.EngineMetrics;
+import com.miniflow.core.NodeResultCache;
+import com.miniflow.core.RunHistory;
+import com.miniflow.core.RunJournal;
+import com.miniflow.core.RunTrace;
+import com.miniflow.utils.Futures;
 import com.miniflow.utils.LogUtils;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
+/**
+ * REFACTOR: Ya no se toma el lock de System.out. Cada fase del nodo se publica
+ * como un bloque de líneas en el EventSink, que las escribe juntas desde su
+ * propio hilo. Los bloques de datos (INPUT/OUTPUT) se marcan como "verbose".
+ * El decorador respeta el camino asíncrono de la estrategia envuelta.
+ *
+ * Si la ejecución tiene journal, anota cada nodo terminado o fallido y, al
+ * reanudar, reaplica los que ya habían terminado (ver RunJournal). Los nodos
+ * con "cache" reaplican un resultado memoizado en vez de ejecutarse (ver
+ * NodeResultCache). Cada nodo terminado se anota en el histórico de la
+ * ejecución con su estado y duración (ver RunHistory) y en las métricas del
+ * motor (ver EngineMetrics). Las duraciones se miden con nanoTime. Si la
+ * ejecución tiene traza, cada nodo es un span (ver RunTrace).
+ */
 public class LoggingNodeDecorator implements NodeExecutor {
     private final NodeExecutor wrapped;
 
+    /**
+     * Recibe la duración de cada nodo (en ns, incluido el tiempo asíncrono).
+     * Lo usa el modo --bench.
+     */
+    @FunctionalInterface
+    public interface TimingListener {
+        void onNodeCompleted(Node node, long nanos, boolean failed);
+    }
+
+    private static volatile TimingListener timingListener;
+
+    public static void setTimingListener(TimingListener listener) {
+        timingListener = listener;
+    }
+
     public LoggingNodeDecorator(NodeExecutor wrapped) {
         this.wrapped = wrapped;
     }
 
     @Override
     public void execute(Node node, ExecutionContext context) throws Exception {
+        Futures.join(executeAsync(node, context));
+    }
+
+    /**
+     * Las líneas de cierre se publican cuando termina el futuro del nodo, en
+     * el hilo que lo completa. Para estrategias síncronas eso ocurre antes de
+     * volver de esta llamada, igual que antes.
+     */
+    @Override
+    public CompletableFuture<Void> executeAsync(Node node, ExecutionContext context) {
         long startTime = System.currentTimeMillis();
+        TimingListener timing = timingListener;
+        long startNanos = System.nanoTime();
+        RunTrace trace = RunTrace.of(context);
+        RunTrace.NodeSpan span = trace != null ? trace.startNode(node, context, startNanos) : null;
+        String prefix = "[JAVA-STDOUT]: [" + node.getId() + "] ";
 
-        // Todo el bloque de impresión debe ser atómico
-        synchronized (System.out) {
-            Map<String, Object> inputState = filterInternalVars(context.getVariables());
-            System.out.println("[JAVA-STDOUT]: [" + node.getId() + "] ======================");
-            System.out.println("[JAVA-STDOUT]: [" + node.getId() + "] Nodo: " + node.getId() + " ["
-                    + node.getType().toUpperCase() + "]");
-            System.out.println(
-                    "[JAVA-STDOUT]: [" + node.getId() + "]    -> INPUT DATA: " + LogUtils.formatMapForLog(inputState));
-            System.out.println("[JAVA-STDOUT]: [" + node.getId() + "]    -> CONFIG: "
-                    + LogUtils.formatMapForLog(node.getConfig()));
-            System.out.println("[JAVA-STDOUT]: [" + node.getId() + "] ");
-        }
+        Map<String, Object> inputState = filterInternalVars(context.getVariables());
+        EngineOutput.block(context, false, List.of(
+                prefix + "======================",
+                prefix + "Nodo: " + node.getId() + " [" + node.getType().toUpperCase() + "]"));
+        EngineOutput.block(context, true, List.of(
+                prefix + "   -> INPUT DATA: " + LogUtils.formatMapForLog(inputState),
+                prefix + "   -> CONFIG: " + LogUtils.formatMapForLog(node.getConfig()),
+                prefix));
 
-        try {
-            wrapped.execute(node, context);
+        // Journal y caché: PARALLEL y PARALLEL_JOIN siempre se ejecutan (reparten
+        // ramas y llevan la barrera). El resto se reaplica si ya terminó antes de
+        // un fallo (reanudación) o si pidió caché y hay un resultado guardado
+        RunJournal journal = RunJournal.of(context);
+        boolean structural = node.getNodeType() == NodeType.PARALLEL || node.getNodeType() == NodeType.PARALLEL_JOIN;
+        NodeResultCache.Lookup memo = structural ? null : NodeResultCache.lookup(node, context);
+        Map<String, Object> before = !structural && (journal != null || memo != null) ? context.getVariables() : null;
+        boolean replayed = !structural && journal != null && journal.replay(node, context);
+        boolean memoized = !replayed && memo != null && memo.apply(node, context);
 
-            synchronized (System.out) {
-                Map<String, Object> outputState = filterInternalVars(context.getVariables());
-                Object nodeDetails = context.getNodeOutput(node.getId());
+        CompletableFuture<Void> result;
+        if (replayed || memoized) {
+            EngineOutput.block(context, false, List.of(prefix + (replayed
+                    ? "   -> REPLAY: resultado tomado del journal"
+                    : "   -> CACHE HIT: resultado memoizado (" + memo.key().substring(0, 12) + ")")));
+            result = CompletableFuture.completedFuture(null);
+        } else {
+            try {
+                result = wrapped.executeAsync(node, context);
+            } catch (Exception e) {
+                result = CompletableFuture.failedFuture(e);
+            }
+        }
 
-                System.out.println("[JAVA-STDOUT]: [" + node.getId() + "]    OUTPUT DATA -->: "
-                        + LogUtils.formatMapForLog(outputState));
-                if (nodeDetails instanceof Map) {
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> detailsMap = (Map<String, Object>) nodeDetails;
-                    System.out.println("[JAVA-STDOUT]: [" + node.getId() + "]    NODE_EXEC_DETAILS -->: "
-                            + LogUtils.formatMapForLog(detailsMap));
+        CompletableFuture<Void> logged = new CompletableFuture<>();
+        result.whenComplete((ignored, error) -> {
+            Throwable cause = error == null ? null : Futures.unwrap(error);
+            try {
+                if (journal != null && !replayed) {
+                    if (cause == null && !structural)
+                        journal.recordDone(node, context, before);
+                    else if (cause != null && !(cause instanceof ParallelJoinStrategy.BarrierHaltException))
+                        journal.recordFailed(node, context, cause);
                 }
-                System.out.println("[JAVA-STDOUT]: [" + node.getId() + "] ");
-                System.out.println("[JAVA-STDOUT]: [" + node.getId() + "] Resultado --> OK");
-            }
-        } catch (com.miniflow.strategies.ParallelJoinStrategy.BarrierHaltException e) {
-            synchronized (System.out) {
-                Map<String, Object> outputState = filterInternalVars(context.getVariables());
-                System.out.println("[JAVA-STDOUT]: [" + node.getId() + "]    OUTPUT DATA -->: "
-                        + LogUtils.formatMapForLog(outputState));
-                System.out.println(
-                        "[JAVA-STDOUT]: [" + node.getId() + "]    NODE_EXEC_DETAILS -->: {\"status\": \"HALTED\"}");
-                System.out.println("[JAVA-STDOUT]: [" + node.getId() + "] ");
-                System.out.println("[JAVA-STDOUT]: [" + node.getId() + "] Resultado --> OK (HALTED)");
+                if (memo != null && cause == null && !replayed && !memoized)
+                    memo.store(node, context, before);
+                long nanos = System.nanoTime() - startNanos;
+                boolean halted = cause instanceof ParallelJoinStrategy.BarrierHaltException;
+                String status = cause == null
+                        ? (replayed ? "REPLAYED" : memoized ? "CACHED" : "OK")
+                        : halted ? "HALTED" : "ERROR";
+                if (timing != null)
+                    timing.onNodeCompleted(node, nanos, cause != null && !halted);
+                EngineMetrics.recordNode(node, context, nanos, status);
+                if (span != null)
+                    span.end(status, halted ? null : cause);
+                RunHistory history = RunHistory.of(context);
+                if (history != null)
+                    history.recordNode(node, context, startTime, nanos, status, halted ? null : cause);
+                logCompletion(node, context, prefix, nanos, cause);
+            } finally {
+                if (cause == null)
+                    logged.complete(null);
+                else
+                    logged.completeExceptionally(cause);
             }
-            throw e;
-        } catch (Exception e) {
-            synchronized (System.out) {
-                String errorDetail = (e.getMessage() != null) ? e.getMessage() : e.toString();
-                System.out.println("[JAVA-STDOUT]: [" + node.getId() + "]    Resultado: ERROR --> "
-                        + errorDetail.replace("\n", " "));
-            }
-            throw e;
-        } finally {
-            synchronized (System.out) {
-                long durationMs = System.currentTimeMillis() - startTime;
-                System.out.println("[JAVA-STDOUT]: [" + node.getId() + "]    DURATION -->: " + durationMs + "ms");
-                System.out.println("[JAVA-STDOUT]: [" + node.getId() + "] ======================");
+        });
+        return logged;
+    }
+
+    private void logCompletion(Node node, ExecutionContext context, String prefix, long nanos, Throwable error) {
+        List<String> closing = new ArrayList<>(4);
+        if (error == null) {
+            Map<String, Object> outputState = filterInternalVars(context.getVariables());
+            Object nodeDetails = context.getNodeOutput(node.getId());
+
+            List<String> details = new ArrayList<>(3);
+            details.add(prefix + "   OUTPUT DATA -->: " + LogUtils.formatMapForLog(outputState));
+            if (nodeDetails instanceof Map) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> detailsMap = (Map<String, Object>) nodeDetails;
+                details.add(prefix + "   NODE_EXEC_DETAILS -->: " + LogUtils.formatMapForLog(detailsMap));
             }
+            details.add(prefix);
+            EngineOutput.block(context, true, details);
+            closing.add(prefix + "Resultado --> OK");
+        } else if (error instanceof com.miniflow.strategies.ParallelJoinStrategy.BarrierHaltException) {
+            Map<String, Object> outputState = filterInternalVars(context.getVariables());
+            EngineOutput.block(context, true, List.of(
+                    prefix + "   OUTPUT DATA -->: " + LogUtils.formatMapForLog(outputState),
+                    prefix + "   NODE_EXEC_DETAILS -->: {\"status\": \"HALTED\"}",
+                    prefix));
+            closing.add(prefix + "Resultado --> OK (HALTED)");
+        } else {
+            String errorDetail = (error.getMessage() != null) ? error.getMessage() : error.toString();
+            closing.add(prefix + "   Resultado: ERROR --> " + errorDetail.replace("\n", " "));
         }
+
+        closing.add(prefix + "   DURATION -->: " + nanos / 1_000_000 + "ms");
+        closing.add(prefix + "======================");
+        EngineOutput.block(context, false, closing);
     }
 
     /**
@@ -86,4 +185,4 @@ public class LoggingNodeDecorator implements NodeExecutor {
                 .filter(entry -> !entry.getKey().startsWith("__"))
                 .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
     }
-}
\ No newline at end of file
+}
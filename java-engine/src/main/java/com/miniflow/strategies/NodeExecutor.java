@@ -2,6 +2,7 @@ package com.miniflow.strategies;
 
 import com.miniflow.model.Node;
 import com.miniflow.context.ExecutionContext;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * REFACTOR: Aplicación del Strategy Pattern.
@@ -15,4 +16,18 @@ public interface NodeExecutor {
      * @throws Exception Si el nodo falla y la política es STOP_ON_FAIL.
      */
     void execute(Node node, ExecutionContext context) throws Exception;
+
+    /**
+     * Variante asíncrona usada por los motores. Por defecto ejecuta el nodo en
+     * el hilo actual y devuelve un futuro ya completado; las estrategias de
+     * I/O (HTTP) la sobrescriben para no bloquear el hilo durante la espera.
+     */
+    default CompletableFuture<Void> executeAsync(Node node, ExecutionContext context) {
+        try {
+            execute(node, context);
+            return CompletableFuture.completedFuture(null);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.miniflow.strategies;
 
 import com.miniflow.context.ExecutionContext;
 import com.miniflow.model.Node;
+import com.miniflow.utils.EngineOutput;
 import com.miniflow.model.Workflow;
 import java.util.Map;
 
@@ -20,19 +21,19 @@ public class ParallelJoinStrategy implements NodeExecutor {
         }
 
         // 1. Calcular cuántos cables ENTRAN a este nodo Join en la topología global
-        long requiredArrivals = workflow.edges.stream()
-                .filter(e -> e.target != null && e.target.equals(node.id))
-                .count();
+        // REFACTOR: precalculado en el grafo compilado, no se recorre edges por llegada
+        long requiredArrivals = workflow.compiled().inDegree(node.id);
 
         if (requiredArrivals == 0) {
-            System.out.println("[PARALLEL-JOIN] No se requieren llegadas. Continuando flujo.");
+            EngineOutput.println(context, "[PARALLEL-JOIN] No se requieren llegadas. Continuando flujo.");
             return;
         }
 
         // 2. Reportar la llegada de este Hilo al contador atómico (Thread-Safe)
+        context.getRunState().recordJoinBranch(node.id, context.getBranchId());
         int currentArrivals = context.incrementAndGetJoinArrival(node.id);
 
-        System.out.println(String.format("[PARALLEL-JOIN] Hilo %s reportó llegada al JOIN '%s' (%d/%d)",
+        EngineOutput.println(context, String.format("[PARALLEL-JOIN] Hilo %s reportó llegada al JOIN '%s' (%d/%d)",
                 Thread.currentThread().getName(), node.id, currentArrivals, requiredArrivals));
 
         // 3. Evaluar si debe sobrevivir o morir
@@ -46,8 +47,10 @@ public class ParallelJoinStrategy implements NodeExecutor {
 
             throw new BarrierHaltException();
         } else {
-            // ¡Soy el último hilo en llegar! Continúo.
-            System.out.println("[PARALLEL-JOIN] Todos los hilos llegaron. ¡Barrera superada!");
+            // ¡Soy el último hilo en llegar! Continúo con un id de rama fijo
+            // (rama común de las llegadas + join), no con el de quien llegó último
+            context.continueAs(context.getRunState().joinBranch(node.id) + "." + node.id);
+            EngineOutput.println(context, "[PARALLEL-JOIN] Todos los hilos llegaron. ¡Barrera superada!");
             context.setNodeOutput(node.id, Map.of(
                     "status", "COMPLETED",
                     "message", "Barrera superada. Se reinicia el hilo principal.",
@@ -1,27 +1,67 @@
 package com.miniflow.strategies;
 
 import com.miniflow.context.ExecutionContext;
+import com.miniflow.core.BranchExecutor;
+import com.miniflow.core.BranchExecutors;
+import com.miniflow.core.BranchLimiter;
 import com.miniflow.core.WorkflowRunner;
+import com.miniflow.model.CompiledWorkflow;
 import com.miniflow.model.Connection;
 import com.miniflow.model.Node;
 import com.miniflow.model.Workflow;
+import com.miniflow.utils.Futures;
 
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.concurrent.CompletableFuture; 
-import java.util.concurrent.ExecutorService;    
-import java.util.concurrent.Executors;          
 import java.util.stream.Collectors;
 
+/**
+ * REFACTOR: Las ramas ya no usan un CachedThreadPool de hilos de plataforma.
+ * El executor es configurable por workflow (hilos virtuales o ForkJoinPool
+ * acotado) y respeta un máximo de ramas concurrentes por ejecución.
+ *
+ * Sin maxConcurrency las ramas se lanzan en modo asíncrono: ningún hilo
+ * espera a las ramas ni a sus peticiones HTTP en vuelo.
+ */
 public class ParallelStrategy implements NodeExecutor {
 
-    // ThreadPool con hilos Daemon para no bloquear el cierre de la JVM
-    private static final ExecutorService PARALLEL_POOL = Executors.newCachedThreadPool(r -> {
-        Thread t = new Thread(r);
-        t.setDaemon(true); 
-        return t;
-    });
+    @Override
+    public CompletableFuture<Void> executeAsync(Node node, ExecutionContext context) {
+        Object scopeObj = context.getVariable("__workflowScope");
+        if (!(scopeObj instanceof Workflow workflow)
+                || BranchExecutors.limiterFor(context, workflow).bounded()
+                || workflow.compiled().outgoing(node.id).isEmpty()) {
+            // Con límite de ramas (o sin ramas) se usa el camino síncrono
+            return NodeExecutor.super.executeAsync(node, context);
+        }
+
+        CompiledWorkflow graph = workflow.compiled();
+        List<Connection> outEdges = graph.outgoing(node.id);
+        BranchExecutor branchExecutor = BranchExecutors.forWorkflow(workflow);
+
+        CompletableFuture<?>[] branchTasks = outEdges.stream().map(edge -> {
+            Node targetNode = graph.node(edge.target);
+            if (targetNode == null)
+                return CompletableFuture.completedFuture(null);
+            // Se clona aquí, en orden de aristas: el id de cada rama no depende
+            // de qué hilo arranca antes (el journal lo usa al reanudar)
+            ExecutionContext branchContext = context.cloneContext();
+            return CompletableFuture
+                    .supplyAsync(() -> new WorkflowRunner().runFromNodeAsync(
+                            workflow, targetNode, branchContext), branchExecutor.executor())
+                    .thenCompose(run -> run)
+                    .exceptionally(e -> {
+                        System.err.println("[PARALLEL-ERROR]: " + Futures.unwrap(e).getMessage());
+                        return null;
+                    });
+        }).toArray(CompletableFuture[]::new);
+
+        return CompletableFuture.allOf(branchTasks).thenRun(() -> context.setNodeOutput(node.id, Map.of(
+                "success", true,
+                "branches_dispatched", outEdges.size(),
+                "executor", branchExecutor.name())));
+    }
 
     @Override
     public void execute(Node node, ExecutionContext context) throws Exception {
@@ -31,38 +71,51 @@ public class ParallelStrategy implements NodeExecutor {
         }
 
         Workflow workflow = (Workflow) scopeObj;
+        CompiledWorkflow graph = workflow.compiled();
 
-        List<Connection> outEdges = workflow.edges.stream()
-                .filter(e -> e.source != null && e.source.equals(node.id))
-                .collect(Collectors.toList());
+        List<Connection> outEdges = graph.outgoing(node.id);
 
         if (outEdges.isEmpty()) {
             context.setNodeOutput(node.id, Map.of("success", true, "message", "No hay ramas"));
             return;
         }
 
+        BranchExecutor branchExecutor = BranchExecutors.forWorkflow(workflow);
+        BranchLimiter limiter = BranchExecutors.limiterFor(context, workflow);
+
         // Crear las tareas asíncronas
-        List<CompletableFuture<Void>> branchTasks = outEdges.stream().map(edge -> 
-            CompletableFuture.runAsync(() -> {
+        // Los contextos se clonan en orden de aristas, antes de lanzar las ramas
+        List<CompletableFuture<Void>> branchTasks = outEdges.stream().map(edge -> {
+            ExecutionContext branchContext = context.cloneContext();
+            return CompletableFuture.runAsync(() -> {
+                Node targetNode = graph.node(edge.target);
+                if (targetNode == null)
+                    return;
                 try {
-                    Optional<Node> targetNodeOpt = workflow.nodes.stream()
-                            .filter(n -> n.id.equals(edge.target))
-                            .findFirst();
-
-                    if (targetNodeOpt.isPresent()) {
-                        ExecutionContext branchContext = context.cloneContext();
-                        // Nueva instancia de runner para ejecución aislada
-                        new WorkflowRunner().runFromNode(workflow, targetNodeOpt.get(), branchContext);
-                    }
+                    limiter.acquire();
+                } catch (Exception e) {
+                    System.err.println("[PARALLEL-ERROR]: " + e.getMessage());
+                    return;
+                }
+                try {
+                    // Nueva instancia de runner para ejecución aislada
+                    new WorkflowRunner().runFromNode(workflow, targetNode, branchContext);
                 } catch (Exception e) {
                     System.err.println("[PARALLEL-ERROR]: " + e.getMessage());
+                } finally {
+                    limiter.release();
                 }
-            }, PARALLEL_POOL)
-        ).collect(Collectors.toList());
+            }, branchExecutor.executor());
+        }).collect(Collectors.toList());
 
-        // Esperar a que todas las ramas terminen su recorrido
-        CompletableFuture.allOf(branchTasks.toArray(new CompletableFuture[0])).join();
+        // Esperar a que todas las ramas terminen su recorrido. Si este hilo es a su
+        // vez una rama, suelta su permiso mientras espera (PARALLEL anidados).
+        CompletableFuture<Void> all = CompletableFuture.allOf(branchTasks.toArray(new CompletableFuture<?>[0]));
+        limiter.whileWaiting(all::join);
 
-        context.setNodeOutput(node.id, Map.of("success", true, "branches_dispatched", outEdges.size()));
+        context.setNodeOutput(node.id, Map.of(
+                "success", true,
+                "branches_dispatched", outEdges.size(),
+                "executor", branchExecutor.name()));
     }
-}
\ No newline at end of file
+}
@@ -1,36 +1,110 @@
 package com.miniflow.strategies;
 
 import com.miniflow.model.Node;
+import com.miniflow.model.Workflow;
+import com.miniflow.utils.EngineOutput;
+import com.miniflow.utils.Futures;
+import com.miniflow.utils.TemplateEngine;
 import com.miniflow.context.ExecutionContext;
+import com.miniflow.core.BranchExecutors;
+import com.miniflow.utils.Timers;
 import com.miniflow.utils.TypeConverter;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
+/**
+ * REFACTOR: La espera ya no duerme el hilo (Thread.sleep retenía un hilo de
+ * plataforma por TIMER, hasta agotar el pool con muchas ramas). El nodo
+ * registra su plazo en el planificador compartido ({@link Timers}) y la rama
+ * continúa en el executor de ramas del workflow cuando vence.
+ *
+ * Además de "delay" + "unit" (ms, s, min) admite "at": instante absoluto en
+ * ISO-8601 (con zona u offset; sin ellos, hora local del sistema) o epoch en
+ * milisegundos. Un instante pasado no espera.
+ */
 public class TimerStrategy implements NodeExecutor {
 
     @Override
     public void execute(Node node, ExecutionContext context) throws Exception {
+        CompletableFuture<Void> wait = executeAsync(node, context);
+        BranchExecutors.block(() -> Futures.join(wait));
+    }
+
+    @Override
+    public CompletableFuture<Void> executeAsync(Node node, ExecutionContext context) {
         Map<String, Object> cfg = node.getConfig();
         if (cfg == null) cfg = Map.of();
-        
-        int delay = TypeConverter.asInt(cfg.get("delay"), 3);
-        String unit = TypeConverter.asString(cfg.getOrDefault("unit", "s"));
-        
-        long ms = 0;
-        if ("ms".equalsIgnoreCase(unit)) {
-            ms = delay;
-        } else if ("min".equalsIgnoreCase(unit)) {
-            ms = delay * 60000L;
+
+        long ms;
+        Map<String, Object> output = new LinkedHashMap<>();
+        Object at = cfg.get("at");
+        if (at != null && !TypeConverter.asString(at).isBlank()) {
+            Instant deadline;
+            try {
+                deadline = parseInstant(at, context);
+            } catch (IllegalArgumentException e) {
+                return Futures.failed(e);
+            }
+            ms = Math.max(0, deadline.toEpochMilli() - System.currentTimeMillis());
+            output.put("until", deadline.toString());
+            EngineOutput.println(context, "[TIMER] Esperando hasta " + deadline + " (" + ms + "ms)");
         } else {
-            ms = delay * 1000L;
-        }
-        
-        System.out.println("[TIMER] Esperando " + delay + " " + unit + " (" + ms + "ms)");
-        
-        if (ms > 0) {
-            Thread.sleep(ms);
+            int delay = TypeConverter.asInt(cfg.get("delay"), 3);
+            String unit = TypeConverter.asString(cfg.getOrDefault("unit", "s"));
+
+            if ("ms".equalsIgnoreCase(unit)) {
+                ms = delay;
+            } else if ("min".equalsIgnoreCase(unit)) {
+                ms = delay * 60000L;
+            } else {
+                ms = delay * 1000L;
+            }
+            EngineOutput.println(context, "[TIMER] Esperando " + delay + " " + unit + " (" + ms + "ms)");
         }
-        
+        ms = Math.max(0, ms);
+        output.put("waited_ms", ms);
+
         // Output result
-        context.setNodeOutput(node.getId(), Map.of("waited_ms", ms));
+        if (ms == 0) {
+            context.setNodeOutput(node.getId(), output);
+            return CompletableFuture.completedFuture(null);
+        }
+        return Timers.after(ms, resumeOn(context)).thenRun(() -> context.setNodeOutput(node.getId(), output));
+    }
+
+    /**
+     * Executor de ramas del workflow: al vencer, la rama sigue donde seguiría
+     * tras cualquier otro nodo asíncrono.
+     */
+    private static Executor resumeOn(ExecutionContext context) {
+        Object scope = context.getVariable("__workflowScope");
+        return (scope instanceof Workflow workflow
+                ? BranchExecutors.forWorkflow(workflow)
+                : BranchExecutors.byName(BranchExecutors.VIRTUAL)).executor();
+    }
+
+    static Instant parseInstant(Object value, ExecutionContext context) {
+        if (value instanceof Number n)
+            return Instant.ofEpochMilli(n.longValue());
+        String text = TemplateEngine.render(TypeConverter.asString(value), context).trim();
+        if (text.matches("-?\\d+"))
+            return Instant.ofEpochMilli(Long.parseLong(text));
+        try {
+            return ZonedDateTime.parse(text).toInstant();
+        } catch (DateTimeParseException ignored) {
+            // sin offset ni zona: hora local
+        }
+        try {
+            return LocalDateTime.parse(text).atZone(ZoneId.systemDefault()).toInstant();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("TIMER 'at' no es un instante válido: " + text);
+        }
     }
 }
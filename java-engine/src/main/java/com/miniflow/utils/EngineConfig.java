@@ -0,0 +1,41 @@
+package com.miniflow.utils;
+
+import java.util.Locale;
+
+/**
+ * Configuración del motor a nivel de proceso.
+ *
+ * Cada clave "a.b" se busca primero como propiedad del sistema
+ * (-Dminiflow.a.b=valor) y luego como variable de entorno (MINIFLOW_A_B).
+ */
+public class EngineConfig {
+
+    public static String getString(String key, String defaultValue) {
+        String v = System.getProperty("miniflow." + key);
+        if (v == null || v.isBlank()) {
+            v = System.getenv("MINIFLOW_" + key.toUpperCase(Locale.ROOT).replace('.', '_'));
+        }
+        return (v == null || v.isBlank()) ? defaultValue : v.trim();
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        return TypeConverter.asInt(getString(key, null), defaultValue);
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        String v = getString(key, null);
+        if (v == null)
+            return defaultValue;
+        try {
+            return Long.parseLong(v);
+        } catch (NumberFormatException e) {
+            System.err.println("[EngineConfig] Invalid number for '" + key + "': " + v);
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String v = getString(key, null);
+        return v == null ? defaultValue : Boolean.parseBoolean(v);
+    }
+}
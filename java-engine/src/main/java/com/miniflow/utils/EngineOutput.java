@@ -0,0 +1,89 @@
+package com.miniflow.utils;
+
+import com.miniflow.context.ExecutionContext;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Punto único de salida hacia Electron.
+ *
+ * En modo normal (un workflow por proceso) escribe las líneas tal cual.
+ * En modo daemon varias ejecuciones comparten stdout, así que cada línea se
+ * envía como un frame NDJSON con el runId de la ejecución que la generó.
+ *
+ * REFACTOR: Nada se escribe directamente en System.out; todo pasa por el
+ * {@link EventSink} asíncrono. Quien necesite ver la salida ya escrita (fin de
+ * la ejecución, tests) debe llamar a {@link #flush()}.
+ */
+public class EngineOutput {
+
+    private static volatile boolean framed = false;
+
+    public static void setFramed(boolean value) {
+        framed = value;
+    }
+
+    public static boolean isFramed() {
+        return framed;
+    }
+
+    /**
+     * Línea de log legible ("[JAVA-STDOUT]: ...").
+     */
+    public static void println(ExecutionContext context, String line) {
+        publish(context, false, line);
+    }
+
+    /**
+     * Bloque de líneas que debe aparecer junto en la salida.
+     * Los bloques "verbose" (INPUT/OUTPUT DATA...) pueden descartarse si el
+     * buffer se llena y la política lo permite.
+     */
+    public static void block(ExecutionContext context, boolean verbose, List<String> lines) {
+        publish(context, verbose, lines.toArray(new String[0]));
+    }
+
+    private static void publish(ExecutionContext context, boolean verbose, String... lines) {
+        String runId = context != null ? context.getRunId() : null;
+        String group = context != null ? context.getBranchId() : null;
+        if (framed) {
+            for (int i = 0; i < lines.length; i++) {
+                lines[i] = frame(runId, lines[i]);
+            }
+        }
+        EventSink.get().publish(group, runId, verbose, lines);
+    }
+
+    /**
+     * Evento estructurado (WORKFLOW_FINISHED, CRITICAL_ERROR, ...).
+     * En modo daemon se le agrega el runId como primer campo.
+     */
+    public static void event(String runId, Map<String, Object> fields) {
+        Map<String, Object> frame = new LinkedHashMap<>();
+        if (framed)
+            frame.put("runId", runId);
+        frame.putAll(fields);
+        raw(runId, JsonUtils.toJson(frame));
+    }
+
+    /**
+     * Línea ya formateada que se escribe sin frame adicional.
+     */
+    public static void raw(String runId, String line) {
+        EventSink.get().publish(null, runId, false, line);
+    }
+
+    public static void flush() {
+        EventSink.get().flush();
+    }
+
+    static String frame(String runId, String line) {
+        if (!framed)
+            return line;
+        Map<String, Object> frame = new LinkedHashMap<>();
+        frame.put("runId", runId);
+        frame.put("line", line);
+        return JsonUtils.toJson(frame);
+    }
+}
@@ -0,0 +1,76 @@
+package com.miniflow.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Cola circular acotada y sin locks para varios productores y un solo
+ * consumidor (algoritmo de D. Vyukov). Cada celda tiene un número de
+ * secuencia que indica si está libre para escribir o lista para leer.
+ */
+final class EventRing<E> {
+
+    private final Object[] buffer;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    EventRing(int requestedCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        this.buffer = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    int capacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Intenta publicar el elemento. Devuelve false si la cola está llena.
+     */
+    boolean offer(E element) {
+        long pos = tail.get();
+        for (;;) {
+            int idx = (int) (pos & mask);
+            long diff = sequences.get(idx) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    buffer[idx] = element;
+                    sequences.setRelease(idx, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Extrae el siguiente elemento o null si no hay nada publicado.
+     * Solo debe llamarse desde el hilo consumidor.
+     */
+    @SuppressWarnings("unchecked")
+    E poll() {
+        long pos = head;
+        int idx = (int) (pos & mask);
+        if (sequences.getAcquire(idx) != pos + 1)
+            return null;
+        E element = (E) buffer[idx];
+        buffer[idx] = null;
+        sequences.setRelease(idx, pos + buffer.length);
+        head = pos + 1;
+        return element;
+    }
+
+    boolean isEmpty() {
+        return tail.get() == head;
+    }
+}
@@ -0,0 +1,218 @@
+package com.miniflow.utils;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sumidero de eventos de todo el motor.
+ *
+ * Los hilos que ejecutan nodos solo publican eventos en un {@link EventRing}
+ * acotado y sin locks; un único hilo escritor los agrupa en lotes y los vuelca
+ * a stdout. Así una tubería lenta hacia Electron ya no frena la ejecución ni
+ * obliga a las ramas de un PARALLEL a turnarse sobre System.out.
+ *
+ * Configuración (ver {@link EngineConfig}):
+ *   events.capacity  tamaño del buffer (eventos, por defecto 8192)
+ *   events.batch     máximo de eventos por volcado (por defecto 512)
+ *   events.policy    BLOCK | DROP_VERBOSE | COALESCE cuando el buffer está lleno
+ */
+public final class EventSink {
+
+    /**
+     * Qué hacer cuando el buffer está lleno.
+     * BLOCK: el productor espera a que haya espacio.
+     * DROP_VERBOSE: los eventos de detalle se descartan; los esenciales esperan.
+     * COALESCE: los eventos de detalle descartados se resumen en una sola línea
+     * por ejecución; los esenciales esperan.
+     */
+    public enum OverflowPolicy {
+        BLOCK, DROP_VERBOSE, COALESCE;
+
+        static OverflowPolicy parse(String raw) {
+            try {
+                return valueOf(raw.trim().toUpperCase(Locale.ROOT));
+            } catch (Exception e) {
+                return BLOCK;
+            }
+        }
+    }
+
+    /**
+     * Un evento es un grupo de líneas que se escriben juntas.
+     * "group" identifica la rama que lo generó. El escritor respeta el orden de
+     * publicación: solo se juntan los eventos vecinos de una misma rama, nunca
+     * se adelanta una línea a otra publicada antes (el WORKFLOW_FINISHED de un
+     * run no puede salir antes que sus propias líneas).
+     */
+    private record Event(String group, String runId, String[] lines, boolean verbose) {
+    }
+
+    private static final EventSink INSTANCE = new EventSink(
+            EngineConfig.getInt("events.capacity", 8192),
+            EngineConfig.getInt("events.batch", 512),
+            OverflowPolicy.parse(EngineConfig.getString("events.policy", "BLOCK")));
+
+    private final EventRing<Event> ring;
+    private final int batchSize;
+    private volatile OverflowPolicy policy;
+
+    private final AtomicLong published = new AtomicLong();
+    private volatile long written;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Map<String, AtomicLong> coalesced = new java.util.concurrent.ConcurrentHashMap<>();
+
+    private final Object flushMonitor = new Object();
+    private volatile Thread writer;
+    private volatile boolean writerParked;
+
+    EventSink(int capacity, int batchSize, OverflowPolicy policy) {
+        this.ring = new EventRing<>(capacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.policy = policy;
+    }
+
+    public static EventSink get() {
+        return INSTANCE;
+    }
+
+    public void setPolicy(OverflowPolicy policy) {
+        this.policy = policy;
+    }
+
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Eventos de detalle descartados por DROP_VERBOSE o COALESCE.
+     */
+    public long droppedEvents() {
+        return dropped.get();
+    }
+
+    public void publish(String group, String runId, boolean verbose, String... lines) {
+        if (lines == null || lines.length == 0)
+            return;
+        ensureWriter();
+        Event event = new Event(group, runId, lines, verbose);
+
+        long spins = 0;
+        while (!ring.offer(event)) {
+            OverflowPolicy p = policy;
+            if (verbose && p != OverflowPolicy.BLOCK) {
+                dropped.incrementAndGet();
+                if (p == OverflowPolicy.COALESCE) {
+                    coalesced.computeIfAbsent(runId == null ? "" : runId, k -> new AtomicLong())
+                            .addAndGet(lines.length);
+                }
+                return;
+            }
+            wakeWriter();
+            if (++spins < 100) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(50_000L);
+            }
+        }
+        published.incrementAndGet();
+        wakeWriter();
+    }
+
+    /**
+     * Bloquea hasta que todo lo publicado antes de la llamada esté en stdout.
+     */
+    public void flush() {
+        long target = published.get();
+        if (written >= target || writer == null)
+            return;
+        synchronized (flushMonitor) {
+            while (written < target) {
+                wakeWriter();
+                try {
+                    flushMonitor.wait(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void ensureWriter() {
+        if (writer != null)
+            return;
+        synchronized (this) {
+            if (writer == null) {
+                Thread t = new Thread(this::writeLoop, "miniflow-event-writer");
+                t.setDaemon(true);
+                writer = t;
+                t.start();
+            }
+        }
+    }
+
+    private void wakeWriter() {
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void writeLoop() {
+        List<Event> batch = new ArrayList<>(batchSize);
+        while (true) {
+            Event e;
+            while (batch.size() < batchSize && (e = ring.poll()) != null) {
+                batch.add(e);
+            }
+            if (batch.isEmpty() && coalesced.isEmpty()) {
+                writerParked = true;
+                if (ring.isEmpty()) {
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(5));
+                }
+                writerParked = false;
+                continue;
+            }
+            writeBatch(batch);
+            written += batch.size();
+            batch.clear();
+            synchronized (flushMonitor) {
+                flushMonitor.notifyAll();
+            }
+        }
+    }
+
+    private void writeBatch(List<Event> batch) {
+        // System.out se resuelve en cada lote para respetar System.setOut
+        PrintStream out = System.out;
+        StringBuilder sb = new StringBuilder(batch.size() * 96);
+
+        // En orden de publicación: las líneas de cada evento salen juntas y
+        // los eventos vecinos de una rama quedan seguidos en el mismo volcado
+        for (Event e : batch) {
+            for (String line : e.lines()) {
+                sb.append(line).append(System.lineSeparator());
+            }
+        }
+
+        if (!coalesced.isEmpty()) {
+            for (String runId : new ArrayList<>(coalesced.keySet())) {
+                AtomicLong count = coalesced.remove(runId);
+                if (count != null && count.get() > 0) {
+                    String notice = "[JAVA-STDOUT]: [EVENT-SINK] " + count.get()
+                            + " líneas de detalle omitidas (buffer lleno)";
+                    sb.append(EngineOutput.frame(runId.isEmpty() ? null : runId, notice))
+                            .append(System.lineSeparator());
+                }
+            }
+        }
+
+        out.print(sb);
+        out.flush();
+    }
+}
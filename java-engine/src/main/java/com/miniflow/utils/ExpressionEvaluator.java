@@ -1,59 +1,598 @@
 package com.miniflow.utils;
 
 import com.miniflow.context.ExecutionContext;
-import java.util.Objects;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
+/**
+ * REFACTOR: Las condiciones se compilan una sola vez a un árbol de closures
+ * (caché por texto). Evaluar una condición ya compilada solo recorre ese
+ * árbol: sin split, sin regex y con los literales ya tipados.
+ *
+ * Sintaxis:
+ * <ul>
+ * <li>lógicos: &&, ||, ! y paréntesis</li>
+ * <li>comparación: ==, !=, &lt;, &lt;=, &gt;, &gt;=, in</li>
+ * <li>literales: 10, -2.5, 'texto', "texto", true, false, null, [1, 'a']</li>
+ * <li>variables y rutas: status, context.status, user.roles[0]</li>
+ * <li>funciones: contains, startsWith, endsWith, matches, lower, upper, trim,
+ * len</li>
+ * </ul>
+ *
+ * Compatibilidad con la sintaxis anterior: a la derecha de una comparación
+ * un identificador suelto que no es una variable del contexto se toma como
+ * texto ("env != dev"). Si el compilador rechaza una comparación simple con
+ * == o != (valores sin comillas como "d == 2024-01-01" o "email == a@b.com")
+ * se evalúa como antes: texto crudo a la derecha sin comillas y normalizado.
+ * Cualquier otra expresión inválida se evalúa a false.
+ */
 public class ExpressionEvaluator {
 
+    private static final int CACHE_LIMIT = 4096;
+    private static final Map<String, Expression> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * Expresión compilada.
+     */
+    @FunctionalInterface
+    public interface Expression {
+        Object eval(ExecutionContext context);
+
+        default boolean test(ExecutionContext context) {
+            return truthy(eval(context));
+        }
+    }
+
     public static boolean evaluate(String expression, ExecutionContext context) {
         if (expression == null || expression.isBlank())
             return false;
+        try {
+            return compileLenient(expression).test(context);
+        } catch (IllegalArgumentException e) {
+            System.err.println("[ExpressionEvaluator] " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException si la expresión no es válida
+     */
+    public static Expression compile(String expression) {
+        Expression cached = CACHE.get(expression);
+        if (cached != null && !(cached instanceof LegacyComparison))
+            return cached;
+        return cache(expression, new Parser(expression).parse());
+    }
+
+    /**
+     * Como compile, pero con la comparación de la sintaxis anterior como
+     * respaldo. También queda en caché, así que el parser solo falla una vez.
+     */
+    private static Expression compileLenient(String expression) {
+        Expression cached = CACHE.get(expression);
+        if (cached != null)
+            return cached;
+        try {
+            return compile(expression);
+        } catch (IllegalArgumentException e) {
+            LegacyComparison legacy = LegacyComparison.parse(expression);
+            if (legacy == null)
+                throw e;
+            return cache(expression, legacy);
+        }
+    }
+
+    private static Expression cache(String expression, Expression compiled) {
+        if (CACHE.size() >= CACHE_LIMIT)
+            CACHE.clear();
+        CACHE.putIfAbsent(expression, compiled);
+        return compiled;
+    }
+
+    /**
+     * La evaluación original: "lhs == rhs" / "lhs != rhs" partiendo por el
+     * primer operador, variable (o ruta con puntos) a la izquierda y texto
+     * normalizado a la derecha.
+     */
+    private record LegacyComparison(boolean negated, String[] left, Object right) implements Expression {
+
+        static LegacyComparison parse(String expression) {
+            String s = expression.trim();
+            String op = s.contains("==") ? "==" : s.contains("!=") ? "!=" : null;
+            if (op == null)
+                return null;
+            int at = s.indexOf(op);
+            String key = s.substring(0, at).trim();
+            if (key.startsWith("context."))
+                key = key.substring(8);
+            Object right = TypeConverter.normalize(
+                    s.substring(at + 2).trim().replace("\"", "").replace("'", ""));
+            return new LegacyComparison(op.equals("!="), key.split("\\."), right);
+        }
+
+        @Override
+        public Object eval(ExecutionContext context) {
+            Object current = context.getVariable(left[0]);
+            for (int i = 1; i < left.length; i++)
+                current = current instanceof Map<?, ?> map ? map.get(left[i]) : null;
+            boolean equals;
+            if (current == null || right == null)
+                equals = current == right;
+            else if (current instanceof Number a && right instanceof Number b)
+                equals = Double.compare(a.doubleValue(), b.doubleValue()) == 0;
+            else
+                equals = String.valueOf(current).equals(String.valueOf(right));
+            return equals != negated;
+        }
+    }
+
+    /**
+     * Literal ya tipado en compilación.
+     */
+    private record Constant(Object value) implements Expression {
+        @Override
+        public Object eval(ExecutionContext context) {
+            return value;
+        }
+    }
+
+    // ---- Semántica ----
 
-        String s = expression.trim();
-        // Soportamos == y !=
-        String op = s.contains("==") ? "==" : s.contains("!=") ? "!=" : null;
-        if (op == null)
+    static boolean truthy(Object value) {
+        if (value == null)
             return false;
+        if (value instanceof Boolean b)
+            return b;
+        if (value instanceof Number n)
+            return n.doubleValue() != 0;
+        if (value instanceof CharSequence s)
+            return s.length() > 0 && !"false".contentEquals(s);
+        if (value instanceof Collection<?> c)
+            return !c.isEmpty();
+        if (value instanceof Map<?, ?> m)
+            return !m.isEmpty();
+        return true;
+    }
 
-        String[] parts = s.split(op, 2);
-        if (parts.length != 2)
+    /**
+     * Igualdad laxa como la de antes: números por valor, y si los tipos no
+     * coinciden se comparan sus textos (true == "true", 200 == "200").
+     */
+    static boolean looseEquals(Object a, Object b) {
+        if (a == null || b == null)
+            return a == b;
+        Double x = number(a), y = number(b);
+        if (x != null && y != null && (a instanceof Number || b instanceof Number))
+            return Double.compare(x, y) == 0;
+        if (a.getClass() == b.getClass())
+            return a.equals(b);
+        return String.valueOf(a).equals(String.valueOf(b));
+    }
+
+    /**
+     * Orden entre números (o textos numéricos) y entre textos. Sin orden
+     * posible devuelve null y la comparación es false.
+     */
+    private static Integer order(Object a, Object b) {
+        if (a == null || b == null)
+            return null;
+        Double x = number(a), y = number(b);
+        if (x != null && y != null)
+            return Double.compare(x, y);
+        if (a instanceof CharSequence && b instanceof CharSequence)
+            return a.toString().compareTo(b.toString());
+        return null;
+    }
+
+    private static Double number(Object value) {
+        if (value instanceof Number n)
+            return n.doubleValue();
+        if (value instanceof CharSequence s) {
+            Object parsed = TypeConverter.normalize(s.toString());
+            return parsed instanceof Number n ? n.doubleValue() : null;
+        }
+        return null;
+    }
+
+    private static boolean in(Object item, Object container) {
+        if (container instanceof Collection<?> c) {
+            for (Object candidate : c)
+                if (looseEquals(item, candidate))
+                    return true;
             return false;
+        }
+        if (container instanceof Map<?, ?> m)
+            return item != null && m.containsKey(String.valueOf(item));
+        if (container instanceof CharSequence s)
+            return item != null && s.toString().contains(String.valueOf(item));
+        return false;
+    }
 
-        Object leftValue = resolveLeftOperand(parts[0].trim(), context);
-        Object rightValue = TypeConverter.normalize(parts[1].trim().replace("\"", "").replace("'", ""));
+    private static String text(Object value) {
+        return value == null ? null : String.valueOf(value);
+    }
+
+    // ---- Compilador ----
+
+    private enum TokenType {
+        NUMBER, STRING, IDENT, OP, LPAREN, RPAREN, LBRACKET, RBRACKET, COMMA, DOT, END
+    }
 
-        boolean equals = compare(leftValue, rightValue);
-        return "==".equals(op) ? equals : !equals;
+    private record Token(TokenType type, String text, int pos) {
     }
 
-    private static Object resolveLeftOperand(String key, ExecutionContext context) {
-        String cleanKey = key.startsWith("context.") ? key.substring(8) : key;
+    /**
+     * Descenso recursivo sobre los tokens. Produce closures.
+     */
+    private static final class Parser {
+        private final String src;
+        private final List<Token> tokens;
+        private int index;
+
+        Parser(String src) {
+            this.src = src;
+            this.tokens = tokenize(src);
+        }
+
+        Expression parse() {
+            Expression e = or();
+            if (peek().type != TokenType.END)
+                throw error("unexpected '" + peek().text + "'");
+            return e;
+        }
+
+        private Expression or() {
+            Expression left = and();
+            while (acceptOp("||")) {
+                Expression a = left, b = and();
+                left = ctx -> truthy(a.eval(ctx)) || truthy(b.eval(ctx));
+            }
+            return left;
+        }
+
+        private Expression and() {
+            Expression left = unary();
+            while (acceptOp("&&")) {
+                Expression a = left, b = unary();
+                left = ctx -> truthy(a.eval(ctx)) && truthy(b.eval(ctx));
+            }
+            return left;
+        }
 
-        // Soporte para variables anidadas (ej: pokeData.name)
-        if (cleanKey.contains(".")) {
-            String[] tokens = cleanKey.split("\\.");
-            Object current = context.getVariable(tokens[0]);
-            for (int i = 1; i < tokens.length; i++) {
-                if (current instanceof java.util.Map) {
-                    current = ((java.util.Map<?, ?>) current).get(tokens[i]);
+        private Expression unary() {
+            if (acceptOp("!")) {
+                Expression inner = unary();
+                return ctx -> !truthy(inner.eval(ctx));
+            }
+            return comparison();
+        }
+
+        private Expression comparison() {
+            Expression left = operand(false);
+            Token t = peek();
+            if (t.type == TokenType.IDENT && t.text.equals("in")) {
+                index++;
+                Expression right = operand(false);
+                return ctx -> in(left.eval(ctx), right.eval(ctx));
+            }
+            if (t.type != TokenType.OP || t.text.equals("&&") || t.text.equals("||") || t.text.equals("!"))
+                return left;
+            index++;
+            Expression right = operand(true);
+            return switch (t.text) {
+                case "==" -> ctx -> looseEquals(left.eval(ctx), right.eval(ctx));
+                case "!=" -> ctx -> !looseEquals(left.eval(ctx), right.eval(ctx));
+                case "<" -> ctx -> compareWith(left, right, ctx, c -> c < 0);
+                case "<=" -> ctx -> compareWith(left, right, ctx, c -> c <= 0);
+                case ">" -> ctx -> compareWith(left, right, ctx, c -> c > 0);
+                case ">=" -> ctx -> compareWith(left, right, ctx, c -> c >= 0);
+                default -> throw error("unknown operator '" + t.text + "'");
+            };
+        }
+
+        private static boolean compareWith(Expression left, Expression right, ExecutionContext ctx,
+                java.util.function.IntPredicate test) {
+            Integer c = order(left.eval(ctx), right.eval(ctx));
+            return c != null && test.test(c);
+        }
+
+        /**
+         * @param rightSide a la derecha de una comparación un identificador
+         *                  suelto sin variable es un literal (compatibilidad)
+         */
+        private Expression operand(boolean rightSide) {
+            Token t = next();
+            switch (t.type) {
+                case NUMBER: {
+                    Object value = TypeConverter.normalize(t.text);
+                    if (value instanceof String)
+                        value = Double.parseDouble(t.text);
+                    return new Constant(value);
+                }
+                case STRING:
+                    return new Constant(t.text);
+                case LPAREN: {
+                    Expression inner = or();
+                    expect(TokenType.RPAREN);
+                    return inner;
+                }
+                case LBRACKET:
+                    return listLiteral();
+                case OP:
+                    if (t.text.equals("-") && peek().type == TokenType.NUMBER) {
+                        Object value = TypeConverter.normalize("-" + next().text);
+                        return new Constant(value instanceof String ? Double.parseDouble((String) value) : value);
+                    }
+                    throw error("unexpected '" + t.text + "'");
+                case IDENT:
+                    return identifier(t, rightSide);
+                default:
+                    throw error(t.type == TokenType.END ? "unexpected end" : "unexpected '" + t.text + "'");
+            }
+        }
+
+        private Expression listLiteral() {
+            List<Expression> items = new ArrayList<>();
+            if (peek().type != TokenType.RBRACKET) {
+                do {
+                    items.add(operand(true));
+                } while (accept(TokenType.COMMA));
+            }
+            expect(TokenType.RBRACKET);
+            return ctx -> {
+                List<Object> values = new ArrayList<>(items.size());
+                for (Expression item : items)
+                    values.add(item.eval(ctx));
+                return values;
+            };
+        }
+
+        private Expression identifier(Token t, boolean rightSide) {
+            switch (t.text) {
+                case "true":
+                    return new Constant(Boolean.TRUE);
+                case "false":
+                    return new Constant(Boolean.FALSE);
+                case "null":
+                    return new Constant(null);
+                default:
+                    break;
+            }
+            if (peek().type == TokenType.LPAREN) {
+                index++;
+                return function(t);
+            }
+
+            boolean explicitContext = t.text.equals("context") && peek().type == TokenType.DOT;
+            StringBuilder path = new StringBuilder(explicitContext ? "" : t.text);
+            if (explicitContext) {
+                index++;
+                path.append(expect(TokenType.IDENT).text);
+            }
+            String root = path.toString();
+            boolean nested = false;
+            while (peek().type == TokenType.DOT || peek().type == TokenType.LBRACKET) {
+                nested = true;
+                if (accept(TokenType.DOT)) {
+                    path.append('.').append(expect(TokenType.IDENT).text);
                 } else {
-                    return null; // Si no es un mapa y tratamos de sacar prop, falla silencioso
+                    index++;
+                    Token idx = next();
+                    boolean negative = idx.type == TokenType.OP && idx.text.equals("-");
+                    if (negative)
+                        idx = next();
+                    if (idx.type == TokenType.NUMBER)
+                        path.append('[').append(negative ? "-" : "").append(idx.text).append(']');
+                    else if (idx.type == TokenType.STRING)
+                        path.append("['").append(idx.text).append("']");
+                    else
+                        throw error("expected index");
+                    expect(TokenType.RBRACKET);
+                }
+            }
+
+            if (!nested) {
+                if (rightSide && !explicitContext) {
+                    return ctx -> {
+                        Object value = ctx.getVariable(root);
+                        return value != null ? value : root;
+                    };
                 }
+                return ctx -> ctx.getVariable(root);
             }
-            return current;
+            String full = path.toString();
+            JsonPath tail = JsonPath.compile("$" + full.substring(root.length()));
+            return ctx -> {
+                Object base = ctx.getVariable(root);
+                Object value = base == null ? null : tail.read(base);
+                // Variables guardadas con punto en el nombre ("a.b")
+                return value != null ? value : ctx.getVariable(full);
+            };
         }
 
-        return context.getVariable(cleanKey);
-    }
+        private Expression function(Token name) {
+            List<Expression> args = new ArrayList<>();
+            if (peek().type != TokenType.RPAREN) {
+                do {
+                    args.add(or());
+                } while (accept(TokenType.COMMA));
+            }
+            expect(TokenType.RPAREN);
 
-    private static boolean compare(Object a, Object b) {
-        if (a == null || b == null)
-            return Objects.equals(a, b);
+            String fn = name.text;
+            switch (fn) {
+                case "lower", "upper", "trim", "len", "length":
+                    arity(fn, args, 1);
+                    break;
+                case "contains", "startsWith", "endsWith", "matches":
+                    arity(fn, args, 2);
+                    break;
+                default:
+                    throw error("unknown function '" + fn + "'");
+            }
+            Expression a = args.get(0);
+            Expression b = args.size() > 1 ? args.get(1) : null;
+            return switch (fn) {
+                case "lower" -> ctx -> {
+                    String s = text(a.eval(ctx));
+                    return s == null ? null : s.toLowerCase(Locale.ROOT);
+                };
+                case "upper" -> ctx -> {
+                    String s = text(a.eval(ctx));
+                    return s == null ? null : s.toUpperCase(Locale.ROOT);
+                };
+                case "trim" -> ctx -> {
+                    String s = text(a.eval(ctx));
+                    return s == null ? null : s.trim();
+                };
+                case "len", "length" -> ctx -> {
+                    Object v = a.eval(ctx);
+                    if (v instanceof Collection<?> c)
+                        return c.size();
+                    if (v instanceof Map<?, ?> m)
+                        return m.size();
+                    return v == null ? 0 : String.valueOf(v).length();
+                };
+                case "contains" -> ctx -> {
+                    Object container = a.eval(ctx);
+                    return container instanceof CharSequence || container instanceof Collection<?>
+                            || container instanceof Map<?, ?> ? in(b.eval(ctx), container) : false;
+                };
+                case "startsWith" -> ctx -> {
+                    String s = text(a.eval(ctx)), p = text(b.eval(ctx));
+                    return s != null && p != null && s.startsWith(p);
+                };
+                case "endsWith" -> ctx -> {
+                    String s = text(a.eval(ctx)), p = text(b.eval(ctx));
+                    return s != null && p != null && s.endsWith(p);
+                };
+                default -> matches(a, b);
+            };
+        }
 
-        if (a instanceof Number && b instanceof Number) {
-            return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue()) == 0;
+        /**
+         * Con un patrón literal la regex se compila aquí, una sola vez.
+         */
+        private Expression matches(Expression subject, Expression pattern) {
+            if (pattern instanceof Constant(String regex)) {
+                Pattern compiled = Pattern.compile(regex);
+                return ctx -> {
+                    String s = text(subject.eval(ctx));
+                    return s != null && compiled.matcher(s).find();
+                };
+            }
+            return ctx -> {
+                String s = text(subject.eval(ctx)), p = text(pattern.eval(ctx));
+                return s != null && p != null && Pattern.compile(p).matcher(s).find();
+            };
         }
 
-        return String.valueOf(a).equals(String.valueOf(b));
+        private void arity(String fn, List<Expression> args, int expected) {
+            if (args.size() != expected)
+                throw error(fn + "() expects " + expected + " argument(s)");
+        }
+
+        private Token peek() {
+            return tokens.get(index);
+        }
+
+        private Token next() {
+            Token t = tokens.get(index);
+            if (t.type != TokenType.END)
+                index++;
+            return t;
+        }
+
+        private boolean accept(TokenType type) {
+            if (peek().type != type)
+                return false;
+            index++;
+            return true;
+        }
+
+        private boolean acceptOp(String op) {
+            if (peek().type != TokenType.OP || !peek().text.equals(op))
+                return false;
+            index++;
+            return true;
+        }
+
+        private Token expect(TokenType type) {
+            Token t = next();
+            if (t.type != type)
+                throw error("expected " + type + " at " + t.pos);
+            return t;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Invalid expression '" + src + "': " + message);
+        }
+
+        private List<Token> tokenize(String s) {
+            List<Token> out = new ArrayList<>();
+            int i = 0;
+            while (i < s.length()) {
+                char c = s.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (Character.isDigit(c)) {
+                    int start = i;
+                    while (i < s.length() && (Character.isDigit(s.charAt(i)) || s.charAt(i) == '.')
+                            && !(s.charAt(i) == '.' && (i + 1 >= s.length() || !Character.isDigit(s.charAt(i + 1)))))
+                        i++;
+                    out.add(new Token(TokenType.NUMBER, s.substring(start, i), start));
+                } else if (Character.isLetter(c) || c == '_' || c == '$') {
+                    int start = i;
+                    while (i < s.length() && (Character.isLetterOrDigit(s.charAt(i)) || s.charAt(i) == '_'
+                            || s.charAt(i) == '$'))
+                        i++;
+                    out.add(new Token(TokenType.IDENT, s.substring(start, i), start));
+                } else if (c == '\'' || c == '"') {
+                    int start = i++;
+                    StringBuilder sb = new StringBuilder();
+                    while (i < s.length() && s.charAt(i) != c) {
+                        char ch = s.charAt(i++);
+                        // \' y \\ escapan; el resto de barras se conserva (regex de matches)
+                        if (ch == '\\' && i < s.length() && (s.charAt(i) == c || s.charAt(i) == '\\'))
+                            ch = s.charAt(i++);
+                        sb.append(ch);
+                    }
+                    if (i >= s.length())
+                        throw error("unterminated string at " + start);
+                    i++;
+                    out.add(new Token(TokenType.STRING, sb.toString(), start));
+                } else {
+                    String two = i + 1 < s.length() ? s.substring(i, i + 2) : "";
+                    switch (two) {
+                        case "==", "!=", "<=", ">=", "&&", "||" -> {
+                            out.add(new Token(TokenType.OP, two, i));
+                            i += 2;
+                            continue;
+                        }
+                        default -> {
+                        }
+                    }
+                    TokenType single = switch (c) {
+                        case '(' -> TokenType.LPAREN;
+                        case ')' -> TokenType.RPAREN;
+                        case '[' -> TokenType.LBRACKET;
+                        case ']' -> TokenType.RBRACKET;
+                        case ',' -> TokenType.COMMA;
+                        case '.' -> TokenType.DOT;
+                        case '<', '>', '!', '-' -> TokenType.OP;
+                        default -> throw error("unexpected character '" + c + "'");
+                    };
+                    out.add(new Token(single, String.valueOf(c), i));
+                    i++;
+                }
+            }
+            out.add(new Token(TokenType.END, "", s.length()));
+            return out;
+        }
     }
-}
\ No newline at end of file
+}
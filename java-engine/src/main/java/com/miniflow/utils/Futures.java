@@ -0,0 +1,46 @@
+package com.miniflow.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Utilidades para el camino asíncrono de los nodos (CompletableFuture).
+ */
+public class Futures {
+
+    /**
+     * Quita los envoltorios CompletionException/ExecutionException que añaden
+     * las etapas dependientes y devuelve la causa original.
+     */
+    public static Throwable unwrap(Throwable error) {
+        Throwable t = error;
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null)
+            t = t.getCause();
+        return t;
+    }
+
+    /**
+     * Espera el futuro y relanza la excepción original, de forma que los
+     * llamadores síncronos ven lo mismo que antes del camino asíncrono.
+     */
+    public static <T> T join(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof Exception ex)
+                throw ex;
+            if (cause instanceof Error err)
+                throw err;
+            throw e;
+        }
+    }
+
+    /**
+     * Futuro fallido con la excepción tal cual (sin envolver).
+     */
+    public static <T> CompletableFuture<T> failed(Throwable error) {
+        return CompletableFuture.failedFuture(unwrap(error));
+    }
+}
@@ -0,0 +1,65 @@
+package com.miniflow.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registro de los intentos de una petición HTTP (reintentos, fallbackUrls y
+ * peticiones de cobertura), con tiempos relativos al inicio de la llamada.
+ * Se publica en el output del nodo bajo "attempts".
+ */
+public class HttpAttempts {
+
+    /**
+     * Recibe cada intento terminado con sus tiempos nanoTime (trazas).
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void onAttempt(String url, int attempt, boolean hedged, long startNanos, long endNanos, Object outcome);
+    }
+
+    private final long startNanos = System.nanoTime();
+    private final List<Map<String, Object>> entries = new ArrayList<>();
+    private final Listener listener;
+
+    public HttpAttempts() {
+        this(null);
+    }
+
+    public HttpAttempts(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Marca de tiempo para {@link #record}.
+     */
+    public long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * @param outcome status HTTP (Integer) o texto del error / "CANCELLED"
+     */
+    public synchronized void record(String url, int attempt, boolean hedged, long startedAt, Object outcome) {
+        long end = System.nanoTime();
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("url", url);
+        entry.put("attempt", attempt);
+        entry.put("hedged", hedged);
+        entry.put("startMs", (startedAt - startNanos) / 1_000_000);
+        entry.put("durationMs", (end - startedAt) / 1_000_000);
+        if (outcome instanceof Integer status)
+            entry.put("status", status);
+        else
+            entry.put("error", String.valueOf(outcome));
+        entries.add(entry);
+        if (listener != null)
+            listener.onAttempt(url, attempt, hedged, startedAt, end, outcome);
+    }
+
+    public synchronized List<Map<String, Object>> toList() {
+        return List.copyOf(entries);
+    }
+}
@@ -0,0 +1,60 @@
+package com.miniflow.utils;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cliente HTTP compartido por todo el motor, configurable con EngineConfig:
+ *
+ *   http.connectTimeoutMs  tiempo máximo para abrir la conexión (10000)
+ *   http.version           HTTP_2 (por defecto, con fallback a 1.1) o HTTP_1_1
+ *   http.threads           hilos que completan las respuestas (4; 0 = executor del JDK)
+ *   http.maxStreams        streams HTTP/2 concurrentes por conexión (0 = valor del JDK)
+ *
+ * Las peticiones usan sendAsync, así que estos pocos hilos bastan para
+ * muchas peticiones en vuelo.
+ */
+public class HttpClientConfig {
+
+    private static final class Holder {
+        static final HttpClient CLIENT = create();
+    }
+
+    public static HttpClient client() {
+        return Holder.CLIENT;
+    }
+
+    static HttpClient create() {
+        // El JDK lee esta propiedad al crear la primera conexión HTTP/2
+        int maxStreams = EngineConfig.getInt("http.maxStreams", 0);
+        if (maxStreams > 0 && System.getProperty("jdk.httpclient.maxstreams") == null)
+            System.setProperty("jdk.httpclient.maxstreams", String.valueOf(maxStreams));
+
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(EngineConfig.getLong("http.connectTimeoutMs", 10000)))
+                .version(version(EngineConfig.getString("http.version", "HTTP_2")));
+
+        int threads = EngineConfig.getInt("http.threads", 4);
+        if (threads > 0)
+            builder.executor(newExecutor(threads));
+        return builder.build();
+    }
+
+    static HttpClient.Version version(String name) {
+        String v = name.trim().toUpperCase(Locale.ROOT).replace('.', '_').replace("/", "_");
+        return v.equals("HTTP_1_1") || v.equals("HTTP_1") ? HttpClient.Version.HTTP_1_1 : HttpClient.Version.HTTP_2;
+    }
+
+    private static ExecutorService newExecutor(int threads) {
+        AtomicInteger seq = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "miniflow-http-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
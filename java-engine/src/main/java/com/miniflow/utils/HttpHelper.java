@@ -4,42 +4,269 @@ import java.net.URI;
 import java.net.http.*;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * REFACTOR: Las peticiones van por sendAsync sobre el cliente compartido de
+ * {@link HttpClientConfig}; ningún hilo queda aparcado durante el viaje de red.
+ * La variante síncrona se mantiene para quien necesite esperar el resultado.
+ *
+ * Los reintentos esperan según una {@link RetryPolicy} (backoff exponencial
+ * con jitter) sin bloquear hilos. Con hedgeAfterMs > 0, si la URL actual no
+ * responde a tiempo se lanza en paralelo la siguiente de fallbackUrls y gana
+ * la primera respuesta buena; las demás se cancelan.
+ *
+ * Todas las variantes aceptan un BodyHandler propio: con ofInputStream el
+ * cuerpo se consume mientras llega (ver {@link JsonStreamExtractor}) y las
+ * respuestas que se descartan por reintentos o cobertura se cierran aquí.
+ */
 public class HttpHelper {
-    private static final HttpClient CLIENT = HttpClient.newBuilder().build();
 
     public static HttpResponse<String> executeWithRetries(List<String> urls, String method, String body,
             Map<String, String> headers, int timeout, int retries) throws Exception {
-        Exception lastEx = null;
-        for (String url : urls) {
-            for (int i = 0; i <= retries; i++) {
-                try {
-                    return send(url, method, body, headers, timeout);
-                } catch (Exception ex) {
-                    System.err.println(
-                            "[HttpHelper] URL '" + url + "' attempt " + (i + 1) + " failed: " + ex.getMessage());
-                    lastEx = ex;
+        return Futures.join(executeWithRetriesAsync(urls, method, body, headers, timeout, retries));
+    }
+
+    public static CompletableFuture<HttpResponse<String>> executeWithRetriesAsync(List<String> urls, String method,
+            String body, Map<String, String> headers, int timeout, int retries) {
+        return executeAsync(urls, method, body, headers, timeout, RetryPolicy.ofRetries(retries), 0,
+                new HttpAttempts());
+    }
+
+    /**
+     * Sin cobertura: cada URL agota sus reintentos antes de pasar a la
+     * siguiente. Con cobertura: ver {@link #hedged}.
+     */
+    public static CompletableFuture<HttpResponse<String>> executeAsync(List<String> urls, String method,
+            String body, Map<String, String> headers, int timeout, RetryPolicy policy, long hedgeAfterMs,
+            HttpAttempts attempts) {
+        return executeAsync(urls, method, body, headers, timeout, policy, hedgeAfterMs, attempts,
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    public static <T> CompletableFuture<HttpResponse<T>> executeAsync(List<String> urls, String method,
+            String body, Map<String, String> headers, int timeout, RetryPolicy policy, long hedgeAfterMs,
+            HttpAttempts attempts, HttpResponse.BodyHandler<T> handler) {
+        if (urls == null || urls.isEmpty())
+            return CompletableFuture.failedFuture(new Exception("HTTP Request failed"));
+
+        Request<T> request = new Request<>(method, body, headers, timeout, policy, attempts, handler);
+        if (hedgeAfterMs > 0 && urls.size() > 1)
+            return hedged(urls, request, hedgeAfterMs);
+        return sequential(urls, 0, request);
+    }
+
+    /**
+     * Igual que {@link #executeAsync} pero pasando por la caché de respuestas
+     * (solo GET/HEAD, con la primera URL como clave).
+     */
+    public static CompletableFuture<HttpResponse<String>> executeCachedAsync(HttpResponseCache cache,
+            HttpResponseCache.Lookup lookup, long defaultMaxAgeMs, List<String> urls, String method, String body,
+            Map<String, String> headers, int timeout, RetryPolicy policy, long hedgeAfterMs, HttpAttempts attempts) {
+        if (urls == null || urls.isEmpty())
+            return executeAsync(urls, method, body, headers, timeout, policy, hedgeAfterMs, attempts);
+        return cache.fetch(method, urls.get(0), headers, defaultMaxAgeMs, lookup,
+                sent -> executeAsync(urls, method, body, sent, timeout, policy, hedgeAfterMs, attempts));
+    }
+
+    private record Request<T>(String method, String body, Map<String, String> headers, int timeout,
+            RetryPolicy policy, HttpAttempts attempts, HttpResponse.BodyHandler<T> handler) {
+    }
+
+    private static <T> CompletableFuture<HttpResponse<T>> sequential(List<String> urls, int index,
+            Request<T> request) {
+        return new Lane<>(urls.get(index), false, request).start().exceptionallyCompose(ex -> {
+            if (index + 1 < urls.size())
+                return sequential(urls, index + 1, request);
+            return Futures.failed(ex);
+        });
+    }
+
+    /**
+     * Lanza la primera URL y, cada hedgeAfterMs sin respuesta (o en cuanto una
+     * URL falla del todo), la siguiente. Gana la primera respuesta sin status
+     * de error; si ninguna lo consigue se devuelve la última respuesta con
+     * error o, si no hubo ninguna, el último fallo.
+     */
+    private static <T> CompletableFuture<HttpResponse<T>> hedged(List<String> urls, Request<T> request,
+            long hedgeAfterMs) {
+        CompletableFuture<HttpResponse<T>> winner = new CompletableFuture<>();
+        List<Lane<T>> lanes = new ArrayList<>(urls.size());
+
+        final class Race {
+            int launched;
+            int finished;
+            HttpResponse<T> badResponse;
+            Throwable lastError;
+
+            synchronized void launchNext() {
+                if (winner.isDone() || launched >= urls.size())
+                    return;
+                int index = launched++;
+                Lane<T> lane = new Lane<>(urls.get(index), index > 0, request);
+                synchronized (lanes) {
+                    lanes.add(lane);
+                }
+                lane.start().whenComplete((resp, error) -> onLaneDone(resp, error));
+                if (winner.isDone())
+                    lane.cancel();
+                if (launched < urls.size())
+                    CompletableFuture.delayedExecutor(hedgeAfterMs, TimeUnit.MILLISECONDS).execute(this::launchNext);
+            }
+
+            void onLaneDone(HttpResponse<T> resp, Throwable error) {
+                if (error == null && !isError(resp.statusCode())) {
+                    // Una respuesta buena que llega tarde no se usa: se libera su cuerpo
+                    if (!winner.complete(resp))
+                        discard(resp);
+                    return;
+                }
+                boolean launchNow;
+                synchronized (this) {
+                    finished++;
+                    if (error == null) {
+                        discard(badResponse);
+                        badResponse = resp;
+                    } else
+                        lastError = Futures.unwrap(error);
+                    launchNow = finished == launched && launched < urls.size();
+                    if (finished == launched && launched == urls.size()) {
+                        if (badResponse != null)
+                            winner.complete(badResponse);
+                        else
+                            winner.completeExceptionally(lastError);
+                    }
                 }
+                // La URL actual falló del todo: no tiene sentido esperar al umbral
+                if (launchNow)
+                    launchNext();
+            }
+        }
+
+        Race race = new Race();
+        race.launchNext();
+        return winner.whenComplete((resp, error) -> {
+            synchronized (lanes) {
+                lanes.forEach(Lane::cancel);
             }
+            synchronized (race) {
+                if (race.badResponse != resp)
+                    discard(race.badResponse);
+            }
+        });
+    }
+
+    /**
+     * Una URL con sus reintentos. Guarda la petición en vuelo para poder
+     * cancelarla si otra URL gana la carrera.
+     */
+    private static final class Lane<T> {
+        private final String url;
+        private final boolean hedged;
+        private final Request<T> request;
+        private volatile CompletableFuture<HttpResponse<T>> inFlight;
+        private volatile boolean cancelled;
+
+        Lane(String url, boolean hedged, Request<T> request) {
+            this.url = url;
+            this.hedged = hedged;
+            this.request = request;
+        }
+
+        CompletableFuture<HttpResponse<T>> start() {
+            return attempt(1);
+        }
+
+        void cancel() {
+            cancelled = true;
+            CompletableFuture<HttpResponse<T>> f = inFlight;
+            if (f != null)
+                f.cancel(true);
+        }
+
+        private CompletableFuture<HttpResponse<T>> attempt(int number) {
+            if (cancelled)
+                return CompletableFuture.failedFuture(new CancellationException("Hedged request cancelled"));
+
+            HttpAttempts attempts = request.attempts();
+            long startedAt = attempts.now();
+            CompletableFuture<HttpResponse<T>> call = sendAsync(url, request.method(), request.body(),
+                    request.headers(), request.timeout(), request.handler());
+            inFlight = call;
+
+            return call.handle((resp, error) -> {
+                Throwable cause = error == null ? null : Futures.unwrap(error);
+                if (cause instanceof CancellationException || (cause != null && cancelled)) {
+                    attempts.record(url, number, hedged, startedAt, "CANCELLED");
+                    return Futures.<HttpResponse<T>>failed(cause);
+                }
+                attempts.record(url, number, hedged, startedAt, resp != null ? resp.statusCode() : describe(cause));
+
+                RetryPolicy policy = request.policy();
+                boolean retryable = cause != null || policy.retriesStatus(resp.statusCode());
+                if (!retryable)
+                    return CompletableFuture.completedFuture(resp);
+                if (cause != null)
+                    System.err.println(
+                            "[HttpHelper] URL '" + url + "' attempt " + number + " failed: " + cause.getMessage());
+                if (number > policy.maxRetries() || cancelled)
+                    return cause != null ? Futures.<HttpResponse<T>>failed(cause)
+                            : CompletableFuture.completedFuture(resp);
+
+                discard(resp);
+                // Backoff sin bloquear: el siguiente intento se programa en un executor diferido
+                Executor later = CompletableFuture.delayedExecutor(policy.delayMs(number), TimeUnit.MILLISECONDS);
+                return CompletableFuture.supplyAsync(() -> null, later).thenCompose(v -> attempt(number + 1));
+            }).thenCompose(next -> next);
         }
-        throw lastEx != null ? lastEx : new Exception("HTTP Request failed");
     }
 
-    private static HttpResponse<String> send(String url, String method, String body,
-            Map<String, String> headers, int timeout) throws Exception {
-        HttpRequest.Builder builder = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .timeout(Duration.ofMillis(timeout));
+    public static CompletableFuture<HttpResponse<String>> sendAsync(String url, String method, String body,
+            Map<String, String> headers, int timeout) {
+        return sendAsync(url, method, body, headers, timeout, HttpResponse.BodyHandlers.ofString());
+    }
+
+    public static <T> CompletableFuture<HttpResponse<T>> sendAsync(String url, String method, String body,
+            Map<String, String> headers, int timeout, HttpResponse.BodyHandler<T> handler) {
+        try {
+            HttpRequest.Builder builder = HttpRequest.newBuilder()
+                    .uri(URI.create(url))
+                    .timeout(Duration.ofMillis(timeout));
+
+            if (headers != null)
+                headers.forEach(builder::header);
 
-        if (headers != null)
-            headers.forEach(builder::header);
+            HttpRequest.BodyPublisher publisher = methodSupportsBody(method) && body != null
+                    ? HttpRequest.BodyPublishers.ofString(body)
+                    : HttpRequest.BodyPublishers.noBody();
 
-        HttpRequest.BodyPublisher publisher = methodSupportsBody(method) && body != null
-                ? HttpRequest.BodyPublishers.ofString(body)
-                : HttpRequest.BodyPublishers.noBody();
+            builder.method(method.toUpperCase(), publisher);
+            return HttpClientConfig.client().sendAsync(builder.build(), handler);
+        } catch (Exception e) {
+            // URL o cabeceras inválidas: fallo del intento, no del hilo llamador
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Libera una respuesta que no se va a leer (cuerpo en streaming). Las de
+     * tipo String no necesitan nada.
+     */
+    public static void discard(HttpResponse<?> resp) {
+        if (resp != null && resp.body() instanceof AutoCloseable body) {
+            try {
+                body.close();
+            } catch (Exception ignored) {
+                // Nada que hacer: la conexión se descarta igualmente
+            }
+        }
+    }
 
-        builder.method(method.toUpperCase(), publisher);
-        return CLIENT.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+    private static String describe(Throwable error) {
+        return error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
     }
 
     public static boolean isError(int status) {
@@ -49,4 +276,4 @@ public class HttpHelper {
     public static boolean methodSupportsBody(String method) {
         return method != null && List.of("POST", "PUT", "PATCH").contains(method.toUpperCase());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,489 @@
+package com.miniflow.utils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import javax.net.ssl.SSLSession;
+
+/**
+ * Caché de respuestas HTTP compartida por todo el motor (opt-in por nodo con
+ * "httpCache").
+ *
+ * - Clave: método + URL + valores de las cabeceras que la respuesta lista en Vary.
+ * - Frescura: Cache-Control max-age (no-cache = revalidar siempre, no-store =
+ *   no guardar); si no viene, el maxAgeMs del nodo.
+ * - Revalidación: una entrada caducada con ETag/Last-Modified se pide con
+ *   If-None-Match/If-Modified-Since; un 304 la renueva sin volver a bajar el body.
+ * - Límite: http.cache.maxBytes en total, expulsando la menos usada (LRU).
+ * - Persistencia opcional: con http.cache.dir cada entrada se guarda como JSON
+ *   y se recarga al arrancar, así la caché sobrevive entre ejecuciones.
+ */
+public class HttpResponseCache {
+
+    public enum Outcome {
+        HIT, MISS, REVALIDATED, BYPASS
+    }
+
+    private static final class Holder {
+        static final HttpResponseCache SHARED = new HttpResponseCache(
+                EngineConfig.getLong("http.cache.maxBytes", 32L * 1024 * 1024),
+                Optional.ofNullable(EngineConfig.getString("http.cache.dir", null)).map(Path::of).orElse(null));
+    }
+
+    public static HttpResponseCache shared() {
+        return Holder.SHARED;
+    }
+
+    /**
+     * Una respuesta guardada. Inmutable: una revalidación crea otra entrada.
+     */
+    private record Entry(String key, String method, String url, int status, Map<String, List<String>> headers,
+            String body, Map<String, String> vary, long storedAt, long maxAgeMs, long bytes) {
+
+        boolean fresh(long now) {
+            return now - storedAt < maxAgeMs;
+        }
+
+        String header(String name) {
+            return firstHeader(headers, name);
+        }
+    }
+
+    private final long maxBytes;
+    private final Path dir;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    // Nombres de las cabeceras Vary por método+URL, para componer la clave antes de pedir
+    private final Map<String, List<String>> varyByUrl = new HashMap<>();
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+
+    public HttpResponseCache(long maxBytes, Path dir) {
+        this.maxBytes = maxBytes;
+        this.dir = dir;
+        if (dir != null)
+            loadFromDisk();
+    }
+
+    /**
+     * Resultado de una consulta, para el output del nodo.
+     */
+    public final class Lookup {
+        private volatile Outcome outcome = Outcome.BYPASS;
+
+        public Outcome outcome() {
+            return outcome;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("status", outcome.name());
+            m.put("hits", hits.get());
+            m.put("misses", misses.get());
+            m.put("revalidations", revalidations.get());
+            return m;
+        }
+    }
+
+    public Lookup newLookup() {
+        return new Lookup();
+    }
+
+    /**
+     * Sirve la petición desde la caché o la delega en "network", que recibe
+     * las cabeceras a enviar (con las condicionales si toca revalidar).
+     */
+    public CompletableFuture<HttpResponse<String>> fetch(String method, String url, Map<String, String> headers,
+            long defaultMaxAgeMs, Lookup lookup,
+            Function<Map<String, String>, CompletableFuture<HttpResponse<String>>> network) {
+        String m = method == null ? "GET" : method.toUpperCase(Locale.ROOT);
+        if (!m.equals("GET") && !m.equals("HEAD")) {
+            lookup.outcome = Outcome.BYPASS;
+            return network.apply(headers);
+        }
+
+        String key = key(m, url, headers);
+        Entry cached;
+        synchronized (this) {
+            cached = entries.get(key);
+        }
+
+        if (cached != null && cached.fresh(System.currentTimeMillis())) {
+            hits.incrementAndGet();
+            lookup.outcome = Outcome.HIT;
+            return CompletableFuture.completedFuture(new CachedResponse(cached));
+        }
+
+        Map<String, String> sent = headers == null ? new HashMap<>() : new HashMap<>(headers);
+        if (cached != null) {
+            if (cached.header("etag") != null)
+                sent.putIfAbsent("If-None-Match", cached.header("etag"));
+            if (cached.header("last-modified") != null)
+                sent.putIfAbsent("If-Modified-Since", cached.header("last-modified"));
+        }
+
+        return network.apply(sent).thenApply(resp -> {
+            if (cached != null && resp.statusCode() == 304) {
+                revalidations.incrementAndGet();
+                lookup.outcome = Outcome.REVALIDATED;
+                Entry renewed = renew(cached, resp.headers().map(), defaultMaxAgeMs);
+                store(renewed);
+                return new CachedResponse(renewed);
+            }
+            misses.incrementAndGet();
+            lookup.outcome = Outcome.MISS;
+            Entry entry = toEntry(m, url, headers, resp, defaultMaxAgeMs);
+            if (entry != null)
+                store(entry);
+            else if (cached != null)
+                remove(cached.key());
+            return resp;
+        });
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public long revalidations() {
+        return revalidations.get();
+    }
+
+    public synchronized long sizeBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // ------------------------------------------------------------------
+    // Claves y política de cacheo
+    // ------------------------------------------------------------------
+
+    private String key(String method, String url, Map<String, String> headers) {
+        List<String> varyNames;
+        synchronized (this) {
+            varyNames = varyByUrl.getOrDefault(method + " " + url, List.of());
+        }
+        return composeKey(method, url, varyValues(varyNames, headers));
+    }
+
+    private static String composeKey(String method, String url, Map<String, String> vary) {
+        StringBuilder sb = new StringBuilder(method).append(' ').append(url);
+        new TreeMap<>(vary).forEach((k, v) -> sb.append('\n').append(k).append('=').append(v));
+        return sb.toString();
+    }
+
+    private static Map<String, String> varyValues(List<String> names, Map<String, String> headers) {
+        Map<String, String> values = new TreeMap<>();
+        for (String name : names) {
+            String value = "";
+            if (headers != null) {
+                for (Map.Entry<String, String> h : headers.entrySet())
+                    if (h.getKey().equalsIgnoreCase(name))
+                        value = h.getValue();
+            }
+            values.put(name, value);
+        }
+        return values;
+    }
+
+    private Entry toEntry(String method, String url, Map<String, String> requestHeaders, HttpResponse<String> resp,
+            long defaultMaxAgeMs) {
+        if (resp.statusCode() != 200)
+            return null;
+        Map<String, List<String>> headers = resp.headers().map();
+
+        String vary = firstHeader(headers, "vary");
+        List<String> varyNames = new ArrayList<>();
+        if (vary != null) {
+            for (String v : vary.split(",")) {
+                String name = v.trim().toLowerCase(Locale.ROOT);
+                if (name.equals("*"))
+                    return null;
+                if (!name.isEmpty())
+                    varyNames.add(name);
+            }
+        }
+
+        long maxAge = maxAgeMs(headers, defaultMaxAgeMs);
+        boolean validators = firstHeader(headers, "etag") != null || firstHeader(headers, "last-modified") != null;
+        if (maxAge < 0 || (maxAge == 0 && !validators))
+            return null;
+
+        synchronized (this) {
+            varyByUrl.put(method + " " + url, List.copyOf(varyNames));
+        }
+        Map<String, String> varyValues = varyValues(varyNames, requestHeaders);
+        String body = resp.body() == null ? "" : resp.body();
+        return new Entry(composeKey(method, url, varyValues), method, url, resp.statusCode(), headers, body, varyValues,
+                System.currentTimeMillis(), maxAge, estimateBytes(url, headers, body));
+    }
+
+    private static Entry renew(Entry old, Map<String, List<String>> fresh, long defaultMaxAgeMs) {
+        // Un 304 puede traer cabeceras nuevas (ETag, Cache-Control): se combinan
+        Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.putAll(old.headers());
+        fresh.forEach((k, v) -> {
+            if (!k.equalsIgnoreCase("content-length"))
+                headers.put(k, v);
+        });
+        long maxAge = Math.max(0, maxAgeMs(headers, defaultMaxAgeMs));
+        return new Entry(old.key(), old.method(), old.url(), old.status(), headers, old.body(), old.vary(),
+                System.currentTimeMillis(), maxAge, old.bytes());
+    }
+
+    /**
+     * max-age en ms; -1 si la respuesta no se puede guardar (no-store).
+     */
+    private static long maxAgeMs(Map<String, List<String>> headers, long defaultMaxAgeMs) {
+        String cc = firstHeader(headers, "cache-control");
+        if (cc == null)
+            return defaultMaxAgeMs;
+        long maxAge = defaultMaxAgeMs;
+        for (String part : cc.split(",")) {
+            String d = part.trim().toLowerCase(Locale.ROOT);
+            if (d.equals("no-store"))
+                return -1;
+            if (d.equals("no-cache"))
+                return 0;
+            if (d.startsWith("max-age=")) {
+                Long seconds = TypeConverter.asLong(d.substring("max-age=".length()).replace("\"", ""), null);
+                if (seconds != null)
+                    maxAge = seconds * 1000;
+            }
+        }
+        return maxAge;
+    }
+
+    private static String firstHeader(Map<String, List<String>> headers, String name) {
+        for (Map.Entry<String, List<String>> h : headers.entrySet())
+            if (h.getKey() != null && h.getKey().equalsIgnoreCase(name) && !h.getValue().isEmpty())
+                return h.getValue().get(0);
+        return null;
+    }
+
+    private static long estimateBytes(String url, Map<String, List<String>> headers, String body) {
+        long bytes = body.getBytes(StandardCharsets.UTF_8).length + url.length();
+        for (Map.Entry<String, List<String>> h : headers.entrySet())
+            for (String v : h.getValue())
+                bytes += h.getKey().length() + v.length();
+        return bytes;
+    }
+
+    // ------------------------------------------------------------------
+    // Almacenamiento (memoria LRU + espejo opcional en disco)
+    // ------------------------------------------------------------------
+
+    private void store(Entry entry) {
+        store(entry, true);
+    }
+
+    private void store(Entry entry, boolean persist) {
+        if (entry.bytes() > maxBytes)
+            return;
+        List<Entry> evicted = new ArrayList<>();
+        synchronized (this) {
+            Entry previous = entries.put(entry.key(), entry);
+            if (previous != null)
+                totalBytes -= previous.bytes();
+            totalBytes += entry.bytes();
+
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                Entry e = eldest.next();
+                if (e == entry)
+                    continue;
+                eldest.remove();
+                totalBytes -= e.bytes();
+                evicted.add(e);
+            }
+        }
+        if (dir != null) {
+            if (persist)
+                writeToDisk(entry);
+            evicted.forEach(e -> deleteFromDisk(e.key()));
+        }
+    }
+
+    private void remove(String key) {
+        synchronized (this) {
+            Entry e = entries.remove(key);
+            if (e != null)
+                totalBytes -= e.bytes();
+        }
+        if (dir != null)
+            deleteFromDisk(key);
+    }
+
+    private Path fileFor(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return dir.resolve(HexFormat.of().formatHex(hash) + ".json");
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeToDisk(Entry e) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("key", e.key());
+        json.put("method", e.method());
+        json.put("url", e.url());
+        json.put("status", e.status());
+        json.put("headers", e.headers());
+        json.put("body", e.body());
+        json.put("vary", e.vary());
+        json.put("storedAt", e.storedAt());
+        json.put("maxAgeMs", e.maxAgeMs());
+        try {
+            Files.createDirectories(dir);
+            Path target = fileFor(e.key());
+            Path tmp = Files.createTempFile(dir, "entry", ".tmp");
+            Files.writeString(tmp, JsonUtils.toJson(json), StandardCharsets.UTF_8);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            System.err.println("[HttpResponseCache] Could not persist entry: " + ex.getMessage());
+        }
+    }
+
+    private void deleteFromDisk(String key) {
+        try {
+            Files.deleteIfExists(fileFor(key));
+        } catch (IOException ex) {
+            System.err.println("[HttpResponseCache] Could not delete entry: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Recarga las entradas guardadas, de la más antigua a la más reciente
+     * para que el orden LRU se parezca al que había.
+     */
+    private void loadFromDisk() {
+        if (!Files.isDirectory(dir))
+            return;
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> sorted = files.filter(p -> p.toString().endsWith(".json"))
+                    .sorted(Comparator.comparingLong(p -> p.toFile().lastModified()))
+                    .toList();
+            for (Path p : sorted) {
+                Entry e = readEntry(p);
+                if (e != null) {
+                    store(e, false);
+                    synchronized (this) {
+                        varyByUrl.put(e.method() + " " + e.url(), List.copyOf(e.vary().keySet()));
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            System.err.println("[HttpResponseCache] Could not load cache dir: " + ex.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Entry readEntry(Path p) {
+        try {
+            Object parsed = JsonUtils.tryParse(Files.readString(p, StandardCharsets.UTF_8));
+            if (!(parsed instanceof Map<?, ?> m))
+                return null;
+            Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            ((Map<String, List<Object>>) m.get("headers")).forEach(
+                    (k, v) -> headers.put(k, v.stream().map(String::valueOf).toList()));
+            Map<String, String> vary = new TreeMap<>((Map<String, String>) m.get("vary"));
+            String url = String.valueOf(m.get("url"));
+            String body = String.valueOf(m.get("body"));
+            return new Entry(String.valueOf(m.get("key")), String.valueOf(m.get("method")), url,
+                    TypeConverter.asInt(m.get("status"), 200), headers, body, vary,
+                    TypeConverter.asLong(m.get("storedAt"), 0L), TypeConverter.asLong(m.get("maxAgeMs"), 0L),
+                    estimateBytes(url, headers, body));
+        } catch (Exception ex) {
+            System.err.println("[HttpResponseCache] Skipping unreadable entry " + p.getFileName() + ": "
+                    + ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Respuesta servida desde la caché.
+     */
+    private static final class CachedResponse implements HttpResponse<String> {
+        private final Entry entry;
+        private final HttpRequest request;
+
+        CachedResponse(Entry entry) {
+            this.entry = entry;
+            this.request = HttpRequest.newBuilder(URI.create(entry.url()))
+                    .method(entry.method(), HttpRequest.BodyPublishers.noBody()).build();
+        }
+
+        @Override
+        public int statusCode() {
+            return entry.status();
+        }
+
+        @Override
+        public HttpRequest request() {
+            return request;
+        }
+
+        @Override
+        public Optional<HttpResponse<String>> previousResponse() {
+            return Optional.empty();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return HttpHeaders.of(entry.headers(), (k, v) -> true);
+        }
+
+        @Override
+        public String body() {
+            return entry.body();
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return Optional.empty();
+        }
+
+        @Override
+        public URI uri() {
+            return request.uri();
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return HttpClient.Version.HTTP_1_1;
+        }
+    }
+}
@@ -0,0 +1,505 @@
+package com.miniflow.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Expresión JSONPath compilada. Se parsea una sola vez (caché por texto) y
+ * se evalúa sobre árboles de Jackson, tanto Map/List como JsonNode.
+ *
+ * Sintaxis soportada:
+ * <ul>
+ * <li>raíz opcional: "$.a.b", "a.b" y "$" (el documento entero)</li>
+ * <li>campos: ".name" o "['name']"</li>
+ * <li>índices: "[0]", "[-1]" (desde el final)</li>
+ * <li>slices: "[1:3]", "[:2]", "[::2]"</li>
+ * <li>comodín: ".*" o "[*]" (elementos de una lista o valores de un objeto)</li>
+ * <li>filtros simples: "[?(@.price &lt; 10)]", "[?(@.tipo == 'a')]", "[?(@.flag)]"</li>
+ * </ul>
+ *
+ * Una ruta "definida" (solo campos e índices) devuelve el valor o null y se
+ * recorre sin reservar memoria. Con comodines, slices o filtros devuelve la
+ * lista de coincidencias.
+ */
+public final class JsonPath {
+
+    private static final int CACHE_LIMIT = 4096;
+    private static final Map<String, JsonPath> CACHE = new ConcurrentHashMap<>();
+
+    private enum Kind {
+        FIELD, INDEX, SLICE, WILDCARD, FILTER
+    }
+
+    private enum Op {
+        EXISTS, EQ, NE, LT, LE, GT, GE
+    }
+
+    /**
+     * Un paso de la ruta. Solo se usan los campos de su tipo.
+     */
+    private static final class Segment {
+        final Kind kind;
+        String name;
+        int index;
+        Integer start, end;
+        int step = 1;
+        JsonPath filterPath;
+        Op op;
+        Object literal;
+
+        Segment(Kind kind) {
+            this.kind = kind;
+        }
+    }
+
+    private final String source;
+    private final Segment[] segments;
+    private final boolean definite;
+    private final List<String> fieldPrefix;
+
+    private JsonPath(String source, List<Segment> segments) {
+        this.source = source;
+        this.segments = segments.toArray(new Segment[0]);
+        boolean allDefinite = true;
+        for (Segment s : this.segments)
+            allDefinite &= s.kind == Kind.FIELD || s.kind == Kind.INDEX;
+        List<String> prefix = new ArrayList<>();
+        for (int i = 0; i < this.segments.length && this.segments[i].kind == Kind.FIELD; i++)
+            prefix.add(this.segments[i].name);
+        this.definite = allDefinite;
+        this.fieldPrefix = List.copyOf(prefix);
+    }
+
+    /**
+     * Compila (o recupera de la caché) una ruta.
+     *
+     * @throws IllegalArgumentException si la sintaxis no es válida
+     */
+    public static JsonPath compile(String path) {
+        JsonPath cached = CACHE.get(path);
+        if (cached != null)
+            return cached;
+        JsonPath compiled = new Parser(path).parse();
+        // Las rutas vienen de la configuración de los nodos: en la práctica son
+        // pocas, el límite solo evita crecer sin fin con rutas generadas
+        if (CACHE.size() >= CACHE_LIMIT)
+            CACHE.clear();
+        CACHE.putIfAbsent(path, compiled);
+        return compiled;
+    }
+
+    public String source() {
+        return source;
+    }
+
+    /**
+     * true si la ruta solo tiene campos e índices (devuelve un único valor).
+     */
+    public boolean isDefinite() {
+        return definite;
+    }
+
+    /**
+     * Campos iniciales de la ruta antes del primer índice, comodín o filtro.
+     */
+    public List<String> fieldPrefix() {
+        return fieldPrefix;
+    }
+
+    public Object read(Object root) {
+        return readFrom(root, 0);
+    }
+
+    /**
+     * Evalúa la ruta a partir del segmento {@code from} sobre un valor que ya
+     * corresponde a los segmentos anteriores (p. ej. el de {@link #fieldPrefix}).
+     */
+    public Object readFrom(Object value, int from) {
+        if (definite) {
+            Object current = value;
+            for (int i = from; i < segments.length && current != null; i++) {
+                Segment s = segments[i];
+                current = s.kind == Kind.FIELD ? field(current, s.name) : element(current, s.index);
+            }
+            return unwrapMissing(current);
+        }
+        List<Object> out = new ArrayList<>();
+        collect(value, from, out);
+        return out;
+    }
+
+    private void collect(Object current, int i, List<Object> out) {
+        if (current == null || isMissing(current))
+            return;
+        if (i == segments.length) {
+            out.add(current);
+            return;
+        }
+        Segment s = segments[i];
+        switch (s.kind) {
+            case FIELD -> collect(field(current, s.name), i + 1, out);
+            case INDEX -> collect(element(current, s.index), i + 1, out);
+            case WILDCARD -> {
+                for (Iterator<?> it = children(current); it.hasNext();)
+                    collect(it.next(), i + 1, out);
+            }
+            case SLICE -> {
+                int size = size(current);
+                if (size < 0)
+                    return;
+                for (int idx : sliceIndexes(s, size))
+                    collect(element(current, idx), i + 1, out);
+            }
+            case FILTER -> {
+                for (Iterator<?> it = children(current); it.hasNext();) {
+                    Object item = it.next();
+                    if (matches(s, item))
+                        collect(item, i + 1, out);
+                }
+            }
+        }
+    }
+
+    private static int[] sliceIndexes(Segment s, int size) {
+        int step = s.step;
+        List<Integer> result = new ArrayList<>();
+        if (step > 0) {
+            int from = clamp(s.start == null ? 0 : s.start, size);
+            int to = clamp(s.end == null ? size : s.end, size);
+            for (int i = from; i < to; i += step)
+                result.add(i);
+        } else {
+            int from = s.start == null ? size - 1 : Math.min(clamp(s.start, size), size - 1);
+            int to = s.end == null ? -1 : clamp(s.end, size);
+            for (int i = from; i > to; i += step)
+                result.add(i);
+        }
+        return result.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int clamp(int index, int size) {
+        int i = index < 0 ? size + index : index;
+        return Math.max(0, Math.min(i, size));
+    }
+
+    private static boolean matches(Segment s, Object item) {
+        Object value = scalar(s.filterPath.read(item));
+        if (s.op == Op.EXISTS)
+            return value != null && !Boolean.FALSE.equals(value);
+        Object literal = s.literal;
+        if (s.op == Op.EQ || s.op == Op.NE) {
+            boolean eq = value instanceof Number a && literal instanceof Number b
+                    ? Double.compare(a.doubleValue(), b.doubleValue()) == 0
+                    : Objects.equals(value, literal);
+            return s.op == Op.EQ ? eq : !eq;
+        }
+        int cmp;
+        if (value instanceof Number a && literal instanceof Number b)
+            cmp = Double.compare(a.doubleValue(), b.doubleValue());
+        else if (value instanceof String a && literal instanceof String b)
+            cmp = a.compareTo(b);
+        else
+            return false;
+        return switch (s.op) {
+            case LT -> cmp < 0;
+            case LE -> cmp <= 0;
+            case GT -> cmp > 0;
+            default -> cmp >= 0;
+        };
+    }
+
+    // ---- Acceso a Map/List y JsonNode ----
+
+    private static Object field(Object current, String name) {
+        if (current instanceof Map<?, ?> m)
+            return m.get(name);
+        if (current instanceof JsonNode n && n.isObject())
+            return n.get(name);
+        return null;
+    }
+
+    private static Object element(Object current, int index) {
+        if (current instanceof List<?> list) {
+            int i = index < 0 ? list.size() + index : index;
+            return i >= 0 && i < list.size() ? list.get(i) : null;
+        }
+        if (current instanceof JsonNode n && n.isArray()) {
+            int i = index < 0 ? n.size() + index : index;
+            return i >= 0 && i < n.size() ? n.get(i) : null;
+        }
+        return null;
+    }
+
+    private static int size(Object current) {
+        if (current instanceof List<?> list)
+            return list.size();
+        if (current instanceof JsonNode n && n.isArray())
+            return n.size();
+        return -1;
+    }
+
+    private static Iterator<?> children(Object current) {
+        if (current instanceof List<?> list)
+            return list.iterator();
+        if (current instanceof Map<?, ?> m)
+            return m.values().iterator();
+        if (current instanceof JsonNode n && n.isContainerNode())
+            return n.elements();
+        return Collections.emptyIterator();
+    }
+
+    private static boolean isMissing(Object value) {
+        return value instanceof JsonNode n && (n.isMissingNode() || n.isNull());
+    }
+
+    private static Object unwrapMissing(Object value) {
+        return isMissing(value) ? null : value;
+    }
+
+    private static Object scalar(Object value) {
+        if (value instanceof JsonNode n) {
+            if (n.isNumber())
+                return n.numberValue();
+            if (n.isTextual())
+                return n.textValue();
+            if (n.isBoolean())
+                return n.booleanValue();
+            return n.isNull() ? null : n;
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    /**
+     * Parser de una pasada, sin expresiones regulares.
+     */
+    private static final class Parser {
+        private final String src;
+        private int pos;
+
+        Parser(String src) {
+            this.src = Objects.requireNonNull(src, "path");
+        }
+
+        JsonPath parse() {
+            List<Segment> segments = new ArrayList<>();
+            skipSpaces();
+            if (peek() == '$')
+                pos++;
+            else if (peek() == '@')
+                pos++;
+            else if (pos < src.length() && peek() != '[' && peek() != '.')
+                segments.add(fieldOrWildcard()); // forma heredada: "a.b" sin "$."
+
+            while (pos < src.length()) {
+                char c = src.charAt(pos);
+                if (c == '.') {
+                    pos++;
+                    segments.add(fieldOrWildcard());
+                } else if (c == '[') {
+                    pos++;
+                    segments.add(bracket());
+                } else if (Character.isWhitespace(c)) {
+                    skipSpaces();
+                } else {
+                    throw error("unexpected '" + c + "'");
+                }
+            }
+            return new JsonPath(src, segments);
+        }
+
+        private Segment fieldOrWildcard() {
+            if (peek() == '*') {
+                pos++;
+                return new Segment(Kind.WILDCARD);
+            }
+            int start = pos;
+            while (pos < src.length() && src.charAt(pos) != '.' && src.charAt(pos) != '[')
+                pos++;
+            String name = src.substring(start, pos);
+            if (name.isEmpty())
+                throw error("empty field name");
+            Segment s = new Segment(Kind.FIELD);
+            s.name = name;
+            return s;
+        }
+
+        private Segment bracket() {
+            skipSpaces();
+            char c = peek();
+            Segment s;
+            if (c == '*') {
+                pos++;
+                s = new Segment(Kind.WILDCARD);
+            } else if (c == '\'' || c == '"') {
+                s = new Segment(Kind.FIELD);
+                s.name = quoted();
+            } else if (c == '?') {
+                pos++;
+                s = filter();
+            } else {
+                s = indexOrSlice();
+            }
+            skipSpaces();
+            expect(']');
+            return s;
+        }
+
+        private Segment indexOrSlice() {
+            Integer first = optionalInt();
+            if (peek() != ':') {
+                if (first == null)
+                    throw error("expected index");
+                Segment s = new Segment(Kind.INDEX);
+                s.index = first;
+                return s;
+            }
+            Segment s = new Segment(Kind.SLICE);
+            s.start = first;
+            pos++;
+            s.end = optionalInt();
+            if (peek() == ':') {
+                pos++;
+                Integer step = optionalInt();
+                s.step = step == null ? 1 : step;
+                if (s.step == 0)
+                    throw error("slice step cannot be 0");
+            }
+            return s;
+        }
+
+        private Segment filter() {
+            skipSpaces();
+            expect('(');
+            skipSpaces();
+            if (peek() != '@')
+                throw error("filter must start with @");
+            int start = pos;
+            while (pos < src.length() && "=!<>)".indexOf(src.charAt(pos)) < 0
+                    && !Character.isWhitespace(src.charAt(pos)))
+                pos++;
+            Segment s = new Segment(Kind.FILTER);
+            s.filterPath = new Parser(src.substring(start, pos)).parse();
+            if (!s.filterPath.definite)
+                throw error("filter path must use fields and indexes only");
+            skipSpaces();
+
+            if (peek() == ')') {
+                s.op = Op.EXISTS;
+            } else {
+                s.op = operator();
+                skipSpaces();
+                s.literal = literal();
+                skipSpaces();
+            }
+            expect(')');
+            return s;
+        }
+
+        private Op operator() {
+            String two = pos + 2 <= src.length() ? src.substring(pos, pos + 2) : "";
+            Op op = switch (two) {
+                case "==" -> Op.EQ;
+                case "!=" -> Op.NE;
+                case "<=" -> Op.LE;
+                case ">=" -> Op.GE;
+                default -> null;
+            };
+            if (op != null) {
+                pos += 2;
+                return op;
+            }
+            char c = peek();
+            pos++;
+            return switch (c) {
+                case '<' -> Op.LT;
+                case '>' -> Op.GT;
+                default -> throw error("unknown operator");
+            };
+        }
+
+        private Object literal() {
+            char c = peek();
+            if (c == '\'' || c == '"')
+                return quoted();
+            int start = pos;
+            while (pos < src.length() && src.charAt(pos) != ')' && !Character.isWhitespace(src.charAt(pos)))
+                pos++;
+            String raw = src.substring(start, pos);
+            switch (raw) {
+                case "true":
+                    return Boolean.TRUE;
+                case "false":
+                    return Boolean.FALSE;
+                case "null":
+                    return null;
+                default:
+                    try {
+                        return raw.contains(".") ? (Object) Double.parseDouble(raw) : (Object) Long.parseLong(raw);
+                    } catch (NumberFormatException e) {
+                        throw error("invalid literal '" + raw + "'");
+                    }
+            }
+        }
+
+        private String quoted() {
+            char quote = src.charAt(pos++);
+            StringBuilder sb = new StringBuilder();
+            while (pos < src.length() && src.charAt(pos) != quote) {
+                char c = src.charAt(pos++);
+                if (c == '\\' && pos < src.length())
+                    c = src.charAt(pos++);
+                sb.append(c);
+            }
+            expect(quote);
+            return sb.toString();
+        }
+
+        private Integer optionalInt() {
+            skipSpaces();
+            int start = pos;
+            if (peek() == '-')
+                pos++;
+            while (pos < src.length() && Character.isDigit(src.charAt(pos)))
+                pos++;
+            if (start == pos)
+                return null;
+            try {
+                return Integer.parseInt(src.substring(start, pos));
+            } catch (NumberFormatException e) {
+                throw error("invalid number");
+            } finally {
+                skipSpaces();
+            }
+        }
+
+        private void expect(char c) {
+            if (peek() != c)
+                throw error("expected '" + c + "'");
+            pos++;
+        }
+
+        private char peek() {
+            return pos < src.length() ? src.charAt(pos) : '\0';
+        }
+
+        private void skipSpaces() {
+            while (pos < src.length() && Character.isWhitespace(src.charAt(pos)))
+                pos++;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Invalid JSONPath '" + src + "' at " + pos + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.miniflow.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Extrae rutas JSON de un cuerpo que todavía está llegando, sin construir el
+ * árbol completo. Las rutas son las de {@link JsonPath}.
+ *
+ * El parser recorre los tokens siguiendo los campos iniciales de cada ruta:
+ * los subárboles que no llevan a ninguna se saltan con skipChildren y solo se
+ * materializa el valor donde acaban esos campos; el resto de la ruta
+ * (índices, filtros...) se evalúa sobre él. En cuanto están todas, se deja
+ * de leer. Si hay claves duplicadas gana la primera (el árbol completo se
+ * quedaría con la última). Una ruta sin campos iniciales ("$[0]") obliga a
+ * leer el documento entero.
+ *
+ * Además se guardan como vista previa los primeros previewBytes del cuerpo.
+ */
+public final class JsonStreamExtractor {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final JsonFactory factory = mapper.getFactory();
+
+    private JsonStreamExtractor() {
+    }
+
+    /**
+     * @param values    valor encontrado por ruta (las que no aparecen no están)
+     * @param tree      árbol completo, solo si se pidió conservarlo
+     * @param bytes     bytes leídos del cuerpo
+     * @param preview   primeros bytes del cuerpo como texto
+     * @param truncated true si la vista previa no cubre el cuerpo entero
+     */
+    public record Result(Map<String, Object> values, Object tree, long bytes, String preview, boolean truncated) {
+    }
+
+    /**
+     * Nodo del árbol de rutas: qué campos interesan a partir de este punto.
+     */
+    private static final class PathNode {
+        final int depth;
+        final Map<String, PathNode> children = new HashMap<>();
+        final Map<String, JsonPath> paths = new LinkedHashMap<>(2); // ruta original -> compilada
+
+        PathNode(int depth) {
+            this.depth = depth;
+        }
+    }
+
+    /**
+     * Consume y cierra el stream.
+     */
+    public static Result extract(InputStream body, Collection<String> paths, boolean keepTree, int previewBytes) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        Object tree = null;
+        boolean complete = false;
+
+        try (CapturingStream in = new CapturingStream(body, Math.max(0, previewBytes))) {
+            try (JsonParser parser = factory.createParser(in)) {
+                PathNode root = compile(paths);
+                if (keepTree || !root.paths.isEmpty()) {
+                    Object whole = parser.nextToken() == null ? null : mapper.readValue(parser, Object.class);
+                    collect(root, whole, values);
+                    tree = keepTree ? whole : null;
+                    complete = true;
+                } else {
+                    int wanted = countPaths(root);
+                    JsonToken first = parser.nextToken();
+                    if (first == JsonToken.START_OBJECT && wanted > 0)
+                        complete = walkObject(parser, root, values, wanted) && drained(parser);
+                    else if (first != null) {
+                        parser.skipChildren();
+                        complete = drained(parser);
+                    } else
+                        complete = true;
+                }
+            } catch (Exception e) {
+                // Cuerpo no JSON: igual que tryParse, sin valores; la vista previa sí vale
+                System.err.println("[JsonStreamExtractor] Error parsing streamed body: " + e.getMessage());
+                in.fillPreview();
+            }
+            return new Result(values, tree, in.count, in.preview(), !complete || in.count > previewBytes);
+        } catch (IOException e) {
+            System.err.println("[JsonStreamExtractor] Error closing streamed body: " + e.getMessage());
+            return new Result(values, tree, 0, "", true);
+        }
+    }
+
+    private static PathNode compile(Collection<String> paths) {
+        PathNode root = new PathNode(0);
+        for (String original : paths) {
+            if (original == null || original.isBlank())
+                continue;
+            JsonPath path;
+            try {
+                path = JsonPath.compile(original);
+            } catch (IllegalArgumentException e) {
+                System.err.println("[JsonStreamExtractor] " + e.getMessage());
+                continue;
+            }
+            PathNode node = root;
+            for (String field : path.fieldPrefix()) {
+                int depth = node.depth + 1;
+                node = node.children.computeIfAbsent(field, k -> new PathNode(depth));
+            }
+            node.paths.putIfAbsent(original, path);
+        }
+        return root;
+    }
+
+    private static int countPaths(PathNode node) {
+        int count = node.paths.size();
+        for (PathNode child : node.children.values())
+            count += countPaths(child);
+        return count;
+    }
+
+    /**
+     * Recorre un objeto ya abierto (START_OBJECT consumido). Devuelve false si
+     * se paró antes de tiempo porque ya estaban todas las rutas.
+     */
+    private static boolean walkObject(JsonParser parser, PathNode node, Map<String, Object> values, int wanted)
+            throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            PathNode child = node.children.get(parser.currentName());
+            JsonToken valueToken = parser.nextToken();
+            if (child == null) {
+                parser.skipChildren();
+                continue;
+            }
+            if (!child.paths.isEmpty()) {
+                // Ruta completa: se materializa el valor y, si hay rutas más
+                // largas por debajo, se resuelven sobre él
+                Object value = mapper.readValue(parser, Object.class);
+                collect(child, value, values);
+            } else if (valueToken == JsonToken.START_OBJECT) {
+                if (!walkObject(parser, child, values, wanted))
+                    return false;
+            } else {
+                parser.skipChildren();
+            }
+            if (values.size() >= wanted)
+                return false;
+        }
+        return token != null;
+    }
+
+    private static void collect(PathNode node, Object value, Map<String, Object> values) {
+        if (value == null)
+            return;
+        node.paths.forEach((original, path) -> {
+            Object found = path.readFrom(value, node.depth);
+            if (found != null)
+                values.putIfAbsent(original, found);
+        });
+        if (value instanceof Map<?, ?> map)
+            node.children.forEach((name, child) -> collect(child, map.get(name), values));
+    }
+
+    private static boolean drained(JsonParser parser) throws IOException {
+        return parser.nextToken() == null;
+    }
+
+    /**
+     * Cuenta los bytes leídos y copia los primeros en la vista previa.
+     */
+    private static final class CapturingStream extends FilterInputStream {
+        private final ByteArrayOutputStream head;
+        private final int limit;
+        long count;
+
+        CapturingStream(InputStream in, int limit) {
+            super(in);
+            this.limit = limit;
+            this.head = new ByteArrayOutputStream(Math.min(limit, 8192));
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                if (count < limit)
+                    head.write(b);
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            int n = super.read(buf, off, len);
+            if (n > 0) {
+                int keep = (int) Math.min(n, Math.max(0, limit - count));
+                head.write(buf, off, keep);
+                count += n;
+            }
+            return n;
+        }
+
+        void fillPreview() {
+            byte[] buf = new byte[1024];
+            try {
+                while (count < limit && read(buf, 0, buf.length) > 0) {
+                    // solo interesa lo que queda capturado
+                }
+            } catch (IOException ignored) {
+                // La vista previa se queda con lo que hubiera
+            }
+        }
+
+        String preview() {
+            return head.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.miniflow.utils;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import java.util.Map;
 
 public class JsonUtils {
     private static final ObjectMapper mapper = new ObjectMapper();
@@ -17,22 +16,31 @@ public class JsonUtils {
         }
     }
 
+    /**
+     * Serializa a JSON de una sola línea. Nunca lanza: ante un error devuelve "{}".
+     */
+    public static String toJson(Object value) {
+        try {
+            return mapper.writeValueAsString(value);
+        } catch (Exception e) {
+            System.err.println("[JsonUtils - toJson] Error serializing value: " + e.getMessage());
+            return "{}";
+        }
+    }
+
+    /**
+     * REFACTOR: Delega en {@link JsonPath}, que compila la ruta una vez y la
+     * guarda en caché. Además de "$.a.b" admite índices, slices, comodines y
+     * filtros. Una ruta mal escrita se trata como "no encontrada".
+     */
     public static Object extractByPath(Object parsed, String path) {
         if (parsed == null || path == null || path.isBlank())
             return null;
-        if (path.startsWith("$."))
-            path = path.substring(2);
-
-        String[] parts = path.split("\\.");
-        Object current = parsed;
-
-        for (String part : parts) {
-            if (current instanceof Map<?, ?> m) {
-                current = m.get(part);
-            } else {
-                return null;
-            }
+        try {
+            return JsonPath.compile(path).read(parsed);
+        } catch (IllegalArgumentException e) {
+            System.err.println("[JsonUtils - extractByPath] " + e.getMessage());
+            return null;
         }
-        return current;
     }
 }
\ No newline at end of file
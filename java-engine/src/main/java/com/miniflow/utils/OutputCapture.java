@@ -0,0 +1,217 @@
+package com.miniflow.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Captura acotada de la salida de un proceso.
+ *
+ * Se guardan los primeros headBytes y los últimos tailBytes (anillo), junto
+ * con el total de bytes, las líneas y el SHA-256 de todo lo recibido. Con
+ * spill la salida completa se copia además a un fichero temporal mediante un
+ * FileChannel. La memoria usada no depende del tamaño de la salida.
+ *
+ * No es thread-safe: cada stream tiene su propia captura y un único lector.
+ */
+public final class OutputCapture {
+
+    private final byte[] head;
+    private final byte[] tail;
+    private int headSize;
+    private long tailWritten;
+    private long bytes;
+    private long lines;
+    private boolean endsWithNewline = true;
+    private final MessageDigest digest;
+    private Path spillFile;
+    private FileChannel spill;
+
+    public OutputCapture(int headBytes, int tailBytes, boolean spillToFile) throws IOException {
+        this.head = new byte[Math.max(0, headBytes)];
+        this.tail = new byte[Math.max(0, tailBytes)];
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        if (spillToFile) {
+            spillFile = Files.createTempFile("miniflow-cmd-", ".log");
+            spill = FileChannel.open(spillFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+    }
+
+    /**
+     * Consume los bytes restantes del buffer (queda con position == limit).
+     */
+    public void write(ByteBuffer chunk) throws IOException {
+        int start = chunk.position();
+        int length = chunk.remaining();
+        if (length == 0)
+            return;
+
+        if (spill != null) {
+            ByteBuffer copy = chunk.duplicate();
+            while (copy.hasRemaining())
+                spill.write(copy);
+        }
+
+        byte[] array = chunk.array();
+        int offset = chunk.arrayOffset() + start;
+        digest.update(array, offset, length);
+        for (int i = 0; i < length; i++) {
+            if (array[offset + i] == '\n')
+                lines++;
+        }
+        endsWithNewline = array[offset + length - 1] == '\n';
+        bytes += length;
+
+        int toHead = Math.min(head.length - headSize, length);
+        if (toHead > 0) {
+            System.arraycopy(array, offset, head, headSize, toHead);
+            headSize += toHead;
+        }
+        int rest = length - toHead;
+        if (rest > 0 && tail.length > 0) {
+            // Solo los últimos tail.length bytes pueden sobrevivir en el anillo
+            int skip = Math.max(0, rest - tail.length);
+            tailWritten += skip;
+            for (int i = offset + toHead + skip, end = offset + length; i < end;) {
+                int pos = (int) (tailWritten % tail.length);
+                int n = Math.min(end - i, tail.length - pos);
+                System.arraycopy(array, i, tail, pos, n);
+                tailWritten += n;
+                i += n;
+            }
+        } else {
+            tailWritten += rest;
+        }
+        chunk.position(start + length);
+    }
+
+    /**
+     * Cierra el fichero de volcado, si lo hay. Se puede llamar varias veces.
+     */
+    public void close() throws IOException {
+        if (spill != null) {
+            spill.close();
+            spill = null;
+        }
+    }
+
+    public long bytes() {
+        return bytes;
+    }
+
+    /**
+     * Líneas completas más la última si no termina en salto de línea.
+     */
+    public long lines() {
+        return lines + (endsWithNewline ? 0 : 1);
+    }
+
+    public boolean truncated() {
+        return tailWritten > tail.length;
+    }
+
+    public Path spillFile() {
+        return spillFile;
+    }
+
+    public String sha256() {
+        try {
+            return HexFormat.of().formatHex(((MessageDigest) digest.clone()).digest());
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Texto capturado. Si la salida no cabía, cabeza y cola separadas por un
+     * marcador con los bytes omitidos. Nunca se corta un carácter UTF-8.
+     *
+     * Los saltos de línea se normalizan como hacía OSUtils.readStream: \r\n y
+     * \r pasan a \n y un texto no vacío siempre termina en \n, así stdout y el
+     * outputKey son iguales en Windows y en Linux. Los bytes sin tocar quedan
+     * en el SHA-256 y en el fichero de volcado.
+     */
+    public String text() {
+        return normalizeLines(decoded());
+    }
+
+    static String normalizeLines(String raw) {
+        if (raw.isEmpty())
+            return raw;
+        String text = raw.indexOf('\r') < 0 ? raw : raw.replace("\r\n", "\n").replace('\r', '\n');
+        return text.endsWith("\n") ? text : text + "\n";
+    }
+
+    private String decoded() {
+        if (tailWritten == 0)
+            return new String(head, 0, headSize, StandardCharsets.UTF_8);
+
+        int kept = (int) Math.min(tailWritten, tail.length);
+        if (!truncated()) {
+            // Cabeza y cola son contiguas: se decodifican juntas
+            byte[] all = new byte[headSize + kept];
+            System.arraycopy(head, 0, all, 0, headSize);
+            System.arraycopy(tail, 0, all, headSize, kept);
+            return new String(all, StandardCharsets.UTF_8);
+        }
+
+        byte[] ordered = new byte[kept];
+        int start = kept == 0 ? 0 : (int) ((tailWritten - kept) % tail.length);
+        int firstPart = Math.min(kept, tail.length - start);
+        System.arraycopy(tail, start, ordered, 0, firstPart);
+        System.arraycopy(tail, 0, ordered, firstPart, kept - firstPart);
+
+        int headEnd = completeUtf8End(head, headSize);
+        String first = new String(head, 0, headEnd, StandardCharsets.UTF_8);
+        int from = 0;
+        while (from < ordered.length && (ordered[from] & 0xC0) == 0x80)
+            from++;
+        long omitted = bytes - headEnd - (kept - from);
+        return first + "\n...[" + omitted + " bytes omitted]...\n"
+                + new String(ordered, from, ordered.length - from, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Resumen para el output del nodo.
+     */
+    public Map<String, Object> describe() {
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("bytes", bytes);
+        info.put("lines", lines());
+        info.put("sha256", sha256());
+        info.put("truncated", truncated());
+        if (spillFile != null)
+            info.put("file", spillFile.toString());
+        return info;
+    }
+
+    /**
+     * Longitud hasta el último carácter UTF-8 completo de buf[0, size).
+     */
+    private static int completeUtf8End(byte[] buf, int size) {
+        int i = size - 1;
+        int continuation = 0;
+        while (i >= 0 && (buf[i] & 0xC0) == 0x80 && continuation < 3) {
+            i--;
+            continuation++;
+        }
+        if (i < 0)
+            return size;
+        int lead = buf[i] & 0xFF;
+        int expected = lead < 0x80 ? 0 : lead >= 0xF0 ? 3 : lead >= 0xE0 ? 2 : lead >= 0xC0 ? 1 : 0;
+        return continuation >= expected ? size : i;
+    }
+}
@@ -0,0 +1,174 @@
+package com.miniflow.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Bombas de E/S de un proceso: lectura de stdout / stderr y escritura de stdin.
+ *
+ * REFACTOR: Antes se leía con supplyAsync en el ForkJoinPool común, que las
+ * ramas paralelas podían dejar sin hilos, y todo se acumulaba en un
+ * StringBuilder. Ahora cada stream tiene su propio hilo (virtual por defecto,
+ * o daemon de plataforma con command.pumpThreads=daemon) que lee por un canal
+ * NIO en bloques, alimenta una {@link OutputCapture} acotada y entrega cada
+ * línea completa al consumidor (eventos hacia la UI) a medida que llega.
+ */
+public final class ProcessPump {
+
+    private static final int CHUNK = 8192;
+    private static final AtomicLong SEQ = new AtomicLong();
+
+    private ProcessPump() {
+    }
+
+    /**
+     * Arranca la lectura. El futuro se completa con la captura (ya cerrada) al
+     * llegar a EOF. lineSink puede ser null; las líneas más largas que
+     * maxLineBytes se entregan cortadas y marcadas con "...".
+     */
+    public static CompletableFuture<OutputCapture> start(String name, InputStream in, OutputCapture capture,
+            Consumer<String> lineSink, int maxLineBytes) {
+        CompletableFuture<OutputCapture> done = new CompletableFuture<>();
+        Runnable task = () -> {
+            try (ReadableByteChannel channel = Channels.newChannel(in)) {
+                pump(channel, capture, lineSink, maxLineBytes);
+                done.complete(capture);
+            } catch (Throwable t) {
+                try {
+                    capture.close();
+                } catch (Exception ignored) {
+                    // el error original es el relevante
+                }
+                done.completeExceptionally(t);
+            }
+        };
+        startThread(name, task);
+        return done;
+    }
+
+    /**
+     * Escribe el texto en stdin del proceso desde su propio hilo, a la vez que
+     * las bombas de lectura consumen la salida, y cierra stdin al terminar. Se
+     * codifica por bloques: nunca se materializa el texto entero en bytes.
+     *
+     * Si el proceso termina sin leerlo todo (tubería rota) no es un error: el
+     * futuro se completa con los bytes que llegaron a escribirse.
+     */
+    public static CompletableFuture<Long> feed(OutputStream stdin, String text) {
+        CompletableFuture<Long> done = new CompletableFuture<>();
+        startThread("in", () -> {
+            long written = 0;
+            try (OutputStream out = stdin) {
+                for (int from = 0; from < text.length();) {
+                    int to = Math.min(text.length(), from + CHUNK);
+                    if (to < text.length() && Character.isHighSurrogate(text.charAt(to - 1)))
+                        to--;
+                    byte[] bytes = text.substring(from, to).getBytes(StandardCharsets.UTF_8);
+                    out.write(bytes);
+                    written += bytes.length;
+                    from = to;
+                }
+            } catch (IOException e) {
+                // El proceso cerró stdin antes de tiempo
+            } finally {
+                done.complete(written);
+            }
+        });
+        return done;
+    }
+
+    private static void startThread(String name, Runnable task) {
+        String threadName = "miniflow-pump-" + name + "-" + SEQ.incrementAndGet();
+        if ("daemon".equals(EngineConfig.getString("command.pumpThreads", "virtual").toLowerCase(Locale.ROOT)))
+            Thread.ofPlatform().daemon().name(threadName).start(task);
+        else
+            Thread.ofVirtual().name(threadName).start(task);
+    }
+
+    private static void pump(ReadableByteChannel channel, OutputCapture capture, Consumer<String> lineSink,
+            int maxLineBytes) throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK);
+        Feed feed = new Feed(capture, lineSink, maxLineBytes);
+        while (channel.read(buffer) >= 0) {
+            buffer.flip();
+            feed.write(buffer);
+            buffer.clear();
+        }
+        feed.finish();
+    }
+
+    /**
+     * Parte de la bomba que no lee: alimenta la captura y corta las líneas de
+     * los bloques que se le entregan. Sirve para salidas que llegan por otra
+     * vía (p. ej. los frames de un worker Python) en el hilo que las recibe.
+     */
+    public static final class Feed {
+        private final OutputCapture capture;
+        private final Consumer<String> lineSink;
+        private final int maxLineBytes;
+        private byte[] line;
+        private int lineSize;
+        private boolean overflow;
+
+        public Feed(OutputCapture capture, Consumer<String> lineSink, int maxLineBytes) {
+            this.capture = capture;
+            this.lineSink = lineSink;
+            this.maxLineBytes = Math.max(16, maxLineBytes);
+            this.line = new byte[Math.min(this.maxLineBytes, 1024)];
+        }
+
+        /**
+         * Consume los bytes restantes del buffer (heap).
+         */
+        public void write(ByteBuffer chunk) throws IOException {
+            if (lineSink != null) {
+                byte[] array = chunk.array();
+                for (int i = chunk.arrayOffset() + chunk.position(), end = chunk.arrayOffset() + chunk.limit();
+                        i < end; i++) {
+                    byte b = array[i];
+                    if (b == '\n') {
+                        lineSink.accept(decode(line, lineSize, overflow));
+                        lineSize = 0;
+                        overflow = false;
+                    } else if (lineSize < maxLineBytes) {
+                        if (lineSize == line.length)
+                            line = Arrays.copyOf(line, Math.min(maxLineBytes, line.length * 2));
+                        line[lineSize++] = b;
+                    } else {
+                        overflow = true;
+                    }
+                }
+            }
+            capture.write(chunk);
+        }
+
+        /**
+         * Entrega la última línea sin salto y cierra la captura.
+         */
+        public OutputCapture finish() throws IOException {
+            if (lineSink != null && (lineSize > 0 || overflow))
+                lineSink.accept(decode(line, lineSize, overflow));
+            lineSize = 0;
+            overflow = false;
+            capture.close();
+            return capture;
+        }
+    }
+
+    private static String decode(byte[] line, int size, boolean overflow) {
+        if (size > 0 && line[size - 1] == '\r')
+            size--;
+        String text = new String(line, 0, size, StandardCharsets.UTF_8);
+        return overflow ? text + "..." : text;
+    }
+}
@@ -0,0 +1,244 @@
+package com.miniflow.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pool de procesos Python de larga vida para los nodos COMMAND que ejecutan
+ * scripts (opt-in, ver CommandStrategy).
+ *
+ * Arrancar un intérprete e importar librerías pesadas (pandas...) cuesta
+ * cientos de ms por nodo. Cada worker ejecuta miniflow/python_worker.py y
+ * atiende trabajos en serie con un protocolo de frames por stdin/stdout
+ * (longitud big-endian de 4 bytes + cuerpo). Los módulos importados quedan en
+ * memoria entre trabajos. La salida del script llega en bloques mientras se
+ * ejecuta y se entrega a un {@link Output}; un frame mayor que MAX_FRAME se
+ * rechaza antes de reservar memoria y el worker se descarta.
+ *
+ * Un worker se descarta tras python.pool.maxJobs trabajos, si muere durante
+ * un trabajo o si se pasa del timeout. Hay un pool por intérprete
+ * ("python", "python3"...) con hasta python.pool.size workers.
+ */
+public final class PythonWorkerPool {
+
+    /**
+     * Trabajo: script, argumentos, carpeta de trabajo (null = la del motor) y
+     * stdin: texto o fichero que el worker abre directamente (null = vacío).
+     */
+    public record Job(String script, List<String> args, String cwd, String stdin, String stdinFile) {
+
+        public Job(String script, List<String> args, String cwd, String stdin) {
+            this(script, args, cwd, stdin, null);
+        }
+    }
+
+    /**
+     * Resultado del script. pid y jobs identifican al worker que lo ejecutó.
+     */
+    public record Result(int exitCode, long pid, int jobs) {
+    }
+
+    /**
+     * Recibe la salida del script bloque a bloque, en el hilo que llamó a run.
+     */
+    @FunctionalInterface
+    public interface Output {
+        void write(boolean stderr, ByteBuffer chunk) throws IOException;
+    }
+
+    /**
+     * El worker manda bloques de 64 KiB como mucho; el margen cubre el JSON
+     * del resultado.
+     */
+    static final int MAX_FRAME = 1 << 20;
+
+    private static final Map<String, PythonWorkerPool> POOLS = new ConcurrentHashMap<>();
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "miniflow-python-watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+    private static volatile Path bootstrap;
+
+    private final String interpreter;
+    private final int maxJobs;
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<Worker> idle = new ConcurrentLinkedDeque<>();
+
+    PythonWorkerPool(String interpreter, int size, int maxJobs) {
+        this.interpreter = interpreter;
+        this.maxJobs = Math.max(1, maxJobs);
+        this.permits = new Semaphore(Math.max(1, size));
+    }
+
+    public static PythonWorkerPool forInterpreter(String interpreter) {
+        return POOLS.computeIfAbsent(interpreter, key -> new PythonWorkerPool(key,
+                EngineConfig.getInt("python.pool.size", 2),
+                EngineConfig.getInt("python.pool.maxJobs", 100)));
+    }
+
+    /**
+     * Ejecuta el trabajo en un worker libre (o uno nuevo). Si no hay ninguno
+     * libre y el pool está lleno, espera a que se libere uno. Bloquea el hilo
+     * actual: desde una rama, llamarlo dentro de BranchExecutors.block.
+     */
+    public Result run(Job job, long timeoutMs, Output output) throws Exception {
+        permits.acquire();
+        try {
+            Worker worker = idle.pollFirst();
+            while (worker != null && !worker.process.isAlive()) {
+                worker.destroy();
+                worker = idle.pollFirst();
+            }
+            if (worker == null)
+                worker = new Worker(spawn());
+
+            Worker current = worker;
+            AtomicBoolean timedOut = new AtomicBoolean();
+            ScheduledFuture<?> kill = WATCHDOG.schedule(() -> {
+                timedOut.set(true);
+                current.process.destroyForcibly();
+            }, timeoutMs, TimeUnit.MILLISECONDS);
+
+            Result result;
+            try {
+                result = current.call(job, output);
+            } catch (IOException e) {
+                current.destroy();
+                if (timedOut.get())
+                    throw new Exception("Command Execution Time Out Exceeded (" + timeoutMs + "ms)");
+                // El worker murió en mitad del trabajo (os._exit, segfault...) o mandó un frame inválido
+                int exit = current.process.waitFor(1, TimeUnit.SECONDS) ? current.process.exitValue() : -1;
+                output.write(true, ByteBuffer.wrap(("Python worker crashed: " + e.getMessage())
+                        .getBytes(StandardCharsets.UTF_8)));
+                return new Result(exit == 0 ? -1 : exit, current.process.pid(), current.jobs);
+            } finally {
+                kill.cancel(false);
+            }
+
+            if (current.jobs >= maxJobs || !current.process.isAlive())
+                current.destroy();
+            else
+                idle.offerFirst(current);
+            return result;
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Termina los workers libres (los ocupados se cierran al acabar su trabajo
+     * si ya no vuelven al pool).
+     */
+    public void shutdown() {
+        Worker worker;
+        while ((worker = idle.pollFirst()) != null)
+            worker.destroy();
+    }
+
+    int idleWorkers() {
+        return idle.size();
+    }
+
+    private Process spawn() throws IOException {
+        ProcessBuilder pb = new ProcessBuilder(interpreter, "-u", bootstrap().toString());
+        // Lo que el script escriba fuera del protocolo (fd 1/2 directos) no se usa
+        pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+        return pb.start();
+    }
+
+    private static Path bootstrap() throws IOException {
+        Path path = bootstrap;
+        if (path != null && Files.exists(path))
+            return path;
+        synchronized (PythonWorkerPool.class) {
+            if (bootstrap == null || !Files.exists(bootstrap)) {
+                Path tmp = Files.createTempFile("miniflow-python-worker-", ".py");
+                try (InputStream in = PythonWorkerPool.class.getResourceAsStream("/miniflow/python_worker.py")) {
+                    if (in == null)
+                        throw new IOException("Missing resource miniflow/python_worker.py");
+                    Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+                }
+                tmp.toFile().deleteOnExit();
+                bootstrap = tmp;
+            }
+            return bootstrap;
+        }
+    }
+
+    private static final class Worker {
+        final Process process;
+        final DataOutputStream out;
+        final DataInputStream in;
+        int jobs;
+
+        Worker(Process process) {
+            this.process = process;
+            this.out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            this.in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+        }
+
+        Result call(Job job, Output output) throws IOException {
+            Map<String, Object> request = new LinkedHashMap<>();
+            request.put("script", job.script());
+            request.put("args", job.args() == null ? List.of() : new ArrayList<>(job.args()));
+            request.put("cwd", job.cwd());
+            request.put("stdin", job.stdin());
+            request.put("stdinFile", job.stdinFile());
+            byte[] body = JsonUtils.toJson(request).getBytes(StandardCharsets.UTF_8);
+            out.writeInt(body.length);
+            out.write(body);
+            out.flush();
+
+            byte[] buffer = new byte[8192];
+            while (true) {
+                int length = in.readInt();
+                if (length < 1 || length > MAX_FRAME)
+                    throw new IOException("Invalid frame length from Python worker: " + length);
+                int kind = in.readUnsignedByte();
+                if (kind == 'r') {
+                    byte[] json = new byte[length - 1];
+                    in.readFully(json);
+                    jobs++;
+                    if (!(JsonUtils.tryParse(new String(json, StandardCharsets.UTF_8)) instanceof Map<?, ?> map))
+                        throw new IOException("Invalid frame from Python worker");
+                    return new Result(TypeConverter.asInt(map.get("exitCode"), -1), process.pid(), jobs);
+                }
+                if (kind != 'o' && kind != 'e')
+                    throw new IOException("Unknown frame type from Python worker: " + kind);
+                // Bloque de salida: se entrega por trozos, sin reservar el frame entero
+                for (int left = length - 1; left > 0;) {
+                    int n = Math.min(left, buffer.length);
+                    in.readFully(buffer, 0, n);
+                    output.write(kind == 'e', ByteBuffer.wrap(buffer, 0, n));
+                    left -= n;
+                }
+            }
+        }
+
+        void destroy() {
+            process.destroyForcibly();
+        }
+    }
+}
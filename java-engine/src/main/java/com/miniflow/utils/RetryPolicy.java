@@ -0,0 +1,107 @@
+package com.miniflow.utils;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Política de reintentos de un nodo HTTP: backoff exponencial con tope y
+ * jitter, en lugar de reintentar en un bucle inmediato.
+ *
+ * Se lee de la config del nodo:
+ *   "retries": 3,
+ *   "retryPolicy": {"backoffMs": 100, "multiplier": 2, "maxBackoffMs": 5000,
+ *                   "jitter": "FULL", "retryOnStatus": [502, 503, 504]}
+ *
+ * Los valores que falten salen de EngineConfig (http.retry.*).
+ */
+public class RetryPolicy {
+
+    public enum Jitter {
+        /** Espera exacta: backoffMs * multiplier^(n-1). */
+        NONE,
+        /** Espera aleatoria entre 0 y la espera exponencial. */
+        FULL,
+        /** Mitad fija y mitad aleatoria. */
+        EQUAL
+    }
+
+    private final int maxRetries;
+    private final long backoffMs;
+    private final double multiplier;
+    private final long maxBackoffMs;
+    private final Jitter jitter;
+    private final Set<Integer> retryOnStatus;
+
+    public RetryPolicy(int maxRetries, long backoffMs, double multiplier, long maxBackoffMs, Jitter jitter,
+            Set<Integer> retryOnStatus) {
+        this.maxRetries = Math.max(0, maxRetries);
+        this.backoffMs = Math.max(0, backoffMs);
+        this.multiplier = multiplier < 1 ? 1 : multiplier;
+        this.maxBackoffMs = Math.max(this.backoffMs, maxBackoffMs);
+        this.jitter = jitter;
+        this.retryOnStatus = Set.copyOf(retryOnStatus);
+    }
+
+    /**
+     * Política con los valores por defecto del motor y "retries" reintentos.
+     */
+    public static RetryPolicy ofRetries(int retries) {
+        return from(Map.of("retries", retries));
+    }
+
+    public static RetryPolicy from(Map<String, Object> cfg) {
+        Map<?, ?> p = cfg.get("retryPolicy") instanceof Map<?, ?> m ? m : Map.of();
+
+        Set<Integer> statuses = new HashSet<>();
+        if (p.get("retryOnStatus") instanceof List<?> list)
+            list.forEach(s -> statuses.add(TypeConverter.asInt(s, -1)));
+
+        return new RetryPolicy(
+                TypeConverter.asInt(cfg.get("retries"), 0),
+                TypeConverter.asLong(p.get("backoffMs"), EngineConfig.getLong("http.retry.backoffMs", 100)),
+                TypeConverter.asDouble(p.get("multiplier"),
+                        TypeConverter.asDouble(EngineConfig.getString("http.retry.multiplier", null), 2.0)),
+                TypeConverter.asLong(p.get("maxBackoffMs"), EngineConfig.getLong("http.retry.maxBackoffMs", 5000)),
+                jitter(TypeConverter.asString(p.get("jitter")) != null
+                        ? TypeConverter.asString(p.get("jitter"))
+                        : EngineConfig.getString("http.retry.jitter", "FULL")),
+                statuses);
+    }
+
+    private static Jitter jitter(String name) {
+        try {
+            return Jitter.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("[RetryPolicy] Unknown jitter '" + name + "', using FULL");
+            return Jitter.FULL;
+        }
+    }
+
+    public int maxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Espera antes del reintento número "retry" (1 = primer reintento).
+     */
+    public long delayMs(int retry) {
+        double exp = backoffMs * Math.pow(multiplier, Math.max(0, retry - 1));
+        long capped = (long) Math.min(maxBackoffMs, exp);
+        return switch (jitter) {
+            case NONE -> capped;
+            case FULL -> capped == 0 ? 0 : ThreadLocalRandom.current().nextLong(capped + 1);
+            case EQUAL -> capped / 2 + (capped == 0 ? 0 : ThreadLocalRandom.current().nextLong(capped / 2 + 1));
+        };
+    }
+
+    /**
+     * true si una respuesta con este status se debe reintentar.
+     */
+    public boolean retriesStatus(int status) {
+        return retryOnStatus.contains(status);
+    }
+}
@@ -1,25 +1,186 @@
 package com.miniflow.utils;
 
 import com.miniflow.context.ExecutionContext;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * REFACTOR: Cada plantilla se compila una sola vez (caché por texto) a una
+ * lista de segmentos literal / variable, y el render solo concatena en un
+ * StringBuilder reutilizado por hilo: nada de regex en el camino caliente.
+ *
+ * Marcadores: {{ nombre }}, {{ context.nombre }} y rutas anidadas como
+ * {{ user.name }} o {{ items[0].id }} (se resuelven con {@link JsonPath}
+ * sobre la variable raíz). Lo que no encaja se deja tal cual en el texto.
+ */
 public class TemplateEngine {
-    private static final Pattern PATTERN = Pattern.compile("\\{\\{\\s*(?:context\\.)?([a-zA-Z0-9_]+)\\s*\\}\\}");
+
+    private static final int CACHE_LIMIT = 4096;
+    private static final int MAX_REUSED_BUILDER = 16 * 1024;
+    private static final Map<String, Template> CACHE = new ConcurrentHashMap<>();
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(256));
 
     public static String render(String input, ExecutionContext context) {
         if (input == null || input.isBlank()) return input;
+        return compile(input).render(context);
+    }
+
+    public static Template compile(String input) {
+        Template cached = CACHE.get(input);
+        if (cached != null)
+            return cached;
+        Template compiled = Template.parse(input);
+        if (CACHE.size() >= CACHE_LIMIT)
+            CACHE.clear();
+        CACHE.putIfAbsent(input, compiled);
+        return compiled;
+    }
+
+    /**
+     * Plantilla compilada. Los segmentos son String (literal) o Variable.
+     */
+    public static final class Template {
+        private final String source;
+        private final Object[] segments;
+
+        private Template(String source, Object[] segments) {
+            this.source = source;
+            this.segments = segments;
+        }
+
+        public String render(ExecutionContext context) {
+            if (segments.length == 0)
+                return "";
+            if (segments.length == 1)
+                return segments[0] instanceof String literal ? literal : text(((Variable) segments[0]).resolve(context));
 
-        Matcher matcher = PATTERN.matcher(input);
-        StringBuilder sb = new StringBuilder();
+            StringBuilder sb = BUILDER.get();
+            sb.setLength(0);
+            for (Object segment : segments) {
+                if (segment instanceof String literal)
+                    sb.append(literal);
+                else
+                    appendValue(sb, ((Variable) segment).resolve(context));
+            }
+            String result = sb.toString();
+            if (sb.capacity() > MAX_REUSED_BUILDER)
+                BUILDER.remove();
+            return result;
+        }
+
+        public String source() {
+            return source;
+        }
+
+        /**
+         * true si la plantilla no tiene marcadores.
+         */
+        public boolean isLiteral() {
+            return segments.length == 0 || (segments.length == 1 && segments[0] instanceof String);
+        }
+
+        private static String text(Object value) {
+            return value == null ? "" : String.valueOf(value);
+        }
+
+        private static void appendValue(StringBuilder sb, Object value) {
+            if (value instanceof CharSequence cs)
+                sb.append(cs);
+            else if (value != null)
+                sb.append(value);
+        }
+
+        static Template parse(String input) {
+            List<Object> segments = new ArrayList<>();
+            int literalStart = 0;
+            int pos = 0;
+            while (true) {
+                int open = input.indexOf("{{", pos);
+                if (open < 0)
+                    break;
+                int close = input.indexOf("}}", open + 2);
+                if (close < 0)
+                    break;
+                Variable variable = Variable.parse(input, open + 2, close);
+                if (variable == null) {
+                    pos = open + 1;
+                    continue;
+                }
+                if (open > literalStart)
+                    segments.add(input.substring(literalStart, open));
+                segments.add(variable);
+                literalStart = pos = close + 2;
+            }
+            if (literalStart < input.length())
+                segments.add(input.substring(literalStart));
+            return new Template(input, segments.toArray());
+        }
+    }
+
+    /**
+     * Variable raíz más ruta opcional dentro de ella.
+     */
+    private static final class Variable {
+        final String name;
+        final String fullName; // "user.name" tal cual, por si existe una variable con punto
+        final JsonPath path;
+
+        private Variable(String name, String fullName, JsonPath path) {
+            this.name = name;
+            this.fullName = fullName;
+            this.path = path;
+        }
+
+        Object resolve(ExecutionContext context) {
+            Object root = context.getVariable(name);
+            if (path == null)
+                return root;
+            Object nested = root == null ? null : path.read(root);
+            return nested != null ? nested : context.getVariable(fullName);
+        }
+
+        /**
+         * Contenido entre llaves: espacios, "context." opcional, un
+         * identificador [a-zA-Z0-9_] y, opcionalmente, ".campo" / "[n]".
+         * Devuelve null si no es un marcador válido.
+         */
+        static Variable parse(String src, int from, int to) {
+            while (from < to && Character.isWhitespace(src.charAt(from)))
+                from++;
+            while (to > from && Character.isWhitespace(src.charAt(to - 1)))
+                to--;
+            if (src.startsWith("context.", from) && from + 8 < to)
+                from += 8;
+
+            int end = from;
+            while (end < to && isIdentifierChar(src.charAt(end)))
+                end++;
+            if (end == from)
+                return null;
+            String name = src.substring(from, end);
+            if (end == to)
+                return new Variable(name, name, null);
+
+            char next = src.charAt(end);
+            if (next != '.' && next != '[')
+                return null;
+            for (int i = end; i < to; i++) {
+                char c = src.charAt(i);
+                if (!isIdentifierChar(c) && c != '.' && c != '[' && c != ']' && c != '-')
+                    return null;
+            }
+            try {
+                JsonPath path = JsonPath.compile("$" + src.substring(end, to));
+                return path.isDefinite() ? new Variable(name, src.substring(from, to), path) : null;
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
 
-        while (matcher.find()) {
-            String key = matcher.group(1);
-            Object value = context.getVariable(key);
-            String replacement = (value == null) ? "" : String.valueOf(value);
-            matcher.appendReplacement(sb, Matcher.quoteReplacement(replacement));
+        private static boolean isIdentifierChar(char c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
         }
-        matcher.appendTail(sb);
-        return sb.toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,66 @@
+package com.miniflow.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Planificador compartido de esperas (nodos TIMER).
+ *
+ * Un único hilo daemon guarda todos los plazos pendientes en la cola del
+ * ScheduledThreadPoolExecutor; una espera no ocupa ningún hilo hasta que
+ * vence. Al vencer, el futuro se completa desde el executor indicado (el de
+ * las ramas del workflow), de forma que la continuación nunca corre en el
+ * hilo del planificador.
+ */
+public final class Timers {
+
+    private static final ScheduledThreadPoolExecutor SCHEDULER = create();
+
+    private Timers() {
+    }
+
+    private static ScheduledThreadPoolExecutor create() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "miniflow-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        // Las esperas canceladas salen de la cola en el momento
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    /**
+     * Futuro que se completa pasados delayMs, desde resumeOn. Cancelarlo
+     * retira la espera de la cola.
+     */
+    public static CompletableFuture<Void> after(long delayMs, Executor resumeOn) {
+        if (delayMs <= 0)
+            return CompletableFuture.completedFuture(null);
+
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        ScheduledFuture<?> task = SCHEDULER.schedule(() -> {
+            try {
+                resumeOn.execute(() -> done.complete(null));
+            } catch (RuntimeException e) {
+                // Executor cerrado o saturado: se completa aquí
+                done.complete(null);
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+        done.whenComplete((ignored, error) -> {
+            if (done.isCancelled())
+                task.cancel(false);
+        });
+        return done;
+    }
+
+    /**
+     * Esperas registradas que aún no han vencido.
+     */
+    public static int pending() {
+        return SCHEDULER.getQueue().size();
+    }
+}
@@ -5,6 +5,14 @@ public class TypeConverter {
         return v == null ? null : String.valueOf(v);
     }
 
+    public static boolean asBoolean(Object v, boolean defaultValue) {
+        if (v == null)
+            return defaultValue;
+        if (v instanceof Boolean b)
+            return b;
+        return Boolean.parseBoolean(String.valueOf(v).trim());
+    }
+
     public static Integer asInt(Object v, Integer defaultValue) {
         if (v == null)
             return defaultValue;
@@ -18,19 +26,73 @@ public class TypeConverter {
         }
     }
 
+    public static Long asLong(Object v, Long defaultValue) {
+        if (v == null)
+            return defaultValue;
+        if (v instanceof Number n)
+            return n.longValue();
+        try {
+            return Long.parseLong(String.valueOf(v).trim());
+        } catch (Exception e) {
+            System.err.println("[TypeConverter - asLong] Invalid format for '" + v + "': " + e.getMessage());
+            return defaultValue;
+        }
+    }
+
+    public static Double asDouble(Object v, Double defaultValue) {
+        if (v == null)
+            return defaultValue;
+        if (v instanceof Number n)
+            return n.doubleValue();
+        try {
+            return Double.parseDouble(String.valueOf(v).trim());
+        } catch (Exception e) {
+            System.err.println("[TypeConverter - asDouble] Invalid format for '" + v + "': " + e.getMessage());
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Convierte textos numéricos ("10", "-3", "2.5") a Integer/Double; el
+     * resto se devuelve igual. Se recorre el texto a mano, sin regex.
+     */
     public static Object normalize(Object value) {
         if (!(value instanceof String s))
             return value;
         String t = s.trim();
+        int dot = numericShape(t);
+        if (dot == -2)
+            return s;
         try {
-            if (t.matches("^-?\\d+$"))
+            if (dot < 0)
                 return Integer.parseInt(t);
-            if (t.matches("^-?\\d+\\.\\d+$"))
-                return Double.parseDouble(t);
+            return Double.parseDouble(t);
         } catch (Exception e) {
             System.err.println(
                     "[TypeConverter - normalize] Number format parsing error for '" + t + "': " + e.getMessage());
         }
         return s;
     }
+
+    /**
+     * -1 si es un entero (-?\d+), la posición del punto si es un decimal
+     * (-?\d+\.\d+) y -2 si no es un número.
+     */
+    private static int numericShape(String t) {
+        int i = t.startsWith("-") ? 1 : 0;
+        int digitsStart = i;
+        while (i < t.length() && t.charAt(i) >= '0' && t.charAt(i) <= '9')
+            i++;
+        if (i == digitsStart)
+            return -2;
+        if (i == t.length())
+            return -1;
+        if (t.charAt(i) != '.')
+            return -2;
+        int dot = i++;
+        int decimalsStart = i;
+        while (i < t.length() && t.charAt(i) >= '0' && t.charAt(i) <= '9')
+            i++;
+        return i > decimalsStart && i == t.length() ? dot : -2;
+    }
 }
@@ -0,0 +1,127 @@
+# Worker Python persistente de MiniFlow (ver PythonWorkerPool).
+#
+# Protocolo por stdin/stdout: cada frame es un entero big-endian de 4 bytes con
+# la longitud, seguido del cuerpo.
+#   peticion:  JSON UTF-8 {"script": "...", "args": [...], "cwd": "...",
+#              "stdin": "...", "stdinFile": "..."}
+#   respuesta: un byte de tipo y el contenido.
+#              "o" / "e": bloque de stdout / stderr (UTF-8, hasta CHUNK bytes),
+#                         enviado en cuanto hay una linea completa
+#              "r":       fin del trabajo, JSON {"exitCode": 0}
+#
+# La salida nunca se acumula entera en el worker: el lado Java la vuelca en su
+# captura acotada a medida que llegan los bloques.
+#
+# El script se ejecuta con runpy como __main__; los modulos que importa quedan
+# cargados para los siguientes trabajos, que es lo que ahorra el arranque.
+import io
+import json
+import os
+import runpy
+import struct
+import sys
+import traceback
+
+# El fd 1 original queda reservado al protocolo; cualquier escritura directa a
+# stdout (subprocesos, extensiones en C) se desvia a stderr.
+_proto_out = os.fdopen(os.dup(1), "wb", buffering=0)
+os.dup2(2, 1)
+_proto_in = sys.stdin.buffer
+
+
+def _read_exact(n):
+    data = b""
+    while len(data) < n:
+        chunk = _proto_in.read(n - len(data))
+        if not chunk:
+            return None
+        data += chunk
+    return data
+
+
+CHUNK = 64 * 1024
+
+
+def _send(kind, body):
+    _proto_out.write(struct.pack(">I", len(body) + 1) + kind + body)
+
+
+class _Stream(io.TextIOBase):
+    """sys.stdout / sys.stderr del script: manda bloques al motor."""
+
+    def __init__(self, kind):
+        self._kind = kind
+        self._pending = bytearray()
+
+    @property
+    def encoding(self):
+        return "utf-8"
+
+    def writable(self):
+        return True
+
+    def write(self, text):
+        data = text.encode("utf-8", "replace")
+        self._pending += data
+        if b"\n" in data or len(self._pending) >= CHUNK:
+            self.flush()
+        return len(text)
+
+    def flush(self):
+        pending, self._pending = self._pending, bytearray()
+        for i in range(0, len(pending), CHUNK):
+            _send(self._kind, bytes(pending[i:i + CHUNK]))
+
+
+def _run(job):
+    out, err = _Stream(b"o"), _Stream(b"e")
+    saved = (sys.stdin, sys.stdout, sys.stderr, list(sys.argv), list(sys.path), os.getcwd())
+    code = 0
+    stdin_file = None
+    try:
+        if job.get("stdinFile"):
+            stdin_file = sys.stdin = open(job["stdinFile"], "r", encoding="utf-8")
+        else:
+            sys.stdin = io.StringIO(job.get("stdin") or "")
+        sys.stdout, sys.stderr = out, err
+        if job.get("cwd"):
+            os.chdir(job["cwd"])
+        sys.argv = [job["script"]] + list(job.get("args") or [])
+        # Igual que "python script.py": la carpeta del script va primero en sys.path
+        sys.path.insert(0, os.path.dirname(os.path.abspath(job["script"])))
+        runpy.run_path(job["script"], run_name="__main__")
+    except SystemExit as e:
+        if e.code is None:
+            code = 0
+        elif isinstance(e.code, int):
+            code = e.code
+        else:
+            print(e.code, file=err)
+            code = 1
+    except BaseException:
+        traceback.print_exc(file=err)
+        code = 1
+    finally:
+        sys.stdin, sys.stdout, sys.stderr, sys.argv, sys.path[:], cwd = saved
+        os.chdir(cwd)
+        if stdin_file is not None:
+            stdin_file.close()
+        out.flush()
+        err.flush()
+    return {"exitCode": code}
+
+
+def main():
+    while True:
+        header = _read_exact(4)
+        if header is None:
+            return
+        body = _read_exact(struct.unpack(">I", header)[0])
+        if body is None:
+            return
+        result = _run(json.loads(body.decode("utf-8")))
+        _send(b"r", json.dumps(result).encode("utf-8"))
+
+
+if __name__ == "__main__":
+    main()
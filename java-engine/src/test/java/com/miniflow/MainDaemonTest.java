@@ -0,0 +1,67 @@
+package com.miniflow;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miniflow.utils.EngineOutput;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class MainDaemonTest {
+
+    private static final String WORKFLOW = "{\"name\":\"D\",\"nodes\":["
+            + "{\"id\":\"s\",\"type\":\"start\"},{\"id\":\"e\",\"type\":\"end\"}],"
+            + "\"edges\":[{\"source\":\"s\",\"target\":\"e\"}]}";
+
+    @AfterEach
+    void resetOutput() {
+        EngineOutput.setFramed(false);
+    }
+
+    @Test
+    void daemonRunsEveryRequestAndTagsOutputWithRunId() throws Exception {
+        String input = "{\"runId\":\"r1\",\"workflow\":" + WORKFLOW + "}\n"
+                + "\n"
+                + "{\"runId\":\"r2\",\"workflow\":" + WORKFLOW + "}\n"
+                + "{\"runId\":\"bad\"}\n";
+
+        InputStream oldIn = System.in;
+        PrintStream oldOut = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setIn(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+        System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+        try {
+            ObjectMapper mapper = new ObjectMapper();
+            Main.runDaemon(mapper);
+        } finally {
+            System.setIn(oldIn);
+            System.setOut(oldOut);
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+        List<String> finished = new ArrayList<>();
+        String badStatus = null;
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            JsonNode frame = mapper.readTree(line);
+            assertTrue(frame.has("runId"), "Cada frame debe llevar runId: " + line);
+            if ("WORKFLOW_FINISHED".equals(frame.path("event").asText())) {
+                assertEquals("SUCCESS", frame.get("status").asText());
+                finished.add(frame.get("runId").asText());
+            }
+            if ("bad".equals(frame.path("runId").asText())) {
+                badStatus = frame.path("status").asText();
+            }
+        }
+
+        assertTrue(finished.containsAll(List.of("r1", "r2")));
+        assertEquals("CRITICAL_ERROR", badStatus);
+    }
+}
@@ -0,0 +1,93 @@
+package com.miniflow.bench;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.core.WorkflowEngines;
+import com.miniflow.model.NodeType;
+import com.miniflow.model.Workflow;
+import com.miniflow.model.WorkflowReader;
+import com.miniflow.strategies.LoggingNodeDecorator;
+import com.miniflow.utils.EngineOutput;
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class WorkflowGeneratorTest {
+
+    private static long count(Workflow workflow, NodeType type) {
+        return workflow.nodes.stream().filter(n -> n.getNodeType() == type).count();
+    }
+
+    @Test
+    void generatedShapesUseTheUiFormatAndRunOnBothEngines() throws Exception {
+        PrintStream oldOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try (StubHttpServer stub = StubHttpServer.start()) {
+            for (String shape : List.of("chain", "fanout", "nested", "mixed")) {
+                WorkflowGenerator.Options options = WorkflowGenerator.Options.fromArgs(new String[] {
+                        "--shape=" + shape, "--size=4", "--width=3", "--depth=2", "--timerMs=1" });
+                String json = WorkflowGenerator.toJson(options);
+                assertTrue(json.contains("\"position\": {"), shape);
+
+                Workflow workflow = WorkflowReader.read(json.replace(WorkflowGenerator.STUB_URL, stub.baseUrl()));
+                assertEquals(1, count(workflow, NodeType.START), shape);
+                assertEquals(1, count(workflow, NodeType.END), shape);
+                assertEquals(count(workflow, NodeType.PARALLEL), count(workflow, NodeType.PARALLEL_JOIN), shape);
+
+                for (String engine : List.of(WorkflowEngines.RUNNER, WorkflowEngines.DATAFLOW)) {
+                    // Con PARALLEL el END corre en el contexto de la última rama: se cuenta con el listener
+                    AtomicInteger ends = new AtomicInteger();
+                    AtomicInteger failures = new AtomicInteger();
+                    LoggingNodeDecorator.setTimingListener((node, nanos, failed) -> {
+                        if (node.getNodeType() == NodeType.END)
+                            ends.incrementAndGet();
+                        if (failed)
+                            failures.incrementAndGet();
+                    });
+                    ExecutionContext context = WorkflowEngines.byName(engine).run(workflow, null);
+                    assertEquals(1, ends.get(), shape + "/" + engine);
+                    assertEquals(0, failures.get(), shape + "/" + engine);
+                    assertNull(context.getVariable("__lastError"), shape + "/" + engine);
+                }
+            }
+            EngineOutput.flush();
+        } finally {
+            LoggingNodeDecorator.setTimingListener(null);
+            System.setOut(oldOut);
+        }
+
+        WorkflowGenerator.Options nested = WorkflowGenerator.Options.fromArgs(new String[] { "--generate=nested" });
+        Workflow workflow = WorkflowReader.read(WorkflowGenerator.toJson(nested));
+        // 1 + 4 + 16 PARALLEL, 64 ramas hoja de 2 nodos
+        assertEquals(21, count(workflow, NodeType.PARALLEL));
+        assertEquals(128, workflow.nodes.size() - 2 - 42);
+        assertThrows(IllegalArgumentException.class,
+                () -> WorkflowGenerator.Options.fromArgs(new String[] { "--shape=star" }));
+    }
+
+    @Test
+    void benchReportsLatenciesPerRunAndPerNodeType() throws Exception {
+        String[] args = { "--bench", "--runs=5", "--warmup=1", "--shape=mixed", "--width=2", "--size=2",
+                "--timerMs=1", "--httpDelayMs=1" };
+
+        Map<String, Object> report = BenchRunner.run(args, new ByteArrayInputStream(new byte[0]));
+
+        assertEquals(5, report.get("runs"));
+        assertEquals(0, report.get("failedRuns"));
+        assertEquals(10L, report.get("httpRequests"));
+        assertTrue((Double) report.get("throughputPerSec") > 0);
+        Map<?, ?> run = (Map<?, ?>) report.get("run");
+        assertEquals(5, run.get("count"));
+        assertTrue((Double) run.get("p999Ms") >= (Double) run.get("p50Ms"));
+        Map<?, ?> nodeTypes = (Map<?, ?>) report.get("nodeTypes");
+        assertEquals(10, ((Map<?, ?>) nodeTypes.get("HTTP_REQUEST")).get("count"));
+        assertEquals(10, ((Map<?, ?>) nodeTypes.get("TIMER")).get("count"));
+        assertTrue((Integer) report.get("peakPlatformThreads") > 0);
+        assertTrue(BenchRunner.format(report).contains("\"BENCH_RESULT\""));
+    }
+}
@@ -2,7 +2,9 @@ package com.miniflow.context;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
 import org.junit.jupiter.api.Test;
 
 class ExecutionContextTest {
@@ -51,4 +53,72 @@ class ExecutionContextTest {
         assertTrue(context.getVariables().isEmpty());
         assertNull(context.getNodeOutput("node"));
     }
+
+    @Test
+    void branchesForkWithoutSeeingEachOthersWrites() {
+        ExecutionContext parent = new ExecutionContext("run-1");
+        for (int i = 0; i < 1000; i++) {
+            parent.setVariable("v" + i, i);
+        }
+
+        ExecutionContext left = parent.cloneContext();
+        ExecutionContext right = parent.cloneContext();
+        left.setVariable("v1", "left");
+        right.removeVariable("v2");
+        right.setVariable("onlyRight", true);
+
+        assertEquals("left", left.getVariable("v1"));
+        assertEquals(1, right.getVariable("v1"));
+        assertEquals(1, parent.getVariable("v1"));
+        assertNull(right.getVariable("v2"));
+        assertEquals(2, left.getVariable("v2"));
+        assertNull(left.getVariable("onlyRight"));
+        assertEquals(1000, right.getVariables().size());
+        assertEquals(1000, parent.getVariables().size());
+        assertEquals("run-1", right.getRunId());
+        assertNotEquals(left.getBranchId(), right.getBranchId());
+    }
+
+    @Test
+    void nullValueRemovesVariable() {
+        ExecutionContext context = new ExecutionContext();
+        context.setVariable("a", 1);
+        context.setVariable("a", null);
+        assertNull(context.getVariable("a"));
+        assertTrue(context.getVariables().isEmpty());
+    }
+
+    @Test
+    void persistentMapBehavesLikeHashMapIncludingCollisions() {
+        record Key(int id, int hash) {
+            @Override
+            public int hashCode() {
+                return hash;
+            }
+        }
+
+        Random random = new Random(42);
+        Map<Object, Object> expected = new HashMap<>();
+        PersistentMap<Object, Object> actual = PersistentMap.empty();
+        for (int i = 0; i < 20000; i++) {
+            int id = random.nextInt(3000);
+            Object key = (id % 3 == 0) ? new Key(id, id % 7) : "k" + id;
+            if (random.nextInt(4) == 0) {
+                expected.remove(key);
+                actual = actual.remove(key);
+            } else {
+                expected.put(key, i);
+                actual = actual.put(key, i);
+            }
+            assertEquals(expected.size(), actual.size());
+        }
+        assertEquals(expected, actual.asMap());
+
+        PersistentMap<Object, Object> snapshot = actual;
+        PersistentMap<Object, Object> changed = actual.put("new", 1);
+        assertNull(snapshot.get("new"));
+        assertEquals(1, changed.get("new"));
+        assertSame(changed, changed.put("new", changed.get("new")));
+        assertSame(changed, changed.remove("missing"));
+    }
 }
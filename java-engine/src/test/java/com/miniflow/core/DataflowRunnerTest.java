@@ -0,0 +1,240 @@
+package com.miniflow.core;
+
+import static com.miniflow.core.TestWorkflows.edge;
+import static com.miniflow.core.TestWorkflows.node;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.model.Node;
+import com.miniflow.model.Workflow;
+import com.miniflow.model.WorkflowReader;
+import com.miniflow.utils.EngineOutput;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class DataflowRunnerTest {
+
+    private static final Path SAMPLES = Path.of("..", "workflows_a_probar");
+
+    private static HttpServer server;
+    private static String baseUrl;
+
+    @TempDir
+    static Path samplesCopy;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        // Stub local para las URLs externas de los ejemplos
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        route("/v1/b5664175-2c99-4480-be7d-61bc766e0445", 200, "{\"status\": 200, \"payload\": \"hola\"}");
+        route("/v1/322a439e-1946-4da3-9cd5-c9b3a9cddd1d", 404, "{\"error\": \"not found\"}");
+        route("/data", 200, "{\"status\": 200, \"data\": [1, 2, 3]}");
+        route("/auth/login", 200, "{\"token\": \"abc\"}");
+        route("/service", 200, "{\"success\": true}");
+        route("/notify/success", 200, "{\"ok\": true}");
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        // Copia de los scripts (load.py escribe reporte.txt) con extract.sh
+        // congelado: el original usa $RANDOM y los dos motores verían datos distintos
+        try (Stream<Path> files = Files.walk(SAMPLES)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                Path target = samplesCopy.resolve(SAMPLES.relativize(p).toString());
+                if (Files.isDirectory(p))
+                    Files.createDirectories(target);
+                else
+                    Files.copy(p, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        StringBuilder frozen = new StringBuilder("echo '{\"rawData\": [");
+        for (int i = 1; i <= 20; i++) {
+            frozen.append(i > 1 ? ", " : "").append(String.format(
+                    "{\"codigo\": %d, \"nombre\": \"Alumno %d\", \"carrera\": \"%s\", \"nota\": %d}",
+                    1000 + i, i, i % 3 == 0 ? "Sistemas" : "Civil", 10 + i % 11));
+        }
+        frozen.append("]}'\n");
+        Files.writeString(samplesCopy.resolve("wf2/extract.sh"), frozen.toString());
+    }
+
+    @AfterAll
+    static void tearDown() {
+        server.stop(0);
+    }
+
+    private static void route(String path, int status, String body) {
+        server.createContext(path, exchange -> {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+    }
+
+    private static Workflow loadSample(String file) throws IOException {
+        String json = Files.readString(SAMPLES.resolve(file))
+                .replace("workflows_a_probar/", samplesCopy.toAbsolutePath() + "/")
+                .replace("https://mocki.io", baseUrl)
+                .replace("https://api.example.com", baseUrl);
+        return WorkflowReader.read(json);
+    }
+
+    private static ExecutionContext runQuietly(WorkflowEngine engine, Workflow workflow) {
+        PrintStream oldOut = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        try {
+            return engine.run(workflow, null);
+        } finally {
+            EngineOutput.flush();
+            System.setOut(oldOut);
+        }
+    }
+
+    /**
+     * Outputs por nodo sin los campos que dependen del reloj.
+     */
+    private static Map<String, Object> outputs(Workflow workflow, ExecutionContext context) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Node node : workflow.nodes) {
+            Object output = context.getNodeOutput(node.id);
+            if (output instanceof Map<?, ?> map) {
+                Map<Object, Object> copy = new HashMap<>(map);
+                copy.remove("systemStartTime");
+                copy.remove("executionStats");
+                copy.remove("attempts");
+                output = copy;
+            }
+            result.put(node.id, output);
+        }
+        return result;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "workflow_1.json", "workflow_1.1.json", "workflow_1.2.json", "workflow_2.json",
+            "workflow_3.json" })
+    void sampleWorkflowsProduceSameNodeOutputsAsRunner(String file) throws IOException {
+        Workflow forRunner = loadSample(file);
+        Workflow forDataflow = loadSample(file);
+
+        Map<String, Object> expected = outputs(forRunner, runQuietly(new WorkflowRunner(), forRunner));
+        Map<String, Object> actual = outputs(forDataflow, runQuietly(new DataflowRunner(), forDataflow));
+
+        assertEquals(expected, actual);
+        assertTrue(expected.values().stream().filter(v -> v != null).count() > 2, expected.toString());
+    }
+
+    @Test
+    void independentBranchesOverlapAndJoinRunsOnce() {
+        Workflow workflow = new Workflow();
+        workflow.name = "Diamond";
+        Map<String, Object> timer = Map.of("delay", 300, "unit", "ms");
+        workflow.nodes = new ArrayList<>(List.of(
+                node("start", "START", Map.of()),
+                node("p", "PARALLEL", Map.of()),
+                node("t1", "TIMER", timer),
+                node("t2", "TIMER", timer),
+                node("t3", "TIMER", timer),
+                node("j", "PARALLEL_JOIN", Map.of()),
+                node("end", "END", Map.of())));
+        workflow.edges = new ArrayList<>(List.of(
+                edge("start", "p", null),
+                edge("p", "t1", null), edge("p", "t2", null), edge("p", "t3", null),
+                edge("t1", "j", null), edge("t2", "j", null), edge("t3", "j", null),
+                edge("j", "end", null)));
+
+        long started = System.nanoTime();
+        ExecutionContext context = runQuietly(new DataflowRunner(), workflow);
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        assertTrue(elapsedMs < 850, "Las ramas deberían solaparse, tardó " + elapsedMs + "ms");
+        assertEquals(Map.of("status", "COMPLETED", "message", "Barrera superada.", "arrivals", 3),
+                context.getNodeOutput("j"));
+        assertNotNull(context.getNodeOutput("t1"));
+        assertNotNull(context.getNodeOutput("t3"));
+        assertNotNull(context.getNodeOutput("end"));
+    }
+
+    @Test
+    void deadBranchIsSkippedAndMergeNodeRunsOnce() {
+        Workflow workflow = new Workflow();
+        workflow.name = "DeadPath";
+        workflow.nodes = new ArrayList<>(List.of(
+                node("start", "START", Map.of()),
+                node("cond", "CONDITIONAL", Map.of("condition", "1 == 2")),
+                node("yes", "COMMAND", Map.of("command", "echo", "args", "yes")),
+                node("no", "COMMAND", Map.of("command", "echo", "args", "no", "outputKey", "picked")),
+                node("merge", "COMMAND", Map.of("command", "echo", "args", "merged {{ picked }}")),
+                node("end", "END", Map.of())));
+        workflow.edges = new ArrayList<>(List.of(
+                edge("start", "cond", null),
+                edge("cond", "yes", "true"), edge("cond", "no", "false"),
+                edge("yes", "merge", null), edge("no", "merge", null),
+                edge("merge", "end", null)));
+
+        ExecutionContext context = runQuietly(new DataflowRunner(), workflow);
+
+        assertNull(context.getNodeOutput("yes"));
+        assertNotNull(context.getNodeOutput("no"));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> merged = (Map<String, Object>) context.getNodeOutput("merge");
+        assertTrue(String.valueOf(merged.get("stdout")).startsWith("merged no"), merged.toString());
+        assertNotNull(context.getNodeOutput("end"));
+    }
+
+    @Test
+    void stopPolicyHaltsSchedulingAndCyclesFallBackToRunner() {
+        Workflow failing = new Workflow();
+        failing.name = "Stop";
+        failing.nodes = new ArrayList<>(List.of(
+                node("start", "START", Map.of()),
+                node("bad", "COMMAND", Map.of("command", "exit", "args", "3")),
+                node("after", "COMMAND", Map.of("command", "echo", "args", "after"))));
+        failing.edges = new ArrayList<>(List.of(edge("start", "bad", null), edge("bad", "after", null)));
+
+        ExecutionContext context = runQuietly(new DataflowRunner(), failing);
+        assertEquals(false, ((Map<?, ?>) context.getNodeOutput("bad")).get("success"));
+        assertNull(context.getNodeOutput("after"));
+
+        Workflow cyclic = new Workflow();
+        cyclic.name = "Cycle";
+        cyclic.nodes = new ArrayList<>(List.of(
+                node("start", "START", Map.of()),
+                node("a", "END", Map.of()),
+                node("b", "END", Map.of())));
+        cyclic.edges = new ArrayList<>(List.of(
+                edge("start", "a", null), edge("a", "b", null), edge("b", "a", null)));
+        assertFalse(cyclic.compiled().isAcyclic());
+
+        ExecutionContext fallback = runQuietly(new DataflowRunner(), cyclic);
+        assertNotNull(fallback.getNodeOutput("a"));
+        assertNull(fallback.getNodeOutput("b"));
+    }
+
+    @Test
+    void engineIsSelectedFromWorkflowSettings() {
+        Workflow workflow = new Workflow();
+        assertEquals(WorkflowEngines.RUNNER, WorkflowEngines.forWorkflow(workflow).name());
+
+        workflow.settings.put("engine", "Dataflow");
+        assertEquals(WorkflowEngines.DATAFLOW, WorkflowEngines.forWorkflow(workflow).name());
+    }
+}
@@ -0,0 +1,104 @@
+package com.miniflow.core;
+
+import static com.miniflow.core.TestWorkflows.edge;
+import static com.miniflow.core.TestWorkflows.node;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.miniflow.model.Workflow;
+import com.miniflow.utils.EngineOutput;
+import com.miniflow.utils.JsonUtils;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class EngineMetricsTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Ejecuta el workflow y devuelve el evento METRICS que emitió.
+     */
+    private static Map<?, ?> runAndCaptureMetrics(String engine, Workflow workflow) {
+        PrintStream oldOut = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try {
+            WorkflowEngines.byName(engine).run(workflow, "metrics-" + UUID.randomUUID());
+            EngineOutput.flush();
+        } finally {
+            System.setOut(oldOut);
+        }
+        return captured.toString(StandardCharsets.UTF_8).lines()
+                .filter(line -> line.startsWith("{") && line.contains("\"METRICS\""))
+                .map(line -> (Map<?, ?>) JsonUtils.tryParse(line))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("no METRICS event"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "runner", "dataflow" })
+    @DisabledOnOs(value = OS.WINDOWS, disabledReason = "uses POSIX shell commands")
+    void runEndsWithMetricsSnapshotAndPrometheusFile(String engine) throws Exception {
+        String marker = UUID.randomUUID().toString();
+        Workflow workflow = new Workflow();
+        workflow.name = "Metrics";
+        workflow.nodes = new ArrayList<>(List.of(
+                node("start", "START", Map.of()),
+                node("cached", "COMMAND", Map.of("command", "echo " + marker, "outputKey", "out",
+                        "streamOutput", false, "cache", true)),
+                node("bad", "COMMAND", Map.of("command", "exit 3", "streamOutput", false,
+                        "errorPolicy", "CONTINUE_ON_FAIL")),
+                node("end", "END", Map.of())));
+        workflow.edges = new ArrayList<>(List.of(edge("start", "cached"), edge("cached", "bad"), edge("bad", "end")));
+
+        Path prometheus = tempDir.resolve("metrics.prom");
+        System.setProperty("miniflow.metrics.prometheusFile", prometheus.toString());
+        Map<?, ?> first;
+        Map<?, ?> second;
+        try {
+            System.setProperty("miniflow.metrics.byNode", "true");
+            try {
+                first = runAndCaptureMetrics(engine, workflow);
+            } finally {
+                System.clearProperty("miniflow.metrics.byNode");
+            }
+            second = runAndCaptureMetrics(engine, workflow);
+        } finally {
+            System.clearProperty("miniflow.metrics.prometheusFile");
+        }
+
+        Map<?, ?> counters = (Map<?, ?>) first.get("counters");
+        assertEquals(4, counters.get("nodes"));
+        assertEquals(1, counters.get("errors"));
+        assertEquals(0, counters.get("cacheHits"));
+        assertEquals(1, ((Map<?, ?>) second.get("counters")).get("cacheHits"));
+
+        Map<?, ?> command = (Map<?, ?>) ((Map<?, ?>) first.get("byType")).get("COMMAND");
+        assertEquals(2, command.get("count"));
+        assertTrue(((Number) command.get("p99Ms")).doubleValue() > 0);
+        assertEquals(List.of("bad", "cached", "end", "start"),
+                List.copyOf(((Map<?, ?>) first.get("byNode")).keySet()));
+        // Por defecto la línea METRICS no crece con el número de nodos
+        assertFalse(second.containsKey("byNode"));
+        assertTrue(((Map<?, ?>) first.get("gauges")).containsKey("peakActiveBranches"));
+
+        // El fichero de Prometheus acumula todas las ejecuciones del proceso
+        String text = Files.readString(prometheus);
+        assertTrue(text.contains("# TYPE miniflow_node_duration_seconds summary"), text);
+        assertTrue(text.contains("miniflow_node_duration_seconds{type=\"COMMAND\",quantile=\"0.99\"}"), text);
+        assertTrue(text.matches("(?s).*miniflow_node_errors_total [1-9].*"), text);
+        assertTrue(text.matches("(?s).*miniflow_node_cache_hits_total [1-9].*"), text);
+    }
+}
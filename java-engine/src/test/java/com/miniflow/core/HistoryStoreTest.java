@@ -0,0 +1,125 @@
+package com.miniflow.core;
+
+import static com.miniflow.core.TestWorkflows.edge;
+import static com.miniflow.core.TestWorkflows.node;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.miniflow.model.Workflow;
+import com.miniflow.utils.EngineOutput;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HistoryStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static Map<String, Object> summary(String runId, String status, long startedAt) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("runId", runId);
+        summary.put("workflow", "wf");
+        summary.put("status", status);
+        summary.put("startedAt", startedAt);
+        summary.put("durationMs", 5);
+        return summary;
+    }
+
+    private static List<Map<String, Object>> events(String nodeId) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("event", "NODE");
+        event.put("nodeId", nodeId);
+        event.put("status", "OK");
+        event.put("durationMs", 1.5);
+        return List.of(event);
+    }
+
+    @Test
+    void engineRecordsEachRunWithItsNodeDurations() throws Exception {
+        Workflow workflow = new Workflow();
+        workflow.name = "History-" + UUID.randomUUID();
+        workflow.nodes = new ArrayList<>(List.of(
+                node("start", "START", Map.of()),
+                node("echo", "COMMAND", Map.of("command", "echo hola", "outputKey", "out", "streamOutput", false)),
+                node("end", "END", Map.of())));
+        workflow.edges = new ArrayList<>(List.of(edge("start", "echo"), edge("echo", "end")));
+        String runId = "history-" + UUID.randomUUID();
+
+        PrintStream oldOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            new WorkflowRunner().run(workflow, runId);
+            EngineOutput.flush();
+        } finally {
+            System.setOut(oldOut);
+        }
+
+        Map<String, Object> page = HistoryStore.shared().list(
+                HistoryStore.Query.fromArgs(new String[] { "--history", "--workflow=" + workflow.name }));
+        assertEquals(1, page.get("total"));
+        Map<?, ?> listed = (Map<?, ?>) ((List<?>) page.get("runs")).get(0);
+        assertEquals(runId, listed.get("runId"));
+        assertEquals("SUCCESS", listed.get("status"));
+        assertEquals(3, listed.get("nodeCount"));
+        assertNull(listed.get("offset"), "summaries do not expose the storage location");
+
+        Map<String, Object> run = HistoryStore.shared().run(runId);
+        List<?> nodes = (List<?>) run.get("nodes");
+        assertEquals(List.of("start", "echo", "end"), nodes.stream().map(n -> ((Map<?, ?>) n).get("nodeId")).toList());
+        Map<?, ?> echo = (Map<?, ?>) nodes.get(1);
+        assertEquals("OK", echo.get("status"));
+        assertEquals("0", echo.get("branch"));
+        assertTrue(((Number) echo.get("durationMs")).doubleValue() > 0);
+    }
+
+    @Test
+    void segmentsAreCompressedAndOldestAreRetiredFirst() throws Exception {
+        // Cada bloque ocupa ~200 bytes: unos 3 runs por segmento
+        HistoryStore store = new HistoryStore(tempDir, 700, 6, Long.MAX_VALUE);
+        for (int i = 0; i < 20; i++)
+            store.append(summary("r" + i, i % 2 == 0 ? "SUCCESS" : "FAILED", 1_000L + i), events("n" + i));
+
+        try (Stream<Path> files = Files.list(tempDir)) {
+            List<String> names = files.map(p -> p.getFileName().toString()).sorted().toList();
+            assertTrue(names.stream().anyMatch(n -> n.endsWith(".ndjson.gz")), names.toString());
+            assertEquals(1, names.stream().filter(n -> n.matches("segment-\\d+\\.ndjson")).count(), names.toString());
+        }
+
+        Map<String, Object> all = store.list(HistoryStore.Query.fromArgs(new String[0]));
+        int total = (Integer) all.get("total");
+        assertTrue(total <= 6 + 3, "retention keeps at most maxRuns plus the active segment: " + total);
+        assertThrows(IllegalArgumentException.class, () -> store.run("r0"));
+        assertEquals("r19", ((Map<?, ?>) ((List<?>) all.get("runs")).get(0)).get("runId"));
+
+        // Un run de un segmento comprimido se lee sin descomprimir los demás
+        Map<?, ?> oldest = (Map<?, ?>) ((List<?>) all.get("runs")).get(total - 1);
+        Map<String, Object> detail = store.run(String.valueOf(oldest.get("runId")));
+        assertEquals("n" + oldest.get("runId").toString().substring(1),
+                ((Map<?, ?>) ((List<?>) detail.get("nodes")).get(0)).get("nodeId"));
+    }
+
+    @Test
+    void queryFiltersByStatusAndTimeRangeAndPages() throws Exception {
+        HistoryStore store = new HistoryStore(tempDir, 1 << 20, 1000, Long.MAX_VALUE);
+        for (int i = 0; i < 10; i++)
+            store.append(summary("r" + i, i < 4 ? "FAILED" : "SUCCESS", 1_000L * i), events("n"));
+
+        Map<String, Object> failed = store.list(HistoryStore.Query.fromArgs(new String[] { "--status=failed" }));
+        assertEquals(4, failed.get("total"));
+
+        Map<String, Object> range = store.list(HistoryStore.Query.fromArgs(
+                new String[] { "--since=2000", "--until=1970-01-01T00:00:06Z", "--pageSize=3", "--page=2" }));
+        assertEquals(4, range.get("total"));
+        List<?> runs = (List<?>) range.get("runs");
+        assertEquals(List.of("r2"), runs.stream().map(r -> ((Map<?, ?>) r).get("runId")).toList());
+    }
+}
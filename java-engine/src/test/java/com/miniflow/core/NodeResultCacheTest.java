@@ -0,0 +1,193 @@
+package com.miniflow.core;
+
+import static com.miniflow.core.TestWorkflows.node;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.factory.ExecutorFactory;
+import com.miniflow.model.Node;
+import com.miniflow.utils.EngineOutput;
+import com.miniflow.utils.PythonSupport;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+class NodeResultCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void emptyCache() {
+        NodeResultCache.shared().clear();
+    }
+
+    private static void runQuietly(Node node, ExecutionContext context) throws Exception {
+        PrintStream oldOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            ExecutorFactory.getExecutor(node).execute(node, context);
+            EngineOutput.flush();
+        } finally {
+            System.setOut(oldOut);
+        }
+    }
+
+    @Test
+    @DisabledOnOs(value = OS.WINDOWS, disabledReason = "uses cat")
+    void cachedCommandIsReplayedUntilAReadVariableChanges() throws Exception {
+        Path counter = tempDir.resolve("counter.txt");
+        Node cmd = node("cmd-cache", "COMMAND", Map.of(
+                "command", "echo run >> " + counter + " && cat",
+                "inputKey", "payload",
+                "outputKey", "echoed",
+                "streamOutput", false,
+                "cache", true));
+
+        ExecutionContext first = new ExecutionContext();
+        first.setVariable("payload", "hola");
+        runQuietly(cmd, first);
+        assertEquals(1, Files.readAllLines(counter).size());
+        assertNull(((Map<?, ?>) first.getNodeOutput("cmd-cache")).get("memoized"));
+
+        // Otra ejecución con la misma entrada: no se lanza el proceso
+        ExecutionContext second = new ExecutionContext();
+        second.setVariable("payload", "hola");
+        runQuietly(cmd, second);
+        assertEquals(1, Files.readAllLines(counter).size());
+        assertEquals("hola", String.valueOf(second.getVariable("echoed")).trim());
+        assertEquals(true, ((Map<?, ?>) second.getNodeOutput("cmd-cache")).get("memoized"));
+        assertEquals(0, ((Map<?, ?>) second.getNodeOutput("cmd-cache")).get("exitCode"));
+
+        // inputKey no es una plantilla, pero la variable que nombra entra en la clave
+        ExecutionContext third = new ExecutionContext();
+        third.setVariable("payload", "adiós");
+        runQuietly(cmd, third);
+        assertEquals(2, Files.readAllLines(counter).size());
+        assertEquals("adiós", String.valueOf(third.getVariable("echoed")).trim());
+    }
+
+    @Test
+    void cachedPythonCommandRerunsWhenPayloadChanges() throws Exception {
+        assumeTrue(PythonSupport.available(), "python3 not installed");
+        Path script = tempDir.resolve("echo_payload.py");
+        Files.writeString(script, "import sys\nprint(sys.argv[1])\n");
+        Node cmd = node("py-cache", "COMMAND", Map.of("command", "python3", "scriptPath", script.toString(),
+                "outputKey", "echoed", "streamOutput", false, "cache", true));
+
+        ExecutionContext first = new ExecutionContext();
+        first.setVariable("payload", "uno");
+        runQuietly(cmd, first);
+        ExecutionContext second = new ExecutionContext();
+        second.setVariable("payload", "dos");
+        runQuietly(cmd, second);
+
+        assertEquals("dos", String.valueOf(second.getVariable("echoed")).trim());
+        assertNull(((Map<?, ?>) second.getNodeOutput("py-cache")).get("memoized"));
+    }
+
+    @Test
+    void keyIncludesImplicitCommandInputs() throws Exception {
+        Path script = tempDir.resolve("job.py");
+        Files.writeString(script, "print(1)");
+        Node python = node("py", "COMMAND", Map.of("command", "python3", "scriptPath", script.toString(),
+                "cache", true));
+        ExecutionContext a = new ExecutionContext();
+        a.setVariable("payload", "{\"id\": 1}");
+        ExecutionContext b = new ExecutionContext();
+        b.setVariable("payload", "{\"id\": 2}");
+        String before = NodeResultCache.key(python, a, python.getConfig());
+
+        // Los comandos python reciben payload aunque la config no lo nombre
+        assertNotEquals(before, NodeResultCache.key(python, b, python.getConfig()));
+        Node shell = node("sh", "COMMAND", Map.of("command", "echo hola", "cache", true));
+        assertEquals(NodeResultCache.key(shell, a, shell.getConfig()), NodeResultCache.key(shell, b, shell.getConfig()));
+
+        // Cambiar el script (o un inputFile) cambia la clave
+        Files.writeString(script, "print(22)");
+        assertNotEquals(before, NodeResultCache.key(python, a, python.getConfig()));
+
+        // El destino de una redirección es una salida: escribir en él no cambia la clave
+        Path log = tempDir.resolve("out.log");
+        Files.writeString(log, "1");
+        Node append = node("log", "COMMAND", Map.of("command", "echo x >> " + log, "cache", true));
+        String appendKey = NodeResultCache.key(append, a, append.getConfig());
+        Files.writeString(log, "1\n2\n");
+        assertEquals(appendKey, NodeResultCache.key(append, a, append.getConfig()));
+    }
+
+    @Test
+    void cachedCommandRerunsWhenItsScriptArgumentIsEdited() throws Exception {
+        assumeTrue(PythonSupport.available(), "python3 not installed");
+        Path script = tempDir.resolve("process.py");
+        Files.writeString(script, "print('v1')\n");
+        Node cmd = node("py-script", "COMMAND", Map.of("command", "python3 process.py", "cwd", tempDir.toString(), "outputKey", "version",
+                "streamOutput", false, "cache", true));
+
+        ExecutionContext first = new ExecutionContext();
+        runQuietly(cmd, first);
+        assertEquals("v1", String.valueOf(first.getVariable("version")).trim());
+
+        // Mismo tamaño, solo cambia el contenido (y con él la fecha de modificación)
+        Files.writeString(script, "print('v2')\n");
+        Files.setLastModifiedTime(script, java.nio.file.attribute.FileTime.fromMillis(
+                Files.getLastModifiedTime(script).toMillis() + 2000));
+        ExecutionContext second = new ExecutionContext();
+        runQuietly(cmd, second);
+
+        assertEquals("v2", String.valueOf(second.getVariable("version")).trim());
+        assertNull(((Map<?, ?>) second.getNodeOutput("py-script")).get("memoized"));
+    }
+
+    @Test
+    void keyDependsOnRenderedConfigButNotOnUnrelatedVariables() {
+        Node http = node("h", "HTTP_REQUEST", Map.of("url", "http://x/{{id}}", "cache", true));
+        ExecutionContext a = new ExecutionContext();
+        a.setVariable("id", 1);
+        ExecutionContext b = new ExecutionContext();
+        b.setVariable("id", 1);
+        b.setVariable("unrelated", "x");
+        ExecutionContext c = new ExecutionContext();
+        c.setVariable("id", 2);
+
+        assertEquals(NodeResultCache.key(http, a, http.getConfig()), NodeResultCache.key(http, b, http.getConfig()));
+        assertNotEquals(NodeResultCache.key(http, a, http.getConfig()), NodeResultCache.key(http, c, http.getConfig()));
+        assertNull(NodeResultCache.lookup(node("n", "HTTP_REQUEST", Map.of("url", "http://x")), a));
+    }
+
+    @Test
+    void entriesExpireAndLeastRecentlyUsedAreEvicted() throws Exception {
+        Node node = node("n", "COMMAND", Map.of());
+        ExecutionContext context = new ExecutionContext();
+        context.setNodeOutput("n", Map.of("value", "x".repeat(100)));
+        Map<String, Object> before = context.getVariables();
+
+        NodeResultCache cache = new NodeResultCache(tempDir.resolve("cache"), 300, 60_000);
+        cache.entry("a", 60_000).store(node, context, before);
+        cache.entry("b", 60_000).store(node, context, before);
+        assertTrue(cache.entry("a", 60_000).apply(node, new ExecutionContext()));
+        // "b" es la menos usada: sale al entrar "c"
+        cache.entry("c", 60_000).store(node, context, before);
+        assertFalse(cache.entry("b", 60_000).apply(node, new ExecutionContext()));
+        assertTrue(cache.entry("a", 60_000).apply(node, new ExecutionContext()));
+        assertEquals(1L, cache.stats().get("evictions"));
+
+        cache.entry("old", -1).store(node, context, before);
+        assertFalse(cache.entry("old", 60_000).apply(node, new ExecutionContext()));
+
+        // El índice se reconstruye desde disco en otro proceso
+        NodeResultCache reopened = new NodeResultCache(tempDir.resolve("cache"), 300, 60_000);
+        ExecutionContext restored = new ExecutionContext();
+        assertTrue(reopened.entry("a", 60_000).apply(node, restored));
+        assertEquals(List.of("value", "memoized"), List.copyOf(((Map<?, ?>) restored.getNodeOutput("n")).keySet()));
+    }
+}
@@ -0,0 +1,77 @@
+package com.miniflow.core;
+
+import static com.miniflow.core.TestWorkflows.edge;
+import static com.miniflow.core.TestWorkflows.node;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.miniflow.model.Workflow;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class ParallelExecutionTest {
+
+    /**
+     * start -> p1 -> { t1, p2 -> { t2, t3 } -> j2 } -> j1 -> end
+     */
+    private static Workflow nestedParallel(String executor, int maxConcurrency) {
+        Workflow workflow = new Workflow();
+        workflow.name = "Nested-" + executor;
+        Map<String, Object> timer = Map.of("delay", 20, "unit", "ms");
+        workflow.nodes = new ArrayList<>(List.of(
+                node("start", "START", Map.of()),
+                node("p1", "PARALLEL", Map.of()),
+                node("t1", "TIMER", timer),
+                node("p2", "PARALLEL", Map.of()),
+                node("t2", "TIMER", timer),
+                node("t3", "TIMER", timer),
+                node("j2", "PARALLEL_JOIN", Map.of()),
+                node("j1", "PARALLEL_JOIN", Map.of()),
+                node("end", "END", Map.of())));
+        workflow.edges = new ArrayList<>(List.of(
+                edge("start", "p1"),
+                edge("p1", "t1"), edge("p1", "p2"),
+                edge("p2", "t2"), edge("p2", "t3"),
+                edge("t2", "j2"), edge("t3", "j2"),
+                edge("t1", "j1"), edge("j2", "j1"),
+                edge("j1", "end")));
+        workflow.settings = Map.of("branchExecutor", executor, "maxConcurrency", maxConcurrency);
+        return workflow;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "virtual", "forkjoin" })
+    void nestedParallelCompletesWithSingleBranchPermit(String executor) {
+        Workflow workflow = nestedParallel(executor, 1);
+
+        PrintStream oldOut = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output));
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> new WorkflowRunner().run(workflow));
+        } finally {
+            System.setOut(oldOut);
+        }
+
+        String stdout = output.toString();
+        assertTrue(stdout.contains("[end] Resultado --> OK"), stdout);
+        assertTrue(stdout.contains("\"executor\":\"" + executor + "\""));
+        assertTrue(stdout.contains("\"status\": \"SUCCESS\""));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "virtual", "VIRTUAL", "fork_join", "forkjoin" })
+    void executorModeIsResolvedFromSettings(String mode) {
+        Workflow workflow = new Workflow();
+        workflow.settings = Map.of("branchExecutor", mode, "maxConcurrency", "4");
+        String expected = mode.toLowerCase().startsWith("fork") ? "forkjoin" : "virtual";
+
+        assertEquals(expected, BranchExecutors.forWorkflow(workflow).name());
+        assertEquals(4, BranchExecutors.maxConcurrency(workflow));
+    }
+}
@@ -0,0 +1,219 @@
+package com.miniflow.core;
+
+import static com.miniflow.core.TestWorkflows.edge;
+import static com.miniflow.core.TestWorkflows.node;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.model.Workflow;
+import com.miniflow.utils.EngineOutput;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class RunJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    private String previousDir;
+
+    @BeforeEach
+    void useTempJournalDir() {
+        previousDir = System.setProperty("miniflow.journal.dir", tempDir.resolve("journal").toString());
+    }
+
+    @AfterEach
+    void restoreJournalDir() {
+        if (previousDir == null)
+            System.clearProperty("miniflow.journal.dir");
+        else
+            System.setProperty("miniflow.journal.dir", previousDir);
+    }
+
+    private static Map<String, Object> command(String line, String outputKey) {
+        return Map.of("command", line, "outputKey", outputKey, "streamOutput", false);
+    }
+
+    /**
+     * start -> count -> p -> (a | b) -> join -> gate -> end
+     * Cada COMMAND deja una línea en el contador; gate falla sin el flag.
+     */
+    private Workflow workflow(String engine, Path counter, Path flag) {
+        Workflow workflow = new Workflow();
+        workflow.name = "Resume";
+        workflow.nodes = new ArrayList<>();
+        workflow.edges = new ArrayList<>();
+        workflow.nodes.add(node("start", "START", Map.of()));
+        workflow.nodes.add(node("count", "COMMAND", command("echo count >> " + counter + " && echo primero", "first")));
+        workflow.nodes.add(node("p", "PARALLEL", Map.of()));
+        workflow.nodes.add(node("a", "COMMAND", command("echo a >> " + counter + " && echo A", "a")));
+        workflow.nodes.add(node("b", "COMMAND", command("echo b >> " + counter + " && echo B", "b")));
+        workflow.nodes.add(node("join", "PARALLEL_JOIN", Map.of()));
+        workflow.nodes.add(node("gate", "COMMAND", command("test -f " + flag + " && echo gate >> " + counter, "gate")));
+        workflow.nodes.add(node("end", "END", Map.of()));
+        workflow.edges.add(edge("start", "count"));
+        workflow.edges.add(edge("count", "p"));
+        workflow.edges.add(edge("p", "a"));
+        workflow.edges.add(edge("p", "b"));
+        workflow.edges.add(edge("a", "join"));
+        workflow.edges.add(edge("b", "join"));
+        workflow.edges.add(edge("join", "gate"));
+        workflow.edges.add(edge("gate", "end"));
+        workflow.settings = Map.of("engine", engine);
+        return workflow;
+    }
+
+    private static ExecutionContext quietly(Supplier<ExecutionContext> run) {
+        PrintStream oldOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            ExecutionContext context = run.get();
+            EngineOutput.flush();
+            return context;
+        } finally {
+            System.setOut(oldOut);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "runner", "dataflow" })
+    @DisabledOnOs(value = OS.WINDOWS, disabledReason = "uses test -f")
+    void resumeReplaysCompletedNodesAndRerunsFromTheFailure(String engine) throws Exception {
+        Path counter = tempDir.resolve("counter.txt");
+        Path flag = tempDir.resolve("flag");
+        Workflow workflow = workflow(engine, counter, flag);
+        String runId = "resume-" + engine;
+
+        quietly(() -> WorkflowEngines.byName(engine).run(workflow, runId));
+        assertEquals(3, Files.readAllLines(counter).size());
+        assertTrue(Files.exists(RunJournal.fileFor(runId)), "failed runs keep their journal");
+
+        Files.createFile(flag);
+        ExecutionContext resumed = quietly(() -> WorkflowEngines.byName(engine).resume(workflow, runId));
+
+        // count, a y b no se vuelven a ejecutar: sus resultados salen del journal.
+        // Solo gate añade su línea
+        assertEquals(4, Files.readAllLines(counter).size());
+        assertEquals("gate", Files.readAllLines(counter).get(3));
+        assertEquals("primero", String.valueOf(resumed.getVariable("first")).trim());
+        assertEquals(0, ((Map<?, ?>) resumed.getNodeOutput("count")).get("exitCode"));
+        assertFalse(Files.exists(RunJournal.fileFor(runId)), "a successful run deletes its journal");
+    }
+
+    private static Map<String, Object> timer(int delayMs) {
+        return Map.of("delay", delayMs, "unit", "ms");
+    }
+
+    /**
+     * start -> p -> (a | b [-> b2]) -> join -> x -> gate -> end. x y gate
+     * dejan una línea en el log; con slowB la rama b llega la última al join.
+     */
+    private Workflow joinWorkflow(Path log, Path flag, boolean slowB) {
+        Workflow workflow = new Workflow();
+        workflow.name = "ResumeAfterJoin";
+        workflow.nodes = new ArrayList<>();
+        workflow.edges = new ArrayList<>();
+        workflow.nodes.add(node("start", "START", Map.of()));
+        workflow.nodes.add(node("p", "PARALLEL", Map.of()));
+        workflow.nodes.add(node("a", "TIMER", timer(slowB ? 0 : 300)));
+        workflow.nodes.add(node("b", "TIMER", timer(0)));
+        workflow.nodes.add(node("join", "PARALLEL_JOIN", Map.of()));
+        workflow.nodes.add(node("x", "COMMAND", command("echo ran >> " + log, "x")));
+        workflow.nodes.add(node("gate", "COMMAND", command("test -f " + flag + " && echo gate >> " + log, "gate")));
+        workflow.nodes.add(node("end", "END", Map.of()));
+        workflow.edges.add(edge("start", "p"));
+        workflow.edges.add(edge("p", "a"));
+        workflow.edges.add(edge("p", "b"));
+        workflow.edges.add(edge("a", "join"));
+        if (slowB) {
+            workflow.nodes.add(node("b2", "TIMER", timer(300)));
+            workflow.edges.add(edge("b", "b2"));
+            workflow.edges.add(edge("b2", "join"));
+        } else {
+            workflow.edges.add(edge("b", "join"));
+        }
+        workflow.edges.add(edge("join", "x"));
+        workflow.edges.add(edge("x", "gate"));
+        workflow.edges.add(edge("gate", "end"));
+        workflow.settings = Map.of("engine", "runner");
+        return workflow;
+    }
+
+    @Test
+    @DisabledOnOs(value = OS.WINDOWS, disabledReason = "uses echo >> and test -f")
+    void resumeReplaysNodesAfterAJoinWhateverBranchArrivesLast() throws Exception {
+        Path log = tempDir.resolve("x.log");
+        Path flag = tempDir.resolve("flag");
+        String runId = "resume-join";
+
+        // Primera ejecución: a llega la última al join y gate falla
+        quietly(() -> new WorkflowRunner().run(joinWorkflow(log, flag, false), runId));
+        assertEquals(1, Files.readAllLines(log).size());
+
+        // Al reanudar a y b se reaplican al instante y b2 (nuevo) hace que b
+        // llegue la última: x sigue saliendo del journal
+        Files.createFile(flag);
+        quietly(() -> new WorkflowRunner().resume(joinWorkflow(log, flag, true), runId));
+
+        assertEquals(java.util.List.of("ran", "gate"), Files.readAllLines(log), "x must be replayed, not run again");
+    }
+
+    @Test
+    void successfulRunsNeverTouchTheDisk() {
+        Workflow workflow = new Workflow();
+        workflow.name = "Ok";
+        workflow.nodes = new ArrayList<>(java.util.List.of(node("start", "START", Map.of()),
+                node("end", "END", Map.of())));
+        workflow.edges = new ArrayList<>(java.util.List.of(edge("start", "end")));
+
+        quietly(() -> new WorkflowRunner().run(workflow, "ok-run"));
+        // Los registros se quedaron en memoria: ni fichero ni carpeta
+        assertFalse(Files.exists(tempDir.resolve("journal")));
+
+        System.setProperty("miniflow.journal.keepSuccessful", "true");
+        try {
+            quietly(() -> new WorkflowRunner().run(workflow, "ok-run"));
+        } finally {
+            System.clearProperty("miniflow.journal.keepSuccessful");
+        }
+        assertTrue(Files.exists(RunJournal.fileFor("ok-run")), "keepSuccessful writes the buffered journal");
+    }
+
+    @Test
+    void resumeWithoutJournalFails() {
+        Workflow workflow = workflow("runner", tempDir.resolve("c"), tempDir.resolve("f"));
+        assertThrows(IllegalArgumentException.class, () -> new WorkflowRunner().resume(workflow, "no-such-run"));
+    }
+
+    @Test
+    void codecRoundTripsJournalValues() {
+        Map<String, Object> value = new java.util.LinkedHashMap<>();
+        value.put("int", 7);
+        value.put("long", -2L);
+        value.put("double", 1.5);
+        value.put("text", "ñandú");
+        value.put("flag", true);
+        value.put("none", null);
+        value.put("list", java.util.List.of(1, "dos", Map.of("tres", 3L)));
+        value.put("decimal", new java.math.BigDecimal("12.3400"));
+
+        JournalCodec.Writer writer = new JournalCodec.Writer();
+        writer.writeValue(value);
+        Object decoded = JournalCodec.readValue(java.nio.ByteBuffer.wrap(writer.array(), 0, writer.size()));
+
+        assertEquals(value, decoded);
+    }
+}
@@ -0,0 +1,177 @@
+package com.miniflow.core;
+
+import static com.miniflow.core.TestWorkflows.edge;
+import static com.miniflow.core.TestWorkflows.node;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.miniflow.model.Workflow;
+import com.miniflow.utils.EngineOutput;
+import com.miniflow.utils.JsonUtils;
+import com.sun.net.httpserver.HttpServer;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class RunTraceTest {
+
+    private static HttpServer server;
+    private static String baseUrl;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        // /flaky-x responde 503 la primera vez y 200 después
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        server.createContext("/", exchange -> {
+            int call = calls.computeIfAbsent(exchange.getRequestURI().getPath(), k -> new AtomicInteger())
+                    .incrementAndGet();
+            byte[] body = "{\"ok\": true}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(call == 1 ? 503 : 200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        server.stop(0);
+    }
+
+    /**
+     * start -> p -> (slow | http) -> join -> end. slow es un proceso de
+     * 300 ms; http falla una vez y se reintenta.
+     */
+    private static Workflow workflow(String engine) {
+        Workflow workflow = new Workflow();
+        workflow.name = "Trace";
+        workflow.nodes = new ArrayList<>(List.of(
+                node("start", "START", Map.of()),
+                node("p", "PARALLEL", Map.of()),
+                node("slow", "COMMAND", Map.of("command", "sleep 0.3", "streamOutput", false)),
+                node("http", "HTTP_REQUEST", Map.of("url", baseUrl + "/flaky-" + UUID.randomUUID(),
+                        "retries", 2, "retryPolicy", Map.of("backoffMs", 10, "jitter", "none",
+                                "retryOnStatus", List.of(503)))),
+                node("join", "PARALLEL_JOIN", Map.of()),
+                node("end", "END", Map.of())));
+        workflow.edges = new ArrayList<>(List.of(edge("start", "p"), edge("p", "slow"), edge("p", "http"),
+                edge("slow", "join"), edge("http", "join"), edge("join", "end")));
+        workflow.settings = Map.of("engine", engine, "trace", true);
+        return workflow;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> run(String engine) throws Exception {
+        String runId = "trace-" + engine + "-" + UUID.randomUUID();
+        PrintStream oldOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            WorkflowEngines.byName(engine).run(workflow(engine), runId);
+            EngineOutput.flush();
+        } finally {
+            System.setOut(oldOut);
+        }
+        Map<String, Object> trace = (Map<String, Object>) JsonUtils.tryParse(
+                Files.readString(RunTrace.fileFor(runId)));
+        assertEquals(runId, ((Map<?, ?>) trace.get("otherData")).get("runId"));
+        return (List<Map<String, Object>>) trace.get("traceEvents");
+    }
+
+    private static Map<?, ?> args(Map<String, Object> event) {
+        return (Map<?, ?>) event.get("args");
+    }
+
+    private static Map<String, Object> nodeSpan(List<Map<String, Object>> spans, String nodeId) {
+        return spans.stream()
+                .filter(e -> "node".equals(e.get("cat")) && nodeId.equals(args(e).get("nodeId")))
+                .filter(e -> !"HALTED".equals(args(e).get("status")))
+                .findFirst().orElseThrow(() -> new AssertionError("no span for " + nodeId));
+    }
+
+    @Test
+    void traceFileStaysInsideTheTraceDirectory() {
+        // En modo daemon el runId lo manda el cliente
+        Path file = RunTrace.fileFor("../../etc/x");
+        assertEquals(RunTrace.fileFor("run").getParent(), file.getParent());
+        assertEquals(".._.._etc_x.trace.json", file.getFileName().toString());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "runner", "dataflow" })
+    @DisabledOnOs(value = OS.WINDOWS, disabledReason = "uses sleep")
+    void spansFollowBranchesAndNestPerThread(String engine) throws Exception {
+        List<Map<String, Object>> events = run(engine);
+        List<Map<String, Object>> spans = events.stream().filter(e -> "X".equals(e.get("ph"))).toList();
+
+        // Intentos HTTP y proceso cuelgan de su nodo
+        Object httpSpan = args(nodeSpan(spans, "http")).get("spanId");
+        List<Map<String, Object>> attempts = spans.stream().filter(e -> "http".equals(e.get("cat"))).toList();
+        assertEquals(2, attempts.size());
+        assertTrue(attempts.stream().allMatch(a -> httpSpan.equals(args(a).get("parentId"))));
+        assertEquals(List.of(503, 200), attempts.stream().map(a -> args(a).get("status")).toList());
+        Object slowSpan = args(nodeSpan(spans, "slow")).get("spanId");
+        assertTrue(spans.stream().anyMatch(e -> "process".equals(e.get("cat"))
+                && ((String) e.get("name")).startsWith("process ") && slowSpan.equals(args(e).get("parentId"))));
+
+        // En cada hilo del visor los spans se anidan (o no se tocan)
+        Map<Object, List<Map<String, Object>>> byTid = spans.stream()
+                .collect(Collectors.groupingBy(e -> e.get("tid")));
+        for (List<Map<String, Object>> lane : byTid.values()) {
+            for (Map<String, Object> a : lane) {
+                for (Map<String, Object> b : lane) {
+                    double as = ((Number) a.get("ts")).doubleValue();
+                    double ae = as + ((Number) a.get("dur")).doubleValue();
+                    double bs = ((Number) b.get("ts")).doubleValue();
+                    double be = bs + ((Number) b.get("dur")).doubleValue();
+                    // ts y dur se redondean por separado: margen de 1 µs
+                    boolean disjoint = ae <= bs + 1 || be <= as + 1;
+                    boolean nested = (as <= bs + 1 && be <= ae + 1) || (bs <= as + 1 && ae <= be + 1);
+                    assertTrue(disjoint || nested, a + " overlaps " + b);
+                }
+            }
+        }
+
+        if (engine.equals("runner")) {
+            // Cada rama de cloneContext es hija del PARALLEL y la que sigue tras
+            // la barrera, del join; todas con su flecha de flujo
+            Object fork = args(nodeSpan(spans, "p")).get("spanId");
+            Object join = spans.stream().filter(e -> "node".equals(e.get("cat"))
+                    && "join".equals(args(e).get("nodeId")) && "OK".equals(args(e).get("status")))
+                    .findFirst().map(e -> args(e).get("spanId")).orElseThrow();
+            List<Map<String, Object>> branches = spans.stream().filter(e -> "branch".equals(e.get("cat"))).toList();
+            assertEquals(3, branches.size());
+            assertEquals(2, branches.stream().filter(b -> fork.equals(args(b).get("parentId"))).count());
+            assertEquals("0.join", branches.stream().filter(b -> join.equals(args(b).get("parentId")))
+                    .findFirst().map(b -> args(b).get("branch")).orElseThrow());
+            assertEquals(3, events.stream().filter(e -> "s".equals(e.get("ph"))).count());
+            assertEquals(3, events.stream().filter(e -> "f".equals(e.get("ph"))).count());
+
+            // La rama HTTP llega antes a la barrera y espera a la lenta
+            Map<String, Object> wait = spans.stream().filter(e -> "barrier".equals(e.get("cat")))
+                    .findFirst().orElseThrow();
+            assertEquals("join", args(wait).get("join"));
+            assertTrue(((Number) wait.get("dur")).doubleValue() > 100_000, "waited " + wait.get("dur") + "µs");
+        } else {
+            // Un solo contexto: slow y http se solapan y van a hilos distintos
+            assertNotEquals(nodeSpan(spans, "slow").get("tid"), nodeSpan(spans, "http").get("tid"));
+        }
+    }
+}
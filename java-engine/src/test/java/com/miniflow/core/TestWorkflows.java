@@ -0,0 +1,40 @@
+package com.miniflow.core;
+
+import com.miniflow.model.Connection;
+import com.miniflow.model.Node;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Nodos y aristas para montar workflows en los tests del paquete.
+ */
+final class TestWorkflows {
+
+    private TestWorkflows() {
+    }
+
+    static Node node(String id, String type, Map<String, Object> config) {
+        Node node = new Node();
+        node.id = id;
+        node.type = type;
+        node.data = new HashMap<>();
+        node.data.put("config", config);
+        return node;
+    }
+
+    static Connection edge(String source, String target) {
+        Connection edge = new Connection();
+        edge.source = source;
+        edge.target = target;
+        return edge;
+    }
+
+    /**
+     * Arista que sale por un handle concreto (ramas true/false del CONDITIONAL).
+     */
+    static Connection edge(String source, String target, String handle) {
+        Connection edge = edge(source, target);
+        edge.sourceHandle = handle;
+        return edge;
+    }
+}
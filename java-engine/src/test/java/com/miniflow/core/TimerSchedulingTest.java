@@ -0,0 +1,72 @@
+package com.miniflow.core;
+
+import static com.miniflow.core.TestWorkflows.edge;
+import static com.miniflow.core.TestWorkflows.node;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.miniflow.model.Workflow;
+import com.miniflow.utils.EngineOutput;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Map;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class TimerSchedulingTest {
+
+    private static final int BRANCHES = 10_000;
+
+    /**
+     * start -> p -> 10k TIMER de 500 ms -> join -> end
+     */
+    private static Workflow waitingBranches(String engine, String executor) {
+        Workflow workflow = new Workflow();
+        workflow.name = "Timers";
+        workflow.nodes = new ArrayList<>();
+        workflow.edges = new ArrayList<>();
+        workflow.nodes.add(node("start", "START", Map.of()));
+        workflow.nodes.add(node("p", "PARALLEL", Map.of()));
+        workflow.nodes.add(node("join", "PARALLEL_JOIN", Map.of()));
+        workflow.nodes.add(node("end", "END", Map.of()));
+        workflow.edges.add(edge("start", "p"));
+        for (int i = 0; i < BRANCHES; i++) {
+            workflow.nodes.add(node("t" + i, "TIMER", Map.of("delay", 500, "unit", "ms")));
+            workflow.edges.add(edge("p", "t" + i));
+            workflow.edges.add(edge("t" + i, "join"));
+        }
+        workflow.edges.add(edge("join", "end"));
+        workflow.settings = Map.of("engine", engine, "branchExecutor", executor);
+        return workflow;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "runner", "dataflow" })
+    void tenThousandWaitingBranchesKeepThePlatformThreadCountFlat(String engine) {
+        Workflow workflow = waitingBranches(engine, BranchExecutors.FORK_JOIN);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        PrintStream oldOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        long elapsedMs;
+        int before = threads.getThreadCount();
+        try {
+            threads.resetPeakThreadCount();
+            long start = System.nanoTime();
+            var context = WorkflowEngines.byName(engine).run(workflow, null);
+            elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            assertNull(context.getVariable("__lastError"));
+            EngineOutput.flush();
+        } finally {
+            System.setOut(oldOut);
+        }
+        int grown = threads.getPeakThreadCount() - before;
+
+        // Con Thread.sleep cada espera retenía un hilo del pool (hasta forkJoinMaxThreads)
+        assertTrue(grown < 32, "threads grew by " + grown);
+        // Las esperas se solapan: en serie por lotes de hilos serían decenas de segundos
+        assertTrue(elapsedMs < 15_000, BRANCHES + " timers took " + elapsedMs + " ms");
+    }
+}
@@ -69,4 +69,94 @@ class ModelBehaviorTest {
         assertEquals(end, workflow.findNodeById("end"));
         assertNull(workflow.findNodeById("missing"));
     }
+
+    @Test
+    void nodeTypeIsNormalizedOnce() {
+        Node node = new Node();
+        node.type = " http_request ";
+
+        assertEquals(NodeType.HTTP_REQUEST, node.getNodeType());
+        assertEquals(NodeType.UNKNOWN, NodeType.from(null));
+        assertEquals(NodeType.UNKNOWN, NodeType.from("unknown"));
+        assertEquals(NodeType.PARALLEL_JOIN, NodeType.from("parallel_join"));
+    }
+
+    @Test
+    void compiledWorkflowIndexesEdgesByBranchAndCountsInDegree() {
+        Workflow workflow = new Workflow();
+        Node start = new Node();
+        start.id = "start";
+        start.type = "START";
+        Node cond = new Node();
+        cond.id = "cond";
+        Node a = new Node();
+        a.id = "a";
+        Node b = new Node();
+        b.id = "b";
+        workflow.nodes = List.of(start, cond, a, b);
+
+        Connection toCond = new Connection();
+        toCond.source = "start";
+        toCond.target = "cond";
+        Connection onTrue = new Connection();
+        onTrue.source = "cond";
+        onTrue.target = "a";
+        onTrue.label = "TRUE";
+        Connection onFalse = new Connection();
+        onFalse.source = "cond";
+        onFalse.target = "b";
+        onFalse.sourceHandle = "false";
+        Connection backToB = new Connection();
+        backToB.source = "a";
+        backToB.target = "b";
+        workflow.edges = List.of(toCond, onTrue, onFalse, backToB);
+
+        CompiledWorkflow graph = workflow.compiled();
+
+        assertSame(graph, workflow.compiled());
+        assertEquals(start, graph.startNode());
+        assertEquals(cond, graph.next("start", null));
+        assertEquals(a, graph.next("cond", null));
+        assertEquals(a, graph.next("cond", "true"));
+        assertEquals(b, graph.next("cond", "FALSE"));
+        assertNull(graph.next("cond", "OTHER"));
+        assertNull(graph.next("b", null));
+        assertEquals(2, graph.inDegree("b"));
+        assertEquals(0, graph.inDegree("start"));
+        assertEquals(2, graph.outgoing("cond").size());
+    }
+
+    @Test
+    void workflowReaderStreamsAndDropsUiOnlyFields() throws Exception {
+        String json = "{\"name\":\"Flow\",\"viewport\":{\"x\":1},\"nodes\":["
+                + "{\"id\":\"s\",\"type\":\"start\",\"position\":{\"x\":1,\"y\":2},\"width\":10,"
+                + "\"data\":{\"label\":\"Start\",\"icon\":\"play\",\"config\":{\"retries\":3,\"ratio\":0.5,"
+                + "\"urls\":[\"a\",null],\"flag\":true}}},"
+                + "{\"id\":\"old\",\"type\":\"command\",\"data\":{\"command\":\"echo\"}}],"
+                + "\"edges\":[{\"id\":\"e1\",\"source\":\"s\",\"target\":\"old\",\"sourceHandle\":null,"
+                + "\"style\":{\"stroke\":\"red\"}}]}";
+
+        Workflow workflow = WorkflowReader.read(
+                new java.io.ByteArrayInputStream(json.getBytes(java.nio.charset.StandardCharsets.UTF_8)));
+
+        assertEquals("Flow", workflow.name);
+        assertEquals(2, workflow.nodes.size());
+        Node start = workflow.nodes.get(0);
+        assertEquals("Start", start.getLabel());
+        assertFalse(start.data.containsKey("icon"));
+        assertEquals(3, start.getConfig().get("retries"));
+        assertEquals(0.5, start.getConfig().get("ratio"));
+        assertEquals(java.util.Arrays.asList("a", null), start.getConfig().get("urls"));
+        assertEquals(true, start.getConfig().get("flag"));
+        assertEquals("echo", workflow.nodes.get(1).getConfig().get("command"));
+
+        Connection edge = workflow.edges.get(0);
+        assertEquals("s", edge.source);
+        assertEquals("old", edge.target);
+        assertNull(edge.sourceHandle);
+        assertEquals(workflow.nodes.get(1), workflow.compiled().next("s", null));
+
+        assertNull(WorkflowReader.read(""));
+        assertThrows(java.io.IOException.class, () -> WorkflowReader.read("[1]"));
+    }
 }
@@ -1,27 +1,47 @@
 package com.miniflow.strategies;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 import com.miniflow.context.ExecutionContext;
+import com.miniflow.core.WorkflowRunner;
 import com.miniflow.model.Connection;
 import com.miniflow.model.Node;
 import com.miniflow.model.Workflow;
+import com.miniflow.utils.EngineOutput;
 import com.miniflow.utils.HttpHelper;
+import com.miniflow.utils.PythonSupport;
 import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
 
 class IntegrationLikeStrategiesTest {
 
+    private static final ScheduledExecutorService DELAYED = Executors.newSingleThreadScheduledExecutor();
+
     private static HttpServer server;
     private static String baseUrl;
+    private static String bigBody;
 
     private static Node node(String id, String type, Map<String, Object> config) {
         Node node = new Node();
@@ -41,7 +61,23 @@ class IntegrationLikeStrategiesTest {
     static void startServer() throws Exception {
         server = HttpServer.create(new InetSocketAddress(0), 0);
         server.createContext("/ok", exchange -> writeResponse(exchange, 200, "{\"status\":200,\"data\":{\"name\":\"Ana\"}}"));
+        server.createContext("/cached", exchange -> {
+            exchange.getResponseHeaders().add("Cache-Control", "max-age=60");
+            writeResponse(exchange, 200, "{\"status\":200}");
+        });
+        // ~1MB con los campos del map repartidos al principio y al final
+        StringBuilder big = new StringBuilder("{\"meta\":{\"total\":20000},\"items\":[");
+        for (int i = 0; i < 20000; i++)
+            big.append(i > 0 ? "," : "").append("{\"id\":").append(i).append(",\"label\":\"item-").append(i)
+                    .append("-padding-padding\"}");
+        bigBody = big.append("],\"summary\":{\"name\":\"Ana\"}}").toString();
+        server.createContext("/big", exchange -> writeResponse(exchange, 200, bigBody));
         server.createContext("/err", exchange -> writeResponse(exchange, 500, "{\"error\":\"boom\"}"));
+        // Respuesta diferida sin ocupar hilos del servidor
+        server.createContext("/slow", exchange -> DELAYED.schedule(() -> {
+            writeResponse(exchange, 200, "{\"status\":200}");
+            return null;
+        }, 250, TimeUnit.MILLISECONDS));
         server.start();
         baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
     }
@@ -51,6 +87,7 @@ class IntegrationLikeStrategiesTest {
         if (server != null) {
             server.stop(0);
         }
+        DELAYED.shutdownNow();
     }
 
     private static void writeResponse(com.sun.net.httpserver.HttpExchange exchange, int status, String body)
@@ -156,6 +193,134 @@ class IntegrationLikeStrategiesTest {
         assertEquals(0, nodeOutput(context, "cmd-1").get("exitCode"));
     }
 
+    @Test
+    @DisabledOnOs(value = OS.WINDOWS, disabledReason = "uses seq")
+    void commandStrategyBoundsChattyOutputAndStreamsLines() throws Exception {
+        CommandStrategy strategy = new CommandStrategy();
+        ExecutionContext context = new ExecutionContext();
+        Node node = node("cmd-big", "COMMAND", Map.of(
+                "command", "seq",
+                "args", "1 100000",
+                "outputKey", "seqOut",
+                "captureHeadBytes", 64,
+                "captureTailBytes", 64,
+                "timeoutMs", 10000
+        ));
+
+        PrintStream oldOut = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+        try {
+            strategy.execute(node, context);
+            EngineOutput.flush();
+        } finally {
+            System.setOut(oldOut);
+        }
+
+        String out = String.valueOf(context.getVariable("seqOut"));
+        assertTrue(out.startsWith("1\n2\n3\n"), out);
+        assertTrue(out.endsWith("99999\n100000\n"), out);
+        assertTrue(out.length() < 256, "La captura debe estar acotada");
+        Map<?, ?> info = (Map<?, ?>) nodeOutput(context, "cmd-big").get("stdoutInfo");
+        assertEquals(588895L, info.get("bytes"));
+        assertEquals(100000L, info.get("lines"));
+        assertEquals(true, info.get("truncated"));
+        assertTrue(output.toString(StandardCharsets.UTF_8).contains("[cmd-big]    [stdout] 54321\n"));
+    }
+
+    @Test
+    void commandStrategyRunsPythonScriptsOnWarmWorkers() throws Exception {
+        assumeTrue(PythonSupport.available(), "python3 not installed");
+        CommandStrategy strategy = new CommandStrategy();
+        ExecutionContext context = new ExecutionContext();
+        context.setVariable("rawData", "{\"n\": 20}");
+        Node node = node("py-1", "COMMAND", Map.of(
+                "command", "python3",
+                "args", "../workflows_a_probar/wf2/transform.py",
+                "inputKey", "rawData",
+                "outputKey", "cleaned",
+                "pythonWorker", true,
+                "streamOutput", false
+        ));
+
+        strategy.execute(node, context);
+        Object firstPid = ((Map<?, ?>) nodeOutput(context, "py-1").get("worker")).get("pid");
+        strategy.execute(node, context);
+
+        Map<?, ?> worker = (Map<?, ?>) nodeOutput(context, "py-1").get("worker");
+        assertEquals(firstPid, worker.get("pid"));
+        assertTrue(String.valueOf(context.getVariable("cleaned")).contains("cleanedData"));
+        assertEquals(0, nodeOutput(context, "py-1").get("exitCode"));
+    }
+
+    @Test
+    @DisabledOnOs(value = OS.WINDOWS, disabledReason = "uses cat and wc")
+    void commandStrategyFeedsLargeInputsWhileReadingOutput() throws Exception {
+        CommandStrategy strategy = new CommandStrategy();
+        ExecutionContext context = new ExecutionContext();
+        String big = "0123456789abcdef".repeat(256 * 1024); // 4 MB, mucho más que el buffer de la tubería
+        context.setVariable("big", big);
+
+        // cat escribe mientras lee: con stdin escrito antes de leer la salida se bloqueaba
+        strategy.execute(node("cat-1", "COMMAND", Map.of("command", "cat", "inputKey", "big",
+                "streamOutput", false, "timeoutMs", 10000)), context);
+        Map<String, Object> output = nodeOutput(context, "cat-1");
+        assertEquals((long) big.length(), output.get("stdinBytes"));
+        assertEquals((long) big.length(), ((Map<?, ?>) output.get("stdoutInfo")).get("bytes"));
+
+        // Un fichero se conecta directamente como stdin
+        Path file = Files.createTempFile("miniflow-input-", ".txt");
+        try {
+            Files.writeString(file, big);
+            strategy.execute(node("wc-1", "COMMAND", Map.of("command", "wc", "args", "-c",
+                    "inputFile", file.toString(), "outputKey", "count")), context);
+            assertEquals(String.valueOf(big.length()), String.valueOf(context.getVariable("count")).trim());
+            assertEquals(file.toString(), nodeOutput(context, "wc-1").get("stdinFile"));
+        } finally {
+            Files.delete(file);
+        }
+
+        // Sin entrada, stdin se cierra y el hijo ve EOF en vez de esperar al timeout
+        long start = System.nanoTime();
+        strategy.execute(node("cat-2", "COMMAND", Map.of("command", "cat", "timeoutMs", 5000)), context);
+        assertTrue(System.nanoTime() - start < 4_000_000_000L);
+    }
+
+    @Test
+    void commandStrategyMovesLargePayloadsOutOfArgv() throws Exception {
+        assumeTrue(PythonSupport.available(), "python3 not installed");
+        CommandStrategy strategy = new CommandStrategy();
+        ExecutionContext context = new ExecutionContext();
+        Path script = Files.createTempFile("miniflow-payload-", ".py");
+        Files.writeString(script, String.join("\n",
+                "import os, sys",
+                "path = os.environ.get('MINIFLOW_PAYLOAD_FILE')",
+                "payload = sys.argv[1] if len(sys.argv) > 1 else open(path).read() if path else None",
+                "print(len(payload) if payload else 0, 'argv' if len(sys.argv) > 1 else 'file' if path else 'stdin',",
+                "      len(sys.stdin.read()), os.path.exists(path) if path else '-')",
+                ""));
+        try {
+            String payload = "x".repeat(500_000); // por encima del límite de un argumento (128 KB en Linux)
+            context.setVariable("payload", payload);
+            context.setVariable("other", "abc");
+
+            strategy.execute(node("p-1", "COMMAND", Map.of("command", "python3", "scriptPath", script.toString(),
+                    "outputKey", "viaStdin")), context);
+            assertEquals("0 stdin 500000 -", String.valueOf(context.getVariable("viaStdin")).trim());
+
+            strategy.execute(node("p-2", "COMMAND", Map.of("command", "python3", "scriptPath", script.toString(),
+                    "inputKey", "other", "outputKey", "viaFile")), context);
+            assertEquals("500000 file 3 True", String.valueOf(context.getVariable("viaFile")).trim());
+
+            context.setVariable("payload", "small");
+            strategy.execute(node("p-3", "COMMAND", Map.of("command", "python3", "scriptPath", script.toString(),
+                    "outputKey", "viaArgv")), context);
+            assertEquals("5 argv 0 -", String.valueOf(context.getVariable("viaArgv")).trim());
+        } finally {
+            Files.delete(script);
+        }
+    }
+
     @Test
     void commandStrategyValidatesRequiredCommandAndScriptPath() {
         CommandStrategy strategy = new CommandStrategy();
@@ -201,4 +366,156 @@ class IntegrationLikeStrategiesTest {
         strategy.execute(parallel, context);
         assertEquals(1, nodeOutput(context, "p1").get("branches_dispatched"));
     }
+
+    @Test
+    void httpNodesInParallelBranchesDoNotHoldThreads() {
+        int branches = 40;
+        Workflow workflow = new Workflow();
+        workflow.name = "AsyncHttp";
+        workflow.nodes = new ArrayList<>(List.of(node("start", "START", Map.of()), node("p", "PARALLEL", Map.of())));
+        workflow.edges = new ArrayList<>();
+        workflow.edges.add(connection("start", "p"));
+        for (int i = 0; i < branches; i++) {
+            workflow.nodes.add(node("h" + i, "HTTP_REQUEST", Map.of("url", baseUrl + "/slow", "timeoutMs", 5000)));
+            workflow.edges.add(connection("p", "h" + i));
+        }
+        // ForkJoin compensaría con un hilo nuevo por cada espera bloqueante
+        workflow.settings.put("branchExecutor", "forkjoin");
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int before = threads.getThreadCount();
+        threads.resetPeakThreadCount();
+
+        ExecutionContext context;
+        long started = System.nanoTime();
+        PrintStream oldOut = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        try {
+            context = new WorkflowRunner().run(workflow);
+        } finally {
+            EngineOutput.flush();
+            System.setOut(oldOut);
+        }
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        assertEquals(branches, nodeOutput(context, "p").get("branches_dispatched"));
+        assertTrue(elapsedMs < 4000, "Las peticiones deberían solaparse, tardó " + elapsedMs + "ms");
+        int grown = threads.getPeakThreadCount() - before;
+        assertTrue(grown < branches / 2, "Demasiados hilos para " + branches + " peticiones: +" + grown);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void hedgedRequestTakesFallbackWhenPrimaryIsSlow() throws Exception {
+        HttpRequestStrategy strategy = new HttpRequestStrategy();
+        ExecutionContext context = new ExecutionContext();
+        Node node = node("http-hedge", "HTTP_REQUEST", Map.of(
+                "url", baseUrl + "/slow",
+                "fallbackUrls", List.of(baseUrl + "/ok"),
+                "hedgeAfterMs", 50,
+                "timeoutMs", 2000,
+                "map", Map.of("name", "$.data.name")));
+
+        long started = System.nanoTime();
+        strategy.execute(node, context);
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        assertEquals("Ana", context.getVariable("name"));
+        assertTrue(elapsedMs < 240, "Debería ganar el fallback, tardó " + elapsedMs + "ms");
+
+        List<Map<String, Object>> attempts = (List<Map<String, Object>>) nodeOutput(context, "http-hedge").get("attempts");
+        assertTrue(attempts.stream().anyMatch(a -> Boolean.TRUE.equals(a.get("hedged")) && a.get("status").equals(200)),
+                attempts.toString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void retriesBackOffAndReportEachAttempt() {
+        HttpRequestStrategy strategy = new HttpRequestStrategy();
+        ExecutionContext context = new ExecutionContext();
+        Node node = node("http-retry", "HTTP_REQUEST", Map.of(
+                "url", baseUrl + "/err",
+                "retries", 2,
+                "retryPolicy", Map.of("backoffMs", 60, "multiplier", 2, "jitter", "NONE",
+                        "retryOnStatus", List.of(500)),
+                "timeoutMs", 1000));
+
+        Exception ex = assertThrows(Exception.class, () -> strategy.execute(node, context));
+        assertTrue(ex.getMessage().contains("HTTP Error 500"));
+
+        List<Map<String, Object>> attempts = (List<Map<String, Object>>) nodeOutput(context, "http-retry").get("attempts");
+        assertEquals(3, attempts.size());
+        // 60ms antes del 2º intento y 120ms antes del 3º
+        assertTrue(((Number) attempts.get(1).get("startMs")).longValue() >= 60, attempts.toString());
+        assertTrue(((Number) attempts.get(2).get("startMs")).longValue() >= 180, attempts.toString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void httpCacheOutcomeIsReportedInNodeOutput() throws Exception {
+        HttpRequestStrategy strategy = new HttpRequestStrategy();
+        ExecutionContext context = new ExecutionContext();
+        Node node = node("http-cache", "HTTP_REQUEST", Map.of(
+                "url", baseUrl + "/cached?run=" + System.nanoTime(),
+                "httpCache", true,
+                "map", Map.of("status", "$.status")));
+
+        strategy.execute(node, context);
+        assertEquals("MISS", ((Map<String, Object>) nodeOutput(context, "http-cache").get("cache")).get("status"));
+
+        strategy.execute(node, context);
+        Map<String, Object> cache = (Map<String, Object>) nodeOutput(context, "http-cache").get("cache");
+        assertEquals("HIT", cache.get("status"));
+        assertTrue(((Number) cache.get("hits")).longValue() >= 1);
+        assertEquals(200, context.getVariable("status"));
+    }
+
+    @Test
+    void streamedBodyExtractsMappedPathsAndKeepsOnlyAPreview() throws Exception {
+        HttpRequestStrategy strategy = new HttpRequestStrategy();
+        ExecutionContext context = new ExecutionContext();
+        Node node = node("http-stream", "HTTP_REQUEST", Map.of(
+                "url", baseUrl + "/big",
+                "streamBody", true,
+                "previewBytes", 256,
+                "map", Map.of("total", "$.meta.total", "name", "$.summary.name", "missing", "$.meta.nope")));
+
+        strategy.execute(node, context);
+
+        assertEquals(20000, context.getVariable("total"));
+        assertEquals("Ana", context.getVariable("name"));
+        assertNull(context.getVariable("missing"));
+        Map<String, Object> output = nodeOutput(context, "http-stream");
+        assertEquals(200, output.get("status_code"));
+        assertEquals(true, output.get("streamed"));
+        assertEquals((long) bigBody.length(), output.get("bytes"));
+        assertEquals(bigBody.substring(0, 256), output.get("preview"));
+        assertEquals(true, output.get("truncated"));
+        assertFalse(output.containsKey("response"));
+    }
+
+    @Test
+    void streamedBodyKeepsTreeOnlyWhenAsked() throws Exception {
+        HttpRequestStrategy strategy = new HttpRequestStrategy();
+        ExecutionContext context = new ExecutionContext();
+        Node node = node("http-keep", "HTTP_REQUEST", Map.of(
+                "url", baseUrl + "/ok",
+                "bodyMode", "stream",
+                "keepBody", true));
+
+        strategy.execute(node, context);
+
+        Map<String, Object> output = nodeOutput(context, "http-keep");
+        assertEquals(Map.of("status", 200, "data", Map.of("name", "Ana")), output.get("response"));
+        assertEquals(false, output.get("truncated"));
+        assertEquals(Map.of("status_code", 200, "response", output.get("response")),
+                context.getVariable("lastResponse"));
+    }
+
+    private static Connection connection(String source, String target) {
+        Connection edge = new Connection();
+        edge.source = source;
+        edge.target = target;
+        return edge;
+    }
 }
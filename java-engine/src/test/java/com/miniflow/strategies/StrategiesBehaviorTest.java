@@ -4,9 +4,11 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import com.miniflow.context.ExecutionContext;
 import com.miniflow.model.Node;
+import com.miniflow.utils.EngineOutput;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.nio.file.Path;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
@@ -95,6 +97,29 @@ class StrategiesBehaviorTest {
         assertEquals(2L, output.get("waited_ms"));
     }
 
+    @Test
+    void timerStrategyWaitsUntilAbsoluteInstant() throws Exception {
+        ExecutionContext context = new ExecutionContext();
+        context.setVariable("deadline", Instant.now().plusMillis(150).toString());
+        Node timer = node("timer-2", "TIMER", Map.of("at", "{{deadline}}"));
+
+        long start = System.nanoTime();
+        new TimerStrategy().execute(timer, context);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        Map<String, Object> output = nodeOutput(context, "timer-2");
+        assertEquals(context.getVariable("deadline"), output.get("until"));
+        assertTrue(elapsedMs >= 100, "waited " + elapsedMs + " ms");
+
+        // Un instante pasado (epoch ms) no espera
+        Node past = node("timer-3", "TIMER", Map.of("at", 1_000L));
+        new TimerStrategy().execute(past, context);
+        assertEquals(0L, nodeOutput(context, "timer-3").get("waited_ms"));
+
+        Node invalid = node("timer-4", "TIMER", Map.of("at", "mañana"));
+        assertThrows(IllegalArgumentException.class, () -> new TimerStrategy().execute(invalid, context));
+    }
+
     @Test
     void createFolderStrategyCreatesAndReusesFolder() throws Exception {
         ExecutionContext context = new ExecutionContext();
@@ -155,6 +180,7 @@ class StrategiesBehaviorTest {
         System.setOut(new PrintStream(output));
         try {
             decorator.execute(node, context);
+            EngineOutput.flush();
         } finally {
             System.setOut(oldOut);
         }
@@ -0,0 +1,136 @@
+package com.miniflow.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class EventSinkTest {
+
+    @Test
+    void ringIsBoundedAndFifo() {
+        EventRing<String> ring = new EventRing<>(4);
+        assertEquals(4, ring.capacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer("e" + i));
+        }
+        assertFalse(ring.offer("overflow"));
+        assertEquals("e0", ring.poll());
+        assertTrue(ring.offer("e4"));
+        assertEquals("e1", ring.poll());
+        assertEquals("e2", ring.poll());
+        assertEquals("e3", ring.poll());
+        assertEquals("e4", ring.poll());
+        assertNull(ring.poll());
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    void flushWritesEveryPublishedLineInOrder() {
+        EventSink sink = new EventSink(16, 4, EventSink.OverflowPolicy.BLOCK);
+        PrintStream oldOut = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true));
+        try {
+            for (int i = 0; i < 100; i++) {
+                sink.publish("0", null, false, "line-" + i);
+            }
+            sink.flush();
+        } finally {
+            System.setOut(oldOut);
+        }
+
+        String[] lines = output.toString().split(System.lineSeparator());
+        assertEquals(100, lines.length);
+        for (int i = 0; i < 100; i++) {
+            assertEquals("line-" + i, lines[i]);
+        }
+    }
+
+    @Test
+    void batchesKeepPublicationOrderAcrossBranchesAndRawEvents() {
+        EventSink sink = new EventSink(64, 64, EventSink.OverflowPolicy.BLOCK);
+        CountDownLatch release = new CountDownLatch(1);
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        OutputStream gatedPipe = new OutputStream() {
+            @Override
+            public void write(int b) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                captured.write(b);
+            }
+        };
+
+        PrintStream oldOut = System.out;
+        System.setOut(new PrintStream(gatedPipe, true));
+        try {
+            // El primer evento retiene al escritor: el resto llega en un solo lote
+            sink.publish("0", "A", false, "warmup");
+            sink.publish("0", "B", false, "B root");
+            sink.publish(null, "B", false, "B finished");
+            sink.publish("0.1", "A", false, "A branch 1");
+            sink.publish("0", "A", false, "A root 1", "A root 2");
+            sink.publish("0.1", "A", false, "A branch 2");
+            sink.publish(null, "A", false, "A finished");
+            release.countDown();
+            sink.flush();
+        } finally {
+            System.setOut(oldOut);
+        }
+
+        assertEquals(java.util.List.of("warmup", "B root", "B finished", "A branch 1", "A root 1", "A root 2",
+                "A branch 2", "A finished"), java.util.List.of(captured.toString().split(System.lineSeparator())));
+    }
+
+    @Test
+    void dropVerbosePolicyNeverBlocksProducersOnDetailEvents() throws Exception {
+        EventSink sink = new EventSink(2, 1, EventSink.OverflowPolicy.DROP_VERBOSE);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch writing = new CountDownLatch(1);
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        OutputStream slowPipe = new OutputStream() {
+            @Override
+            public void write(int b) {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                captured.write(b);
+            }
+        };
+
+        PrintStream oldOut = System.out;
+        System.setOut(new PrintStream(slowPipe, true));
+        try {
+            sink.publish("0", null, false, "first");
+            assertTrue(writing.await(5, TimeUnit.SECONDS), "El escritor debe tomar el primer evento");
+
+            // El escritor está bloqueado en la tubería: llenamos el buffer
+            for (int i = 0; i < 4; i++) {
+                sink.publish("0", null, false, "essential-" + i);
+            }
+            long before = System.nanoTime();
+            sink.publish("0", null, true, "verbose");
+            assertTrue(System.nanoTime() - before < TimeUnit.SECONDS.toNanos(1));
+            assertEquals(1, sink.droppedEvents());
+
+            release.countDown();
+            sink.flush();
+        } finally {
+            System.setOut(oldOut);
+        }
+
+        String out = captured.toString();
+        assertTrue(out.contains("essential-3"));
+        assertFalse(out.contains("verbose"));
+    }
+}
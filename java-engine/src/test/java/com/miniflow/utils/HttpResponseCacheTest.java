@@ -0,0 +1,158 @@
+package com.miniflow.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HttpResponseCacheTest {
+
+    private static HttpServer server;
+    private static String baseUrl;
+    private static final AtomicInteger fullResponses = new AtomicInteger();
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/fresh", exchange -> {
+            exchange.getResponseHeaders().add("Cache-Control", "max-age=60");
+            send(exchange, 200, "{\"path\":\"" + exchange.getRequestURI().getPath() + "\"}");
+        });
+        server.createContext("/etag", exchange -> {
+            exchange.getResponseHeaders().add("ETag", "\"v1\"");
+            exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            send(exchange, 200, "{\"version\":1}");
+        });
+        server.createContext("/vary", exchange -> {
+            exchange.getResponseHeaders().add("Cache-Control", "max-age=60");
+            exchange.getResponseHeaders().add("Vary", "Accept-Language");
+            send(exchange, 200, "{\"lang\":\"" + exchange.getRequestHeaders().getFirst("Accept-Language") + "\"}");
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop(0);
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        fullResponses.incrementAndGet();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    private static HttpResponse<String> get(HttpResponseCache cache, String path, Map<String, String> headers,
+            HttpResponseCache.Lookup lookup) throws Exception {
+        String url = baseUrl + path;
+        return Futures.join(cache.fetch("GET", url, headers, 0, lookup,
+                sent -> HttpHelper.sendAsync(url, "GET", null, sent, 2000)));
+    }
+
+    @Test
+    void freshEntryIsServedWithoutNetwork() throws Exception {
+        HttpResponseCache cache = new HttpResponseCache(1 << 20, null);
+        int before = fullResponses.get();
+
+        HttpResponseCache.Lookup first = cache.newLookup();
+        get(cache, "/fresh/a", Map.of(), first);
+        HttpResponseCache.Lookup second = cache.newLookup();
+        HttpResponse<String> cached = get(cache, "/fresh/a", Map.of(), second);
+
+        assertEquals(HttpResponseCache.Outcome.MISS, first.outcome());
+        assertEquals(HttpResponseCache.Outcome.HIT, second.outcome());
+        assertEquals("{\"path\":\"/fresh/a\"}", cached.body());
+        assertEquals(1, fullResponses.get() - before);
+        assertEquals(1L, second.toMap().get("hits"));
+    }
+
+    @Test
+    void staleEntryIsRevalidatedWithEtag() throws Exception {
+        HttpResponseCache cache = new HttpResponseCache(1 << 20, null);
+        int before = fullResponses.get();
+
+        get(cache, "/etag", Map.of(), cache.newLookup());
+        HttpResponseCache.Lookup lookup = cache.newLookup();
+        HttpResponse<String> revalidated = get(cache, "/etag", Map.of(), lookup);
+
+        assertEquals(HttpResponseCache.Outcome.REVALIDATED, lookup.outcome());
+        assertEquals(200, revalidated.statusCode());
+        assertEquals("{\"version\":1}", revalidated.body());
+        assertEquals(1, fullResponses.get() - before);
+        assertEquals(1, cache.revalidations());
+    }
+
+    @Test
+    void varyHeadersArePartOfTheKey() throws Exception {
+        HttpResponseCache cache = new HttpResponseCache(1 << 20, null);
+
+        get(cache, "/vary", Map.of("Accept-Language", "es"), cache.newLookup());
+        HttpResponseCache.Lookup english = cache.newLookup();
+        HttpResponse<String> en = get(cache, "/vary", Map.of("Accept-Language", "en"), english);
+        HttpResponseCache.Lookup spanish = cache.newLookup();
+        HttpResponse<String> es = get(cache, "/vary", Map.of("Accept-Language", "es"), spanish);
+
+        assertEquals(HttpResponseCache.Outcome.MISS, english.outcome());
+        assertEquals("{\"lang\":\"en\"}", en.body());
+        assertEquals(HttpResponseCache.Outcome.HIT, spanish.outcome());
+        assertEquals("{\"lang\":\"es\"}", es.body());
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvictedByBytes() throws Exception {
+        // Espacio para dos entradas y media del mismo tamaño
+        HttpResponseCache probe = new HttpResponseCache(1 << 20, null);
+        get(probe, "/fresh/one", Map.of(), probe.newLookup());
+        long limit = probe.sizeBytes() * 5 / 2;
+        HttpResponseCache cache = new HttpResponseCache(limit, null);
+
+        get(cache, "/fresh/one", Map.of(), cache.newLookup());
+        get(cache, "/fresh/two", Map.of(), cache.newLookup());
+        get(cache, "/fresh/one", Map.of(), cache.newLookup()); // "one" pasa a ser la más reciente
+        get(cache, "/fresh/three", Map.of(), cache.newLookup());
+
+        assertTrue(cache.sizeBytes() <= limit, "bytes=" + cache.sizeBytes());
+        assertEquals(2, cache.size());
+        HttpResponseCache.Lookup one = cache.newLookup();
+        get(cache, "/fresh/one", Map.of(), one);
+        HttpResponseCache.Lookup two = cache.newLookup();
+        get(cache, "/fresh/two", Map.of(), two);
+
+        assertEquals(HttpResponseCache.Outcome.HIT, one.outcome());
+        assertEquals(HttpResponseCache.Outcome.MISS, two.outcome());
+    }
+
+    @Test
+    void entriesSurviveInTheCacheDirectory(@TempDir Path dir) throws Exception {
+        HttpResponseCache first = new HttpResponseCache(1 << 20, dir);
+        get(first, "/fresh/disk", Map.of(), first.newLookup());
+
+        HttpResponseCache reloaded = new HttpResponseCache(1 << 20, dir);
+        HttpResponseCache.Lookup lookup = reloaded.newLookup();
+        HttpResponse<String> resp = get(reloaded, "/fresh/disk", Map.of(), lookup);
+
+        assertEquals(HttpResponseCache.Outcome.HIT, lookup.outcome());
+        assertEquals("{\"path\":\"/fresh/disk\"}", resp.body());
+    }
+}
@@ -0,0 +1,74 @@
+package com.miniflow.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class JsonPathTest {
+
+    private static final String JSON = """
+            {"store": {"name": "Centro", "items": [
+                {"id": 1, "tipo": "a", "price": 5, "tags": ["x"]},
+                {"id": 2, "tipo": "b", "price": 12},
+                {"id": 3, "tipo": "a", "price": 8.5, "promo": true}
+            ]}, "odd key": {"v": 1}}
+            """;
+
+    private final Object tree = JsonUtils.tryParse(JSON);
+
+    private Object read(String path) {
+        return JsonPath.compile(path).read(tree);
+    }
+
+    @Test
+    void legacyDottedPathsKeepWorking() {
+        assertEquals("Centro", read("$.store.name"));
+        assertEquals("Centro", read("store.name"));
+        assertNull(read("$.store.missing.deeper"));
+        assertTrue(JsonPath.compile("$.store.name").isDefinite());
+        assertEquals(List.of("store", "name"), JsonPath.compile("$.store.name").fieldPrefix());
+    }
+
+    @Test
+    void indexesSlicesAndWildcards() {
+        assertEquals(1, read("$.store.items[0].id"));
+        assertEquals(3, read("$.store.items[-1].id"));
+        assertEquals("x", read("store.items[0].tags[0]"));
+        assertNull(read("$.store.items[9].id"));
+        assertEquals(List.of(1, 2), read("$.store.items[0:2].id"));
+        assertEquals(List.of(3, 2, 1), read("$.store.items[::-1].id"));
+        assertEquals(List.of(1, 2, 3), read("$.store.items[*].id"));
+        assertEquals(List.of(1), read("$['odd key'].*"));
+        assertEquals(List.of("store", "items"), JsonPath.compile("$.store.items[*].id").fieldPrefix());
+    }
+
+    @Test
+    void simpleFilters() {
+        assertEquals(List.of(1, 3), read("$.store.items[?(@.tipo == 'a')].id"));
+        assertEquals(List.of(2), read("$.store.items[?(@.price > 8.5)].id"));
+        assertEquals(List.of(1, 3), read("$.store.items[?(@.price <= 8.5)].id"));
+        assertEquals(List.of(3), read("$.store.items[?(@.promo)].id"));
+        assertEquals(List.of(), read("$.store.items[?(@.tipo != 'a')].tags"));
+    }
+
+    @Test
+    void worksOnJsonNodeTrees() throws Exception {
+        JsonNode node = new ObjectMapper().readTree(JSON);
+        assertEquals("Centro", JsonPath.compile("$.store.name").read(node).toString().replace("\"", ""));
+        assertEquals(2, ((JsonNode) JsonPath.compile("$.store.items[1].id").read(node)).intValue());
+        assertEquals(2, ((List<?>) JsonPath.compile("$.store.items[?(@.tipo == 'a')]").read(node)).size());
+        assertNull(JsonPath.compile("$.store.nope").read(node));
+    }
+
+    @Test
+    void compiledPathsAreCachedAndBadSyntaxIsReported() {
+        assertSame(JsonPath.compile("$.store.items[0]"), JsonPath.compile("$.store.items[0]"));
+        assertThrows(IllegalArgumentException.class, () -> JsonPath.compile("$.store.items[0"));
+        assertThrows(IllegalArgumentException.class, () -> JsonPath.compile("$.a[?(@.b ~ 1)]"));
+        assertNull(JsonUtils.extractByPath(Map.of("a", 1), "$.a[0"));
+    }
+}
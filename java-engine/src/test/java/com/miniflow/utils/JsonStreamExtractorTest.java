@@ -0,0 +1,64 @@
+package com.miniflow.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class JsonStreamExtractorTest {
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void extractsSamePathsAsTheFullTree() {
+        String json = "{\"a\":{\"b\":[1,2],\"c\":{\"d\":\"x\"}},\"skip\":{\"deep\":[{\"a\":1}]},\"n\":null,\"s\":5}";
+        List<String> paths = List.of("$.a.b", "$.a.c.d", "a.c", "$.s", "$.n", "$.skip.deep.a", "$.zz",
+                "$.a.b[1]", "$.skip.deep[*].a");
+
+        JsonStreamExtractor.Result result = JsonStreamExtractor.extract(stream(json), paths, false, 4096);
+
+        Object tree = JsonUtils.tryParse(json);
+        for (String path : paths)
+            assertEquals(JsonUtils.extractByPath(tree, path), result.values().get(path), path);
+        assertNull(result.tree());
+        assertEquals(json, result.preview());
+
+        // Sin campos iniciales hace falta el documento entero
+        JsonStreamExtractor.Result root = JsonStreamExtractor.extract(stream(json), List.of("$[?(@.c)].b"), false,
+                4096);
+        assertEquals(List.of(List.of(1, 2)), root.values().get("$[?(@.c)].b"));
+        assertNull(root.tree());
+    }
+
+    @Test
+    void stopsReadingOnceEveryPathIsFound() {
+        StringBuilder json = new StringBuilder("{\"id\":7,\"rest\":[");
+        for (int i = 0; i < 10000; i++)
+            json.append(i > 0 ? "," : "").append(i);
+        json.append("]}");
+
+        JsonStreamExtractor.Result result = JsonStreamExtractor.extract(stream(json.toString()), List.of("$.id"),
+                false, 16);
+
+        assertEquals(Map.of("$.id", 7), result.values());
+        assertTrue(result.bytes() < json.length(), "bytes=" + result.bytes());
+        assertTrue(result.truncated());
+        assertEquals("{\"id\":7,\"rest\":[", result.preview());
+    }
+
+    @Test
+    void invalidJsonStillReturnsThePreview() {
+        JsonStreamExtractor.Result result = JsonStreamExtractor.extract(stream("not json at all"), List.of("$.a"),
+                false, 8);
+
+        assertTrue(result.values().isEmpty());
+        assertEquals("not json", result.preview());
+        assertTrue(result.truncated());
+    }
+}
@@ -0,0 +1,43 @@
+package com.miniflow.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+    @Test
+    void percentilesStayWithinTheBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(42);
+        long[] values = new long[50_000];
+        for (int i = 0; i < values.length; i++) {
+            // De microsegundos a segundos, como las latencias reales
+            values[i] = (long) Math.exp(7 + random.nextDouble() * 14);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double q : new double[] { 0.5, 0.9, 0.99, 0.999 }) {
+            long exact = values[(int) Math.ceil(q * values.length) - 1];
+            long estimate = histogram.percentile(q);
+            assertEquals(exact, estimate, exact / 60.0, "p" + q);
+        }
+        assertEquals(values.length, histogram.count());
+        assertEquals(values[values.length - 1], histogram.max());
+        assertEquals(values[values.length - 1], histogram.percentile(1.0));
+    }
+
+    @Test
+    void smallValuesAreExactAndEmptyHistogramIsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(0.99));
+        for (long v = 1; v <= 100; v++)
+            histogram.record(v);
+        assertEquals(50, histogram.percentile(0.5));
+        assertEquals(99, histogram.percentile(0.99));
+        assertEquals(50.5, histogram.mean());
+    }
+}
@@ -0,0 +1,87 @@
+package com.miniflow.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.Test;
+
+class OutputCaptureTest {
+
+    private static String sha256(byte[] bytes) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+
+    @Test
+    void keepsHeadAndTailWithinBoundsAndHashesEverything() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++)
+            sb.append("line-").append(i).append('\n');
+        byte[] all = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+        OutputCapture capture = new OutputCapture(32, 32, true);
+        for (int i = 0; i < all.length; i += 1000)
+            capture.write(ByteBuffer.wrap(all, i, Math.min(1000, all.length - i)));
+        capture.close();
+
+        String text = capture.text();
+        assertTrue(text.startsWith("line-0\nline-1\n"), text);
+        assertTrue(text.endsWith("line-4998\nline-4999\n"), text);
+        assertTrue(text.contains("bytes omitted]"), text);
+        assertTrue(text.length() < 200);
+        assertTrue(capture.truncated());
+        assertEquals(all.length, capture.bytes());
+        assertEquals(5000, capture.lines());
+        assertEquals(sha256(all), capture.sha256());
+        assertArrayEquals(all, Files.readAllBytes(capture.spillFile()));
+        Files.delete(capture.spillFile());
+    }
+
+    @Test
+    void smallOutputIsKeptVerbatimAndUtf8IsNeverSplit() throws Exception {
+        OutputCapture small = new OutputCapture(4, 16, false);
+        small.write(ByteBuffer.wrap("héllo wörld".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("héllo wörld\n", small.text());
+        assertFalse(small.truncated());
+        assertEquals(1, small.lines());
+        assertNull(small.spillFile());
+
+        OutputCapture cut = new OutputCapture(2, 3, false);
+        cut.write(ByteBuffer.wrap("aé1234567é".getBytes(StandardCharsets.UTF_8)));
+        String text = cut.text();
+        assertTrue(text.startsWith("a\n...["), text);
+        assertTrue(text.endsWith("]...\n7é\n"), text);
+        assertFalse(text.contains("�"), text);
+    }
+
+    @Test
+    void textNormalizesLineEndingsLikeTheOldReader() throws Exception {
+        byte[] raw = "uno\r\ndos\rtres".getBytes(StandardCharsets.UTF_8);
+        OutputCapture capture = new OutputCapture(64, 64, false);
+        capture.write(ByteBuffer.wrap(raw));
+
+        assertEquals("uno\ndos\ntres\n", capture.text());
+        // El hash es el de los bytes tal como llegaron
+        assertEquals(sha256(raw), capture.sha256());
+        assertEquals("", new OutputCapture(8, 8, false).text());
+    }
+
+    @Test
+    void pumpStreamsLinesAndCompletesWithTheCapture() throws Exception {
+        byte[] input = ("one\r\ntwo\n" + "x".repeat(100) + "\nlast").getBytes(StandardCharsets.UTF_8);
+        List<String> lines = new CopyOnWriteArrayList<>();
+
+        OutputCapture capture = ProcessPump.start("test", new ByteArrayInputStream(input),
+                new OutputCapture(1024, 0, false), lines::add, 16).get();
+
+        assertEquals(List.of("one", "two", "x".repeat(16) + "...", "last"), lines);
+        assertEquals(input.length, capture.bytes());
+        assertEquals(4, capture.lines());
+    }
+}
@@ -0,0 +1,32 @@
+package com.miniflow.utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Los tests que lanzan python3 se saltan (assumeTrue) donde no está
+ * instalado con ese nombre, como en los runners de Windows.
+ */
+public final class PythonSupport {
+
+    private static volatile Boolean available;
+
+    private PythonSupport() {
+    }
+
+    public static boolean available() {
+        Boolean result = available;
+        if (result == null) {
+            try {
+                Process process = new ProcessBuilder("python3", "--version")
+                        .redirectErrorStream(true)
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .start();
+                result = process.waitFor(10, TimeUnit.SECONDS) && process.exitValue() == 0;
+            } catch (Exception e) {
+                result = false;
+            }
+            available = result;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,147 @@
+package com.miniflow.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PythonWorkerPoolTest {
+
+    @TempDir
+    static Path dir;
+
+    private static String script;
+
+    @BeforeAll
+    static void writeScript() throws Exception {
+        assumeTrue(PythonSupport.available(), "python3 not installed");
+        Path file = dir.resolve("job.py");
+        Files.writeString(file, String.join("\n",
+                "import os, sys, time",
+                "mode = sys.argv[1]",
+                "if mode == 'crash':",
+                "    os._exit(7)",
+                "if mode == 'sleep':",
+                "    time.sleep(5)",
+                "if mode == 'chatty':",
+                "    print('first', flush=True)",
+                "    time.sleep(0.5)",
+                "    for i in range(200000):",
+                "        print('line %06d' % i)",
+                "    sys.exit(0)",
+                "print(os.getpid(), sys.stdin.read().upper(), os.path.basename(os.getcwd()))",
+                "print('warn', file=sys.stderr)",
+                "if mode == 'fail':",
+                "    sys.exit(3)",
+                ""));
+        script = file.toString();
+    }
+
+    private static PythonWorkerPool.Job job(String mode) {
+        return new PythonWorkerPool.Job(script, List.of(mode), dir.toString(), "hola");
+    }
+
+    /**
+     * Salida de un trabajo reunida en texto.
+     */
+    private static final class Collected implements PythonWorkerPool.Output {
+        final StringBuilder stdout = new StringBuilder();
+        final StringBuilder stderr = new StringBuilder();
+
+        @Override
+        public void write(boolean stderr, ByteBuffer chunk) {
+            (stderr ? this.stderr : stdout).append(StandardCharsets.UTF_8.decode(chunk));
+        }
+    }
+
+    @Test
+    void reusesWarmWorkersAndRecyclesThemAfterMaxJobs() throws Exception {
+        PythonWorkerPool pool = new PythonWorkerPool("python3", 1, 3);
+        try {
+            Collected output = new Collected();
+            PythonWorkerPool.Result first = pool.run(job("ok"), 10000, output);
+            PythonWorkerPool.Result second = pool.run(job("fail"), 10000, new Collected());
+            PythonWorkerPool.Result third = pool.run(job("ok"), 10000, new Collected());
+            PythonWorkerPool.Result fourth = pool.run(job("ok"), 10000, new Collected());
+
+            assertEquals(0, first.exitCode());
+            assertEquals(first.pid() + " HOLA " + dir.getFileName() + "\n", output.stdout.toString());
+            assertEquals("warn\n", output.stderr.toString());
+            // sys.exit no mata al worker
+            assertEquals(3, second.exitCode());
+            assertEquals(first.pid(), second.pid());
+            assertEquals(first.pid(), third.pid());
+            assertEquals(3, third.jobs());
+            // Tras maxJobs trabajos el worker se reemplaza
+            assertNotEquals(first.pid(), fourth.pid());
+            assertEquals(1, fourth.jobs());
+
+            Path input = dir.resolve("input.txt");
+            Files.writeString(input, "desde fichero");
+            Collected fromFile = new Collected();
+            pool.run(new PythonWorkerPool.Job(script, List.of("ok"), null, null, input.toString()), 10000, fromFile);
+            assertTrue(fromFile.stdout.toString().contains(" DESDE FICHERO "), fromFile.stdout.toString());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void replacesWorkersThatCrashOrTimeOut() throws Exception {
+        PythonWorkerPool pool = new PythonWorkerPool("python3", 1, 100);
+        try {
+            Collected output = new Collected();
+            PythonWorkerPool.Result crash = pool.run(job("crash"), 10000, output);
+            assertEquals(7, crash.exitCode());
+            assertTrue(output.stderr.toString().contains("crashed"), output.stderr.toString());
+            assertEquals(0, pool.idleWorkers());
+
+            Exception timeout = assertThrows(Exception.class, () -> pool.run(job("sleep"), 300, new Collected()));
+            assertTrue(timeout.getMessage().contains("Time Out"));
+
+            PythonWorkerPool.Result after = pool.run(job("ok"), 10000, new Collected());
+            assertEquals(0, after.exitCode());
+            assertNotEquals(crash.pid(), after.pid());
+            assertEquals(1, pool.idleWorkers());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void streamsOutputInBoundedChunksWhileTheScriptRuns() throws Exception {
+        PythonWorkerPool pool = new PythonWorkerPool("python3", 1, 100);
+        try {
+            long start = System.nanoTime();
+            long[] firstChunkAt = { -1 };
+            int[] largest = { 0 };
+            long[] bytes = { 0 };
+            PythonWorkerPool.Result result = pool.run(job("chatty"), 20000, (stderr, chunk) -> {
+                if (firstChunkAt[0] < 0)
+                    firstChunkAt[0] = System.nanoTime();
+                largest[0] = Math.max(largest[0], chunk.remaining());
+                bytes[0] += chunk.remaining();
+                chunk.position(chunk.limit());
+            });
+            long end = System.nanoTime();
+
+            assertEquals(0, result.exitCode());
+            assertEquals(200000L * "line 000000\n".length() + "first\n".length(), bytes[0]);
+            // La primera línea llega antes de que el script termine
+            assertTrue(end - firstChunkAt[0] > 400_000_000L, "first chunk " + (firstChunkAt[0] - start) / 1_000_000
+                    + " ms after start, job took " + (end - start) / 1_000_000 + " ms");
+            assertTrue(largest[0] <= 8192, "chunk of " + largest[0] + " bytes");
+            // El worker sigue sirviendo trabajos
+            assertEquals(result.pid(), pool.run(job("ok"), 10000, new Collected()).pid());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
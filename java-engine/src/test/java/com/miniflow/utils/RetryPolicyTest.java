@@ -0,0 +1,47 @@
+package com.miniflow.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class RetryPolicyTest {
+
+    @Test
+    void exponentialBackoffIsCapped() {
+        RetryPolicy policy = new RetryPolicy(5, 100, 2, 350, RetryPolicy.Jitter.NONE, Set.of());
+
+        assertEquals(100, policy.delayMs(1));
+        assertEquals(200, policy.delayMs(2));
+        assertEquals(350, policy.delayMs(3));
+        assertEquals(350, policy.delayMs(10));
+    }
+
+    @Test
+    void jitterStaysWithinBounds() {
+        RetryPolicy full = new RetryPolicy(3, 100, 2, 1000, RetryPolicy.Jitter.FULL, Set.of());
+        RetryPolicy equal = new RetryPolicy(3, 100, 2, 1000, RetryPolicy.Jitter.EQUAL, Set.of());
+
+        for (int i = 0; i < 200; i++) {
+            long f = full.delayMs(3);
+            long e = equal.delayMs(3);
+            assertTrue(f >= 0 && f <= 400, "full=" + f);
+            assertTrue(e >= 200 && e <= 400, "equal=" + e);
+        }
+    }
+
+    @Test
+    void policyIsReadFromNodeConfig() {
+        RetryPolicy policy = RetryPolicy.from(Map.of(
+                "retries", 2,
+                "retryPolicy", Map.of("backoffMs", 10, "multiplier", 3, "jitter", "none",
+                        "retryOnStatus", List.of(503))));
+
+        assertEquals(2, policy.maxRetries());
+        assertEquals(30, policy.delayMs(2));
+        assertTrue(policy.retriesStatus(503));
+        assertFalse(policy.retriesStatus(500));
+    }
+}
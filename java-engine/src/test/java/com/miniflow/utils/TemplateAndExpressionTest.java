@@ -3,6 +3,8 @@ package com.miniflow.utils;
 import static org.junit.jupiter.api.Assertions.*;
 
 import com.miniflow.context.ExecutionContext;
+import java.util.List;
+import java.util.Map;
 import org.junit.jupiter.api.Test;
 
 class TemplateAndExpressionTest {
@@ -21,6 +23,21 @@ class TemplateAndExpressionTest {
         assertEquals("Hola Jean / 200 / ", rendered);
     }
 
+    @Test
+    void templateEngineResolvesNestedPathsAndKeepsUnknownMarkers() {
+        ExecutionContext context = new ExecutionContext();
+        context.setVariable("user", Map.of("name", "Ana", "roles", List.of("admin", "dev")));
+        context.setVariable("a.b", "dotted");
+
+        assertEquals("Ana/dev/", TemplateEngine.render("{{ user.name }}/{{context.user.roles[1]}}/{{user.nope}}",
+                context));
+        assertEquals("dotted", TemplateEngine.render("{{a.b}}", context));
+        assertEquals("{Ana} {{ not valid! }} {{", TemplateEngine.render("{{{user.name}}} {{ not valid! }} {{",
+                context));
+        assertSame(TemplateEngine.compile("x {{user.name}}"), TemplateEngine.compile("x {{user.name}}"));
+        assertTrue(TemplateEngine.compile("plain text").isLiteral());
+    }
+
     @Test
     void templateEngineReturnsInputForBlankOrNull() {
         ExecutionContext context = new ExecutionContext();
@@ -39,6 +56,26 @@ class TemplateAndExpressionTest {
         assertFalse(ExpressionEvaluator.evaluate("status != 200", context));
     }
 
+    @Test
+    void expressionEvaluatorKeepsLegacyUnquotedRightHandValues() {
+        ExecutionContext context = new ExecutionContext();
+        context.setVariable("status", "done");
+        context.setVariable("d", "2024-01-01");
+        context.setVariable("email", "a@b.com");
+        context.setVariable("name", "Mr Mime");
+        context.setVariable("my-var", 1);
+
+        assertTrue(ExpressionEvaluator.evaluate("status != in-progress", context));
+        assertTrue(ExpressionEvaluator.evaluate("d == 2024-01-01", context));
+        assertTrue(ExpressionEvaluator.evaluate("email == a@b.com", context));
+        assertTrue(ExpressionEvaluator.evaluate("name == Mr Mime", context));
+        assertTrue(ExpressionEvaluator.evaluate("my-var == 1", context));
+        assertFalse(ExpressionEvaluator.evaluate("status == in-progress", context));
+        assertFalse(ExpressionEvaluator.evaluate("email != a@b.com", context));
+        // compile sigue siendo estricto
+        assertThrows(IllegalArgumentException.class, () -> ExpressionEvaluator.compile("email == a@b.com"));
+    }
+
     @Test
     void expressionEvaluatorRejectsInvalidExpressions() {
         ExecutionContext context = new ExecutionContext();
@@ -46,6 +83,29 @@ class TemplateAndExpressionTest {
 
         assertFalse(ExpressionEvaluator.evaluate(null, context));
         assertFalse(ExpressionEvaluator.evaluate("   ", context));
-        assertFalse(ExpressionEvaluator.evaluate("x > 0", context));
+        assertFalse(ExpressionEvaluator.evaluate("x >", context));
+        assertFalse(ExpressionEvaluator.evaluate("x == 'open", context));
+        assertFalse(ExpressionEvaluator.evaluate("unknownFn(x)", context));
+        assertThrows(IllegalArgumentException.class, () -> ExpressionEvaluator.compile("(x == 1"));
+    }
+
+    @Test
+    void expressionEvaluatorSupportsLogicComparisonsAndFunctions() {
+        ExecutionContext context = new ExecutionContext();
+        context.setVariable("x", 1);
+        context.setVariable("status", "200");
+        context.setVariable("user", Map.of("name", "Ana", "roles", List.of("admin", "dev"), "age", 31));
+
+        assertTrue(ExpressionEvaluator.evaluate("x > 0", context));
+        assertTrue(ExpressionEvaluator.evaluate("status >= 200 && status < 300", context));
+        assertTrue(ExpressionEvaluator.evaluate("!(x == 2) || missing", context));
+        assertFalse(ExpressionEvaluator.evaluate("x == 1 && !user.name", context));
+        assertTrue(ExpressionEvaluator.evaluate("user.roles[0] == 'admin' && user.age >= 30.5", context));
+        assertTrue(ExpressionEvaluator.evaluate("'dev' in user.roles && x in [1, 2, 3]", context));
+        assertFalse(ExpressionEvaluator.evaluate("'ops' in user.roles", context));
+        assertTrue(ExpressionEvaluator.evaluate("startsWith(lower(user.name), 'an') && len(user.roles) == 2", context));
+        assertTrue(ExpressionEvaluator.evaluate("contains(user.name, 'n') && matches(status, '^2\\d\\d$')", context));
+        assertTrue(ExpressionEvaluator.evaluate("user.missing == null && -1 < x", context));
+        assertSame(ExpressionEvaluator.compile("x > 0"), ExpressionEvaluator.compile("x > 0"));
     }
 }